@@ -0,0 +1,60 @@
+package app;
+
+import finite.automaton.BatchRunner;
+import finite.automaton.CompiledFSM;
+import finite.automaton.FSM;
+import harness.Bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares running many short base 10 numbers one by one, through the machine and through
+ * its compiled form, against running them in lock-step batches.
+ */
+public class BatchRunnerBenchmark {
+    final static int BASE = 10;
+    final static int COUNT = 100_000;
+    final static int[] MODULI = {7, 1_000, 100_000};
+
+    public static void main(String[] args) throws Exception{
+        Random random = new Random(33);
+        List<String> inputs = new ArrayList<>(COUNT);
+        long digits = 0;
+        for(int i = 0; i < COUNT; i++){
+            String input = Bench.randomDigits(BASE, 8 + random.nextInt(25), i);
+            inputs.add(input);
+            digits += input.length();
+        }
+
+        for(int modulo : MODULI){
+            FSM<Integer> machine = ModuloFSMFactory.makeModuloFSM(BASE, modulo);
+            CompiledFSM<Integer> compiled = machine.compile();
+            BatchRunner<Integer> batch = new BatchRunner<>(compiled);
+            System.out.println("Modulo " + modulo + ", " + COUNT + " inputs of 8 to 32 digits");
+
+            Bench.report("FSM.runMachine, one by one", digits, () -> {
+                long sum = 0;
+                for(String input : inputs){
+                    sum += machine.runMachine(input).getStateResult();
+                }
+                return sum;
+            });
+            Bench.report("CompiledFSM.runToId, one by one", digits, () -> {
+                long sum = 0;
+                for(String input : inputs){
+                    sum += compiled.runToId(input);
+                }
+                return sum;
+            });
+            Bench.report("BatchRunner, " + BatchRunner.LANES + " lanes", digits, () -> {
+                long sum = 0;
+                for(int id : batch.runToIds(inputs)){
+                    sum += id;
+                }
+                return sum;
+            });
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package app;
+
+import finite.automaton.BitPackedRunner;
+import finite.automaton.CompiledFSM;
+import harness.Bench;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Times finding the residue of large numbers held in binary, through the byte table of the bit-packed
+ * runner, compared against writing them out as a string of digits for the compiled machine, and against
+ * BigInteger itself, in bases 2 and 16.
+ */
+public class BitPackedBenchmark {
+    final static int BITS = 8_000_000;
+    final static int[] BASES = {2, 16};
+    final static int MODULO = 997;
+
+    public static void main(String[] args) throws Exception{
+        BigInteger number = new BigInteger(BITS, new Random(48)).setBit(BITS - 1);
+        byte[] bytes = number.toByteArray();
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        long[] words = new long[(bytes.length + 7) / 8];
+        ByteBuffer padded = ByteBuffer.allocate(words.length * 8);
+        padded.position(words.length * 8 - bytes.length);
+        padded.put(bytes).flip();
+        padded.asLongBuffer().get(words);
+        BigInteger modulo = BigInteger.valueOf(MODULO);
+
+        for(int base : BASES){
+            System.out.printf("%d bits in base %d, modulo %d%n", BITS, base, MODULO);
+            BitPackedRunner<Integer> runner = ModuloFSMFactory.makeBitPackedRunner(base, MODULO);
+            CompiledFSM<Integer> machine = runner.getMachine();
+            Bench.report("bytes", bytes.length, () -> runner.runToId(bytes));
+            Bench.report("direct buffer", bytes.length, () -> runner.runToId(direct));
+            Bench.report("words", bytes.length, () -> runner.runToId(words, ByteOrder.BIG_ENDIAN));
+            Bench.report("BigInteger", bytes.length, () -> runner.runToId(number));
+            Bench.report("written out and run", bytes.length, () -> machine.runToId(number.toString(base)));
+            Bench.report("BigInteger.mod", bytes.length, () -> number.mod(modulo).intValue());
+        }
+    }
+}
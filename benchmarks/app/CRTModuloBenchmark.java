@@ -0,0 +1,48 @@
+package app;
+
+import harness.Bench;
+
+import java.util.Arrays;
+
+/**
+ * Compares the CRT machine against a monolithic dense transition table over the whole modulo,
+ * for base 10 numbers and a range of composite moduli.
+ */
+public class CRTModuloBenchmark {
+    final static int BASE = 10;
+    final static int LENGTH = 1_000_000;
+    final static int[] MODULI = {7, 720_720, 999_999, 1_000_000, 1_000_001, 9_699_690};
+
+    public static void main(String[] args) throws Exception{
+        String number = Bench.randomDigits(BASE, LENGTH, 27);
+
+        for(int modulo : MODULI){
+            CRTModuloMachine crt = ModuloFSMFactory.makeCRTModuloMachine(BASE, modulo);
+            int[] table = makeMonolithicTable(BASE, modulo);
+            System.out.println("Modulo " + modulo + ": tail " + crt.getTailModulus()
+                    + " over " + crt.getTailLength() + " digits, groups "
+                    + Arrays.toString(crt.getGroupModuli()));
+
+            Bench.report("monolithic table", LENGTH, () -> runTable(table, number));
+            Bench.report("CRT decomposition", LENGTH, () -> crt.residue(number));
+        }
+    }
+
+    private static int[] makeMonolithicTable(int base, int modulo){
+        int[] table = new int[modulo * base];
+        for(int residue = 0; residue < modulo; residue++){
+            for(int digit = 0; digit < base; digit++){
+                table[residue * base + digit] = (int) (((long) residue * base + digit) % modulo);
+            }
+        }
+        return table;
+    }
+
+    private static long runTable(int[] table, String number){
+        int residue = 0;
+        for(int i = 0; i < number.length(); i++){
+            residue = table[residue * BASE + ModuloFSMFactory.digitOf(number.charAt(i), BASE)];
+        }
+        return residue;
+    }
+}
@@ -0,0 +1,43 @@
+package app;
+
+import finite.automaton.CompiledFSM;
+import finite.automaton.FSM;
+import harness.Bench;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compares the chunked evaluator, on characters and on ASCII bytes, against the
+ * <code>makeModuloFSM</code> machine, both as it is and compiled into a table.
+ */
+public class ChunkedModuloBenchmark {
+    final static int LENGTH = 1_000_000;
+    final static int[][] MACHINES = {{10, 7}, {10, 251}, {2, 3}, {16, 255}, {36, 97}};
+
+    public static void main(String[] args) throws Exception{
+        for(int[] parameters : MACHINES){
+            int base = parameters[0];
+            int modulo = parameters[1];
+            String number = Bench.randomDigits(base, LENGTH, 29);
+            byte[] bytes = number.getBytes(StandardCharsets.US_ASCII);
+
+            FSM<Integer> machine = ModuloFSMFactory.makeModuloFSM(base, modulo);
+            CompiledFSM<Integer> compiled = machine.compile();
+            ChunkedModuloEvaluator evaluator = ModuloFSMFactory.makeChunkedModuloEvaluator(base, modulo);
+
+            System.out.println("Base " + base + ", modulo " + modulo + ":");
+            Bench.report("FSM", LENGTH, () -> machine.runMachine(number).getStateResult());
+            Bench.report("compiled FSM", LENGTH, () -> compiled.runMachine(number).getStateResult());
+            Bench.report("chunked, characters", LENGTH, () -> evaluator.residue(number));
+            Bench.report("chunked, ASCII bytes", LENGTH, () -> evaluator.residue(bytes));
+        }
+
+        long modulo = (1L << 62) - 57;
+        String number = Bench.randomDigits(10, LENGTH, 29);
+        byte[] bytes = number.getBytes(StandardCharsets.US_ASCII);
+        ChunkedModuloEvaluator evaluator = ModuloFSMFactory.makeChunkedModuloEvaluator(10, modulo);
+        System.out.println("Base 10, modulo " + modulo + ":");
+        Bench.report("chunked, characters", LENGTH, () -> evaluator.residue(number));
+        Bench.report("chunked, ASCII bytes", LENGTH, () -> evaluator.residue(bytes));
+    }
+}
@@ -0,0 +1,45 @@
+package app;
+
+import finite.automaton.Transducer;
+import harness.Bench;
+
+import java.math.BigInteger;
+
+/**
+ * Times dividing a long base 10 number by small moduli, streaming the quotient digits out of the
+ * division transducer, compared against BigInteger, both dividing a number already parsed and
+ * parsing it and writing the quotient back out in base 10 as the transducer does.
+ */
+public class DivisionTransducerBenchmark {
+    final static int[] LENGTHS = {100_000, 1_000_000};
+    final static int[] MODULI = {7, 997, 65_536};
+    final static int BASE = 10;
+
+    public static void main(String[] args) throws Exception{
+        for(int length : LENGTHS){
+            String number = Bench.randomDigits(BASE, length, 50);
+            char[] quotient = new char[length];
+            BigInteger parsed = new BigInteger(number, BASE);
+
+            for(int modulo : MODULI){
+                System.out.printf("%d digits, modulo %d%n", length, modulo);
+                Transducer<Integer> transducer = ModuloFSMFactory.makeDivisionTransducer(BASE, modulo);
+                BigInteger divisor = BigInteger.valueOf(modulo);
+                Bench.report("transducer", length, () -> {
+                    int[] written = {0};
+                    int id = transducer.runToId(number, c -> quotient[written[0]++] = c);
+                    return id + quotient[length - 1];
+                });
+                Bench.report("BigInteger divideAndRemainder", length,
+                        () -> parsed.divideAndRemainder(divisor)[1].intValue());
+                // quadratic in the number of digits, so timed once
+                long start = System.nanoTime();
+                BigInteger[] result = new BigInteger(number, BASE).divideAndRemainder(divisor);
+                int written = result[0].toString(BASE).length();
+                long nanos = System.nanoTime() - start;
+                System.out.printf("\t%-40s %12.3f ms %10.3f ns/item (%d digits)%n", "BigInteger parse, divide and write",
+                        nanos / 1e6, (double) nanos / length, written);
+            }
+        }
+    }
+}
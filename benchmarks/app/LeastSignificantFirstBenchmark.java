@@ -0,0 +1,52 @@
+package app;
+
+import finite.automaton.CompiledFSM;
+import harness.Bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times finding the residue of base 10 numbers sent least significant digit first, through the machine
+ * made to read them that way, compared against reversing each number for the usual machine, for many
+ * short numbers and for one long one, and for moduli with few and with many powers of the base.
+ */
+public class LeastSignificantFirstBenchmark {
+    final static int SHORT_COUNT = 100_000;
+    final static int SHORT_LENGTH = 100;
+    final static int LONG_LENGTH = 10_000_000;
+    final static int[] MODULI = {7, 1000, 997};
+    final static int BASE = 10;
+
+    public static void main(String[] args) throws Exception{
+        List<String> shortNumbers = new ArrayList<>(SHORT_COUNT);
+        for(int i = 0; i < SHORT_COUNT; i++){
+            shortNumbers.add(Bench.randomDigits(BASE, SHORT_LENGTH, i));
+        }
+        String longNumber = Bench.randomDigits(BASE, LONG_LENGTH, 49);
+
+        for(int modulo : MODULI){
+            CompiledFSM<Integer> forward = ModuloFSMFactory.makeModuloFSM(BASE, modulo).compile();
+            CompiledFSM<Integer> backward = ModuloFSMFactory.makeModuloFSM(BASE, modulo, true).compile();
+            System.out.printf("modulo %d, %d states read least significant first%n", modulo,
+                    backward.getStateCount());
+            Bench.report("short, least significant first", (long) SHORT_COUNT * SHORT_LENGTH, () -> {
+                long sum = 0;
+                for(String number : shortNumbers){
+                    sum += backward.runToId(number);
+                }
+                return sum;
+            });
+            Bench.report("short, reversed first", (long) SHORT_COUNT * SHORT_LENGTH, () -> {
+                long sum = 0;
+                for(String number : shortNumbers){
+                    sum += forward.runToId(new StringBuilder(number).reverse());
+                }
+                return sum;
+            });
+            Bench.report("long, least significant first", LONG_LENGTH, () -> backward.runToId(longNumber));
+            Bench.report("long, reversed first", LONG_LENGTH,
+                    () -> forward.runToId(new StringBuilder(longNumber).reverse()));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package app;
+
+import finite.automaton.CompiledFSM;
+import finite.automaton.CompiledFSMFile;
+import finite.automaton.ResultCodec;
+import harness.Bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Compares rebuilding a modulo machine from scratch against loading it from a machine file,
+ * with and without verifying the file, for base 10 and a range of moduli.
+ */
+public class MachineFileBenchmark {
+    final static int BASE = 10;
+    final static int[] MODULI = {1_000, 10_000, 100_000};
+
+    public static void main(String[] args) throws Exception{
+        for(int modulo : MODULI){
+            Path path = Files.createTempFile("modulo" + modulo, ".fsm");
+            path.toFile().deleteOnExit();
+            CompiledFSMFile.write(ModuloFSMFactory.makeModuloFSM(BASE, modulo).compile(), path, ResultCodec.INTEGER);
+            System.out.println("Modulo " + modulo + ": " + Files.size(path) + " bytes");
+
+            Bench.report("rebuild and compile", modulo, () -> ModuloFSMFactory.makeModuloFSM(BASE, modulo)
+                    .compile().getStateCount());
+            Bench.report("map and verify", modulo, () -> CompiledFSMFile.map(path, ResultCodec.INTEGER)
+                    .getStateCount());
+            Bench.report("map without verifying", modulo, () -> CompiledFSMFile.map(path, ResultCodec.INTEGER, false)
+                    .getStateCount());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package app;
+
+import harness.Bench;
+
+/**
+ * Measures the costs the modulo planner's thresholds stand for on this host, prints the setter
+ * calls that would apply them, then applies them to the factory's planner and shows its choices.
+ */
+public class ModuloPlannerCalibration {
+    final static int BASE = 10;
+    final static int LENGTH = 4_000_000;
+    final static long[] TABLE_BYTES = {16 * 1024, 512 * 1024, 8 * 1024 * 1024, 256 * 1024 * 1024};
+
+    public static void main(String[] args) throws Exception{
+        String number = Bench.randomDigits(BASE, LENGTH, 30);
+
+        // a CRT machine for a power of the base does nothing but check digits, aside from the last few
+        System.out.println("Measuring digit reading...");
+        CRTModuloMachine digitsOnly = ModuloFSMFactory.makeCRTModuloMachine(BASE, 1_000_000);
+        double digitNanos = (double) Bench.bestNanos(() -> digitsOnly.residue(number)) / LENGTH;
+
+        System.out.println("Measuring the arithmetic engine...");
+        ChunkedModuloEvaluator evaluator = ModuloFSMFactory.makeChunkedModuloEvaluator(BASE, 1_000_003);
+        double arithmeticNanos = (double) Bench.bestNanos(() -> evaluator.residue(number)) / LENGTH;
+
+        // tables of increasing size, one per cache level, with the last fitting in none
+        double[] lookupNanos = new double[TABLE_BYTES.length];
+        double buildNanos = 0;
+        for(int level = 0; level < TABLE_BYTES.length; level++){
+            int modulo = moduloForBytes(TABLE_BYTES[level]);
+            long start = System.nanoTime();
+            TableModuloEngine engine = new TableModuloEngine(BASE, modulo, 1);
+            buildNanos = (double) (System.nanoTime() - start) / (engine.getTableBytes() / engine.getWidth());
+            System.out.println("Measuring a table of " + engine.getTableBytes() + " bytes...");
+            lookupNanos[level] = Math.max((double) Bench.bestNanos(() -> engine.residue(number)) / LENGTH
+                    - digitNanos, 0.1);
+        }
+
+        System.out.println("Calibrated thresholds:");
+        System.out.printf("\tplanner.setDigitNanos(%.2f);%n", digitNanos);
+        System.out.printf("\tplanner.setArithmeticDigitNanos(%.2f);%n", arithmeticNanos);
+        System.out.printf("\tplanner.setLookupNanos(%.2f, %.2f, %.2f, %.2f);%n",
+                lookupNanos[0], lookupNanos[1], lookupNanos[2], lookupNanos[3]);
+        System.out.printf("\tplanner.setBuildEntryNanos(%.2f);%n", buildNanos);
+
+        ModuloPlanner planner = ModuloFSMFactory.getPlanner();
+        planner.setDigitNanos(digitNanos);
+        planner.setArithmeticDigitNanos(arithmeticNanos);
+        planner.setLookupNanos(lookupNanos[0], lookupNanos[1], lookupNanos[2], lookupNanos[3]);
+        planner.setBuildEntryNanos(buildNanos);
+
+        System.out.println("Choices with calibrated thresholds:");
+        int[] moduli = {7, 997, 65_521, 720_720, 1_000_000, 10_000_019};
+        for(int modulo : moduli){
+            for(long digits : new long[]{1_000, 1_000_000_000L}){
+                ModuloPlanner.Plan plan = ModuloFSMFactory.planModuloEngine(BASE, modulo, digits, 1L << 28);
+                System.out.println("\tmodulo " + modulo + ", " + digits + " digits: " + plan);
+            }
+        }
+    }
+
+    /**
+     * Returns the modulo whose stride 1 table takes about the provided number of bytes.
+     */
+    private static int moduloForBytes(long bytes){
+        for(int width : new int[]{Integer.BYTES, Short.BYTES, Byte.BYTES}){
+            int modulo = (int) (bytes / width / BASE);
+            if(TableModuloEngine.widthFor(modulo) == width){
+                return modulo;
+            }
+        }
+        return 2;
+    }
+}
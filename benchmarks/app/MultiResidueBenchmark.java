@@ -0,0 +1,54 @@
+package app;
+
+import finite.automaton.FSM;
+import harness.Bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares finding the residues modulo every modulo from 2 to 64 with one multi-residue engine,
+ * against running one <code>makeModuloFSM</code> machine per modulo.
+ */
+public class MultiResidueBenchmark {
+    final static int BASE = 10;
+    final static int MIN_MODULO = 2;
+    final static int MAX_MODULO = 64;
+    final static int LENGTH = 1_000;
+    final static int COUNT = 1_000;
+
+    public static void main(String[] args) throws Exception{
+        List<String> numbers = new ArrayList<>(COUNT);
+        for(int i = 0; i < COUNT; i++){
+            numbers.add(Bench.randomDigits(BASE, LENGTH, i));
+        }
+
+        List<FSM<Integer>> machines = new ArrayList<>();
+        for(int modulo = MIN_MODULO; modulo <= MAX_MODULO; modulo++){
+            machines.add(ModuloFSMFactory.makeModuloFSM(BASE, modulo));
+        }
+        MultiResidueEngine engine = ModuloFSMFactory.makeMultiResidueEngine(BASE, MIN_MODULO, MAX_MODULO);
+        int[] output = new int[MAX_MODULO - MIN_MODULO + 1];
+
+        System.out.println("Residues modulo " + MIN_MODULO + ".." + MAX_MODULO + " of " + COUNT
+                + " numbers of " + LENGTH + " digits:");
+        long separate = Bench.report("separate FSMs", (long) COUNT * LENGTH, () -> {
+            long sum = 0;
+            for(String number : numbers){
+                for(FSM<Integer> machine : machines){
+                    sum += machine.runMachine(number).getStateResult();
+                }
+            }
+            return sum;
+        });
+        long together = Bench.report("multi-residue engine", (long) COUNT * LENGTH, () -> {
+            long sum = 0;
+            for(String number : numbers){
+                engine.residues(number, output);
+                sum += output[output.length - 1];
+            }
+            return sum;
+        });
+        System.out.printf("Speedup: %.1fx%n", (double) separate / together);
+    }
+}
@@ -0,0 +1,59 @@
+package app;
+
+import harness.Bench;
+
+import java.util.Random;
+
+/**
+ * Times the prefix residue index of base 10 numbers: building it, answering random substring queries,
+ * compared against running the modulo machine over each substring, and counting divisible substrings,
+ * for a modulo coprime with the base and one sharing factors with it.
+ */
+public class PrefixResidueBenchmark {
+    final static int[] LENGTHS = {1_000_000, 100_000_000};
+    final static int[] MODULI = {999_999_937, 720_720};
+    final static int QUERIES = 1_000_000;
+    final static int BASE = 10;
+
+    public static void main(String[] args) throws Exception{
+        for(int length : LENGTHS){
+            String number = Bench.randomDigits(BASE, length, 44);
+            Random random = new Random(length);
+            int[] froms = new int[QUERIES];
+            int[] tos = new int[QUERIES];
+            for(int q = 0; q < QUERIES; q++){
+                froms[q] = random.nextInt(length);
+                tos[q] = froms[q] + random.nextInt(Math.min(length - froms[q], 1000) + 1);
+            }
+
+            for(int modulo : MODULI){
+                System.out.printf("%d digits, modulo %d%n", length, modulo);
+                Bench.report("build index", length,
+                        () -> ModuloFSMFactory.makePrefixResidueIndex(BASE, modulo, number).length());
+                PrefixResidueIndex index = ModuloFSMFactory.makePrefixResidueIndex(BASE, modulo, number);
+                Bench.report("substring queries", QUERIES, () -> {
+                    long sum = 0;
+                    for(int q = 0; q < QUERIES; q++){
+                        sum += index.substringMod(froms[q], tos[q]);
+                    }
+                    return sum;
+                });
+                // far slower, so over a hundredth of the queries
+                CRTModuloMachine machine = ModuloFSMFactory.makeCRTModuloMachine(BASE, modulo);
+                Bench.report("machine over each substring", QUERIES / 100, () -> {
+                    long sum = 0;
+                    for(int q = 0; q < QUERIES / 100; q++){
+                        sum += machine.residue(number.subSequence(froms[q], tos[q]));
+                    }
+                    return sum;
+                });
+                // too slow to repeat on the longest numbers, so timed once
+                long start = System.nanoTime();
+                long count = index.countDivisibleSubstrings();
+                long countNanos = System.nanoTime() - start;
+                System.out.printf("\t%-40s %12.3f ms %10.3f ns/item (%d found)%n", "count divisible substrings",
+                        countNanos / 1e6, (double) countNanos / length, count);
+            }
+        }
+    }
+}
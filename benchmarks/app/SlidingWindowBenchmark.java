@@ -0,0 +1,42 @@
+package app;
+
+import harness.Bench;
+
+/**
+ * Times the residues of every window of a base 10 stream, fed in chunks, compared against running the
+ * modulo machine over each window, for windows of several lengths.
+ */
+public class SlidingWindowBenchmark {
+    final static int LENGTH = 10_000_000;
+    final static int CHUNK = 4096;
+    final static int[] WINDOWS = {8, 64, 512};
+    final static int MODULO = 999_999_937;
+    final static int BASE = 10;
+
+    public static void main(String[] args) throws Exception{
+        String number = Bench.randomDigits(BASE, LENGTH, 45);
+        int[] output = new int[LENGTH];
+        CRTModuloMachine machine = ModuloFSMFactory.makeCRTModuloMachine(BASE, MODULO);
+
+        for(int window : WINDOWS){
+            System.out.printf("window of %d digits%n", window);
+            SlidingWindowResidues windows = ModuloFSMFactory.makeSlidingWindowResidues(BASE, MODULO, window);
+            Bench.report("sliding window", LENGTH, () -> {
+                windows.reset();
+                int written = 0;
+                for(int from = 0; from < LENGTH; from += CHUNK){
+                    written += windows.feed(number.subSequence(from, Math.min(LENGTH, from + CHUNK)), output, written);
+                }
+                return output[written - 1];
+            });
+            // far slower, so over a hundredth of the windows
+            Bench.report("machine over each window", LENGTH / 100, () -> {
+                long sum = 0;
+                for(int from = 0; from < LENGTH / 100; from++){
+                    sum += machine.residue(number.subSequence(from, from + window));
+                }
+                return sum;
+            });
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package app;
+
+import finite.automaton.CompiledFSM;
+import harness.Bench;
+
+/**
+ * Compares compiled modulo machines running off their tables against the same machines
+ * specialized into generated code, for small moduli where the generated code is small enough,
+ * both for random digits and for a short repeating pattern of digits.
+ */
+public class SpecializedMachineBenchmark {
+    final static int LENGTH = 1_000_000;
+    final static int[][] MACHINES = {{2, 3}, {10, 3}, {10, 7}, {10, 64}, {16, 40}};
+
+    public static void main(String[] args) throws Exception{
+        for(int[] parameters : MACHINES){
+            int base = parameters[0];
+            int modulo = parameters[1];
+            String number = Bench.randomDigits(base, LENGTH, 32);
+            // a short period, so that the branches of generated code are predictable
+            String repeated = number.substring(0, 8).repeat(LENGTH / 8);
+            CompiledFSM<Integer> table = ModuloFSMFactory.makeModuloFSM(base, modulo).compile();
+            CompiledFSM<Integer> specialized = table.specialize();
+            System.out.println("Base " + base + ", modulo " + modulo
+                    + (specialized.isSpecialized() ? "" : " (not specialized)"));
+
+            Bench.report("table, random digits", LENGTH, () -> table.runToId(number));
+            Bench.report("specialized, random digits", LENGTH, () -> specialized.runToId(number));
+            Bench.report("table, repeated digits", LENGTH, () -> table.runToId(repeated));
+            Bench.report("specialized, repeated digits", LENGTH, () -> specialized.runToId(repeated));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package finite.automaton;
+
+import harness.Bench;
+
+import java.util.Arrays;
+
+/**
+ * Compares checking long strings against an alphabet with a binary search per character
+ * against the block-wise validator, for alphabets of one run, two runs and scattered characters.
+ */
+public class AlphabetValidatorBenchmark {
+    final static int LENGTH = 8_000_000;
+    final static String[] ALPHABETS = {"0123456789", "0123456789abcdef", "02468acegikmoqsuwy"};
+
+    public static void main(String[] args) throws Exception{
+        for(String alphabet : ALPHABETS){
+            char[] sorted = alphabet.toCharArray();
+            Arrays.sort(sorted);
+            StringBuilder builder = new StringBuilder(LENGTH);
+            for(int i = 0; i < LENGTH; i++){
+                builder.append(sorted[(int) (((i * 2654435761L) >>> 7) % sorted.length)]);
+            }
+            String data = builder.toString();
+            AlphabetValidator validator = new AlphabetValidator(sorted);
+            System.out.println("Alphabet " + alphabet);
+
+            Bench.report("binary search per character", LENGTH, () -> {
+                for(int i = 0; i < data.length(); i++){
+                    if(Arrays.binarySearch(sorted, data.charAt(i)) < 0){
+                        return i;
+                    }
+                }
+                return -1;
+            });
+            Bench.report("AlphabetValidator", LENGTH, () -> validator.firstInvalid(data));
+        }
+    }
+}
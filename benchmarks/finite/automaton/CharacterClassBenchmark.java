@@ -0,0 +1,78 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+import harness.Bench;
+
+import java.util.Random;
+
+/**
+ * Compares compiled machines with one column per symbol against machines with one column per
+ * character class, reporting how much smaller the table is and how fast each runs, for a machine
+ * of base 36 digits with case folding under a small modulo, and a machine over all of the BMP
+ * that only tells letters apart from other characters.
+ */
+public class CharacterClassBenchmark {
+    final static int LENGTH = 4_000_000;
+
+    // residue modulo the provided modulo of a number written in base 36, in either case
+    static FSM<Integer> makeModuloMachine(int modulo) throws Exception{
+        char[] digits = "0123456789abcdefghijklmnopqrstuvwxyz".toCharArray();
+        FSM<Integer> machine = new FSM<>(Alphabet.of(digits, true));
+        for(int i = 0; i < modulo; i++){
+            machine.setNewFinalState("S" + i, i);
+        }
+        for(int i = 0; i < modulo; i++){
+            for(int digit = 0; digit < digits.length; digit++){
+                machine.setTransition(machine.getStateByName("S" + i), digits[digit],
+                        machine.getStateByName("S" + ((i * digits.length + digit) % modulo)));
+            }
+        }
+        machine.setInitState(machine.getStateByName("S0"));
+        return machine;
+    }
+
+    // whether the last character read is part of a word, over every character
+    static FSM<Integer> makeWordMachine() throws Exception{
+        FSM<Integer> machine = new FSM<>(Alphabet.ofRange(0, Character.MAX_VALUE, false));
+        State<Integer> space = machine.setNewFinalState("space", 0);
+        State<Integer> word = machine.setNewFinalState("word", 1);
+        for(int c = 0; c <= Character.MAX_VALUE; c++){
+            State<Integer> next = Character.isLetter(c) ? word : space;
+            machine.setTransition(space, (char) c, next);
+            machine.setTransition(word, (char) c, next);
+        }
+        machine.setInitState(space);
+        return machine;
+    }
+
+    static void compare(String name, FSM<Integer> machine, String data) throws Exception{
+        CompiledFSM<Integer> separate = machine.compile(false);
+        CompiledFSM<Integer> merged = machine.compile();
+        long separateEntries = (long) separate.getStateCount() * separate.getClassCount();
+        long mergedEntries = (long) merged.getStateCount() * merged.getClassCount();
+        System.out.printf("%s: %d symbols, %d classes, %d -> %d table entries (%.1fx smaller)%n",
+                name, separate.getClassCount(), merged.getClassCount(),
+                separateEntries, mergedEntries, (double) separateEntries / mergedEntries);
+
+        Bench.report("one column per symbol", data.length(), () -> separate.runToId(data));
+        Bench.report("one column per class", data.length(), () -> merged.runToId(data));
+    }
+
+    public static void main(String[] args) throws Exception{
+        String digits = Bench.randomDigits(36, LENGTH, 36);
+        StringBuilder mixed = new StringBuilder(digits.length());
+        for(int i = 0; i < digits.length(); i++){
+            mixed.append(i % 2 == 0 ? digits.charAt(i) : Character.toUpperCase(digits.charAt(i)));
+        }
+        compare("base 36 modulo 7", makeModuloMachine(7), mixed.toString());
+
+        Random random = new Random(1);
+        char[] text = new char[LENGTH];
+        for(int i = 0; i < LENGTH; i++){
+            // mostly Latin text, with some characters from anywhere in the BMP
+            text[i] = random.nextInt(8) == 0 ? (char) random.nextInt(0xD800)
+                    : random.nextInt(6) == 0 ? ' ' : (char) ('a' + random.nextInt(26));
+        }
+        compare("letters over the BMP", makeWordMachine(), String.valueOf(text));
+    }
+}
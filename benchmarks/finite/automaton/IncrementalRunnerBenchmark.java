@@ -0,0 +1,79 @@
+package finite.automaton;
+
+import harness.Bench;
+
+import java.nio.CharBuffer;
+import java.util.Random;
+
+/**
+ * Times single character edits of a long base 10 number followed by reading its residue, through the
+ * incremental runner, compared against running the compiled machine over the whole number after each
+ * edit, for moduli of a few and of many states.
+ */
+public class IncrementalRunnerBenchmark {
+    final static int LENGTH = 1_000_000;
+    final static int EDITS = 100_000;
+    final static int[] MODULI = {7, 97};
+    final static char[] DIGITS = "0123456789".toCharArray();
+
+    static FSM<Integer> makeModuloMachine(int modulo) throws Exception{
+        FSM<Integer> machine = new FSM<>(DIGITS.clone());
+        for(int i = 0; i < modulo; i++){
+            machine.setNewFinalState("S" + i, i);
+        }
+        for(int i = 0; i < modulo; i++){
+            for(int digit = 0; digit < DIGITS.length; digit++){
+                machine.setTransition(machine.getStateByName("S" + i), DIGITS[digit],
+                        machine.getStateByName("S" + ((i * DIGITS.length + digit) % modulo)));
+            }
+        }
+        machine.setInitState(machine.getStateByName("S0"));
+        return machine;
+    }
+
+    public static void main(String[] args) throws Exception{
+        String number = Bench.randomDigits(10, LENGTH, 46);
+        Random random = new Random(47);
+        int[] indices = new int[EDITS];
+        char[] digits = new char[EDITS];
+        for(int i = 0; i < EDITS; i++){
+            indices[i] = random.nextInt(LENGTH - 1);
+            digits[i] = DIGITS[random.nextInt(DIGITS.length)];
+        }
+
+        for(int modulo : MODULI){
+            System.out.printf("%d digits, modulo %d%n", LENGTH, modulo);
+            CompiledFSM<Integer> machine = makeModuloMachine(modulo).compile();
+            Bench.report("build", LENGTH, () -> new IncrementalRunner<>(machine, number).getFinalId());
+            IncrementalRunner<Integer> runner = new IncrementalRunner<>(machine, number);
+            Bench.report("set digit", EDITS, () -> {
+                long sum = 0;
+                for(int i = 0; i < EDITS; i++){
+                    runner.setChar(indices[i], digits[i]);
+                    sum += runner.getFinalId();
+                }
+                return sum;
+            });
+            Bench.report("insert and delete digit", EDITS, () -> {
+                long sum = 0;
+                for(int i = 0; i < EDITS; i++){
+                    runner.insert(indices[i], digits[i]);
+                    sum += runner.getFinalId();
+                    runner.delete(indices[EDITS - 1 - i]);
+                    sum += runner.getFinalId();
+                }
+                return sum;
+            });
+            // far slower, so over a thousandth of the edits
+            char[] chars = number.toCharArray();
+            Bench.report("rerun after each set digit", EDITS / 1000, () -> {
+                long sum = 0;
+                for(int i = 0; i < EDITS / 1000; i++){
+                    chars[indices[i]] = digits[i];
+                    sum += machine.runToId(CharBuffer.wrap(chars));
+                }
+                return sum;
+            });
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+import harness.Bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Compares big compiled modulo machines of base 10 with their table on the heap against the same
+ * machines with their table off the heap, in a <code>TableArena</code>. Reports the pause of a full
+ * collection and the time spent collecting while other code allocates, with only that machine alive,
+ * then the time to run each machine.
+ */
+public class OffHeapTableBenchmark {
+    final static int[] MODULI = {1_000_000, 20_000_000};
+    final static int LENGTH = 4_000_000;
+    final static int BASE = 10;
+    final static int FULL_COLLECTIONS = 5;
+    final static long CHURN_BYTES = 4_000_000_000L;
+
+    // the compiled machine of residues of base 10 numbers, off the heap if an arena is provided
+    @SuppressWarnings("unchecked")
+    static CompiledFSM<Integer> makeModuloMachine(int modulo, TableArena arena){
+        int stateCount = modulo + 1;
+        TransitionTable storage;
+        if(arena != null){
+            OffHeapTable table = new OffHeapTable(arena, stateCount, BASE);
+            table.acquire();
+            for(int residue = 0; residue < modulo; residue++){
+                for(int digit = 0; digit < BASE; digit++){
+                    table.set(residue + 1, digit, (int) (((long) residue * BASE + digit) % modulo) + 1);
+                }
+            }
+            table.release();
+            storage = table;
+        }
+        else{
+            int[] table = new int[stateCount * BASE];
+            for(int residue = 0; residue < modulo; residue++){
+                for(int digit = 0; digit < BASE; digit++){
+                    table[(residue + 1) * BASE + digit] = (int) (((long) residue * BASE + digit) % modulo) + 1;
+                }
+            }
+            storage = new IntArrayTable(table, stateCount, BASE);
+        }
+        // the states are never asked for, so they all share one
+        State<Integer>[] states = (State<Integer>[]) new State<?>[stateCount];
+        Arrays.fill(states, new State<>("S", true, 0));
+        int[] classes = new int[BASE];
+        for(int digit = 0; digit < BASE; digit++){
+            classes[digit] = digit;
+        }
+        return new CompiledFSM<>(Alphabet.of("0123456789".toCharArray()), classes, storage, states, 1, null);
+    }
+
+    static long collectionNanos(){
+        long millis = 0;
+        for(GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis * 1_000_000;
+    }
+
+    static void measure(String label, CompiledFSM<Integer> machine, String data) throws Exception{
+        long best = Long.MAX_VALUE;
+        for(int i = 0; i < FULL_COLLECTIONS; i++){
+            long start = System.nanoTime();
+            System.gc();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        // short-lived garbage, as a program running the machine would make
+        long before = collectionNanos();
+        byte[][] recent = new byte[4096][];
+        for(long allocated = 0, i = 0; allocated < CHURN_BYTES; allocated += 1024, i++){
+            recent[(int) (i % recent.length)] = new byte[1000];
+        }
+        long churn = collectionNanos() - before;
+        System.out.printf("\t%s: full collection %.1f ms, collecting during %.0f GB of garbage %.1f ms (%d)%n",
+                label, best / 1e6, CHURN_BYTES / 1e9, churn / 1e6, recent[0].length);
+        Bench.report(label, data.length(), () -> machine.runToId(data));
+    }
+
+    public static void main(String[] args) throws Exception{
+        String data = Bench.randomDigits(BASE, LENGTH, 41);
+        for(int modulo : MODULI){
+            System.out.printf("Modulo %d: table of %.1f MB%n", modulo, (modulo + 1L) * BASE * Integer.BYTES / 1e6);
+            measure("heap table", makeModuloMachine(modulo, null), data);
+            try(TableArena arena = TableArena.ofShared()) {
+                measure("off-heap table", makeModuloMachine(modulo, arena), data);
+            }
+        }
+    }
+}
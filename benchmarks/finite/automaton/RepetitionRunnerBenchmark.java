@@ -0,0 +1,34 @@
+package finite.automaton;
+
+import harness.Bench;
+
+/**
+ * Times running a base 10 modulo machine over a digit and a block of digits repeated many times, through
+ * the repetition runner, compared against running the compiled machine over the written out string, for
+ * moduli of a few and of many states.
+ */
+public class RepetitionRunnerBenchmark {
+    final static int WRITTEN = 10_000_000;
+    final static long[] COUNTS = {10_000_000L, 1_000_000_000_000L};
+    final static int[] MODULI = {7, 997};
+    final static String BLOCK = "31415926535897932384";
+
+    public static void main(String[] args) throws Exception{
+        String ones = "1".repeat(WRITTEN);
+        String blocks = BLOCK.repeat(WRITTEN / BLOCK.length());
+
+        for(int modulo : MODULI){
+            System.out.printf("modulo %d%n", modulo);
+            CompiledFSM<Integer> machine = IncrementalRunnerBenchmark.makeModuloMachine(modulo).compile();
+            RepetitionRunner<Integer> runner = new RepetitionRunner<>(machine);
+            Bench.report("written out ones", WRITTEN, () -> machine.runToId(ones));
+            Bench.report("written out blocks", WRITTEN, () -> machine.runToId(blocks));
+            for(long count : COUNTS){
+                Bench.report("repeated one, " + count + " times", 1, () -> runner.runToId('1', count));
+                long repetitions = count / BLOCK.length();
+                Bench.report("repeated block, " + repetitions + " times", 1,
+                        () -> runner.runToId(BLOCK, repetitions));
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+import harness.Bench;
+
+import java.util.Random;
+
+/**
+ * Compares the dense table against the row displacement table of sparse machines: tries of random
+ * words, where every state has few transitions that do not go to the null state. Reports the size
+ * of each table, the time to compile, and the time to look up words, half of which are in the trie.
+ */
+public class SparseTableBenchmark {
+    final static int[] WORD_COUNTS = {10_000, 100_000};
+    final static char[] LETTERS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    static String[] randomWords(Random random, int count){
+        String[] words = new String[count];
+        for(int i = 0; i < count; i++){
+            char[] word = new char[3 + random.nextInt(10)];
+            for(int j = 0; j < word.length; j++){
+                // skewed towards the first letters, like text
+                word[j] = LETTERS[Math.min(random.nextInt(LETTERS.length), random.nextInt(LETTERS.length))];
+            }
+            words[i] = String.valueOf(word);
+        }
+        return words;
+    }
+
+    static FSM<Integer> makeTrieMachine(String[] words) throws Exception{
+        FSM<Integer> machine = new FSM<>(LETTERS.clone());
+        State<Integer> root = machine.setNewState("");
+        machine.setInitState(root);
+        for(int i = 0; i < words.length; i++){
+            State<Integer> current = root;
+            for(int j = 0; j < words[i].length(); j++){
+                State<Integer> next = machine.getTransition(current, words[i].charAt(j));
+                if(next == machine.getNullState()){
+                    next = machine.setNewState(words[i].substring(0, j + 1));
+                    machine.setTransition(current, words[i].charAt(j), next);
+                }
+                current = next;
+            }
+            current.setFinality(true);
+            current.setValue(i);
+        }
+        return machine;
+    }
+
+    // the same machine, with its table copied into a dense array
+    @SuppressWarnings("unchecked")
+    static CompiledFSM<Integer> toDense(CompiledFSM<Integer> machine){
+        int stateCount = machine.getStateCount();
+        int columnCount = machine.getClassCount();
+        int[] table = new int[stateCount * columnCount];
+        State<Integer>[] states = (State<Integer>[]) new State<?>[stateCount];
+        for(int id = 0; id < stateCount; id++){
+            states[id] = machine.getState(id);
+            for(int col = 0; col < columnCount; col++){
+                table[id * columnCount + col] = machine.step(id, col);
+            }
+        }
+        int[] classes = new int[machine.getAlphabetIndex().size()];
+        for(int symbol = 0; symbol < classes.length; symbol++){
+            classes[symbol] = machine.classOf(symbol);
+        }
+        return new CompiledFSM<>(machine.getAlphabetIndex(), classes,
+                new IntArrayTable(table, stateCount, columnCount), states, machine.getInitId(), null);
+    }
+
+    public static void main(String[] args) throws Exception{
+        for(int count : WORD_COUNTS){
+            Random random = new Random(count);
+            String[] words = randomWords(random, count);
+            String[] queries = new String[2 * count];
+            System.arraycopy(words, 0, queries, 0, count);
+            System.arraycopy(randomWords(random, count), 0, queries, count, count);
+            long characters = 0;
+            for(String query : queries){
+                characters += query.length();
+            }
+
+            FSM<Integer> machine = makeTrieMachine(words);
+            long start = System.nanoTime();
+            CompiledFSM<Integer> sparse = machine.compile();
+            long compileNanos = System.nanoTime() - start;
+            CompiledFSM<Integer> dense = toDense(sparse);
+            System.out.printf("%d words, %d states: dense %.2f MB, sparse %.2f MB (%s), compiled in %.1f ms%n",
+                    count, sparse.getStateCount(), dense.getTableBytes() / 1e6, sparse.getTableBytes() / 1e6,
+                    sparse.getTable().getClass().getSimpleName(), compileNanos / 1e6);
+
+            Bench.report("dense table", characters, () -> {
+                long sum = 0;
+                for(String query : queries){
+                    sum += dense.runToId(query);
+                }
+                return sum;
+            });
+            Bench.report("row displacement table", characters, () -> {
+                long sum = 0;
+                for(String query : queries){
+                    sum += sparse.runToId(query);
+                }
+                return sum;
+            });
+        }
+    }
+}
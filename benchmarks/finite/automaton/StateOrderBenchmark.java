@@ -0,0 +1,64 @@
+package finite.automaton;
+
+import harness.Bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the order states are compiled in against breadth-first order and the order of visit
+ * frequency on a sample, for a large trie of words whose lookups follow a Zipf distribution, so
+ * that a few words take most of the traffic.
+ */
+public class StateOrderBenchmark {
+    final static int WORD_COUNT = 200_000;
+    final static int QUERY_COUNT = 1_000_000;
+    final static int SAMPLE_COUNT = 50_000;
+
+    // words drawn with the probability of the word of rank r proportional to 1 / r
+    static List<String> zipfQueries(String[] words, int count, long seed){
+        double[] cumulative = new double[words.length];
+        double total = 0;
+        for(int rank = 0; rank < words.length; rank++){
+            total += 1.0 / (rank + 1);
+            cumulative[rank] = total;
+        }
+        Random random = new Random(seed);
+        List<String> queries = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            queries.add(words[Math.min(index < 0 ? -index - 1 : index, words.length - 1)]);
+        }
+        return queries;
+    }
+
+    static void report(String label, CompiledFSM<Integer> machine, List<String> queries, long characters)
+    throws Exception{
+        Bench.report(label, characters, () -> {
+            long sum = 0;
+            for(String query : queries){
+                sum += machine.runToId(query);
+            }
+            return sum;
+        });
+    }
+
+    public static void main(String[] args) throws Exception{
+        String[] words = SparseTableBenchmark.randomWords(new Random(WORD_COUNT), WORD_COUNT);
+        CompiledFSM<Integer> compiled = SparseTableBenchmark.makeTrieMachine(words).compile();
+        List<String> queries = zipfQueries(words, QUERY_COUNT, 1);
+        List<String> sample = zipfQueries(words, SAMPLE_COUNT, 2);
+        long characters = 0;
+        for(String query : queries){
+            characters += query.length();
+        }
+        System.out.printf("%d words, %d states, %.1f MB table%n", WORD_COUNT, compiled.getStateCount(),
+                compiled.getTableBytes() / 1e6);
+
+        report("compiled order", compiled, queries, characters);
+        report("breadth-first order", compiled.renumberBreadthFirst(), queries, characters);
+        report("frequency order", compiled.renumberByFrequency(sample), queries, characters);
+    }
+}
@@ -0,0 +1,50 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+import harness.Bench;
+
+/**
+ * Compares compiled modulo machines of base 10 whose tables store state ids as <code>int</code>
+ * against the same machines with the narrowest width that fits their state count, which the
+ * compiler picks, for moduli whose tables fit in bytes, shorts, and only ints.
+ */
+public class TableWidthBenchmark {
+    final static int[] MODULI = {7, 200, 50_000, 1_000_000};
+    final static int LENGTH = 4_000_000;
+    final static int BASE = 10;
+
+    // the compiled machine of residues of base 10 numbers, with the provided table storage
+    @SuppressWarnings("unchecked")
+    static CompiledFSM<Integer> makeModuloMachine(int modulo, boolean narrow){
+        int stateCount = modulo + 1;
+        int[] table = new int[stateCount * BASE];
+        State<Integer>[] states = (State<Integer>[]) new State<?>[stateCount];
+        states[CompiledFSM.NULL_ID] = new State<>(null, false, null);
+        for(int residue = 0; residue < modulo; residue++){
+            states[residue + 1] = new State<>("S" + residue, true, residue);
+            for(int digit = 0; digit < BASE; digit++){
+                table[(residue + 1) * BASE + digit] = (int) (((long) residue * BASE + digit) % modulo) + 1;
+            }
+        }
+        int[] classes = new int[BASE];
+        for(int digit = 0; digit < BASE; digit++){
+            classes[digit] = digit;
+        }
+        TransitionTable storage = narrow ? TransitionTable.ofDense(table, stateCount, BASE)
+                : new IntArrayTable(table, stateCount, BASE);
+        return new CompiledFSM<>(Alphabet.of("0123456789".toCharArray()), classes, storage, states, 1, null);
+    }
+
+    public static void main(String[] args) throws Exception{
+        String data = Bench.randomDigits(BASE, LENGTH, 38);
+        for(int modulo : MODULI){
+            CompiledFSM<Integer> wide = makeModuloMachine(modulo, false);
+            CompiledFSM<Integer> narrow = makeModuloMachine(modulo, true);
+            System.out.printf("Modulo %d: int table %.1f KB, %s %.1f KB%n", modulo,
+                    wide.getTableBytes() / 1e3, narrow.getTable().getClass().getSimpleName(),
+                    narrow.getTableBytes() / 1e3);
+            Bench.report("int table", LENGTH, () -> wide.runToId(data));
+            Bench.report("narrowest table", LENGTH, () -> narrow.runToId(data));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package harness;
+
+import java.util.Random;
+
+/**
+ * A minimal timing harness for the benchmarks. Each body is run a number of times to warm up,
+ * then timed over several rounds, with the best round being reported. The checksum returned
+ * by the body is kept so that the work cannot be optimized away.
+ */
+public class Bench {
+
+    /**
+     * A piece of work being timed, returning a checksum of its output.
+     */
+    public interface Body{
+        long run() throws Exception;
+    }
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int TIMED_ROUNDS = 10;
+
+    private static volatile long sink;
+
+    /**
+     * Returns the best time of one run of the provided body, in nanoseconds.
+     * @param body The work being timed.
+     * @return The best time of one run of the body over all timed rounds.
+     */
+    public static long bestNanos(Body body) throws Exception{
+        for(int i = 0; i < WARMUP_ROUNDS; i++){
+            sink += body.run();
+        }
+        long best = Long.MAX_VALUE;
+        for(int i = 0; i < TIMED_ROUNDS; i++){
+            long start = System.nanoTime();
+            sink += body.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * Times the provided body and prints its best time, along with its throughput
+     * over the provided number of items.
+     *
+     * @param label The name of the work, as printed.
+     * @param items The number of items (such as characters) processed per run.
+     * @param body The work being timed.
+     * @return The best time of one run of the body, in nanoseconds.
+     */
+    public static long report(String label, long items, Body body) throws Exception{
+        long nanos = bestNanos(body);
+        System.out.printf("\t%-40s %12.3f ms %10.3f ns/item%n", label,
+                nanos / 1e6, (double) nanos / Math.max(items, 1));
+        return nanos;
+    }
+
+    /**
+     * Returns a random string of digits of the provided base, with the provided length.
+     * @param base The base of the digits, between 2 and 36.
+     * @param length The number of digits.
+     * @param seed The seed of the random generator, for repeatable runs.
+     */
+    public static String randomDigits(int base, int length, long seed){
+        Random random = new Random(seed);
+        char[] digits = new char[length];
+        for(int i = 0; i < length; i++){
+            digits[i] = Character.forDigit(random.nextInt(base), base);
+        }
+        return new String(digits);
+    }
+}
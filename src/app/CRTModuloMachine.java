@@ -0,0 +1,342 @@
+package app;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A machine finding the residue of a number written in some base modulo some other number,
+ * made by decomposing the modulo with the Chinese Remainder Theorem (CRT).
+ *
+ * The modulo is split into two coprime parts. The first is made up of the prime powers of
+ * primes that divide the base: since some power of the base is a multiple of that part,
+ * the residue modulo it only depends on the last few digits of the number. The second is made
+ * up of the other prime powers, which are packed into groups small enough for their transition
+ * tables to stay in the L1 cache. The tables of the groups are run in lock-step, one digit at a
+ * time, and the residues are combined at the end using precomputed CRT coefficients.
+ */
+public class CRTModuloMachine implements ModuloEngine {
+
+    // number of entries a group's table may have and still fit comfortably in L1 (16KB of ints)
+    private static final int L1_TABLE_ENTRIES = 4096;
+
+    // groups with tables bigger than this are stepped arithmetically instead
+    private static final int MAX_TABLE_ENTRIES = 1 << 24;
+
+    private final int base;
+
+    private final int modulo;
+
+    /**
+     * The part of the modulo made up of primes dividing the base. It is 1 if there are none.
+     */
+    private final int tailModulus;
+
+    /**
+     * The number of trailing digits the residue modulo <code>tailModulus</code> depends on.
+     */
+    private final int tailLength;
+
+    /**
+     * The moduli of the groups of prime powers coprime with the base.
+     */
+    private final int[] groupModuli;
+
+    /**
+     * The transition table for each group, indexed by <code>residue * base + digit</code>.
+     * It is <code>null</code> for groups too big to tabulate.
+     */
+    private final int[][] groupTables;
+
+    /**
+     * The CRT coefficient of each group, followed by that of the tail.
+     */
+    private final long[] coefficients;
+
+    /**
+     * The residues of the groups while reading a number, one array per thread, so that
+     * finding a residue allocates nothing.
+     */
+    private final ThreadLocal<int[]> groupResidues;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs the machine for the provided base and modulo, which are assumed to be valid
+     * parameters for <code>ModuloFSMFactory</code>.
+     */
+    CRTModuloMachine(int base, int modulo){
+        this.base = base;
+        this.modulo = modulo;
+
+        tailModulus = tailModulusOf(base, modulo);
+        tailLength = findTailLength(base, tailModulus);
+
+        groupModuli = groupModuliOf(base, modulo);
+        groupTables = new int[groupModuli.length][];
+        for(int g = 0; g < groupModuli.length; g++){
+            if(isTabulated(base, groupModuli[g])){
+                groupTables[g] = makeTable(base, groupModuli[g]);
+            }
+        }
+
+        coefficients = new long[groupModuli.length + 1];
+        for(int g = 0; g < groupModuli.length; g++){
+            coefficients[g] = crtCoefficient(modulo, groupModuli[g]);
+        }
+        coefficients[groupModuli.length] = crtCoefficient(modulo, tailModulus);
+        groupResidues = ThreadLocal.withInitial(() -> new int[groupModuli.length]);
+    }
+
+
+    //////////////
+    // helpers shared with the planner, which need no tables
+
+    /**
+     * Returns the part of the provided modulo made up of primes dividing the base, or 1 if there are none.
+     */
+    static int tailModulusOf(int base, int modulo){
+        int tail = 1;
+        for(int primePower : primePowers(modulo)){
+            if(base % smallestPrimeFactor(primePower) == 0){
+                tail *= primePower;
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Returns the moduli of the groups the machine of the provided base and modulo would run in lock-step.
+     */
+    static int[] groupModuliOf(int base, int modulo){
+        List<Integer> coprimePowers = new ArrayList<>();
+        for(int primePower : primePowers(modulo)){
+            if(base % smallestPrimeFactor(primePower) != 0){
+                coprimePowers.add(primePower);
+            }
+        }
+        return packGroups(coprimePowers, base);
+    }
+
+    /**
+     * Returns the number of bytes the tables of the machine of the provided base and modulo would take,
+     * without making them.
+     */
+    static long tableBytes(int base, int modulo){
+        long bytes = 0;
+        for(int groupModulus : groupModuliOf(base, modulo)){
+            bytes += isTabulated(base, groupModulus) ? (long) groupModulus * base * Integer.BYTES : 0;
+        }
+        return bytes;
+    }
+
+
+    ////////////////////////
+    // private helpers
+
+    private static boolean isTabulated(int base, int groupModulus){
+        return (long) groupModulus * base <= MAX_TABLE_ENTRIES;
+    }
+
+    private static int smallestPrimeFactor(int n){
+        for(int p = 2; (long) p * p <= n; p++){
+            if(n % p == 0){
+                return p;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the prime powers making up n, in increasing order of prime.
+     */
+    private static List<Integer> primePowers(int n){
+        List<Integer> powers = new ArrayList<>();
+        for(int p = 2; (long) p * p <= n; p++){
+            if(n % p == 0){
+                int power = 1;
+                while(n % p == 0){
+                    n /= p;
+                    power *= p;
+                }
+                powers.add(power);
+            }
+        }
+        if(n > 1){
+            powers.add(n);
+        }
+        return powers;
+    }
+
+    /**
+     * Returns the smallest j such that base^j is a multiple of the tail modulus.
+     * Every prime of the tail modulus divides the base, so this terminates.
+     */
+    static int findTailLength(int base, int tailModulus){
+        int length = 0;
+        long power = 1 % tailModulus;
+        while(power != 0){
+            power = power * base % tailModulus;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Greedily packs the provided coprime prime powers into groups whose tables fit in L1.
+     * Prime powers that are too big on their own get a group of their own.
+     */
+    private static int[] packGroups(List<Integer> powers, int base){
+        List<Integer> groups = new ArrayList<>();
+        long current = 1;
+        for(int power : powers){
+            if(current > 1 && current * power * base > L1_TABLE_ENTRIES){
+                groups.add((int) current);
+                current = 1;
+            }
+            current *= power;
+        }
+        if(current > 1){
+            groups.add((int) current);
+        }
+        return groups.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] makeTable(int base, int modulus){
+        int[] table = new int[modulus * base];
+        for(int residue = 0; residue < modulus; residue++){
+            for(int digit = 0; digit < base; digit++){
+                table[residue * base + digit] = (int) (((long) residue * base + digit) % modulus);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns the coefficient c such that c = 1 modulo the provided factor,
+     * and c = 0 modulo the rest of the modulo.
+     */
+    private static long crtCoefficient(int modulo, int factor){
+        if(factor == 1){
+            return 0;
+        }
+        long rest = modulo / factor;
+        return rest * inverse(rest % factor, factor) % modulo;
+    }
+
+    /**
+     * Returns the inverse of a modulo m, for a coprime with m, using the extended Euclidean algorithm.
+     */
+    static long inverse(long a, long m){
+        long oldR = a, r = m;
+        long oldS = 1, s = 0;
+        while(r != 0){
+            long q = oldR / r;
+            long temp = oldR - q * r;
+            oldR = r;
+            r = temp;
+            temp = oldS - q * s;
+            oldS = s;
+            s = temp;
+        }
+        return ((oldS % m) + m) % m;
+    }
+
+
+    //////////////
+    // getters
+
+    public int getBase(){
+        return base;
+    }
+
+    public int getModulo(){
+        return modulo;
+    }
+
+    /**
+     * Returns the part of the modulo made up of primes dividing the base, or 1 if there are none.
+     * @return The part of the modulo resolved from the trailing digits only.
+     */
+    public int getTailModulus(){
+        return tailModulus;
+    }
+
+    /**
+     * Returns the number of trailing digits the residue modulo the tail modulus depends on.
+     * @return The number of trailing digits read for the tail modulus.
+     */
+    public int getTailLength(){
+        return tailLength;
+    }
+
+    /**
+     * Returns the moduli of the groups run in lock-step, each coprime with the base.
+     * @return A copy of the moduli of the lock-step groups.
+     */
+    public int[] getGroupModuli(){
+        return groupModuli.clone();
+    }
+
+    /**
+     * Returns the number of bytes taken by the tables of all groups.
+     * @return The total size of the group tables, in bytes.
+     */
+    public long getTableBytes(){
+        long bytes = 0;
+        for(int[] table : groupTables){
+            bytes += table == null ? 0 : (long) table.length * Integer.BYTES;
+        }
+        return bytes;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Returns the residue of the provided number modulo the modulo of this machine.
+     * The same strings are accepted as by the <code>makeModuloFSM</code> machine with the same
+     * parameters, and the same residues are given.
+     *
+     * @param data The number, written in the base of this machine.
+     * @return The residue of the number.
+     * @throws InvalidCharacterException If the string is not made up of digits of the base.
+     */
+    @Override
+    public int residue(@NotNull CharSequence data) throws InvalidCharacterException{
+        int groupCount = groupModuli.length;
+        int[] residues = groupResidues.get();
+        Arrays.fill(residues, 0);
+        int length = data.length();
+
+        for(int i = 0; i < length; i++){
+            int digit = ModuloFSMFactory.digitOf(data.charAt(i), base);
+            if(digit < 0){
+                throw new InvalidCharacterException("Character in data is not in alphabet.");
+            }
+            for(int g = 0; g < groupCount; g++){
+                int[] table = groupTables[g];
+                residues[g] = table != null ? table[residues[g] * base + digit]
+                        : (int) (((long) residues[g] * base + digit) % groupModuli[g]);
+            }
+        }
+
+        // digits were checked above, so only the trailing ones are needed here
+        long tailResidue = 0;
+        for(int i = Math.max(0, length - tailLength); i < length; i++){
+            tailResidue = (tailResidue * base + ModuloFSMFactory.digitOf(data.charAt(i), base)) % tailModulus;
+        }
+
+        long result = tailResidue * coefficients[groupCount] % modulo;
+        for(int g = 0; g < groupCount; g++){
+            result = (result + residues[g] * coefficients[g]) % modulo;
+        }
+        return (int) result;
+    }
+}
@@ -0,0 +1,333 @@
+package app;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+
+/**
+ * An evaluator finding the residue of a number written in some base modulo some other number,
+ * with moduli of up to 2^62. It gives the same results as the <code>makeModuloFSM</code>
+ * machine with the same parameters, where there is one.
+ *
+ * Instead of one transition per digit, as many digits as fit in a word are read into a chunk,
+ * and the residue is updated once per chunk with <code>r = (r * base^k + chunk) mod m</code>,
+ * where <code>base^k mod m</code> is precomputed. The reduction itself is done with Barrett
+ * reduction, using a precomputed reciprocal of the modulo, so that no division is done per chunk.
+ * Powers of two are reduced with a mask instead.
+ *
+ * Numbers given as ASCII bytes in bases up to 10 are parsed 8 digits at a time,
+ * by checking and combining all 8 digits within one <code>long</code>.
+ */
+public class ChunkedModuloEvaluator {
+
+    /**
+     * The largest modulo supported.
+     */
+    public static final long MAX_MODULO = 1L << 62;
+
+    // how the residue is reduced after each chunk
+    private static final int REDUCE_MASK = 0;
+    private static final int REDUCE_SMALL = 1;
+    private static final int REDUCE_LARGE = 2;
+
+    // moduli up to this keep r * base^k + chunk within a long
+    private static final long SMALL_MODULO = 1L << 31;
+
+    // reads 8 bytes at a time from a byte array, least significant byte first
+    private static final VarHandle LONG_VIEW =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ASCII_ZEROS = 0x3030303030303030L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long LOW_BYTES = 0x0101010101010101L;
+    private static final int SWAR_DIGITS = 8;
+
+    private final int base;
+
+    private final long modulo;
+
+    private final int reduction;
+
+    /**
+     * The number of digits read per chunk, chosen so that chunks stay small enough to reduce.
+     */
+    private final int chunkLength;
+
+    /**
+     * <code>powers[j]</code> is <code>base^j mod modulo</code>, for every possible chunk length.
+     */
+    private final long[] powers;
+
+    /**
+     * The Barrett reciprocal of the modulo: floor((2^64 - 1) / m) for small moduli,
+     * and floor(2^(2L) / m) for large moduli of bit length L.
+     */
+    private final long reciprocal;
+
+    /**
+     * The bit length of the modulo.
+     */
+    private final int bitLength;
+
+    /**
+     * The number of SWAR words combined into one chunk when parsing ASCII bytes, or 0 if the base
+     * is too high for SWAR parsing.
+     */
+    private final int swarWords;
+
+    /**
+     * The multipliers combining 8 SWAR digits into a number, pairwise, then in fours, then in eights.
+     */
+    private final long swarPairs, swarFours, swarEights;
+
+    /**
+     * The value of a whole SWAR word of digits, base^8.
+     */
+    private final long swarWordPower;
+
+    /**
+     * Added to each byte of a SWAR word to set its high bit if it is at least '0' + base.
+     */
+    private final long swarAboveBase;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs the evaluator for the provided base and modulo, which are assumed to be valid.
+     */
+    ChunkedModuloEvaluator(int base, long modulo){
+        this.base = base;
+        this.modulo = modulo;
+        bitLength = 64 - Long.numberOfLeadingZeros(modulo);
+
+        long chunkLimit;
+        if(Long.bitCount(modulo) == 1){
+            reduction = REDUCE_MASK;
+            chunkLimit = 1L << 62;
+            reciprocal = 0;
+        }
+        else if(modulo <= SMALL_MODULO){
+            // r * p < 2^62 and chunk < 2^62, so their sum fits in a long
+            reduction = REDUCE_SMALL;
+            chunkLimit = 1L << 62;
+            reciprocal = Long.divideUnsigned(-1L, modulo);
+        }
+        else{
+            // chunk < 2^31 < m keeps r * p + chunk below 2^(2L), as Barrett requires
+            reduction = REDUCE_LARGE;
+            chunkLimit = 1L << 31;
+            reciprocal = BigInteger.ONE.shiftLeft(2 * bitLength)
+                    .divide(BigInteger.valueOf(modulo)).longValueExact();
+        }
+
+        int length = 0;
+        for(long power = 1; power <= chunkLimit / base; power *= base){
+            length++;
+        }
+        chunkLength = length;
+
+        // SWAR chunks are one or two words of 8 digits
+        if(base <= 10){
+            swarWords = reduction == REDUCE_LARGE ? 1 : 2;
+        }
+        else{
+            swarWords = 0;
+        }
+        swarPairs = base * 256L + 1;
+        swarFours = (long) base * base * 65536L + 1;
+        swarEights = (long) base * base * base * base * (1L << 32) + 1;
+        swarAboveBase = (0x80 - '0' - base) * LOW_BYTES;
+        swarWordPower = (long) base * base * base * base * base * base * base * base;
+
+        powers = new long[Math.max(chunkLength, SWAR_DIGITS * 2) + 1];
+        powers[0] = 1 % modulo;
+        for(int j = 1; j < powers.length; j++){
+            powers[j] = mulAddMod(powers[j - 1], base % modulo, 0);
+        }
+    }
+
+
+    ////////////////////////
+    // private helpers
+
+    /**
+     * Returns <code>(residue * power + chunk) mod modulo</code>, for a residue and power below the
+     * modulo, and a chunk within the limit for the reduction.
+     */
+    private long mulAddMod(long residue, long power, long chunk){
+        switch(reduction){
+            case REDUCE_MASK:
+                return (residue * power + chunk) & (modulo - 1);
+            case REDUCE_SMALL:
+                return reduceSmall(residue * power + chunk);
+            default:
+                long low = residue * power;
+                long high = Math.multiplyHigh(residue, power);
+                long sum = low + chunk;
+                if(Long.compareUnsigned(sum, low) < 0){
+                    high++;
+                }
+                return reduceLarge(high, sum);
+        }
+    }
+
+    /**
+     * Barrett reduction of a non-negative long by a modulo of at most 2^31.
+     */
+    private long reduceSmall(long x){
+        long quotient = Math.multiplyHigh(x, reciprocal);
+        long remainder = x - quotient * modulo;
+        // the estimated quotient is at most 2 too small
+        while(remainder >= modulo){
+            remainder -= modulo;
+        }
+        return remainder;
+    }
+
+    /**
+     * Barrett reduction of a 128-bit number below 2^(2L) by a modulo of bit length L, for L <= 62.
+     */
+    private long reduceLarge(long high, long low){
+        int shiftDown = bitLength - 1;
+        long q1 = (high << (64 - shiftDown)) | (low >>> shiftDown);
+        long q2Low = q1 * reciprocal;
+        long q2High = Math.multiplyHigh(q1, reciprocal);
+        int shiftUp = bitLength + 1;
+        long q3 = (q2High << (64 - shiftUp)) | (q2Low >>> shiftUp);
+
+        // the true remainder is below 3m < 2^64, so the low words are enough
+        long remainder = low - q3 * modulo;
+        while(Long.compareUnsigned(remainder, modulo) >= 0){
+            remainder -= modulo;
+        }
+        return remainder;
+    }
+
+    /**
+     * Returns the value of the 8 ASCII digits in the provided word, the first being in its lowest
+     * byte, or -1 if any of them is not a digit of the base. Only valid for bases up to 10.
+     */
+    private long parseSwarWord(long word){
+        // a byte is a digit iff it is below 0x80, at least '0', and below '0' + base
+        long atLeastZero = word + (0x80 - '0') * LOW_BYTES;
+        long atLeastBase = word + swarAboveBase;
+        if(((word | ~atLeastZero | atLeastBase) & HIGH_BITS) != 0){
+            return -1;
+        }
+
+        long digits = word - ASCII_ZEROS;
+        digits = (digits * swarPairs) >>> 8 & 0x00FF00FF00FF00FFL;
+        digits = (digits * swarFours) >>> 16 & 0x0000FFFF0000FFFFL;
+        return (digits * swarEights) >>> 32;
+    }
+
+
+    //////////////
+    // getters
+
+    public int getBase(){
+        return base;
+    }
+
+    public long getModulo(){
+        return modulo;
+    }
+
+    /**
+     * Returns the number of digits read per chunk from character data.
+     * @return The number of digits per chunk.
+     */
+    public int getChunkLength(){
+        return chunkLength;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Returns the residue of the provided number modulo the modulo of this evaluator.
+     *
+     * @param data The number, written in the base of this evaluator.
+     * @return The residue of the number.
+     * @throws InvalidCharacterException If the string is not made up of digits of the base.
+     */
+    public long residue(@NotNull CharSequence data) throws InvalidCharacterException{
+        long residue = 0;
+        int length = data.length();
+        for(int start = 0; start < length; start += chunkLength){
+            int end = Math.min(length, start + chunkLength);
+            long chunk = 0;
+            for(int i = start; i < end; i++){
+                int digit = ModuloFSMFactory.digitOf(data.charAt(i), base);
+                if(digit < 0){
+                    throw new InvalidCharacterException("Character in data is not in alphabet.");
+                }
+                chunk = chunk * base + digit;
+            }
+            residue = mulAddMod(residue, powers[end - start], chunk);
+        }
+        return residue;
+    }
+
+    /**
+     * Returns the residue of the provided number modulo the modulo of this evaluator.
+     * @see #residue(byte[], int, int)
+     */
+    public long residue(@NotNull byte[] data) throws InvalidCharacterException{
+        return residue(data, 0, data.length);
+    }
+
+    /**
+     * Returns the residue of the number written in ASCII in the provided range of bytes, modulo
+     * the modulo of this evaluator. The digits are the same as for character data.
+     *
+     * @param data The bytes holding the number, written in the base of this evaluator.
+     * @param from The index of the first digit, inclusive.
+     * @param to The index of the last digit, exclusive.
+     * @return The residue of the number.
+     * @throws InvalidCharacterException If the bytes are not all digits of the base.
+     */
+    public long residue(@NotNull byte[] data, int from, int to) throws InvalidCharacterException{
+        long residue = 0;
+        int i = from;
+
+        if(swarWords > 0){
+            int chunkDigits = SWAR_DIGITS * swarWords;
+            long chunkPower = powers[chunkDigits];
+            for(; i + chunkDigits <= to; i += chunkDigits){
+                long chunk = 0;
+                for(int w = 0; w < swarWords; w++){
+                    long value = parseSwarWord((long) LONG_VIEW.get(data, i + w * SWAR_DIGITS));
+                    if(value < 0){
+                        throw new InvalidCharacterException("Character in data is not in alphabet.");
+                    }
+                    chunk = chunk * swarWordPower + value;
+                }
+                residue = mulAddMod(residue, chunkPower, chunk);
+            }
+        }
+
+        // whatever is left, or everything for bases without SWAR parsing
+        for(; i < to; ){
+            int end = Math.min(to, i + chunkLength);
+            long chunk = 0;
+            int start = i;
+            for(; i < end; i++){
+                int digit = ModuloFSMFactory.digitOf((char) (data[i] & 0xFF), base);
+                if(digit < 0){
+                    throw new InvalidCharacterException("Character in data is not in alphabet.");
+                }
+                chunk = chunk * base + digit;
+            }
+            residue = mulAddMod(residue, powers[end - start], chunk);
+        }
+        return residue;
+    }
+}
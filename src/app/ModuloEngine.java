@@ -0,0 +1,21 @@
+package app;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Anything that finds the residue of a number written in some base modulo some other number,
+ * accepting the same strings and giving the same results as the <code>makeModuloFSM</code>
+ * machine with the same parameters.
+ */
+public interface ModuloEngine {
+
+    /**
+     * Returns the residue of the provided number.
+     *
+     * @param data The number, written in the base of this engine.
+     * @return The residue of the number.
+     * @throws InvalidCharacterException If the string is not made up of digits of the base.
+     */
+    int residue(@NotNull CharSequence data) throws InvalidCharacterException;
+}
@@ -0,0 +1,174 @@
+package app;
+
+import finite.automaton.FSM;
+import finite.automaton.Footprint;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the machines made by <code>ModuloFSMFactory</code>, by base and modulo, bounded by
+ * weight: the estimated heap footprint of its machines. When adding a machine takes the cache over
+ * its maximum weight, the least recently used machines are evicted until it fits again, and machines
+ * heavier than the maximum weight are never cached at all.
+ *
+ * Machines only grow as they are run by making views of their anonymous states, so every view is
+ * made when a machine is cached, and its footprint then stays what it was weighed at.
+ *
+ * Cached machines are shared by everyone asking for them, so they must not be modified.
+ */
+public class ModuloFSMCache {
+
+    /**
+     * A cached machine, along with its footprint once all of its views were made.
+     */
+    private static class Entry{
+        private final FSM<Integer> machine;
+        private final Footprint footprint;
+
+        Entry(FSM<Integer> machine, Footprint footprint){
+            this.machine = machine;
+            this.footprint = footprint;
+        }
+    }
+
+    // entries by base and modulo, from least to most recently used
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // the same entries, in no order, to be looked up without using them
+    private final HashMap<Long, Entry> footprints = new HashMap<>();
+
+    private long maxWeight;
+
+    private long weight = 0;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs an empty cache, bounded by the provided weight.
+     * @param maxWeight The most bytes the machines of this cache may take on the heap.
+     */
+    public ModuloFSMCache(long maxWeight){
+        this.maxWeight = maxWeight;
+    }
+
+
+    //////////////
+    // getters
+
+    private static long keyOf(int base, int modulo){
+        return (long) base << Integer.SIZE | modulo;
+    }
+
+    /**
+     * Returns the cached machine of the provided base and modulo, or <code>null</code> if there is none.
+     * @return The cached machine, or <code>null</code>.
+     */
+    public synchronized FSM<Integer> get(int base, int modulo){
+        Entry entry = entries.get(keyOf(base, modulo));
+        return entry != null ? entry.machine : null;
+    }
+
+    /**
+     * Returns the footprint of the cached machine of the provided base and modulo,
+     * or <code>null</code> if there is none. Looking it up does not count as using the machine.
+     * @return The footprint of the cached machine, or <code>null</code>.
+     */
+    public synchronized Footprint getFootprint(int base, int modulo){
+        // the map of the entries is not asked, as that would count as an access
+        Entry entry = footprints.get(keyOf(base, modulo));
+        return entry != null ? entry.footprint : null;
+    }
+
+    /**
+     * Returns the total estimated heap footprint of the cached machines.
+     * @return The weight of this cache, in bytes.
+     */
+    public synchronized long getWeight(){
+        return weight;
+    }
+
+    public synchronized long getMaxWeight(){
+        return maxWeight;
+    }
+
+    /**
+     * Returns the number of cached machines.
+     * @return The size of this cache.
+     */
+    public synchronized int size(){
+        return entries.size();
+    }
+
+
+    //////////////
+    // setters
+
+    /**
+     * Sets the maximum weight of this cache, evicting machines until it fits.
+     * @param maxWeight The most bytes the machines of this cache may take on the heap.
+     */
+    public synchronized void setMaxWeight(long maxWeight){
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    /**
+     * Caches the provided machine under the provided base and modulo, replacing any cached one,
+     * unless it is heavier than the maximum weight.
+     *
+     * @return <code>true</code> if the machine was cached.
+     */
+    public synchronized boolean put(int base, int modulo, FSM<Integer> machine){
+        remove(base, modulo);
+        if(machine.getFootprint().getHeapBytes() > maxWeight){
+            return false;
+        }
+        machine.makeAnonymousViews();
+        Footprint footprint = machine.getFootprint();
+        if(footprint.getHeapBytes() > maxWeight){
+            return false;
+        }
+        Entry entry = new Entry(machine, footprint);
+        entries.put(keyOf(base, modulo), entry);
+        footprints.put(keyOf(base, modulo), entry);
+        weight += footprint.getHeapBytes();
+        evict();
+        return true;
+    }
+
+    /**
+     * Removes the machine of the provided base and modulo from this cache, if it is cached.
+     */
+    public synchronized void remove(int base, int modulo){
+        Entry entry = entries.remove(keyOf(base, modulo));
+        footprints.remove(keyOf(base, modulo));
+        if(entry != null){
+            weight -= entry.footprint.getHeapBytes();
+        }
+    }
+
+    /**
+     * Removes every machine from this cache.
+     */
+    public synchronized void clear(){
+        entries.clear();
+        footprints.clear();
+        weight = 0;
+    }
+
+    // evicts the least recently used machines until the weight is at most the maximum
+    private void evict(){
+        Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+        while(weight > maxWeight && iterator.hasNext()){
+            Map.Entry<Long, Entry> entry = iterator.next();
+            weight -= entry.getValue().footprint.getHeapBytes();
+            footprints.remove(entry.getKey());
+            iterator.remove();
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package app;
 
+import finite.automaton.Alphabet;
+import finite.automaton.BitPackedRunner;
 import finite.automaton.FSM;
-import finite.automaton.state.State;
+import finite.automaton.Transducer;
+import finite.automaton.exceptions.InvalidCharacterException;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 public class ModuloFSMFactory {
 
@@ -18,17 +20,66 @@ public class ModuloFSMFactory {
 
     private static final int MAX_BASE = Character.MAX_RADIX;
 
+    // planner used to choose engines, with thresholds that can be calibrated for the host
+    private static final ModuloPlanner PLANNER = new ModuloPlanner();
+
+    // cache of the machines asked for through getCachedModuloFSM, bounded by their heap footprint
+    private static final long DEFAULT_CACHE_WEIGHT = 64L << 20;
+    private static final ModuloFSMCache CACHE = new ModuloFSMCache(DEFAULT_CACHE_WEIGHT);
+
+    // reverse lookup of DIGITS: the value of each ASCII character, or -1 if it is not a digit,
+    // where upper case letters are the same digits as lower case ones
+    private static final int[] DIGIT_VALUES = new int[128];
+    static {
+        Arrays.fill(DIGIT_VALUES, -1);
+        for(int digit = 0; digit < DIGITS.length; digit++){
+            DIGIT_VALUES[DIGITS[digit]] = digit;
+            DIGIT_VALUES[Character.toUpperCase(DIGITS[digit])] = digit;
+        }
+    }
+
+    // the alphabet of each base, shared by every machine of that base
+    private static final Alphabet[] ALPHABETS = new Alphabet[MAX_BASE + 1];
+    static {
+        for(int base = 2; base <= MAX_BASE; base++){
+            ALPHABETS[base] = Alphabet.of(Arrays.copyOfRange(DIGITS, 0, base), true);
+        }
+    }
+
+
+    //////////////
+    // helpers shared with the other modulo machines
+
+    /**
+     * Returns whether the provided base and modulo are ones the factory can make machines for.
+     */
+    static boolean isValidMachine(int base, int modulo){
+        return base >= 2 && base <= MAX_BASE && modulo >= 2;
+    }
+
+    /**
+     * Returns the value of the provided digit in the provided base, or -1 if it is not one.
+     * Only the digits used by <code>makeModuloFSM</code> machines are valid, in either case.
+     */
+    static int digitOf(char c, int base){
+        int digit = c < DIGIT_VALUES.length ? DIGIT_VALUES[c] : -1;
+        return digit < base ? digit : -1;
+    }
+
     static FSM<Integer> makeModuloFSM(int base, int modulo){
-        if(base < 2 || base > MAX_BASE || modulo < 2){
+        if(!isValidMachine(base, modulo)){
             return null;
         }
 
-        FSM<Integer> machine = new FSM<>(Arrays.copyOfRange(DIGITS, 0, base));
+        FSM<Integer> machine = new FSM<>(ALPHABETS[base]);
 
-        // generate states
-        List<State<Integer>> stateList = new ArrayList<>(modulo);
-        for(int i = 0; i < modulo; i++){
-            stateList.add(machine.setNewFinalState("S" + i, i));
+        // generate states, anonymous so that they take no memory beyond their transitions,
+        // named S0, S1, ... with their residue as value
+        try {
+            machine.setNewAnonymousStates("S", modulo, true, Integer::valueOf);
+        }
+        catch(IllegalArgumentException e){
+            return null;
         }
 
         // make transitions
@@ -40,16 +91,262 @@ public class ModuloFSMFactory {
 
                     // idea: concatenating is adding digit to end
                     // in numbers that is: (mod | digit) -> mod * BASE + digit
-                    machine.setTransition(stateList.get(mod), DIGITS[digit],
-                            stateList.get((mod * base + digit) % modulo) );
+                    machine.setTransition(mod, DIGITS[digit], (int) (((long) mod * base + digit) % modulo));
+                }
+            }
+
+            machine.setInitState(machine.getAnonymousState(0));
+        }
+        catch(Exception e){
+            return null;
+        }
+        return machine;
+    }
+
+    /**
+     * Makes a machine like <code>makeModuloFSM</code>, but one that reads numbers least significant
+     * digit first if <code>leastSignificantFirst</code> is set, so that it gives the residue of the
+     * reverse of the strings the other machine reads, without them having to be reversed.
+     * Returns <code>null</code> for the same parameters as <code>makeModuloFSM</code>, or if the machine
+     * would have too many states.
+     *
+     * Read from its least significant end, each digit adds its value times the power of the base of its
+     * position, so the state is the residue so far together with the power of the next digit. Powers of
+     * the base modulo the modulo repeat after at most <code>modulo</code> steps, after some first steps
+     * when the base shares factors with the modulo, so there are <code>modulo</code> states per power
+     * before they repeat.
+     */
+    static FSM<Integer> makeModuloFSM(int base, int modulo, boolean leastSignificantFirst){
+        if(!leastSignificantFirst){
+            return makeModuloFSM(base, modulo);
+        }
+        if(!isValidMachine(base, modulo)){
+            return null;
+        }
+
+        // the powers of the base in order, until one repeats, and where each one goes next
+        int[] positions = new int[modulo];
+        Arrays.fill(positions, -1);
+        int[] powers = new int[Math.min(modulo, 1 << 10)];
+        int count = 0;
+        int power = 1;
+        while(positions[power] < 0){
+            if(count == powers.length){
+                powers = Arrays.copyOf(powers, Math.min(modulo, 2 * count));
+            }
+            positions[power] = count;
+            powers[count++] = power;
+            power = (int) ((long) power * base % modulo);
+        }
+        int cycleStart = positions[power];
+        if((long) count * modulo >= Integer.MAX_VALUE){
+            return null;
+        }
+
+        FSM<Integer> machine = new FSM<>(ALPHABETS[base]);
+
+        // anonymous states named P0, P1, ..., where the state of residue r before the digit of the power
+        // at position i is number i * modulo + r, with its residue as value
+        try {
+            machine.setNewAnonymousStates("P", count * modulo, true, index -> index % modulo);
+        }
+        catch(IllegalArgumentException e){
+            return null;
+        }
+
+        try {
+            for(int position = 0; position < count; position++){
+                int next = position + 1 < count ? position + 1 : cycleStart;
+                for(int mod = 0; mod < modulo; mod++){
+                    for(int digit = 0; digit < base; digit++){
+                        // idea: the digit adds its value at the power of its position
+                        int residue = (int) ((mod + (long) digit * powers[position]) % modulo);
+                        machine.setTransition(position * modulo + mod, DIGITS[digit], next * modulo + residue);
+                    }
                 }
             }
 
-            machine.setInitState(stateList.get(0));
+            machine.setInitState(machine.getAnonymousState(0));
         }
         catch(Exception e){
             return null;
         }
         return machine;
     }
+
+    /**
+     * Returns the machine <code>makeModuloFSM</code> would make, from the cache if it is there,
+     * caching it otherwise. The returned machine may be shared, so it must not be modified.
+     * Returns <code>null</code> for the same parameters as <code>makeModuloFSM</code>.
+     */
+    static FSM<Integer> getCachedModuloFSM(int base, int modulo){
+        FSM<Integer> machine = CACHE.get(base, modulo);
+        if(machine == null){
+            machine = makeModuloFSM(base, modulo);
+            if(machine != null){
+                CACHE.put(base, modulo, machine);
+            }
+        }
+        return machine;
+    }
+
+    /**
+     * Returns the cache used by <code>getCachedModuloFSM</code>, whose weight can be read and bounded.
+     */
+    static ModuloFSMCache getCache(){
+        return CACHE;
+    }
+
+    /**
+     * Makes a machine that finds residues modulo <code>modulo</code> of numbers written in
+     * base <code>base</code> by decomposing the modulo with the Chinese Remainder Theorem.
+     * Returns <code>null</code> for the same parameters as <code>makeModuloFSM</code>.
+     */
+    static CRTModuloMachine makeCRTModuloMachine(int base, int modulo){
+        if(!isValidMachine(base, modulo)){
+            return null;
+        }
+        return new CRTModuloMachine(base, modulo);
+    }
+
+    /**
+     * Makes an engine that finds the residues of numbers written in base <code>base</code>
+     * modulo each of the provided moduli in a single pass. Returns <code>null</code> if any
+     * modulo would be invalid for <code>makeModuloFSM</code>, or if there are none.
+     */
+    static MultiResidueEngine makeMultiResidueEngine(int base, int[] moduli){
+        if(moduli == null || moduli.length == 0){
+            return null;
+        }
+        for(int modulo : moduli){
+            if(!isValidMachine(base, modulo)){
+                return null;
+            }
+        }
+        return new MultiResidueEngine(base, moduli);
+    }
+
+    /**
+     * Makes an engine that finds the residues of numbers written in base <code>base</code>
+     * modulo every modulo from <code>minModulo</code> to <code>maxModulo</code>, inclusive.
+     */
+    static MultiResidueEngine makeMultiResidueEngine(int base, int minModulo, int maxModulo){
+        if(minModulo > maxModulo){
+            return null;
+        }
+        int[] moduli = new int[maxModulo - minModulo + 1];
+        for(int i = 0; i < moduli.length; i++){
+            moduli[i] = minModulo + i;
+        }
+        return makeMultiResidueEngine(base, moduli);
+    }
+
+    /**
+     * Makes an evaluator that finds residues modulo <code>modulo</code> of numbers written in
+     * base <code>base</code> a chunk of digits at a time, for moduli of up to 2^62.
+     * Returns <code>null</code> if the base is invalid, or the modulo is out of range.
+     */
+    static ChunkedModuloEvaluator makeChunkedModuloEvaluator(int base, long modulo){
+        if(!isValidMachine(base, 2) || modulo < 2 || modulo > ChunkedModuloEvaluator.MAX_MODULO){
+            return null;
+        }
+        return new ChunkedModuloEvaluator(base, modulo);
+    }
+
+    /**
+     * Makes an index of the provided number, written in base <code>base</code>, that answers the
+     * residues of its substrings modulo <code>modulo</code> in constant time.
+     * Returns <code>null</code> for the same parameters as <code>makeModuloFSM</code>.
+     *
+     * @throws InvalidCharacterException If the string is not made up of digits of the base.
+     */
+    static PrefixResidueIndex makePrefixResidueIndex(int base, int modulo, @NotNull CharSequence data)
+            throws InvalidCharacterException{
+        if(!isValidMachine(base, modulo)){
+            return null;
+        }
+        return new PrefixResidueIndex(base, modulo, data);
+    }
+
+    /**
+     * Makes an engine that finds the residue modulo <code>modulo</code> of every window of
+     * <code>window</code> consecutive digits of a stream written in base <code>base</code>.
+     * Returns <code>null</code> for the same parameters as <code>makeModuloFSM</code>, or if the
+     * window is not positive.
+     */
+    static SlidingWindowResidues makeSlidingWindowResidues(int base, int modulo, int window){
+        if(!isValidMachine(base, modulo) || window < 1){
+            return null;
+        }
+        return new SlidingWindowResidues(base, modulo, window);
+    }
+
+    /**
+     * Makes a runner of the machine <code>makeModuloFSM</code> would make that reads binary data a byte
+     * at a time, for bases that are powers of two. Bits have the same value whatever power of two base
+     * they are read in, so bases whose digits do not divide a byte, 8 and 32, are read in base 2.
+     * Returns <code>null</code> for the same parameters as <code>makeModuloFSM</code>, or if the base is
+     * not a power of two.
+     */
+    static BitPackedRunner<Integer> makeBitPackedRunner(int base, int modulo){
+        if(!isValidMachine(base, modulo) || Integer.bitCount(base) != 1){
+            return null;
+        }
+        int bits = Integer.numberOfTrailingZeros(base);
+        int digitBase = 8 % bits == 0 ? base : 2;
+        FSM<Integer> machine = makeModuloFSM(digitBase, modulo);
+        if(machine == null){
+            return null;
+        }
+        try {
+            return new BitPackedRunner<>(machine, Arrays.copyOfRange(DIGITS, 0, digitBase));
+        }
+        catch(Exception e){
+            return null;
+        }
+    }
+
+    /**
+     * Makes a transducer of the machine <code>makeModuloFSM</code> would make that also writes the
+     * quotient of the number by the modulo, in the same base, one digit per digit read, as in long
+     * division: reading a digit in the state of residue <code>r</code> writes the digit
+     * <code>(r * base + digit) / modulo</code>. The quotient is written with as many digits as the
+     * number, leading zeros included, and the final state holds the remainder.
+     * Returns <code>null</code> for the same parameters as <code>makeModuloFSM</code>.
+     */
+    static Transducer<Integer> makeDivisionTransducer(int base, int modulo){
+        FSM<Integer> machine = makeModuloFSM(base, modulo);
+        if(machine == null){
+            return null;
+        }
+        try {
+            return new Transducer<>(machine,
+                    (from, c) -> DIGITS[(int) (((long) from.getValue() * base + digitOf(c, base)) / modulo)]);
+        }
+        catch(Exception e){
+            return null;
+        }
+    }
+
+    /**
+     * Returns the planner used by <code>planModuloEngine</code>, whose thresholds can be adjusted.
+     */
+    static ModuloPlanner getPlanner(){
+        return PLANNER;
+    }
+
+    /**
+     * Chooses, makes and returns the engine estimated to be cheapest for finding residues
+     * modulo <code>modulo</code> of numbers written in base <code>base</code>, along with
+     * why it was chosen. Returns <code>null</code> for the same parameters as <code>makeModuloFSM</code>.
+     *
+     * @param expectedDigits The expected total number of digits the engine will read.
+     * @param memoryBudget The most bytes the engine's tables may take.
+     */
+    static ModuloPlanner.Plan planModuloEngine(int base, int modulo, long expectedDigits, long memoryBudget){
+        if(!isValidMachine(base, modulo)){
+            return null;
+        }
+        return PLANNER.plan(base, modulo, expectedDigits, memoryBudget);
+    }
 }
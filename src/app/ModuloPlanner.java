@@ -0,0 +1,252 @@
+package app;
+
+import java.util.Locale;
+
+/**
+ * Chooses how to find residues modulo some number of numbers written in some base, by estimating
+ * the cost of each kind of engine from a handful of thresholds. The estimate of an engine is its
+ * build cost plus its cost per digit over the expected number of digits, where the cost of a table
+ * lookup depends on which cache level the table fits in. Engines bigger than the memory budget are
+ * never chosen.
+ *
+ * The default thresholds are rough figures for a current desktop machine. They can be adjusted
+ * for a particular host with the setters, for example from the output of the calibration benchmark.
+ */
+public class ModuloPlanner {
+
+    /**
+     * The kinds of engine the planner chooses among.
+     */
+    public enum EngineKind{
+        /** A table of <code>int</code> residues, one digit per lookup. */
+        DENSE_TABLE,
+        /** A table of <code>byte</code> or <code>short</code> residues, one digit per lookup. */
+        COMPACT_TABLE,
+        /** A table reading several digits per lookup. */
+        STRIDE_TABLE,
+        /** No table, with the residue computed arithmetically a chunk of digits at a time. */
+        ARITHMETIC,
+        /** Small tables for the coprime factors of the modulo, combined with the CRT. */
+        CRT
+    }
+
+    /**
+     * The engine chosen by a planner, along with what was chosen and why.
+     */
+    public static class Plan{
+        private final ModuloEngine engine;
+        private final EngineKind kind;
+        private final String reason;
+        private final double estimatedNanos;
+
+        Plan(ModuloEngine engine, EngineKind kind, String reason, double estimatedNanos){
+            this.engine = engine;
+            this.kind = kind;
+            this.reason = reason;
+            this.estimatedNanos = estimatedNanos;
+        }
+
+        public ModuloEngine getEngine(){
+            return engine;
+        }
+
+        public EngineKind getKind(){
+            return kind;
+        }
+
+        /**
+         * Returns a human-readable explanation of why this engine was chosen.
+         * @return The reason for the choice.
+         */
+        public String getReason(){
+            return reason;
+        }
+
+        /**
+         * Returns the estimated cost of building the engine and reading the expected digits.
+         * @return The estimated cost, in nanoseconds.
+         */
+        public double getEstimatedNanos(){
+            return estimatedNanos;
+        }
+
+        @Override
+        public String toString(){
+            return kind + ": " + reason;
+        }
+    }
+
+    // the largest number of digits read per lookup by stride tables
+    private static final int MAX_STRIDE = 4;
+
+    // cache sizes, in bytes
+    private long l1Bytes = 32 * 1024;
+    private long l2Bytes = 1024 * 1024;
+    private long l3Bytes = 16 * 1024 * 1024;
+
+    // cost of one table lookup, depending on where the table fits, in nanoseconds
+    private double l1LookupNanos = 1.0;
+    private double l2LookupNanos = 2.5;
+    private double l3LookupNanos = 8.0;
+    private double memoryLookupNanos = 40.0;
+
+    // cost of reading and checking one digit, in nanoseconds
+    private double digitNanos = 0.5;
+
+    // cost of one digit in the arithmetic engine, including reading it, in nanoseconds
+    private double arithmeticDigitNanos = 2.0;
+
+    // cost of filling in one table entry, in nanoseconds
+    private double buildEntryNanos = 1.0;
+
+
+    //////////////
+    // setters
+
+    /**
+     * Sets the sizes of the caches of the host, in bytes.
+     */
+    public void setCacheBytes(long l1Bytes, long l2Bytes, long l3Bytes){
+        this.l1Bytes = l1Bytes;
+        this.l2Bytes = l2Bytes;
+        this.l3Bytes = l3Bytes;
+    }
+
+    /**
+     * Sets the cost of one table lookup, in nanoseconds, for tables fitting in each cache level
+     * and for tables fitting in none.
+     */
+    public void setLookupNanos(double l1, double l2, double l3, double memory){
+        l1LookupNanos = l1;
+        l2LookupNanos = l2;
+        l3LookupNanos = l3;
+        memoryLookupNanos = memory;
+    }
+
+    /**
+     * Sets the cost of reading and checking one digit for table engines, in nanoseconds.
+     */
+    public void setDigitNanos(double digitNanos){
+        this.digitNanos = digitNanos;
+    }
+
+    /**
+     * Sets the cost of one digit in the arithmetic engine, in nanoseconds.
+     */
+    public void setArithmeticDigitNanos(double arithmeticDigitNanos){
+        this.arithmeticDigitNanos = arithmeticDigitNanos;
+    }
+
+    /**
+     * Sets the cost of filling in one table entry when building an engine, in nanoseconds.
+     */
+    public void setBuildEntryNanos(double buildEntryNanos){
+        this.buildEntryNanos = buildEntryNanos;
+    }
+
+
+    ////////////////////////
+    // private helpers
+
+    private double lookupNanos(long tableBytes){
+        if(tableBytes <= l1Bytes){
+            return l1LookupNanos;
+        }
+        if(tableBytes <= l2Bytes){
+            return l2LookupNanos;
+        }
+        return tableBytes <= l3Bytes ? l3LookupNanos : memoryLookupNanos;
+    }
+
+    private String cacheLevel(long tableBytes){
+        if(tableBytes <= l1Bytes){
+            return "L1";
+        }
+        if(tableBytes <= l2Bytes){
+            return "L2";
+        }
+        return tableBytes <= l3Bytes ? "L3" : "no cache";
+    }
+
+    private static String format(String template, Object... args){
+        return String.format(Locale.ROOT, template, args);
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Chooses and builds the engine estimated to be cheapest for the provided parameters.
+     * The parameters are assumed to be valid for <code>ModuloFSMFactory</code>.
+     *
+     * @param base The base numbers are written in.
+     * @param modulo The modulo residues are found for.
+     * @param expectedDigits The expected total number of digits the engine will read.
+     * @param memoryBudget The most bytes the engine's tables may take.
+     * @return The chosen engine, along with why it was chosen.
+     */
+    public Plan plan(int base, int modulo, long expectedDigits, long memoryBudget){
+        long digits = Math.max(expectedDigits, 0);
+
+        // the arithmetic engine needs no table, so it is always possible
+        EngineKind bestKind = EngineKind.ARITHMETIC;
+        int bestStride = 0;
+        double bestCost = digits * arithmeticDigitNanos;
+        String bestReason = format("no table; %.2f ns/digit", arithmeticDigitNanos);
+
+        // one digit per lookup, compact when the residues fit in fewer bytes
+        for(int stride = 1; stride <= MAX_STRIDE; stride++){
+            long bytes = TableModuloEngine.tableBytes(base, modulo, stride);
+            if(bytes < 0 || bytes > memoryBudget){
+                break;
+            }
+            double perDigit = lookupNanos(bytes) / stride + digitNanos;
+            double cost = bytes / TableModuloEngine.widthFor(modulo) * buildEntryNanos + digits * perDigit;
+            if(cost < bestCost){
+                bestCost = cost;
+                bestStride = stride;
+                if(stride > 1){
+                    bestKind = EngineKind.STRIDE_TABLE;
+                }
+                else{
+                    bestKind = TableModuloEngine.widthFor(modulo) < Integer.BYTES
+                            ? EngineKind.COMPACT_TABLE : EngineKind.DENSE_TABLE;
+                }
+                bestReason = format("%d-byte entries, %d digit(s) per lookup, %d bytes fit in %s; %.2f ns/digit",
+                        TableModuloEngine.widthFor(modulo), stride, bytes, cacheLevel(bytes), perDigit);
+            }
+        }
+
+        // CRT only helps when the modulo actually splits, and its tables are only sized here, since
+        // they are only worth making once chosen
+        int groups = CRTModuloMachine.groupModuliOf(base, modulo).length;
+        int tailModulus = CRTModuloMachine.tailModulusOf(base, modulo);
+        if(groups > 1 || tailModulus > 1){
+            long bytes = CRTModuloMachine.tableBytes(base, modulo);
+            if(bytes <= memoryBudget){
+                double perDigit = digitNanos + groups * lookupNanos(bytes);
+                double cost = bytes / Integer.BYTES * buildEntryNanos + digits * perDigit;
+                if(cost < bestCost){
+                    bestCost = cost;
+                    bestKind = EngineKind.CRT;
+                    bestReason = format("%d lock-step group(s) of %d bytes in %s, last %d digit(s) for %d; %.2f ns/digit",
+                            groups, bytes, cacheLevel(bytes), CRTModuloMachine.findTailLength(base, tailModulus),
+                            tailModulus, perDigit);
+                }
+            }
+        }
+
+        String reason = format("%s, estimated %.0f ns over %d digits within %d bytes",
+                bestReason, bestCost, digits, memoryBudget);
+        switch(bestKind){
+            case CRT:
+                return new Plan(new CRTModuloMachine(base, modulo), bestKind, reason, bestCost);
+            case ARITHMETIC:
+                ChunkedModuloEvaluator evaluator = new ChunkedModuloEvaluator(base, modulo);
+                return new Plan(data -> (int) evaluator.residue(data), bestKind, reason, bestCost);
+            default:
+                return new Plan(new TableModuloEngine(base, modulo, bestStride), bestKind, reason, bestCost);
+        }
+    }
+}
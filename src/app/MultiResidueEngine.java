@@ -0,0 +1,169 @@
+package app;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An engine finding the residues of a number written in some base modulo many moduli at once,
+ * in a single pass over the number.
+ *
+ * Rather than stepping one machine per modulo for every digit, the digits are read in chunks of
+ * as many as fit in a machine word, and every residue is then updated once per chunk using
+ * <code>r = (r * base^k + chunk) mod m</code>, with <code>base^k mod m</code> precomputed.
+ * The residues, moduli and powers are kept in parallel flat arrays, so that the update is a
+ * simple loop over arrays that the JIT can unroll and, where the hardware allows, vectorize.
+ */
+public class MultiResidueEngine {
+
+    // largest modulo for which the update fits in an int: (m - 1)^2 + chunk < 2^31
+    private static final int MAX_INT_MODULO = 1 << 15;
+
+    private final int base;
+
+    private final int[] moduli;
+
+    /**
+     * Whether updates are done in int arithmetic, or long arithmetic for bigger moduli.
+     */
+    private final boolean intArithmetic;
+
+    /**
+     * The number of digits read per chunk.
+     */
+    private final int chunkLength;
+
+    /**
+     * <code>chunkPowers[k][i]</code> is <code>base^k mod moduli[i]</code>, for chunks of length k.
+     */
+    private final int[][] chunkPowers;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs the engine for the provided base and moduli, which are assumed to be valid
+     * parameters for <code>ModuloFSMFactory</code>.
+     */
+    MultiResidueEngine(int base, int[] moduli){
+        this.base = base;
+        this.moduli = moduli.clone();
+
+        int maxModulo = 0;
+        for(int modulo : moduli){
+            maxModulo = Math.max(maxModulo, modulo);
+        }
+        intArithmetic = maxModulo <= MAX_INT_MODULO;
+
+        // the chunk must leave room for the multiplied residue: (m - 1)^2 < 2^30 (or 2^62)
+        long chunkLimit = intArithmetic ? 1L << 30 : 1L << 62;
+        int length = 0;
+        for(long power = 1; power <= chunkLimit / base; power *= base){
+            length++;
+        }
+        chunkLength = length;
+
+        chunkPowers = new int[chunkLength + 1][this.moduli.length];
+        for(int i = 0; i < this.moduli.length; i++){
+            long power = 1 % this.moduli[i];
+            for(int k = 0; k <= chunkLength; k++){
+                chunkPowers[k][i] = (int) power;
+                power = power * base % this.moduli[i];
+            }
+        }
+    }
+
+
+    //////////////
+    // getters
+
+    public int getBase(){
+        return base;
+    }
+
+    /**
+     * Returns the moduli of this engine, in the order their residues are given.
+     * @return A copy of the moduli of this engine.
+     */
+    public int[] getModuli(){
+        return moduli.clone();
+    }
+
+    /**
+     * Returns the number of digits read at a time.
+     * @return The number of digits per chunk.
+     */
+    public int getChunkLength(){
+        return chunkLength;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Returns the residues of the provided number modulo each modulo of this engine, in order.
+     *
+     * @param data The number, written in the base of this engine.
+     * @return The residues of the number.
+     * @throws InvalidCharacterException If the string is not made up of digits of the base.
+     */
+    public int[] residues(@NotNull CharSequence data) throws InvalidCharacterException{
+        int[] output = new int[moduli.length];
+        residues(data, output);
+        return output;
+    }
+
+    /**
+     * Writes the residues of the provided number modulo each modulo of this engine, in order,
+     * into the provided array, which must be at least as long as the number of moduli.
+     *
+     * @param data The number, written in the base of this engine.
+     * @param output The array the residues are written into.
+     * @throws InvalidCharacterException If the string is not made up of digits of the base.
+     */
+    public void residues(@NotNull CharSequence data, @NotNull int[] output)
+    throws InvalidCharacterException{
+        int count = moduli.length;
+        for(int i = 0; i < count; i++){
+            output[i] = 0;
+        }
+
+        int length = data.length();
+        for(int start = 0; start < length; start += chunkLength){
+            int end = Math.min(length, start + chunkLength);
+            long chunk = 0;
+            for(int i = start; i < end; i++){
+                int digit = ModuloFSMFactory.digitOf(data.charAt(i), base);
+                if(digit < 0){
+                    throw new InvalidCharacterException("Character in data is not in alphabet.");
+                }
+                chunk = chunk * base + digit;
+            }
+
+            int[] powers = chunkPowers[end - start];
+            if(intArithmetic){
+                updateInt(output, powers, (int) chunk);
+            }
+            else{
+                updateLong(output, powers, chunk);
+            }
+        }
+    }
+
+    // the two update loops are kept separate and branch-free for the JIT to vectorize
+
+    private void updateInt(int[] residues, int[] powers, int chunk){
+        int[] moduli = this.moduli;
+        for(int i = 0; i < moduli.length; i++){
+            residues[i] = (residues[i] * powers[i] + chunk) % moduli[i];
+        }
+    }
+
+    private void updateLong(int[] residues, int[] powers, long chunk){
+        int[] moduli = this.moduli;
+        for(int i = 0; i < moduli.length; i++){
+            residues[i] = (int) (((long) residues[i] * powers[i] + chunk) % moduli[i]);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package app;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * An index of a long number written in some base, answering the residue of any of its substrings
+ * modulo some modulo in constant time. It is built with one pass of the modulo machine's transition
+ * over the digits, recording the residue of every prefix, so that the substring <code>[from, to)</code>
+ * has residue <code>prefix[to] - prefix[from] * base^(to - from)</code>.
+ *
+ * The powers of the base are split in two small tables, of the powers below 2^16 and of the powers
+ * of base^(2^16), so that any power is the product of two entries. The index then only takes one
+ * <code>int</code> per digit, plus a little, and needs no modular inverses to answer queries.
+ */
+public class PrefixResidueIndex {
+
+    private static final int LOW_BITS = 16;
+    private static final int LOW_MASK = (1 << LOW_BITS) - 1;
+
+    // residues of moduli up to this are counted in a dense array when counting divisible substrings
+    private static final int DENSE_COUNT_LIMIT = 1 << 24;
+
+    private final int base;
+
+    private final int modulo;
+
+    /**
+     * The residue of each prefix of the number, by length, from the empty prefix to the whole number.
+     */
+    private final int[] prefixes;
+
+    /**
+     * base^k modulo the modulo for every k below 2^16, and base^(k * 2^16) for every k needed.
+     */
+    private final int[] lowPowers;
+    private final int[] highPowers;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs the index of the provided number, for a base and modulo which are assumed
+     * to be valid parameters for <code>ModuloFSMFactory</code>.
+     *
+     * @throws InvalidCharacterException If the string is not made up of digits of the base.
+     */
+    PrefixResidueIndex(int base, int modulo, @NotNull CharSequence data) throws InvalidCharacterException{
+        this.base = base;
+        this.modulo = modulo;
+        int length = data.length();
+
+        prefixes = new int[length + 1];
+        long residue = 0;
+        for(int i = 0; i < length; i++){
+            int digit = ModuloFSMFactory.digitOf(data.charAt(i), base);
+            if(digit < 0){
+                throw new InvalidCharacterException("Character in data is not in alphabet.");
+            }
+            residue = (residue * base + digit) % modulo;
+            prefixes[i + 1] = (int) residue;
+        }
+
+        lowPowers = new int[Math.min(length, LOW_MASK) + 1];
+        lowPowers[0] = 1 % modulo;
+        for(int k = 1; k < lowPowers.length; k++){
+            lowPowers[k] = (int) ((long) lowPowers[k - 1] * base % modulo);
+        }
+        long step = (long) lowPowers[lowPowers.length - 1] * base % modulo;
+        highPowers = new int[(length >>> LOW_BITS) + 1];
+        highPowers[0] = 1 % modulo;
+        for(int k = 1; k < highPowers.length; k++){
+            highPowers[k] = (int) (highPowers[k - 1] * step % modulo);
+        }
+    }
+
+
+    //////////////
+    // getters
+
+    public int getBase(){
+        return base;
+    }
+
+    public int getModulo(){
+        return modulo;
+    }
+
+    /**
+     * Returns the number of digits of the indexed number.
+     * @return The length of the number.
+     */
+    public int length(){
+        return prefixes.length - 1;
+    }
+
+    /**
+     * Returns base^exponent modulo the modulo, for an exponent of at most the length of the number.
+     */
+    private long power(int exponent){
+        return (long) lowPowers[exponent & LOW_MASK] * highPowers[exponent >>> LOW_BITS] % modulo;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Returns the residue of the number made up of the digits from <code>from</code>, inclusive,
+     * to <code>to</code>, exclusive. The residue of an empty substring is 0.
+     *
+     * @param from The index of the first digit of the substring.
+     * @param to The index after the last digit of the substring.
+     * @return The residue of the substring.
+     * @throws IndexOutOfBoundsException If the substring is not within the number.
+     */
+    public int substringMod(int from, int to){
+        if(from < 0 || from > to || to > length()){
+            throw new IndexOutOfBoundsException("Substring [" + from + ", " + to + ") out of number of length "
+                    + length() + ".");
+        }
+        long residue = (prefixes[to] - prefixes[from] * power(to - from)) % modulo;
+        return (int) (residue < 0 ? residue + modulo : residue);
+    }
+
+    /**
+     * Returns the number of non-empty substrings of the number that are multiples of the modulo,
+     * counting each position separately, in O(n log n) time at worst.
+     *
+     * The modulo is split into a tail part, made up of the primes dividing the base, and a coprime
+     * part. Whether a substring of at least <code>t</code> digits is a multiple of the tail part only
+     * depends on its last <code>t</code> digits, where base^t is a multiple of it, and whether it is a
+     * multiple of the coprime part only depends on whether <code>prefix[i] / base^i</code> is the
+     * same at both ends, so those prefixes are bucketed. Shorter substrings are checked one by one.
+     *
+     * @return The number of substrings that are multiples of the modulo.
+     */
+    public long countDivisibleSubstrings(){
+        int length = length();
+        int coprime = modulo;
+        for(int common = gcd(coprime, base); common > 1; common = gcd(coprime, base)){
+            coprime /= common;
+        }
+        int tail = modulo / coprime;
+        int tailLength = CRTModuloMachine.findTailLength(base, tail);
+        // substrings shorter than this are checked one by one
+        int shortest = Math.max(tailLength, 1);
+
+        long count = 0;
+        for(int to = 1; to <= length; to++){
+            for(int from = Math.max(0, to - shortest + 1); from < to; from++){
+                count += substringMod(from, to) == 0 ? 1 : 0;
+            }
+        }
+
+        // the key of each prefix in the coprime part is prefix[i] / base^i
+        long inverseBase = coprime == 1 ? 0 : CRTModuloMachine.inverse(base % coprime, coprime);
+        if(coprime <= Math.min(DENSE_COUNT_LIMIT, length + 1)){
+            // one sweep, counting the keys of the prefixes far enough behind each one
+            int[] counts = new int[coprime];
+            long fromInverse = 1 % coprime;
+            long toInverse = 1 % coprime;
+            for(int i = 0; i < shortest; i++){
+                toInverse = toInverse * inverseBase % coprime;
+            }
+            for(int to = shortest; to <= length; to++){
+                int from = to - shortest;
+                counts[(int) (prefixes[from] % coprime * fromInverse % coprime)]++;
+                fromInverse = fromInverse * inverseBase % coprime;
+                if(substringMod(to - tailLength, to) % tail == 0){
+                    count += counts[(int) (prefixes[to] % coprime * toInverse % coprime)];
+                }
+                toInverse = toInverse * inverseBase % coprime;
+            }
+            return count;
+        }
+
+        // too many possible keys to count densely, so the prefixes are sorted by key, then by position
+        long[] entries = new long[length + 1];
+        long inversePower = 1;
+        for(int i = 0; i <= length; i++){
+            entries[i] = (prefixes[i] % coprime * inversePower % coprime) << Integer.SIZE | i;
+            inversePower = inversePower * inverseBase % coprime;
+        }
+        Arrays.sort(entries);
+        int start = 0;
+        while(start < entries.length){
+            int end = start + 1;
+            while(end < entries.length && entries[end] >>> Integer.SIZE == entries[start] >>> Integer.SIZE){
+                end++;
+            }
+            // the prefixes of the same key far enough behind each one are those before the lagging one
+            int lagging = start;
+            for(int k = start; k < end; k++){
+                int to = (int) entries[k];
+                while(lagging < k && (int) entries[lagging] <= to - shortest){
+                    lagging++;
+                }
+                if(to >= shortest && substringMod(to - tailLength, to) % tail == 0){
+                    count += lagging - start;
+                }
+            }
+            start = end;
+        }
+        return count;
+    }
+
+    private static int gcd(int a, int b){
+        while(b != 0){
+            int temp = a % b;
+            a = b;
+            b = temp;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,179 @@
+package app;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Finds the residue of every window of some fixed number of consecutive digits of a stream of digits,
+ * like a Rabin-Karp rolling hash, modulo some modulo. Each digit takes the residue of the previous
+ * window one step along the modulo machine's transition, <code>r * base + digit</code>, after taking
+ * out the digit leaving the window, which is worth <code>digit * base^(window - 1)</code>. Every
+ * position then costs constant time, instead of a run over the whole window.
+ *
+ * The stream is fed in chunks of any size, and the last digits seen are kept between chunks, so
+ * windows may straddle chunks. Nothing is allocated after construction.
+ */
+public class SlidingWindowResidues {
+
+    private final int base;
+
+    private final int modulo;
+
+    private final int window;
+
+    /**
+     * What each digit is worth when it leaves the window: <code>digit * base^(window - 1)</code>
+     * modulo the modulo.
+     */
+    private final int[] leaving;
+
+    /**
+     * The digits of the current window, as a ring, where the oldest one is at <code>position % window</code>.
+     */
+    private final byte[] digits;
+
+    /**
+     * The number of digits read so far.
+     */
+    private long position = 0;
+
+    /**
+     * The residue of the current window, or of the digits read so far if fewer than a window.
+     */
+    private int residue = 0;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs the window residues of the provided base, modulo and window length, which are
+     * assumed to be valid parameters for <code>ModuloFSMFactory</code>, and a positive length.
+     */
+    SlidingWindowResidues(int base, int modulo, int window){
+        this.base = base;
+        this.modulo = modulo;
+        this.window = window;
+        this.digits = new byte[window];
+
+        long power = 1 % modulo;
+        for(int i = 1; i < window; i++){
+            power = power * base % modulo;
+        }
+        leaving = new int[base];
+        for(int digit = 0; digit < base; digit++){
+            leaving[digit] = (int) (digit * power % modulo);
+        }
+    }
+
+
+    //////////////
+    // getters
+
+    public int getBase(){
+        return base;
+    }
+
+    public int getModulo(){
+        return modulo;
+    }
+
+    /**
+     * Returns the number of digits in each window.
+     * @return The length of the windows.
+     */
+    public int getWindow(){
+        return window;
+    }
+
+    /**
+     * Returns the number of digits read since construction or the last reset.
+     * @return The number of digits read so far.
+     */
+    public long getPosition(){
+        return position;
+    }
+
+    /**
+     * Returns the number of residues the next chunk of the provided length would write,
+     * which is one per digit, except for the digits before the first window is full.
+     *
+     * @param length The length of the chunk.
+     * @return The number of windows ending in the chunk.
+     */
+    public int windowsIn(int length){
+        long before = Math.max(0, position - window + 1);
+        long after = Math.max(0, position + length - window + 1);
+        return (int) (after - before);
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Forgets every digit read, so that the next chunk starts a new stream.
+     */
+    public void reset(){
+        position = 0;
+        residue = 0;
+    }
+
+    /**
+     * Reads the provided chunk of the stream, and writes the residue of every window ending in it to
+     * the provided array, in order, from the provided offset.
+     *
+     * If a character is not a digit, the digits before it are still read, and their windows written.
+     *
+     * @param data The next digits of the stream, written in the base of this engine.
+     * @param output The array the residues are written to.
+     * @param offset The index of the first residue written.
+     * @return The number of residues written, which is <code>windowsIn(data.length())</code>.
+     * @throws InvalidCharacterException If the chunk is not made up of digits of the base.
+     * @throws IndexOutOfBoundsException If the residues would not fit in the output, in which case
+     *      nothing is read.
+     */
+    public int feed(@NotNull CharSequence data, @NotNull int[] output, int offset) throws InvalidCharacterException{
+        int length = data.length();
+        int written = windowsIn(length);
+        if(offset < 0 || written > output.length - offset){
+            throw new IndexOutOfBoundsException("Output cannot hold " + written + " residues from " + offset + ".");
+        }
+
+        int i = 0;
+        // until the first window is full, digits are only added
+        for(; i < length && position < window; i++){
+            int digit = digitAt(data.charAt(i));
+            residue = (int) (((long) residue * base + digit) % modulo);
+            digits[(int) position] = (byte) digit;
+            position++;
+            if(position == window){
+                output[offset++] = residue;
+            }
+        }
+
+        int oldest = (int) (position % window);
+        for(; i < length; i++){
+            int digit = digitAt(data.charAt(i));
+            long remaining = residue - leaving[digits[oldest]];
+            if(remaining < 0){
+                remaining += modulo;
+            }
+            residue = (int) ((remaining * base + digit) % modulo);
+            digits[oldest] = (byte) digit;
+            oldest = oldest + 1 == window ? 0 : oldest + 1;
+            position++;
+            output[offset++] = residue;
+        }
+        return written;
+    }
+
+    // the digit of the provided character, after checking it is one
+    private int digitAt(char c) throws InvalidCharacterException{
+        int digit = ModuloFSMFactory.digitOf(c, base);
+        if(digit < 0){
+            throw new InvalidCharacterException("Character in data is not in alphabet.");
+        }
+        return digit;
+    }
+}
@@ -0,0 +1,197 @@
+package app;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A modulo engine backed by a dense transition table, where the residues are stored in the
+ * narrowest of <code>byte</code>, <code>short</code> or <code>int</code> that fits the modulo.
+ *
+ * The table can also have a stride of several digits: each row then has one column for every
+ * group of <code>stride</code> digits, so one lookup reads that many digits at once, at the cost
+ * of a table <code>base^(stride - 1)</code> times bigger. Digits left over at the end of a number
+ * are read arithmetically.
+ */
+public class TableModuloEngine implements ModuloEngine {
+
+    private final int base;
+
+    private final int modulo;
+
+    /**
+     * The number of digits read per lookup.
+     */
+    private final int stride;
+
+    /**
+     * The number of columns per row, base^stride.
+     */
+    private final int columns;
+
+    /**
+     * The size of a table entry, in bytes: 1, 2 or 4.
+     */
+    private final int width;
+
+    // exactly one of these is the table, depending on the width
+    private final byte[] byteTable;
+    private final short[] shortTable;
+    private final int[] intTable;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs the table engine for the provided base, modulo and stride, which are assumed
+     * to be valid and small enough for the table to fit in an array.
+     */
+    TableModuloEngine(int base, int modulo, int stride){
+        this.base = base;
+        this.modulo = modulo;
+        this.stride = stride;
+        this.columns = (int) Math.pow(base, stride);
+        this.width = widthFor(modulo);
+
+        int entries = modulo * columns;
+        byteTable = width == Byte.BYTES ? new byte[entries] : null;
+        shortTable = width == Short.BYTES ? new short[entries] : null;
+        intTable = width == Integer.BYTES ? new int[entries] : null;
+
+        for(int residue = 0; residue < modulo; residue++){
+            // the rows are (residue * base^stride + chunk) mod modulo for consecutive chunks
+            int next = (int) ((long) residue * columns % modulo);
+            for(int chunk = 0; chunk < columns; chunk++){
+                int index = residue * columns + chunk;
+                if(width == Byte.BYTES){
+                    byteTable[index] = (byte) next;
+                }
+                else if(width == Short.BYTES){
+                    shortTable[index] = (short) next;
+                }
+                else{
+                    intTable[index] = next;
+                }
+                next = next + 1 == modulo ? 0 : next + 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes needed to store residues modulo the provided modulo.
+     */
+    static int widthFor(int modulo){
+        if(modulo <= 1 << Byte.SIZE){
+            return Byte.BYTES;
+        }
+        return modulo <= 1 << Short.SIZE ? Short.BYTES : Integer.BYTES;
+    }
+
+    /**
+     * Returns the number of bytes the table for the provided parameters takes,
+     * or -1 if it would not fit in an array.
+     */
+    static long tableBytes(int base, int modulo, int stride){
+        double entries = modulo * Math.pow(base, stride);
+        if(entries > Integer.MAX_VALUE - 8){
+            return -1;
+        }
+        return (long) entries * widthFor(modulo);
+    }
+
+
+    //////////////
+    // getters
+
+    public int getStride(){
+        return stride;
+    }
+
+    /**
+     * Returns the size of a table entry, in bytes.
+     * @return 1, 2 or 4, for byte, short or int tables respectively.
+     */
+    public int getWidth(){
+        return width;
+    }
+
+    /**
+     * Returns the number of bytes taken by the table.
+     * @return The size of the table, in bytes.
+     */
+    public long getTableBytes(){
+        return (long) modulo * columns * width;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    @Override
+    public int residue(@NotNull CharSequence data) throws InvalidCharacterException{
+        int length = data.length();
+        int end = length - length % stride;
+        int residue;
+        switch(width){
+            case Byte.BYTES:
+                residue = runBytes(data, end);
+                break;
+            case Short.BYTES:
+                residue = runShorts(data, end);
+                break;
+            default:
+                residue = runInts(data, end);
+        }
+
+        // leftover digits
+        for(int i = end; i < length; i++){
+            residue = (int) (((long) residue * base + digit(data, i)) % modulo);
+        }
+        return residue;
+    }
+
+    // the three loops are the same aside from the table type, so each gets its own tight loop
+
+    private int runBytes(CharSequence data, int end) throws InvalidCharacterException{
+        byte[] table = byteTable;
+        int residue = 0;
+        for(int i = 0; i < end; i += stride){
+            residue = table[residue * columns + chunk(data, i)] & 0xFF;
+        }
+        return residue;
+    }
+
+    private int runShorts(CharSequence data, int end) throws InvalidCharacterException{
+        short[] table = shortTable;
+        int residue = 0;
+        for(int i = 0; i < end; i += stride){
+            residue = table[residue * columns + chunk(data, i)] & 0xFFFF;
+        }
+        return residue;
+    }
+
+    private int runInts(CharSequence data, int end) throws InvalidCharacterException{
+        int[] table = intTable;
+        int residue = 0;
+        for(int i = 0; i < end; i += stride){
+            residue = table[residue * columns + chunk(data, i)];
+        }
+        return residue;
+    }
+
+    private int chunk(CharSequence data, int from) throws InvalidCharacterException{
+        int chunk = digit(data, from);
+        for(int i = from + 1; i < from + stride; i++){
+            chunk = chunk * base + digit(data, i);
+        }
+        return chunk;
+    }
+
+    private int digit(CharSequence data, int i) throws InvalidCharacterException{
+        int digit = ModuloFSMFactory.digitOf(data.charAt(i), base);
+        if(digit < 0){
+            throw new InvalidCharacterException("Character in data is not in alphabet.");
+        }
+        return digit;
+    }
+}
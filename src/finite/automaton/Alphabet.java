@@ -0,0 +1,353 @@
+package finite.automaton;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An immutable alphabet, made up of symbols that are Unicode code points. Each symbol has an index,
+ * its position among the sorted symbols, which any accepted character maps to in constant time.
+ * Small alphabets use a single dense table over the span of accepted characters; alphabets spread
+ * further apart use a two-level table of 256-character pages, where empty pages are shared.
+ *
+ * An alphabet can fold case, in which case the upper, lower and title case forms of each symbol
+ * are also accepted, and map to the index of that symbol. Its symbols stay as they were given.
+ *
+ * Since alphabets are immutable, machines built with the same alphabet can share a single one,
+ * along with its index.
+ *
+ * Alphabets can hold supplementary code points, and index them, but machines read their input a
+ * <code>char</code> at a time, so only alphabets of BMP characters can be used to build an FSM.
+ * An FSM rejects an alphabet for which <code>isBmp</code> is false.
+ */
+public final class Alphabet {
+
+    /**
+     * The largest span of accepted characters indexed by a single dense table.
+     */
+    static final int DENSE_SPAN = 1 << 12;
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int[] EMPTY_PAGE = new int[PAGE_SIZE];
+    static {
+        Arrays.fill(EMPTY_PAGE, -1);
+    }
+
+    /**
+     * The sorted symbols of this alphabet, as code points.
+     */
+    private final int[] symbols;
+
+    private final boolean foldCase;
+
+    /**
+     * Every accepted code point, sorted, including the case variants of the symbols when folding case.
+     */
+    private final int[] accepted;
+
+    /**
+     * The smallest accepted code point, the offset into <code>dense</code>.
+     */
+    private final int min;
+
+    /**
+     * Maps <code>codePoint - min</code> to its index, or -1. Null if the pages are used instead.
+     */
+    private final int[] dense;
+
+    /**
+     * Maps <code>codePoint >>> PAGE_BITS</code> to a page of indices, each -1 if not accepted.
+     */
+    private final int[][] pages;
+
+    /**
+     * Checks strings against the accepted characters, shared by every machine using this alphabet.
+     */
+    private final AlphabetValidator validator;
+
+    /**
+     * The symbols, boxed, made when first asked for. Sharing them saves boxing on every lookup
+     * of a map keyed by symbol.
+     */
+    private volatile Character[] keys;
+
+
+    ////////////////////////
+    // constructors
+
+    private Alphabet(int[] codePoints, boolean foldCase){
+        TreeSet<Integer> sorted = new TreeSet<>();
+        for(int codePoint : codePoints){
+            if(!Character.isValidCodePoint(codePoint)){
+                throw new IllegalArgumentException("Invalid code point " + codePoint + ".");
+            }
+            // a symbol that is a case variant of an earlier one is the same symbol
+            if(!foldCase || !sorted.contains(Character.toLowerCase(codePoint))
+                    && !sorted.contains(Character.toUpperCase(codePoint))
+                    && !sorted.contains(Character.toTitleCase(codePoint))){
+                sorted.add(codePoint);
+            }
+        }
+        this.symbols = sorted.stream().mapToInt(Integer::intValue).toArray();
+        this.foldCase = foldCase;
+
+        // every accepted code point, along with its index, where symbols take precedence over variants
+        TreeMap<Integer, Integer> indices = new TreeMap<>();
+        for(int index = 0; index < symbols.length; index++){
+            indices.put(symbols[index], index);
+        }
+        if(foldCase){
+            for(int index = 0; index < symbols.length; index++){
+                indices.putIfAbsent(Character.toLowerCase(symbols[index]), index);
+                indices.putIfAbsent(Character.toUpperCase(symbols[index]), index);
+                indices.putIfAbsent(Character.toTitleCase(symbols[index]), index);
+            }
+        }
+        this.accepted = indices.keySet().stream().mapToInt(Integer::intValue).toArray();
+
+        this.min = accepted.length == 0 ? 0 : accepted[0];
+        int max = accepted.length == 0 ? -1 : accepted[accepted.length - 1];
+        if(max - min < DENSE_SPAN){
+            dense = new int[max - min + 1];
+            Arrays.fill(dense, -1);
+            pages = null;
+        }
+        else{
+            dense = null;
+            pages = new int[(max >>> PAGE_BITS) + 1][];
+            Arrays.fill(pages, EMPTY_PAGE);
+        }
+        for(Map.Entry<Integer, Integer> entry : indices.entrySet()){
+            int codePoint = entry.getKey();
+            if(dense != null){
+                dense[codePoint - min] = entry.getValue();
+            }
+            else{
+                int page = codePoint >>> PAGE_BITS;
+                if(pages[page] == EMPTY_PAGE){
+                    pages[page] = EMPTY_PAGE.clone();
+                }
+                pages[page][codePoint & (PAGE_SIZE - 1)] = entry.getValue();
+            }
+        }
+        this.validator = new AlphabetValidator(acceptedChars());
+    }
+
+    /**
+     * Returns the alphabet made up of the provided characters, which need not be sorted.
+     * @param symbols The characters of the alphabet.
+     * @return The alphabet of the provided characters.
+     */
+    public static Alphabet of(@NotNull char[] symbols){
+        return of(symbols, false);
+    }
+
+    /**
+     * Returns the alphabet made up of the provided characters, which need not be sorted.
+     * @param symbols The characters of the alphabet.
+     * @param foldCase Whether the other cases of each character are also accepted.
+     * @return The alphabet of the provided characters.
+     */
+    public static Alphabet of(@NotNull char[] symbols, boolean foldCase){
+        int[] codePoints = new int[symbols.length];
+        for(int i = 0; i < symbols.length; i++){
+            codePoints[i] = symbols[i];
+        }
+        return new Alphabet(codePoints, foldCase);
+    }
+
+    /**
+     * Returns the alphabet made up of the provided code points, which need not be sorted.
+     * @param codePoints The code points of the alphabet.
+     * @param foldCase Whether the other cases of each code point are also accepted.
+     * @return The alphabet of the provided code points.
+     * @throws IllegalArgumentException If any of the code points is not valid.
+     */
+    public static Alphabet ofCodePoints(@NotNull int[] codePoints, boolean foldCase){
+        return new Alphabet(codePoints.clone(), foldCase);
+    }
+
+    /**
+     * Returns the alphabet made up of every code point from <code>first</code> to <code>last</code>,
+     * inclusive.
+     *
+     * @param first The first code point of the range.
+     * @param last The last code point of the range.
+     * @param foldCase Whether the other cases of each code point are also accepted.
+     * @return The alphabet of the range.
+     * @throws IllegalArgumentException If either end is not a valid code point.
+     */
+    public static Alphabet ofRange(int first, int last, boolean foldCase){
+        if(last < first){
+            return new Alphabet(new int[0], foldCase);
+        }
+        int[] codePoints = new int[last - first + 1];
+        for(int i = 0; i < codePoints.length; i++){
+            codePoints[i] = first + i;
+        }
+        return new Alphabet(codePoints, foldCase);
+    }
+
+
+    //////////////
+    // getters
+
+    /**
+     * Returns the number of symbols of this alphabet, which is also the number of indices.
+     * @return The size of this alphabet.
+     */
+    public int size(){
+        return symbols.length;
+    }
+
+    /**
+     * Returns the symbol with the provided index.
+     * @param index The index of the symbol, between 0 and the size of this alphabet.
+     * @return The symbol, as a code point.
+     */
+    public int symbolAt(int index){
+        return symbols[index];
+    }
+
+    /**
+     * Returns true if this alphabet also accepts the other cases of its symbols.
+     * @return <code>true</code> if this alphabet folds case.
+     */
+    public boolean isFoldingCase(){
+        return foldCase;
+    }
+
+    /**
+     * Returns true if every symbol of this alphabet is a single <code>char</code>.
+     * @return <code>true</code> if there are no supplementary code points in this alphabet.
+     */
+    public boolean isBmp(){
+        return symbols.length == 0 || symbols[symbols.length - 1] <= Character.MAX_VALUE;
+    }
+
+    /**
+     * Returns the sorted symbols of this alphabet as characters. Only valid for BMP alphabets.
+     * @return A new array of the symbols of this alphabet.
+     * @throws IllegalStateException If the alphabet has supplementary code points.
+     */
+    public char[] toCharArray(){
+        if(!isBmp()){
+            throw new IllegalStateException("Alphabet has supplementary code points.");
+        }
+        char[] chars = new char[symbols.length];
+        for(int i = 0; i < symbols.length; i++){
+            chars[i] = (char) symbols[i];
+        }
+        return chars;
+    }
+
+    /**
+     * Returns every accepted character, including case variants, sorted.
+     * Supplementary code points are left out, since they are not single characters.
+     */
+    char[] acceptedChars(){
+        int bmp = 0;
+        while(bmp < accepted.length && accepted[bmp] <= Character.MAX_VALUE){
+            bmp++;
+        }
+        char[] chars = new char[bmp];
+        for(int i = 0; i < bmp; i++){
+            chars[i] = (char) accepted[i];
+        }
+        return chars;
+    }
+
+    /**
+     * Returns the symbol with the provided index as a boxed character, the same object every time.
+     * Only valid for BMP alphabets.
+     */
+    Character keyAt(int index){
+        Character[] boxed = keys;
+        if(boxed == null){
+            // racing threads make equal arrays, so either may win
+            boxed = new Character[symbols.length];
+            for(int i = 0; i < symbols.length; i++){
+                boxed[i] = (char) symbols[i];
+            }
+            keys = boxed;
+        }
+        return boxed[index];
+    }
+
+    /**
+     * Returns the validator for the accepted characters of this alphabet.
+     */
+    AlphabetValidator getValidator(){
+        return validator;
+    }
+
+    /**
+     * Returns the estimated number of bytes taken by this alphabet, its index and its validator.
+     */
+    long getBytes(){
+        // symbols, fold case, accepted, min, dense, pages, validator and keys
+        long bytes = Footprint.objectBytes(6 * Footprint.REFERENCE + 1 + Integer.BYTES)
+                + Footprint.arrayBytes(symbols.length, Integer.BYTES)
+                + Footprint.arrayBytes(accepted.length, Integer.BYTES)
+                + validator.getBytes();
+        Character[] boxed = keys;
+        if(boxed != null){
+            // boxes below 128 are cached by Character itself
+            bytes += Footprint.arrayBytes(boxed.length, Footprint.REFERENCE);
+            for(int symbol : symbols){
+                bytes += symbol < 128 ? 0 : Footprint.SMALL_BOX;
+            }
+        }
+        if(dense != null){
+            bytes += Footprint.arrayBytes(dense.length, Integer.BYTES);
+        }
+        else{
+            bytes += Footprint.arrayBytes(pages.length, Footprint.REFERENCE);
+            for(int[] page : pages){
+                // the empty page is shared by every alphabet
+                bytes += page != EMPTY_PAGE ? Footprint.arrayBytes(PAGE_SIZE, Integer.BYTES) : 0;
+            }
+        }
+        return bytes;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Returns the index of the symbol the provided code point stands for, or -1 if it is not accepted.
+     * @param codePoint The code point being queried.
+     * @return The index of the code point, or -1 if it is not in this alphabet.
+     */
+    public int indexOf(int codePoint){
+        if(dense != null){
+            int offset = codePoint - min;
+            return offset >= 0 && offset < dense.length ? dense[offset] : -1;
+        }
+        int page = codePoint >>> PAGE_BITS;
+        return page < pages.length ? pages[page][codePoint & (PAGE_SIZE - 1)] : -1;
+    }
+
+    /**
+     * Returns the index of the symbol the provided character stands for, or -1 if it is not accepted.
+     * @param c The character being queried.
+     * @return The index of the character, or -1 if it is not in this alphabet.
+     */
+    public int indexOf(char c){
+        return indexOf((int) c);
+    }
+
+    /**
+     * Returns true if the provided code point is accepted by this alphabet.
+     * @param codePoint The code point being queried.
+     * @return <code>true</code> if the code point is in this alphabet.
+     */
+    public boolean contains(int codePoint){
+        return indexOf(codePoint) >= 0;
+    }
+}
@@ -0,0 +1,213 @@
+package finite.automaton;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Checks strings against an alphabet, finding the first character that is not in it.
+ * The alphabet is precomputed into its runs of consecutive characters, as well as a bitmap
+ * over the span from its smallest to its largest character.
+ *
+ * Long strings are checked in place a block at a time, and each block is checked
+ * without branching per character, by or-ing together a value whose sign bit is set for
+ * characters outside the alphabet. For alphabets made up of up to three runs, such as the digits
+ * of a base, with its letters in either case, that loop is simple enough for the JIT to turn into
+ * SIMD instructions. Only blocks that fail are searched again for the exact position.
+ */
+public class AlphabetValidator {
+
+    /**
+     * Strings shorter than this are checked one character at a time.
+     */
+    static final int BLOCK_THRESHOLD = 64;
+
+    /**
+     * The number of characters checked per block.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    /**
+     * The first and last characters of each run of consecutive characters in the alphabet, in order.
+     */
+    private final int[] lows;
+    private final int[] highs;
+
+    /**
+     * The smallest character of the alphabet, or 0 if it is empty.
+     */
+    private final int min;
+
+    /**
+     * Bit <code>c - min</code> is set iff <code>c</code> is in the alphabet.
+     */
+    private final long[] bitmap;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs a validator for the provided alphabet, which need not be sorted.
+     * @param alphabet The alphabet strings are checked against.
+     */
+    public AlphabetValidator(@NotNull char[] alphabet){
+        char[] sorted = alphabet.clone();
+        Arrays.sort(sorted);
+
+        int runs = 0;
+        for(int i = 0; i < sorted.length; i++){
+            if(i == 0 || sorted[i] > sorted[i - 1] + 1){
+                runs++;
+            }
+        }
+        lows = new int[runs];
+        highs = new int[runs];
+        int run = -1;
+        for(int i = 0; i < sorted.length; i++){
+            if(i == 0 || sorted[i] > sorted[i - 1] + 1){
+                lows[++run] = sorted[i];
+            }
+            highs[run] = sorted[i];
+        }
+
+        min = sorted.length == 0 ? 0 : sorted[0];
+        int span = sorted.length == 0 ? 0 : sorted[sorted.length - 1] - min + 1;
+        bitmap = new long[(span + Long.SIZE - 1) / Long.SIZE];
+        for(char c : sorted){
+            bitmap[(c - min) >>> 6] |= 1L << (c - min);
+        }
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Returns true if the provided character is in the alphabet.
+     * @param c The character being queried.
+     * @return <code>true</code> if the character is in the alphabet.
+     */
+    public boolean contains(char c){
+        int offset = c - min;
+        return offset >= 0 && offset < bitmap.length * Long.SIZE
+                && (bitmap[offset >>> 6] & 1L << offset) != 0;
+    }
+
+    /**
+     * Returns the position of the first character of the provided data not in the alphabet.
+     * @see #firstInvalid(CharSequence, int)
+     */
+    public int firstInvalid(@NotNull CharSequence data){
+        return firstInvalid(data, 0);
+    }
+
+    /**
+     * Returns the position of the first character of the provided data, from the provided
+     * position onwards, that is not in the alphabet, or -1 if they all are.
+     *
+     * @param data The string being checked.
+     * @param from The position checking starts from.
+     * @return The position of the first character not in the alphabet, or -1 if there is none.
+     */
+    public int firstInvalid(@NotNull CharSequence data, int from){
+        int length = data.length();
+        if(length - from < BLOCK_THRESHOLD){
+            return scan(data, from, length);
+        }
+
+        for(int start = from; start < length; start += BLOCK_SIZE){
+            int end = Math.min(start + BLOCK_SIZE, length);
+            if(!isBlockValid(data, start, end)){
+                return scan(data, start, end);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if every character of the provided data is in the alphabet.
+     * @param data The string being checked.
+     * @return <code>true</code> if the data is made up of the alphabet.
+     */
+    public boolean isValid(@NotNull CharSequence data){
+        return firstInvalid(data, 0) < 0;
+    }
+
+    /**
+     * Returns the estimated number of bytes taken by this validator.
+     */
+    long getBytes(){
+        // lows, highs, min and bitmap
+        return Footprint.objectBytes(3 * Footprint.REFERENCE + Integer.BYTES)
+                + 2 * Footprint.arrayBytes(lows.length, Integer.BYTES)
+                + Footprint.arrayBytes(bitmap.length, Long.BYTES);
+    }
+
+
+    ////////////////////////
+    // private helpers
+
+    private int scan(CharSequence data, int from, int to){
+        for(int i = from; i < to; i++){
+            if(!contains(data.charAt(i))){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // (c - low) | (high - c) is negative iff c is outside [low, high]
+    private boolean isBlockValid(CharSequence block, int from, int to){
+        int invalid = 0;
+        switch(lows.length){
+            case 0:
+                return from == to;
+            case 1: {
+                int low = lows[0];
+                int high = highs[0];
+                for(int i = from; i < to; i++){
+                    char c = block.charAt(i);
+                    invalid |= (c - low) | (high - c);
+                }
+                return invalid >= 0;
+            }
+            case 2: {
+                int low0 = lows[0];
+                int high0 = highs[0];
+                int low1 = lows[1];
+                int high1 = highs[1];
+                for(int i = from; i < to; i++){
+                    char c = block.charAt(i);
+                    invalid |= ((c - low0) | (high0 - c)) & ((c - low1) | (high1 - c));
+                }
+                return invalid >= 0;
+            }
+            case 3: {
+                int low0 = lows[0];
+                int high0 = highs[0];
+                int low1 = lows[1];
+                int high1 = highs[1];
+                int low2 = lows[2];
+                int high2 = highs[2];
+                for(int i = from; i < to; i++){
+                    char c = block.charAt(i);
+                    invalid |= ((c - low0) | (high0 - c)) & ((c - low1) | (high1 - c)) & ((c - low2) | (high2 - c));
+                }
+                return invalid >= 0;
+            }
+            default: {
+                int span = bitmap.length * Long.SIZE;
+                for(int i = from; i < to; i++){
+                    int offset = block.charAt(i) - min;
+                    if(offset < 0 || offset >= span){
+                        return false;
+                    }
+                    // the bit of c, moved to the sign bit and flipped, so that it is set for missing characters
+                    invalid |= ~(int) (bitmap[offset >>> 6] << (63 - (offset & 63)) >>> 32);
+                }
+                return invalid >= 0;
+            }
+        }
+    }
+}
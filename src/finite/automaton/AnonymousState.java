@@ -0,0 +1,92 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+
+/**
+ * A view of an anonymous state of an <code>FSM</code>, which has no object of its own: its name,
+ * finality and value are all kept by the machine, by index, and its name is only made when asked
+ * for. The machine hands out at most one view per anonymous state, so views can be compared by
+ * identity like other states.
+ *
+ * @param <E> The type of the result should the state be the ending final state.
+ */
+final class AnonymousState<E> extends State<E> {
+
+    /**
+     * The estimated size of a view: the fields of a state, and its own.
+     */
+    static final long BYTES = Footprint.objectBytes(4 * Footprint.REFERENCE + Integer.BYTES + 1);
+
+    private final FSM<E> machine;
+
+    private final int index;
+
+    /**
+     * Stands for a value not computed yet. A single field is read and written, so that a view shared
+     * between threads never sees a value half-set.
+     */
+    private static final Object UNKNOWN = new Object();
+
+    /**
+     * The value of the state, computed when first asked for, so that values boxed by the
+     * machine's value function are only boxed once.
+     */
+    private Object value = UNKNOWN;
+
+    AnonymousState(FSM<E> machine, int index){
+        super(null);
+        this.machine = machine;
+        this.index = index;
+    }
+
+    FSM<E> getMachine(){
+        return machine;
+    }
+
+    int getIndex(){
+        return index;
+    }
+
+    @Override
+    public String getName(){
+        return machine.anonymousName(index);
+    }
+
+    @Override
+    public boolean isFinal(){
+        return machine.isAnonymousFinal(index);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E getValue(){
+        Object known = value;
+        if(known == UNKNOWN){
+            known = machine.anonymousValue(index);
+            value = known;
+        }
+        return (E) known;
+    }
+
+    @Override
+    public E getStateResult(){
+        return isFinal() ? getValue() : null;
+    }
+
+    @Override
+    public void setFinality(boolean finality){
+        machine.setAnonymousFinality(index, finality);
+    }
+
+    @Override
+    public void setValue(E newValue){
+        machine.setAnonymousValue(index, newValue);
+        value = newValue;
+    }
+
+    @Override
+    public void setResult(E result){
+        setFinality(true);
+        setValue(result);
+    }
+}
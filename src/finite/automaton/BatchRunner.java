@@ -0,0 +1,165 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.IncompleteMachineException;
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs one machine over many independent inputs, advancing a batch of <code>LANES</code> inputs
+ * in lock-step, one character of each at a time. The transitions of a single run depend on each
+ * other, so a single run waits on every table lookup in turn; the runs of a batch do not, so
+ * their lookups overlap.
+ *
+ * Each of the lanes of a batch runs one input at a time. When the input of a lane finishes, or
+ * turns out not to be made up of the alphabet, the lane takes the next input that has not been
+ * started yet, so lanes never sit idle waiting on longer inputs while there are inputs left.
+ *
+ * @param <E> The return type for states of the machine.
+ */
+public class BatchRunner<E> {
+
+    /**
+     * The number of inputs advanced together.
+     */
+    public static final int LANES = 16;
+
+    /**
+     * The id returned for inputs that are not made up of the machine's alphabet.
+     */
+    public static final int INVALID = -1;
+
+    /**
+     * The compiled machine being run.
+     */
+    private final CompiledFSM<E> machine;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs a batch runner for the provided machine, compiling it.
+     * @param machine The machine being run.
+     * @throws IncompleteMachineException If the machine is not ready.
+     */
+    public BatchRunner(@NotNull FSM<E> machine) throws IncompleteMachineException{
+        this(machine.compile());
+    }
+
+    /**
+     * Constructs a batch runner for the provided compiled machine.
+     * @param machine The machine being run.
+     */
+    public BatchRunner(@NotNull CompiledFSM<E> machine){
+        this.machine = machine;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Runs the machine on each of the provided inputs and returns the final state ids,
+     * in the order the inputs were provided.
+     *
+     * @param inputs The strings for the machine to process.
+     * @return The id of the final state for each input, or <code>INVALID</code> for inputs
+     * that are not made up of the machine's alphabet.
+     */
+    public int[] runToIds(@NotNull List<? extends CharSequence> inputs){
+        machine.acquire();
+        try {
+            return runLanes(inputs);
+        }
+        finally{
+            machine.release();
+        }
+    }
+
+    // runs the inputs through the lanes, with the machine acquired
+    private int[] runLanes(List<? extends CharSequence> inputs){
+        int count = inputs.size();
+        int[] ids = new int[count];
+
+        // which input each lane is running, or -1 once there are none left for it
+        int[] owners = new int[LANES];
+        CharSequence[] lanes = new CharSequence[LANES];
+        int[] positions = new int[LANES];
+        int[] ends = new int[LANES];
+        int[] states = new int[LANES];
+        int next = 0;
+        int running = 0;
+        for(int lane = 0; lane < LANES; lane++){
+            owners[lane] = -1;
+            if(next < count){
+                owners[lane] = next;
+                lanes[lane] = inputs.get(next);
+                ends[lane] = lanes[lane].length();
+                states[lane] = machine.getInitId();
+                next++;
+                running++;
+            }
+        }
+
+        while(running > 0){
+            for(int lane = 0; lane < LANES; lane++){
+                int position = positions[lane];
+                if(position < ends[lane]){
+                    int col = machine.columnOf(lanes[lane].charAt(position));
+                    if(col < 0){
+                        states[lane] = INVALID;
+                        positions[lane] = ends[lane];
+                    }
+                    else{
+                        states[lane] = machine.next(states[lane], col);
+                        positions[lane] = position + 1;
+                    }
+                }
+                else if(owners[lane] >= 0){
+                    // the lane's input is done, so it takes the next one
+                    ids[owners[lane]] = states[lane];
+                    if(next < count){
+                        owners[lane] = next;
+                        lanes[lane] = inputs.get(next);
+                        positions[lane] = 0;
+                        ends[lane] = lanes[lane].length();
+                        states[lane] = machine.getInitId();
+                        next++;
+                    }
+                    else{
+                        owners[lane] = -1;
+                        lanes[lane] = null;
+                        running--;
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Runs the machine on each of the provided inputs and returns the final states,
+     * in the order the inputs were provided. Each state is the same as what running
+     * the machine on that input on its own would return.
+     *
+     * @param inputs The strings for the machine to process.
+     * @return The final states for each input.
+     * @throws InvalidCharacterException If any input is not made up of the machine's alphabet.
+     */
+    public List<State<E>> runMachines(@NotNull List<? extends CharSequence> inputs)
+    throws InvalidCharacterException{
+        int[] ids = runToIds(inputs);
+        List<State<E>> output = new ArrayList<>(ids.length);
+        for(int id : ids){
+            if(id == INVALID){
+                throw new InvalidCharacterException("Character in data is not in alphabet.");
+            }
+            output.add(machine.getState(id));
+        }
+        return output;
+    }
+}
@@ -0,0 +1,265 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.IncompleteMachineException;
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Runs a machine over the bits of binary data, as if they were written out as the digits of a base
+ * of 2, 4, 16 or 256, a whole byte at a time.
+ *
+ * Each byte is some number of digits of the base, as many as fit in 8 bits, so a table of where the
+ * machine goes from every state over every byte, of 256 entries per state, takes the machine over a
+ * byte in a single lookup, without making the string of its digits. Bits are read most significant
+ * first, which is the order the digits of a number are written in: the most significant byte first,
+ * and each byte from its high bit, as in <code>BigInteger.toByteArray</code>.
+ *
+ * Every byte is read whole, so numbers are read with as many leading zero digits as it takes to fill
+ * their first byte. This is meant for machines where leading zeros make no difference, such as
+ * those finding the value of a number modulo some other number.
+ *
+ * @param <E> The return type for states of the machine.
+ */
+public class BitPackedRunner<E> {
+
+    /**
+     * The compiled machine being run.
+     */
+    private final CompiledFSM<E> machine;
+
+    /**
+     * The id of the state reached from each state over each byte, at <code>id << 8 | byte</code>.
+     */
+    private final int[] table;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs a bit-packed runner for the provided machine, compiling it.
+     * @see #BitPackedRunner(CompiledFSM, char[])
+     */
+    public BitPackedRunner(@NotNull FSM<E> machine, @NotNull char[] digits)
+            throws IncompleteMachineException, InvalidCharacterException{
+        this(machine.compile(), digits);
+    }
+
+    /**
+     * Constructs a bit-packed runner for the provided compiled machine, reading bits as the provided
+     * digits, where the digit of each value is at that index.
+     *
+     * @param machine The machine being run.
+     * @param digits The digits of a base of 2, 4, 16 or 256, in order of value.
+     * @throws InvalidCharacterException If the digits are not in the machine's alphabet.
+     * @throws IllegalArgumentException If the number of digits is not 2, 4, 16 or 256, or the machine
+     *      has too many states for its table to fit in an array.
+     */
+    public BitPackedRunner(@NotNull CompiledFSM<E> machine, @NotNull char[] digits) throws InvalidCharacterException{
+        int bits = Integer.numberOfTrailingZeros(digits.length);
+        if(bits == 0 || digits.length != 1 << bits || 8 % bits != 0){
+            throw new IllegalArgumentException("Invalid number of digits " + digits.length + ".");
+        }
+        if((long) machine.getStateCount() << 8 > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("Machine of " + machine.getStateCount()
+                    + " states is too big to be run a byte at a time.");
+        }
+        this.machine = machine;
+
+        int[] columns = new int[digits.length];
+        for(int value = 0; value < digits.length; value++){
+            columns[value] = machine.columnOf(digits[value]);
+            if(columns[value] < 0){
+                throw new InvalidCharacterException("Digit " + digits[value] + " is not in alphabet.");
+            }
+        }
+
+        int mask = digits.length - 1;
+        table = new int[machine.getStateCount() << 8];
+        machine.acquire();
+        try {
+            for(int id = 0; id < machine.getStateCount(); id++){
+                for(int b = 0; b < 256; b++){
+                    int next = id;
+                    for(int shift = 8 - bits; shift >= 0; shift -= bits){
+                        next = machine.next(next, columns[(b >>> shift) & mask]);
+                    }
+                    table[id << 8 | b] = next;
+                }
+            }
+        }
+        finally{
+            machine.release();
+        }
+    }
+
+
+    //////////////
+    // getters
+
+    public CompiledFSM<E> getMachine(){
+        return machine;
+    }
+
+    /**
+     * Returns the number of bytes taken by the table of transitions over bytes.
+     * @return The size of the table in bytes.
+     */
+    public long getTableBytes(){
+        return (long) table.length * Integer.BYTES;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Runs the machine over the bits of the provided bytes, the first byte most significant.
+     *
+     * @param data The bytes for the machine to process.
+     * @return The id of the final state.
+     */
+    public int runToId(@NotNull byte[] data){
+        return runToId(data, 0, data.length);
+    }
+
+    /**
+     * Runs the machine over the bits of the provided range of bytes, the first byte most significant.
+     *
+     * @param data The bytes for the machine to process.
+     * @param from The index of the first byte read.
+     * @param to The index after the last byte read.
+     * @return The id of the final state.
+     * @throws IndexOutOfBoundsException If the range is not in the array.
+     */
+    public int runToId(@NotNull byte[] data, int from, int to){
+        if(from < 0 || to > data.length || from > to){
+            throw new IndexOutOfBoundsException("Range " + from + " to " + to + " out of bounds for length "
+                    + data.length + ".");
+        }
+        int[] table = this.table;
+        int id = machine.getInitId();
+        for(int i = from; i < to; i++){
+            id = table[id << 8 | (data[i] & 0xFF)];
+        }
+        return id;
+    }
+
+    /**
+     * Runs the machine over the bits of the remaining bytes of the provided buffer, the byte at its
+     * position most significant. The position of the buffer is left where it is.
+     *
+     * @param data The buffer whose remaining bytes the machine processes.
+     * @return The id of the final state.
+     */
+    public int runToId(@NotNull ByteBuffer data){
+        if(data.hasArray()){
+            return runToId(data.array(), data.arrayOffset() + data.position(), data.arrayOffset() + data.limit());
+        }
+        int[] table = this.table;
+        int id = machine.getInitId();
+        int i = data.position();
+        int limit = data.limit();
+        // a word at a time, whatever the order of the buffer, its most significant byte first
+        ByteOrder order = data.order();
+        for(; i + Long.BYTES <= limit; i += Long.BYTES){
+            long word = data.getLong(i);
+            if(order == ByteOrder.LITTLE_ENDIAN){
+                word = Long.reverseBytes(word);
+            }
+            id = stepWord(table, id, word);
+        }
+        for(; i < limit; i++){
+            id = table[id << 8 | (data.get(i) & 0xFF)];
+        }
+        return id;
+    }
+
+    /**
+     * Runs the machine over the bits of the provided words, each read from its most significant bit.
+     * The order of the words is the provided one: <code>BIG_ENDIAN</code> when the first word is the
+     * most significant, and <code>LITTLE_ENDIAN</code> when it is the least significant, as in
+     * <code>BitSet.toLongArray</code>.
+     *
+     * @param data The words for the machine to process.
+     * @param order The order of the words.
+     * @return The id of the final state.
+     */
+    public int runToId(@NotNull long[] data, @NotNull ByteOrder order){
+        int[] table = this.table;
+        int id = machine.getInitId();
+        if(order == ByteOrder.BIG_ENDIAN){
+            for(long word : data){
+                id = stepWord(table, id, word);
+            }
+        }
+        else{
+            for(int i = data.length - 1; i >= 0; i--){
+                id = stepWord(table, id, data[i]);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Runs the machine over the bits of the provided non-negative number.
+     *
+     * @param number The number for the machine to process.
+     * @return The id of the final state.
+     * @throws IllegalArgumentException If the number is negative, and so has no finite bits.
+     */
+    public int runToId(@NotNull BigInteger number){
+        if(number.signum() < 0){
+            throw new IllegalArgumentException("Negative number " + number + " has no bits to run over.");
+        }
+        return runToId(number.toByteArray());
+    }
+
+    /**
+     * Runs the machine over the bits of the provided bytes.
+     * @see #runToId(byte[])
+     */
+    public State<E> runMachine(@NotNull byte[] data){
+        return machine.getState(runToId(data));
+    }
+
+    /**
+     * Runs the machine over the bits of the remaining bytes of the provided buffer.
+     * @see #runToId(ByteBuffer)
+     */
+    public State<E> runMachine(@NotNull ByteBuffer data){
+        return machine.getState(runToId(data));
+    }
+
+    /**
+     * Runs the machine over the bits of the provided words, in the provided order.
+     * @see #runToId(long[], ByteOrder)
+     */
+    public State<E> runMachine(@NotNull long[] data, @NotNull ByteOrder order){
+        return machine.getState(runToId(data, order));
+    }
+
+    /**
+     * Runs the machine over the bits of the provided non-negative number.
+     * @see #runToId(BigInteger)
+     */
+    public State<E> runMachine(@NotNull BigInteger number){
+        return machine.getState(runToId(number));
+    }
+
+
+    //////////////
+    // private helpers
+
+    private static int stepWord(int[] table, int id, long word){
+        for(int shift = 56; shift >= 0; shift -= 8){
+            id = table[id << 8 | ((int) (word >>> shift) & 0xFF)];
+        }
+        return id;
+    }
+}
@@ -0,0 +1,46 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+
+/**
+ * A transition table stored in a <code>byte</code> array on the heap, for machines of at most
+ * 256 states, whose ids are stored unsigned.
+ */
+class ByteArrayTable extends TransitionTable {
+
+    private final byte[] table;
+
+    ByteArrayTable(int[] table, int stateCount, int columnCount){
+        super(stateCount, columnCount);
+        this.table = new byte[table.length];
+        for(int i = 0; i < table.length; i++){
+            this.table[i] = (byte) table[i];
+        }
+    }
+
+    @Override
+    int next(int state, int column){
+        return table[state * columnCount + column] & 0xFF;
+    }
+
+    @Override
+    long getBytes(){
+        return table.length;
+    }
+
+    @Override
+    int run(CompiledFSM<?> machine, CharSequence data, int state) throws InvalidCharacterException{
+        for(int i = 0; i < data.length(); i++){
+            int col = machine.columnOf(data.charAt(i));
+            if(col < 0){
+                throw new InvalidCharacterException("Character in data is not in alphabet.");
+            }
+            state = table[state * columnCount + col] & 0xFF;
+            if(machine.isAbsorbing(state)){
+                machine.checkAlphabet(data, i + 1);
+                break;
+            }
+        }
+        return state;
+    }
+}
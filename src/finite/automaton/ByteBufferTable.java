@@ -0,0 +1,33 @@
+package finite.automaton;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A transition table read directly from a <code>ByteBuffer</code>, such as a view of a
+ * memory-mapped file, without being copied onto the heap, for machines of at most
+ * 256 states, whose ids are stored unsigned.
+ */
+class ByteBufferTable extends TransitionTable {
+
+    private final ByteBuffer table;
+
+    ByteBufferTable(ByteBuffer table, int stateCount, int columnCount){
+        super(stateCount, columnCount);
+        this.table = table;
+    }
+
+    @Override
+    int next(int state, int column){
+        return table.get(state * columnCount + column) & 0xFF;
+    }
+
+    @Override
+    long getBytes(){
+        return table.capacity();
+    }
+
+    @Override
+    boolean isOnHeap(){
+        return false;
+    }
+}
@@ -0,0 +1,420 @@
+package finite.automaton;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates a class with the run loop of one compiled machine written out as code, so that the
+ * JIT sees the transitions as constants instead of table lookups. Each state gets its own block
+ * of code, which reads the next character and switches on it straight to the block of the next
+ * state, so the current state is never stored anywhere but in the position in the code:
+ * <pre>
+ *     state0: if(i == data.length()) return 0;
+ *             switch(data.charAt(i++)){ case '0': goto state0; case '1': goto state1; ... default: return -1; }
+ *     state1: ...
+ * </pre>
+ *
+ * This is only faster than the table when the branches it takes are predictable, such as for
+ * repetitive data or machines that mostly stay in a few states. On random data, every character
+ * costs a mispredicted jump, which is slower than a table lookup.
+ *
+ * The class is defined as a hidden class when the runtime has them (Java 15 and later), so it
+ * can be unloaded once the machine is no longer used. Otherwise, it is defined as an ordinary
+ * class in this package, which lives as long as this package's class loader.
+ *
+ * Only small machines are specialized: the HotSpot JIT does not compile methods longer than
+ * 8000 bytes of bytecode, and a run loop that is never compiled is slower than the table.
+ */
+final class BytecodeSpecializer {
+
+    /**
+     * The longest run loop generated, in bytes of bytecode.
+     */
+    static final int MAX_CODE_BYTES = 8000;
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    // constant pool indices, in the order written by makeClass
+    private static final int THIS_CLASS = 2;
+    private static final int OBJECT_CLASS = 4;
+    private static final int RUNNER_CLASS = 6;
+    private static final int INIT_NAME = 7;
+    private static final int VOID_DESCRIPTOR = 8;
+    private static final int OBJECT_INIT = 10;
+    private static final int CHAR_SEQUENCE_CLASS = 12;
+    private static final int LENGTH = 16;
+    private static final int CHAR_AT = 20;
+    private static final int RUN_NAME = 21;
+    private static final int RUN_DESCRIPTOR = 22;
+    private static final int CODE = 23;
+    private static final int STACK_MAP_TABLE = 24;
+    private static final int CONSTANT_COUNT = 25;
+
+    // local variables of the run loop
+    private static final int DATA = 1;
+    private static final int INDEX = 2;
+    private static final int LENGTH_LOCAL = 3;
+
+    private BytecodeSpecializer(){
+    }
+
+
+    ////////////////////////
+    // code generation
+
+    /**
+     * A minimal assembler for a single method, with labels resolved once all code is written.
+     */
+    private static final class Code{
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final List<int[]> fixups = new ArrayList<>();
+        private final TreeSet<Integer> targets = new TreeSet<>();
+        private final int[] labels;
+
+        Code(int labelCount){
+            labels = new int[labelCount];
+        }
+
+        int position(){
+            return out.size();
+        }
+
+        void op(int... bytes){
+            for(int b : bytes){
+                out.write(b);
+            }
+        }
+
+        void u2(int value){
+            op(value >> 8, value);
+        }
+
+        void u4(int value){
+            op(value >> 24, value >> 16, value >> 8, value);
+        }
+
+        void local(int opcode, int index){
+            op(opcode, index);
+        }
+
+        void pushInt(int value){
+            if(value >= -1 && value <= 5){
+                op(0x03 + value);           // iconst_<n>
+            }
+            else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE){
+                op(0x10, value);            // bipush
+            }
+            else{
+                op(0x11);                   // sipush
+                u2(value);
+            }
+        }
+
+        void bind(int label){
+            labels[label] = position();
+            targets.add(position());
+        }
+
+        // a jump offset of the provided width, relative to the instruction at the provided position
+        void jump(int label, int from, int width){
+            fixups.add(new int[]{position(), from, label, width});
+            op(new int[width]);
+        }
+
+        void branch(int opcode, int label){
+            int from = position();
+            op(opcode);
+            jump(label, from, 2);
+        }
+
+        void padSwitch(){
+            while(position() % 4 != 0){
+                op(0);
+            }
+        }
+
+        /**
+         * Writes a <code>tableswitch</code> or <code>lookupswitch</code>, whichever is smaller,
+         * jumping to <code>keyLabels[i]</code> for <code>keys[i]</code>. The keys must be sorted.
+         */
+        void switchOn(int[] keys, int[] keyLabels, int defaultLabel){
+            int from = position();
+            long range = keys.length == 0 ? 0 : (long) keys[keys.length - 1] - keys[0] + 1;
+            boolean table = keys.length > 0 && range <= 2L * keys.length;
+            op(table ? 0xAA : 0xAB);
+            padSwitch();
+            jump(defaultLabel, from, 4);
+            if(table){
+                u4(keys[0]);
+                u4(keys[keys.length - 1]);
+                int k = 0;
+                for(int key = keys[0]; key <= keys[keys.length - 1]; key++){
+                    jump(keys[k] == key ? keyLabels[k++] : defaultLabel, from, 4);
+                }
+            }
+            else{
+                u4(keys.length);
+                for(int k = 0; k < keys.length; k++){
+                    u4(keys[k]);
+                    jump(keyLabels[k], from, 4);
+                }
+            }
+        }
+
+        byte[] resolve(){
+            byte[] code = out.toByteArray();
+            for(int[] fixup : fixups){
+                int offset = labels[fixup[2]] - fixup[1];
+                for(int b = 0; b < fixup[3]; b++){
+                    code[fixup[0] + b] = (byte) (offset >> (8 * (fixup[3] - 1 - b)));
+                }
+            }
+            return code;
+        }
+    }
+
+    /**
+     * Writes the run loop of the provided machine, or returns null if it would be too long.
+     */
+    private static Code makeRunLoop(CompiledFSM<?> machine){
+        int stateCount = machine.getStateCount();
+        char[] accepted = machine.getAlphabetIndex().acceptedChars();
+        // each state takes at least a read and a return, checked before writing anything
+        if((long) stateCount * 16 > MAX_CODE_BYTES){
+            return null;
+        }
+
+        // labels: the invalid exit, then one block, one return and one jump per state
+        int invalid = 0;
+        int blockBase = 1;
+        int returnBase = blockBase + stateCount;
+        int jumpBase = returnBase + stateCount;
+        Code code = new Code(jumpBase + stateCount);
+
+        code.pushInt(0);
+        code.local(0x36, INDEX);                    // istore
+        code.local(0x19, DATA);                     // aload
+        code.op(0xB9);                              // invokeinterface CharSequence.length
+        code.u2(LENGTH);
+        code.op(1, 0);
+        code.local(0x36, LENGTH_LOCAL);
+        code.branch(0xA7, blockBase + machine.getInitId());  // goto
+
+        // every accepted character is a key, so case variants go to the column of their symbol
+        int[] keys = new int[accepted.length];
+        int[] columns = new int[accepted.length];
+        for(int k = 0; k < accepted.length; k++){
+            keys[k] = accepted[k];
+            columns[k] = machine.columnOf(accepted[k]);
+        }
+        int[] next = new int[accepted.length];
+        for(int id = 0; id < stateCount; id++){
+            code.bind(blockBase + id);
+            code.local(0x15, INDEX);                // iload
+            code.local(0x15, LENGTH_LOCAL);
+            code.branch(0xA2, returnBase + id);     // if_icmpge
+            code.local(0x19, DATA);
+            code.local(0x15, INDEX);
+            code.op(0xB9);                          // invokeinterface CharSequence.charAt
+            code.u2(CHAR_AT);
+            code.op(2, 0);
+            code.op(0x84, INDEX, 1);                // iinc
+            for(int k = 0; k < accepted.length; k++){
+                next[k] = jumpBase + machine.step(id, columns[k]);
+            }
+            code.switchOn(keys, next, invalid);
+
+            code.bind(returnBase + id);
+            code.pushInt(id);
+            code.op(0xAC);                          // ireturn
+            if(code.position() > MAX_CODE_BYTES){
+                return null;
+            }
+        }
+
+        // the jumps come after every block, so that they are backward branches, which the
+        // interpreter counts to decide when to compile the loop
+        for(int id = 0; id < stateCount; id++){
+            code.bind(jumpBase + id);
+            code.branch(0xA7, blockBase + id);      // goto
+        }
+
+        code.bind(invalid);
+        code.pushInt(-1);
+        code.op(0xAC);
+        return code.position() > MAX_CODE_BYTES ? null : code;
+    }
+
+    /**
+     * Writes the stack map of the run loop. Every jump target has the same locals and an empty stack.
+     */
+    private static byte[] makeStackMap(Code code){
+        Code map = new Code(0);
+        map.u2(code.targets.size());
+        int previous = -1;
+        for(int target : code.targets){
+            int delta = previous < 0 ? target : target - previous - 1;
+            if(previous < 0){
+                map.op(255);                        // full_frame
+                map.u2(delta);
+                map.u2(LENGTH_LOCAL + 1);
+                map.op(7);                          // this
+                map.u2(THIS_CLASS);
+                map.op(7);                          // data
+                map.u2(CHAR_SEQUENCE_CLASS);
+                map.op(1, 1);                       // index, length
+                map.u2(0);
+            }
+            else if(delta < 64){
+                map.op(delta);                      // same_frame
+            }
+            else{
+                map.op(251);                        // same_frame_extended
+                map.u2(delta);
+            }
+            previous = target;
+        }
+        return map.out.toByteArray();
+    }
+
+    private static void utf8(Code out, String s){
+        out.op(1);
+        out.u2(s.length());
+        for(char c : s.toCharArray()){
+            out.op(c);
+        }
+    }
+
+    private static byte[] makeClass(String name, byte[] runCode, byte[] stackMap){
+        Code out = new Code(0);
+        out.u4(0xCAFEBABE);
+        out.u2(0);
+        out.u2(52);                                 // Java 8 class file
+
+        out.u2(CONSTANT_COUNT);
+        utf8(out, name);                            // 1
+        out.op(7); out.u2(1);                       // 2
+        utf8(out, "java/lang/Object");              // 3
+        out.op(7); out.u2(3);                       // 4
+        utf8(out, "finite/automaton/SpecializedRunner"); // 5
+        out.op(7); out.u2(5);                       // 6
+        utf8(out, "<init>");                        // 7
+        utf8(out, "()V");                           // 8
+        out.op(12); out.u2(7); out.u2(8);           // 9
+        out.op(10); out.u2(4); out.u2(9);           // 10
+        utf8(out, "java/lang/CharSequence");        // 11
+        out.op(7); out.u2(11);                      // 12
+        utf8(out, "length");                        // 13
+        utf8(out, "()I");                           // 14
+        out.op(12); out.u2(13); out.u2(14);         // 15
+        out.op(11); out.u2(12); out.u2(15);         // 16
+        utf8(out, "charAt");                        // 17
+        utf8(out, "(I)C");                          // 18
+        out.op(12); out.u2(17); out.u2(18);         // 19
+        out.op(11); out.u2(12); out.u2(19);         // 20
+        utf8(out, "run");                           // 21
+        utf8(out, "(Ljava/lang/CharSequence;)I");   // 22
+        utf8(out, "Code");                          // 23
+        utf8(out, "StackMapTable");                 // 24
+
+        out.u2(0x0031);                             // public final super
+        out.u2(THIS_CLASS);
+        out.u2(OBJECT_CLASS);
+        out.u2(1);
+        out.u2(RUNNER_CLASS);
+        out.u2(0);                                  // no fields
+        out.u2(2);
+
+        // public constructor calling Object's
+        out.u2(0x0001);
+        out.u2(INIT_NAME);
+        out.u2(VOID_DESCRIPTOR);
+        out.u2(1);
+        out.u2(CODE);
+        out.u4(17);
+        out.u2(1);
+        out.u2(1);
+        out.u4(5);
+        out.op(0x2A, 0xB7);                         // aload_0, invokespecial
+        out.u2(OBJECT_INIT);
+        out.op(0xB1);                               // return
+        out.u2(0);
+        out.u2(0);
+
+        // the run loop
+        out.u2(0x0001);
+        out.u2(RUN_NAME);
+        out.u2(RUN_DESCRIPTOR);
+        out.u2(1);
+        out.u2(CODE);
+        out.u4(12 + runCode.length + 6 + stackMap.length);
+        out.u2(2);
+        out.u2(LENGTH_LOCAL + 1);
+        out.u4(runCode.length);
+        out.op(toInts(runCode));
+        out.u2(0);
+        out.u2(1);
+        out.u2(STACK_MAP_TABLE);
+        out.u4(stackMap.length);
+        out.op(toInts(stackMap));
+
+        out.u2(0);                                  // no class attributes
+        return out.out.toByteArray();
+    }
+
+    private static int[] toInts(byte[] bytes){
+        int[] ints = new int[bytes.length];
+        for(int i = 0; i < bytes.length; i++){
+            ints[i] = bytes[i];
+        }
+        return ints;
+    }
+
+
+    ////////////////////////
+    // class definition
+
+    /**
+     * Defines the provided class in this package, as a hidden class if the runtime supports them.
+     */
+    private static Class<?> define(byte[] bytes) throws ReflectiveOperationException{
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Class<?> option;
+        Method defineHidden;
+        try {
+            option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            defineHidden = MethodHandles.Lookup.class.getMethod("defineHiddenClass",
+                    byte[].class, boolean.class, Array.newInstance(option, 0).getClass());
+        }
+        catch(ClassNotFoundException | NoSuchMethodException e){
+            return lookup.defineClass(bytes);
+        }
+        Object hidden = defineHidden.invoke(lookup, bytes, true, Array.newInstance(option, 0));
+        return ((MethodHandles.Lookup) hidden).lookupClass();
+    }
+
+    /**
+     * Returns a runner specialized to the provided machine, or <code>null</code> if the machine
+     * is too big to be worth specializing, or if the runner cannot be defined.
+     */
+    static SpecializedRunner specialize(CompiledFSM<?> machine){
+        Code runLoop = makeRunLoop(machine);
+        if(runLoop == null){
+            return null;
+        }
+        String name = "finite/automaton/SpecializedFSM$" + COUNT.incrementAndGet();
+        byte[] bytes = makeClass(name, runLoop.resolve(), makeStackMap(runLoop));
+        try {
+            return (SpecializedRunner) define(bytes).getDeclaredConstructor().newInstance();
+        }
+        catch(ReflectiveOperationException | LinkageError | SecurityException e){
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package finite.automaton;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A transition table for sparse machines, where most transitions go to the null state, stored with
+ * row displacement: the transitions of every row that do not go to the null state are laid over one
+ * shared array, each row starting at its own offset, so that the used entries of different rows never
+ * overlap. A second array records which row owns each entry, and entries a row does not own are
+ * transitions to the null state. Lookups stay constant time, at the cost of reading two arrays.
+ */
+class CombTable extends TransitionTable {
+
+    /**
+     * The offset of each row in the shared arrays.
+     */
+    private final int[] offsets;
+
+    /**
+     * The next id of each entry.
+     */
+    private final int[] next;
+
+    /**
+     * The row owning each entry, or -1 if it is unused.
+     */
+    private final int[] owners;
+
+    private CombTable(int[] offsets, int[] next, int[] owners, int stateCount, int columnCount){
+        super(stateCount, columnCount);
+        this.offsets = offsets;
+        this.next = next;
+        this.owners = owners;
+    }
+
+    /**
+     * Returns the provided dense table laid out with row displacement, or <code>null</code> if that
+     * would take more than the provided number of bytes.
+     */
+    static CombTable pack(int[] table, int stateCount, int columnCount, long maxBytes){
+        long maxEntries = maxBytes / Integer.BYTES;
+        int used = 0;
+        for(int entry : table){
+            used += entry != CompiledFSM.NULL_ID ? 1 : 0;
+        }
+        // even perfectly packed, each used entry takes two ints, plus one per row
+        if(2L * used + stateCount > maxEntries){
+            return null;
+        }
+
+        // the columns of the used entries of every row
+        int[][] columns = new int[stateCount][];
+        Integer[] order = new Integer[stateCount];
+        for(int id = 0; id < stateCount; id++){
+            int count = 0;
+            for(int col = 0; col < columnCount; col++){
+                count += table[id * columnCount + col] != CompiledFSM.NULL_ID ? 1 : 0;
+            }
+            columns[id] = new int[count];
+            count = 0;
+            for(int col = 0; col < columnCount; col++){
+                if(table[id * columnCount + col] != CompiledFSM.NULL_ID){
+                    columns[id][count++] = col;
+                }
+            }
+            order[id] = id;
+        }
+        // the fullest rows are the hardest to place, so they go first
+        Arrays.sort(order, (a, b) -> columns[b].length - columns[a].length);
+
+        // first fit, where every offset before the first free entry is known not to fit, and rows of
+        // several entries start looking from where the last row of the same size went, since the
+        // holes before it are mostly too small for them, and are left for the rows of one entry
+        int[] offsets = new int[stateCount];
+        int[] lastOffsets = new int[columnCount + 1];
+        BitSet taken = new BitSet();
+        int firstFree = 0;
+        int end = 0;
+        for(int id : order){
+            int[] cols = columns[id];
+            if(cols.length == 0){
+                continue;
+            }
+            // only offsets where the first column lands on a free entry are worth trying
+            int start = Math.max(firstFree, cols.length == 1 ? cols[0] : lastOffsets[cols.length] + cols[0]);
+            int offset = taken.nextClearBit(start) - cols[0];
+            while(!fits(taken, cols, offset)){
+                offset = taken.nextClearBit(offset + cols[0] + 1) - cols[0];
+            }
+            for(int col : cols){
+                taken.set(offset + col);
+            }
+            offsets[id] = offset;
+            lastOffsets[cols.length] = offset;
+            firstFree = taken.nextClearBit(firstFree);
+            end = Math.max(end, offset + cols[cols.length - 1] + 1);
+            if(2L * (end + columnCount) + stateCount > maxEntries){
+                return null;
+            }
+        }
+
+        // room for every row to be read whole from its offset, without bounds checks
+        int[] next = new int[end + columnCount];
+        int[] owners = new int[end + columnCount];
+        Arrays.fill(owners, -1);
+        for(int id = 0; id < stateCount; id++){
+            for(int col : columns[id]){
+                next[offsets[id] + col] = table[id * columnCount + col];
+                owners[offsets[id] + col] = id;
+            }
+        }
+        return new CombTable(offsets, next, owners, stateCount, columnCount);
+    }
+
+    private static boolean fits(BitSet taken, int[] cols, int offset){
+        for(int col : cols){
+            if(taken.get(offset + col)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    int next(int state, int column){
+        int index = offsets[state] + column;
+        return owners[index] == state ? next[index] : CompiledFSM.NULL_ID;
+    }
+
+    @Override
+    long getBytes(){
+        return ((long) offsets.length + next.length + owners.length) * Integer.BYTES;
+    }
+}
@@ -0,0 +1,726 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.IncompleteMachineException;
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * A frozen, table-based form of an <code>FSM</code>. States are numbered densely from 0, with the
+ * null state always being state 0, and transitions are stored in a dense table with one row per
+ * state and one column per character class. The table is usually an array on the heap, of the
+ * narrowest of <code>byte</code>, <code>short</code> or <code>int</code> that fits every state id, but can
+ * also be read directly from a memory-mapped file (see <code>CompiledFSMFile</code>), or be compiled off
+ * the heap into a <code>TableArena</code>, for machines whose tables would weigh on the heap. Machines whose
+ * transitions mostly go to the null state, as is the default for new states, store only their other
+ * transitions, laid over one another with row displacement (see <code>CombTable</code>), whenever that
+ * takes at most half the memory.
+ *
+ * Characters that every state sends to the same next state are interchangeable, so when compiling,
+ * the symbols of the alphabet are grouped into such equivalence classes, and the table only has one
+ * column per class. A character is mapped to its column through the index of the alphabet, then a
+ * lookup table from symbol index to class. For large alphabets, such as ranges of Unicode, or digits
+ * of a big base under a small modulo, this can shrink the table by orders of magnitude.
+ *
+ * A compiled machine is a snapshot: changes made to the originating <code>FSM</code> after
+ * compilation are not reflected in it. The states it hands out are, however, the same objects
+ * as the ones in the originating machine, so their data (finality and value) is shared.
+ *
+ * @param <E> The return type for states of this machine.
+ */
+public class CompiledFSM<E> {
+
+    /**
+     * The id of the null state in every compiled machine.
+     */
+    public static final int NULL_ID = 0;
+
+    /**
+     * The alphabet of this machine, whose indices are mapped to the columns of the table.
+     */
+    private final Alphabet alphabet;
+
+    /**
+     * The character class of each symbol of the alphabet, by index, which is its column in the table.
+     */
+    private final int[] classes;
+
+    /**
+     * The transition table, with one row of one entry per character class per state.
+     */
+    private final TransitionTable table;
+
+    /**
+     * The states of this machine, indexed by id, where states that are only made when asked for are
+     * <code>null</code>.
+     */
+    private final State<E>[] states;
+
+    /**
+     * Makes the states missing from <code>states</code> by id, or <code>null</code> if none are missing.
+     */
+    private final IntFunction<State<E>> lazyStates;
+
+    /**
+     * Whether each state only ever transitions to itself.
+     */
+    private final boolean[] absorbing;
+
+    /**
+     * The id of the initial state.
+     */
+    private final int initId;
+
+    /**
+     * The run loop generated for this machine, or <code>null</code> if it runs off the table.
+     */
+    private final SpecializedRunner runner;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Compiles the provided machine data, where the null state must be state 0, and the rows of the
+     * other states, by symbol, are given by <code>rows</code>. States missing from the provided array
+     * are made by <code>lazyStates</code> when asked for. If <code>mergeClasses</code> is false,
+     * every symbol is given its own class, so the table has one column per symbol. If an arena is
+     * provided, the table is written straight into it, without ever being whole on the heap.
+     */
+    CompiledFSM(Alphabet alphabet, State<E>[] states, IntFunction<State<E>> lazyStates, RowSource rows,
+                int initId, boolean mergeClasses, TableArena arena) throws IncompleteMachineException{
+        int stateCount = states.length;
+
+        // rows of next ids by symbol, one at a time, since the table by symbol may be much bigger
+        int symbolCount = alphabet.size();
+        int[] row = new int[symbolCount];
+        ClassPartition partition = new ClassPartition(symbolCount);
+        if(mergeClasses){
+            for(int id = 1; id < stateCount; id++){
+                rows.fillRow(id, row);
+                partition.refine(row);
+            }
+        }
+        else{
+            partition.separate();
+        }
+        int[] classes = partition.finish();
+
+        // null state row is all zeros already, which is itself
+        int columnCount = partition.getClassCount();
+        int[] representatives = new int[columnCount];
+        for(int symbol = symbolCount - 1; symbol >= 0; symbol--){
+            representatives[classes[symbol]] = symbol;
+        }
+        TransitionTable stored;
+        if(arena != null){
+            OffHeapTable table = new OffHeapTable(arena, stateCount, columnCount);
+            table.acquire();
+            try {
+                for(int id = 1; id < stateCount; id++){
+                    rows.fillRow(id, row);
+                    for(int col = 0; col < columnCount; col++){
+                        table.set(id, col, row[representatives[col]]);
+                    }
+                }
+            }
+            finally{
+                table.release();
+            }
+            stored = table;
+        }
+        else{
+            int[] table = new int[heapTableSize(stateCount, columnCount)];
+            for(int id = 1; id < stateCount; id++){
+                rows.fillRow(id, row);
+                for(int col = 0; col < columnCount; col++){
+                    table[id * columnCount + col] = row[representatives[col]];
+                }
+            }
+            stored = storeTable(table, stateCount, columnCount);
+        }
+
+        this.alphabet = alphabet;
+        this.classes = classes;
+        this.table = stored;
+        this.states = states;
+        this.lazyStates = lazyStates;
+        this.absorbing = findAbsorbing(this.table);
+        this.initId = initId;
+        this.runner = null;
+    }
+
+    /**
+     * Constructs a compiled machine from already compiled parts. The null state must be state 0
+     * of the table, and every class must be a column of the table. The absorbing states are found
+     * from the table if they are not provided.
+     */
+    CompiledFSM(Alphabet alphabet, int[] classes, TransitionTable table, State<E>[] states,
+                int initId, boolean[] absorbing){
+        this(alphabet, classes, table, states, null, initId, absorbing);
+    }
+
+    /**
+     * Constructs a compiled machine from already compiled parts, where the states missing from the
+     * provided array are made by <code>lazyStates</code> when asked for.
+     */
+    private CompiledFSM(Alphabet alphabet, int[] classes, TransitionTable table, State<E>[] states,
+                        IntFunction<State<E>> lazyStates, int initId, boolean[] absorbing){
+        this.alphabet = alphabet;
+        this.classes = classes;
+        this.table = table;
+        this.states = states;
+        this.lazyStates = lazyStates;
+        this.absorbing = absorbing != null ? absorbing : findAbsorbing(table);
+        this.initId = initId;
+        this.runner = null;
+    }
+
+    /**
+     * Constructs a copy of the provided machine, running through the provided generated run loop.
+     */
+    private CompiledFSM(CompiledFSM<E> machine, SpecializedRunner runner){
+        this.alphabet = machine.alphabet;
+        this.classes = machine.classes;
+        this.table = machine.table;
+        this.states = machine.states;
+        this.lazyStates = machine.lazyStates;
+        this.absorbing = machine.absorbing;
+        this.initId = machine.initId;
+        this.runner = runner;
+    }
+
+    // the smallest of the sparse and the dense forms of the provided table, preferring dense when close
+    /**
+     * Returns the number of entries of a table on the heap of the provided size.
+     *
+     * @throws IllegalStateException If there are too many entries for an array, in which case the
+     *      machine can only be compiled into a <code>TableArena</code>.
+     */
+    static int heapTableSize(int stateCount, int columnCount){
+        long entries = (long) stateCount * columnCount;
+        if(entries > Integer.MAX_VALUE - 8){
+            throw new IllegalStateException("Table of " + stateCount + " states and " + columnCount
+                    + " columns is too big for an array, and can only be compiled into an arena.");
+        }
+        return (int) entries;
+    }
+
+    private static TransitionTable storeTable(int[] table, int stateCount, int columnCount){
+        long denseBytes = (long) table.length * TransitionTable.denseWidth(stateCount);
+        CombTable sparse = CombTable.pack(table, stateCount, columnCount, denseBytes / 2);
+        return sparse != null ? sparse : TransitionTable.ofDense(table, stateCount, columnCount);
+    }
+
+    private static boolean[] findAbsorbing(TransitionTable table){
+        boolean[] absorbing = new boolean[table.getStateCount()];
+        table.acquire();
+        try {
+            for(int id = 0; id < absorbing.length; id++){
+                absorbing[id] = true;
+                for(int col = 0; col < table.getColumnCount(); col++){
+                    if(table.next(id, col) != id){
+                        absorbing[id] = false;
+                        break;
+                    }
+                }
+            }
+        }
+        finally{
+            table.release();
+        }
+        return absorbing;
+    }
+
+
+    //////////////
+    // getters
+
+    /**
+     * Returns a copy of the sorted alphabet of this machine.
+     * @return The alphabet of this machine.
+     */
+    public char[] getAlphabet(){
+        return alphabet.toCharArray();
+    }
+
+    /**
+     * Returns the alphabet of this machine, whose indices are mapped to the columns of the table.
+     * @return The alphabet of this machine.
+     */
+    public Alphabet getAlphabetIndex(){
+        return alphabet;
+    }
+
+    /**
+     * Returns the number of character classes of this machine, which is the number of columns
+     * of the table. It is at most the size of the alphabet.
+     *
+     * @return The number of character classes of this machine.
+     */
+    public int getClassCount(){
+        return table.getColumnCount();
+    }
+
+    /**
+     * Returns the number of bytes taken by the transition table of this machine.
+     * @return The size of the table, in bytes.
+     */
+    public long getTableBytes(){
+        return table.getBytes();
+    }
+
+    /**
+     * Returns an estimate of the memory taken by this machine, by what it is spent on. The states of
+     * a compiled machine are those of the machine it was compiled from, so they are counted by both,
+     * while anonymous states, which are only made when asked for, are counted by neither.
+     *
+     * @return The estimated footprint of this machine.
+     */
+    public Footprint getFootprint(){
+        Set<Object> values = Collections.newSetFromMap(new IdentityHashMap<>());
+        long stateBytes = Footprint.arrayBytes(states.length, Footprint.REFERENCE)
+                + Footprint.arrayBytes(absorbing.length, 1);
+        long nameBytes = 0;
+        long resultBytes = 0;
+        for(State<E> state : states){
+            if(state != null){
+                stateBytes += Footprint.objectBytes(2 * Footprint.REFERENCE + 1);
+                nameBytes += state.getName() != null ? Footprint.stringBytes(state.getName()) : 0;
+                resultBytes += values.add(state.getValue()) ? Footprint.valueBytes(state.getValue()) : 0;
+            }
+        }
+        long transitionBytes = Footprint.arrayBytes(classes.length, Integer.BYTES)
+                + (table.isOnHeap() ? table.getBytes() : 0);
+        return new Footprint(stateBytes, nameBytes, resultBytes, transitionBytes, alphabet.getBytes(),
+                table.isOnHeap() ? 0 : table.getBytes());
+    }
+
+    /**
+     * Returns the number of states of this machine, including the null state.
+     * @return The number of states of this machine.
+     */
+    public int getStateCount(){
+        return states.length;
+    }
+
+    /**
+     * Returns the id of the initial state of this machine.
+     * @return The id of the initial state.
+     */
+    public int getInitId(){
+        return initId;
+    }
+
+    /**
+     * Returns the state with the provided id.
+     * @param id The id of the state, between 0 and the state count.
+     * @return The state with the provided id.
+     */
+    public State<E> getState(int id){
+        State<E> state = states[id];
+        return state != null ? state : lazyStates.apply(id);
+    }
+
+    /**
+     * Returns the column of the provided character in the transition table, which is its
+     * character class, or -1 if it is not in the alphabet.
+     *
+     * @param c The character being queried.
+     * @return The column of the character, or -1 if it is not in the alphabet.
+     */
+    public int columnOf(char c){
+        int symbol = alphabet.indexOf(c);
+        return symbol < 0 ? -1 : classes[symbol];
+    }
+
+    /**
+     * Returns the id of the state reached from the provided state through the provided column.
+     * No bounds are checked beyond those of the underlying array. A table off the heap is kept from
+     * being freed for the length of the call, which runs over whole strings only do once per run.
+     *
+     * @param id The id of the state from which the transition takes place.
+     * @param column The column of the character instigating the transition.
+     * @return The id of the next state.
+     * @throws IllegalStateException If the table is off the heap, in an arena that is closed.
+     */
+    public int step(int id, int column){
+        table.acquire();
+        try {
+            return table.next(id, column);
+        }
+        finally{
+            table.release();
+        }
+    }
+
+    /**
+     * Returns true if the state with the provided id only ever transitions to itself.
+     * The null state is always absorbing.
+     *
+     * @param id The id of the state being queried.
+     * @return <code>true</code> if the state only transitions to itself.
+     */
+    public boolean isAbsorbing(int id){
+        return absorbing[id];
+    }
+
+    /**
+     * Returns true if this machine runs through a run loop generated for it,
+     * rather than through its transition table.
+     *
+     * @return <code>true</code> if this machine is specialized.
+     * @see #specialize()
+     */
+    public boolean isSpecialized(){
+        return runner != null;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Runs this machine on the provided data and returns the id of the final state.
+     * Once an absorbing state is reached, the rest of the data is only checked against the alphabet.
+     *
+     * @param data The string for the machine to process.
+     * @return The id of the final state from execution on the provided data.
+     * @throws InvalidCharacterException If the string is not made up of this machine's alphabet.
+     */
+    public int runToId(@NotNull CharSequence data) throws InvalidCharacterException{
+        if(runner != null){
+            int id = runner.run(data);
+            if(id < 0){
+                throw new InvalidCharacterException("Character in data is not in alphabet.");
+            }
+            return id;
+        }
+
+        return table.run(this, data, initId);
+    }
+
+    /**
+     * Runs this machine on the provided data. Behaves the same as <code>FSM.runMachine</code>
+     * on the machine this was compiled from, at the time of compilation.
+     *
+     * @param data The string for the machine to process.
+     * @return The final state from execution on the provided data.
+     * @throws InvalidCharacterException If the string is not made up of this machine's alphabet.
+     */
+    public State<E> runMachine(@NotNull CharSequence data) throws InvalidCharacterException{
+        return getState(runToId(data));
+    }
+
+    /**
+     * Returns a machine that behaves the same as this one, but runs through code generated for
+     * this machine alone, with its transitions as constants instead of table lookups. This pays
+     * off when the transitions taken are predictable, such as on repetitive data, but is slower
+     * on random data (see <code>BytecodeSpecializer</code>). Machines too big for the generated
+     * code to be compiled are returned as they are.
+     *
+     * The returned machine shares its states and table with this one.
+     *
+     * @return A specialized copy of this machine, or this machine if it cannot be specialized.
+     */
+    public CompiledFSM<E> specialize(){
+        if(runner != null){
+            return this;
+        }
+        SpecializedRunner generated = BytecodeSpecializer.specialize(this);
+        return generated == null ? this : new CompiledFSM<>(this, generated);
+    }
+
+    /**
+     * Returns an equivalent machine whose states are numbered in breadth-first order from the
+     * initial state, following the columns in order, so that the rows of states reached after
+     * the same number of characters sit next to each other in the table. States that cannot be
+     * reached are numbered last, in their current order. The null state stays state 0.
+     *
+     * The returned machine shares its states with this one, but not its table.
+     *
+     * @return A renumbered copy of this machine.
+     */
+    public CompiledFSM<E> renumberBreadthFirst(){
+        return renumber(breadthFirstOrder());
+    }
+
+    /**
+     * Returns an equivalent machine whose states are numbered by how often running the provided
+     * sample visits them, the most visited first, so that the rows of the states most traffic goes
+     * through share as few cache lines as possible. States visited as often, such as those never
+     * visited, are numbered in breadth-first order. The null state stays state 0.
+     *
+     * The returned machine shares its states with this one, but not its table.
+     *
+     * @param sample Strings representative of the data the machine will run on.
+     * @return A renumbered copy of this machine.
+     * @throws InvalidCharacterException If a string of the sample is not made up of this machine's alphabet.
+     * @see #renumberBreadthFirst()
+     */
+    public CompiledFSM<E> renumberByFrequency(@NotNull Iterable<? extends CharSequence> sample)
+    throws InvalidCharacterException{
+        long[] visits = new long[states.length];
+        table.acquire();
+        try {
+            for(CharSequence data : sample){
+                int current = initId;
+                visits[current]++;
+                for(int i = 0; i < data.length(); i++){
+                    int col = columnOf(data.charAt(i));
+                    if(col < 0){
+                        throw new InvalidCharacterException("Character in data is not in alphabet.");
+                    }
+                    current = table.next(current, col);
+                    visits[current]++;
+                }
+            }
+        }
+        finally{
+            table.release();
+        }
+
+        int[] breadthFirst = breadthFirstOrder();
+        Integer[] order = new Integer[states.length - 1];
+        for(int i = 1; i < breadthFirst.length; i++){
+            order[i - 1] = breadthFirst[i];
+        }
+        // the sort is stable, so ties keep their breadth-first order
+        Arrays.sort(order, (a, b) -> Long.compare(visits[b], visits[a]));
+        int[] ids = new int[states.length];
+        ids[0] = NULL_ID;
+        for(int i = 0; i < order.length; i++){
+            ids[i + 1] = order[i];
+        }
+        return renumber(ids);
+    }
+
+    // every id, in breadth-first order from the initial state after the null state, then the unreachable ones
+    private int[] breadthFirstOrder(){
+        int[] order = new int[states.length];
+        boolean[] seen = new boolean[states.length];
+        order[0] = NULL_ID;
+        seen[NULL_ID] = true;
+        int size = 1;
+        if(!seen[initId]){
+            order[size++] = initId;
+            seen[initId] = true;
+        }
+        table.acquire();
+        try {
+            for(int head = 1; head < size; head++){
+                for(int col = 0; col < table.getColumnCount(); col++){
+                    int next = table.next(order[head], col);
+                    if(!seen[next]){
+                        order[size++] = next;
+                        seen[next] = true;
+                    }
+                }
+            }
+        }
+        finally{
+            table.release();
+        }
+        for(int id = 0; id < states.length; id++){
+            if(!seen[id]){
+                order[size++] = id;
+            }
+        }
+        return order;
+    }
+
+    // the same machine, where the state with id order[i] is given id i, with order[0] the null state
+    @SuppressWarnings("unchecked")
+    private CompiledFSM<E> renumber(int[] order){
+        int stateCount = states.length;
+        int columnCount = table.getColumnCount();
+        int[] newIds = new int[stateCount];
+        for(int id = 0; id < stateCount; id++){
+            newIds[order[id]] = id;
+        }
+
+        State<E>[] newStates = (State<E>[]) new State<?>[stateCount];
+        boolean[] newAbsorbing = new boolean[stateCount];
+        for(int id = 0; id < stateCount; id++){
+            newStates[id] = states[order[id]];
+            newAbsorbing[id] = absorbing[order[id]];
+        }
+
+        // off-heap tables stay in their arena, which the new table is acquired from along with this one
+        TransitionTable newTable;
+        table.acquire();
+        try {
+            if(table instanceof OffHeapTable){
+                OffHeapTable offHeap = new OffHeapTable(((OffHeapTable) table).getArena(), stateCount, columnCount);
+                for(int id = 0; id < stateCount; id++){
+                    for(int col = 0; col < columnCount; col++){
+                        offHeap.set(id, col, newIds[table.next(order[id], col)]);
+                    }
+                }
+                newTable = offHeap;
+            }
+            else{
+                int[] entries = new int[heapTableSize(stateCount, columnCount)];
+                for(int id = 0; id < stateCount; id++){
+                    for(int col = 0; col < columnCount; col++){
+                        entries[id * columnCount + col] = newIds[table.next(order[id], col)];
+                    }
+                }
+                newTable = storeTable(entries, stateCount, columnCount);
+            }
+        }
+        finally{
+            table.release();
+        }
+        IntFunction<State<E>> newLazyStates = lazyStates == null ? null : id -> lazyStates.apply(order[id]);
+        return new CompiledFSM<>(alphabet, classes, newTable, newStates, newLazyStates, newIds[initId], newAbsorbing);
+    }
+
+    /**
+     * Returns the transition table of this machine.
+     */
+    TransitionTable getTable(){
+        return table;
+    }
+
+    /**
+     * Keeps the table of this machine from being freed until <code>release</code>, for loops of many
+     * calls to <code>next</code>. Only tables off the heap can be freed, and for the others it does nothing.
+     *
+     * @throws IllegalStateException If the table is off the heap, in an arena that is closed.
+     */
+    void acquire(){
+        table.acquire();
+    }
+
+    /**
+     * Ends what <code>acquire</code> started.
+     */
+    void release(){
+        table.release();
+    }
+
+    /**
+     * Returns the id of the state reached from the provided state through the provided column, like
+     * <code>step</code>, but without keeping the table from being freed: this machine must be acquired.
+     */
+    int next(int id, int column){
+        return table.next(id, column);
+    }
+
+    /**
+     * Returns the character class of the symbol with the provided index in the alphabet.
+     */
+    int classOf(int symbol){
+        return classes[symbol];
+    }
+
+    /**
+     * Checks that the data from the provided index onwards is made up of this machine's alphabet.
+     * @throws InvalidCharacterException If the rest of the string is not made up of the alphabet.
+     */
+    void checkAlphabet(CharSequence data, int from) throws InvalidCharacterException{
+        if(alphabet.getValidator().firstInvalid(data, from) >= 0){
+            throw new InvalidCharacterException("Character in data is not in alphabet.");
+        }
+    }
+
+
+    /**
+     * Groups the symbols of an alphabet into the classes of symbols that every row sends to the
+     * same next state, refining the grouping one row at a time.
+     */
+    private static class ClassPartition {
+
+        private final int[] classes;
+
+        private int classCount;
+
+        // per class, the next id of its first symbol in the current row, or -1
+        private final int[] firstNext;
+
+        // the new class of each pair of old class and next id that split off in the current row
+
+        private final Map<Long, Integer> splits = new HashMap<>();
+
+        ClassPartition(int symbolCount){
+            classes = new int[symbolCount];
+            classCount = symbolCount == 0 ? 0 : 1;
+            firstNext = new int[Math.max(symbolCount, 1)];
+        }
+
+        int getClassCount(){
+            return classCount;
+        }
+
+        /**
+         * Gives every symbol its own class.
+         */
+        void separate(){
+            for(int symbol = 0; symbol < classes.length; symbol++){
+                classes[symbol] = symbol;
+            }
+            classCount = classes.length;
+        }
+
+        /**
+         * Splits every class whose symbols do not all have the same next id in the provided row.
+         */
+        void refine(int[] row){
+            Arrays.fill(firstNext, 0, classCount, -1);
+            splits.clear();
+            for(int symbol = 0; symbol < row.length; symbol++){
+                int c = classes[symbol];
+                if(firstNext[c] < 0){
+                    firstNext[c] = row[symbol];
+                }
+                else if(firstNext[c] != row[symbol]){
+                    // symbols of the same class and next id go to the same new class
+                    Integer split = splits.putIfAbsent((long) c << 32 | row[symbol], classCount);
+                    if(split == null){
+                        split = classCount++;
+                    }
+                    classes[symbol] = split;
+                }
+            }
+        }
+
+        /**
+         * Renumbers the classes in order of their first symbol, and returns the class of every symbol.
+         */
+        int[] finish(){
+            int[] renumbered = new int[classCount];
+            Arrays.fill(renumbered, -1);
+            int next = 0;
+            for(int symbol = 0; symbol < classes.length; symbol++){
+                if(renumbered[classes[symbol]] < 0){
+                    renumbered[classes[symbol]] = next++;
+                }
+                classes[symbol] = renumbered[classes[symbol]];
+            }
+            return classes;
+        }
+    }
+
+    /**
+     * Gives the rows of a machine being compiled.
+     */
+    interface RowSource {
+
+        /**
+         * Fills the provided row with the id of the next state of the state with the provided id,
+         * for every symbol of the alphabet, by index.
+         *
+         * @throws IncompleteMachineException If a state the row goes to is no longer in the machine.
+         */
+        void fillRow(int id, int[] row) throws IncompleteMachineException;
+    }
+}
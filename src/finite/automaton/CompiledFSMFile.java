@@ -0,0 +1,406 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.CorruptMachineFileException;
+import finite.automaton.state.State;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes compiled machines as binary files, so that they do not need to be rebuilt
+ * every time they are needed. Loaded machines read their transition table directly from a
+ * read-only memory mapping of the file, so the table is never copied onto the heap, and several
+ * processes loading the same file share the same pages of memory.
+ *
+ * All numbers are little-endian. A file is laid out as follows:
+ * <ul>
+ *     <li>A header of <code>HEADER_BYTES</code> bytes: the magic number, the format version,
+ *     the size of a table entry, the state count, the number of character classes, the initial state id,
+ *     the offset and length of the table, and the CRC32 checksum of everything after the header.</li>
+ *     <li>The alphabet flags (whether it folds case) and size, then its sorted symbols, as 2-byte
+ *     characters, then the character class of each symbol, as 2-byte numbers.</li>
+ *     <li>One record per state, by id: a flags byte (final, has a value, has a name, absorbing), then the
+ *     length and UTF-8 bytes of the name, if any, then the length and bytes of the value, if any,
+ *     as encoded by a <code>ResultCodec</code>.</li>
+ *     <li>Padding up to a multiple of 8 bytes, then the table, one row per state, with entries of 1, 2
+ *     or 4 bytes, the narrowest the state ids fit in, as in a compiled machine.</li>
+ * </ul>
+ */
+public class CompiledFSMFile {
+
+    /**
+     * The first 4 bytes of every machine file, "FSMC" in ASCII.
+     */
+    public static final int MAGIC = 0x434D5346;
+
+    /**
+     * The version of the format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    public static final int HEADER_BYTES = 48;
+
+    private static final int TABLE_ALIGNMENT = 8;
+    private static final int WRITE_CHUNK_BYTES = 1 << 16;
+
+    private static final int FLAG_FINAL = 1;
+    private static final int FLAG_VALUE = 2;
+    private static final int FLAG_NAME = 4;
+    private static final int FLAG_ABSORBING = 8;
+
+    private static final int ALPHABET_FOLDS_CASE = 1;
+
+    private CompiledFSMFile(){
+    }
+
+
+    ////////////////////////
+    // private helpers
+
+    private static void putInt(ByteArrayOutputStream out, int value){
+        out.write(value);
+        out.write(value >> 8);
+        out.write(value >> 16);
+        out.write(value >> 24);
+    }
+
+    private static void putBytes(ByteArrayOutputStream out, byte[] bytes){
+        putInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, CRC32 checksum)
+    throws IOException{
+        checksum.update(buffer.duplicate());
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+    }
+
+    // reads a length, checking that there are as many bytes left to read
+    private static int getLength(ByteBuffer body) throws CorruptMachineFileException{
+        int length = body.getInt();
+        if(length < 0 || length > body.remaining()){
+            throw corrupt("length " + length + " out of range.");
+        }
+        return length;
+    }
+
+    private static CorruptMachineFileException corrupt(String msg){
+        return new CorruptMachineFileException("Invalid machine file: " + msg);
+    }
+
+
+    ////////////////////////
+    // writing
+
+    /**
+     * Writes the provided compiled machine to the file at the provided path, replacing it if it exists.
+     * The machine is written to a temporary file in the same directory, which is then moved over the
+     * path, so that the file at the path is always either the old one or the whole new one.
+     *
+     * @param machine The machine being written.
+     * @param path The path of the file.
+     * @param codec The codec used to write the values of the states.
+     * @throws IOException If the file cannot be written.
+     */
+    public static <E> void write(@NotNull CompiledFSM<E> machine, @NotNull Path path,
+                                 @NotNull ResultCodec<? super E> codec) throws IOException{
+        int stateCount = machine.getStateCount();
+        int columnCount = machine.getTable().getColumnCount();
+
+        // everything between the header and the table
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        char[] symbols = machine.getAlphabet();
+        putInt(body, machine.getAlphabetIndex().isFoldingCase() ? ALPHABET_FOLDS_CASE : 0);
+        putInt(body, symbols.length);
+        for(char c : symbols){
+            body.write(c);
+            body.write(c >> 8);
+        }
+        for(int symbol = 0; symbol < symbols.length; symbol++){
+            body.write(machine.classOf(symbol));
+            body.write(machine.classOf(symbol) >> 8);
+        }
+        for(int id = 0; id < stateCount; id++){
+            State<E> state = machine.getState(id);
+            int flags = (state.isFinal() ? FLAG_FINAL : 0)
+                    | (state.getValue() != null ? FLAG_VALUE : 0)
+                    | (state.getName() != null ? FLAG_NAME : 0)
+                    | (machine.isAbsorbing(id) ? FLAG_ABSORBING : 0);
+            body.write(flags);
+            if(state.getName() != null){
+                putBytes(body, state.getName().getBytes(StandardCharsets.UTF_8));
+            }
+            if(state.getValue() != null){
+                putBytes(body, codec.encode(state.getValue()));
+            }
+        }
+        while((HEADER_BYTES + body.size()) % TABLE_ALIGNMENT != 0){
+            body.write(0);
+        }
+
+        // the table is written at the width it is compiled at, so a small machine takes a byte per entry
+        int width = TransitionTable.denseWidth(stateCount);
+        long tableOffset = HEADER_BYTES + body.size();
+        long tableBytes = (long) stateCount * columnCount * width;
+
+        // next to the file, so that moving it over the file is a rename, and opened as a new file rather
+        // than made by createTempFile, whose files only their owner may read
+        Path temp = path.resolveSibling(path.getFileName() + "."
+                + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+        try {
+            writeTo(temp, machine, body, width, stateCount, columnCount, tableOffset, tableBytes);
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch(IOException | RuntimeException e){
+            try {
+                Files.deleteIfExists(temp);
+            }
+            catch(IOException suppressed){
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    // writes the file to the provided path, which must not exist, and forces it to the disk
+    private static void writeTo(Path path, CompiledFSM<?> machine, ByteArrayOutputStream body, int width,
+                                int stateCount, int columnCount, long tableOffset, long tableBytes)
+    throws IOException{
+        TransitionTable table = machine.getTable();
+        CRC32 checksum = new CRC32();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)){
+            channel.position(HEADER_BYTES);
+            writeFully(channel, ByteBuffer.wrap(body.toByteArray()), checksum);
+
+            ByteBuffer chunk = ByteBuffer.allocate(WRITE_CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            table.acquire();
+            try {
+                for(int id = 0; id < stateCount; id++){
+                    for(int col = 0; col < columnCount; col++){
+                        if(chunk.remaining() < width){
+                            chunk.flip();
+                            writeFully(channel, chunk, checksum);
+                            chunk.clear();
+                        }
+                        int next = table.next(id, col);
+                        switch(width){
+                            case Byte.BYTES:
+                                chunk.put((byte) next);
+                                break;
+                            case Short.BYTES:
+                                chunk.putShort((short) next);
+                                break;
+                            default:
+                                chunk.putInt(next);
+                        }
+                    }
+                }
+            }
+            finally{
+                table.release();
+            }
+            chunk.flip();
+            writeFully(channel, chunk, checksum);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width)
+                    .putInt(stateCount).putInt(columnCount).putInt(machine.getInitId())
+                    .putLong(tableOffset).putLong(tableBytes).putLong(checksum.getValue());
+            header.flip();
+            channel.position(0);
+            while(header.hasRemaining()){
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+    }
+
+
+    ////////////////////////
+    // loading
+
+    /**
+     * Loads the compiled machine in the file at the provided path, after checking the whole file
+     * against its checksum.
+     * @see #map(Path, ResultCodec, boolean)
+     */
+    public static <E> CompiledFSM<E> map(@NotNull Path path, @NotNull ResultCodec<E> codec)
+    throws IOException{
+        return map(path, codec, true);
+    }
+
+    /**
+     * Loads the compiled machine in the file at the provided path. The transition table is read
+     * directly from a read-only memory mapping of the file, which stays valid after loading.
+     * The states are new states holding the names, finality and values that were written.
+     *
+     * Verifying reads the whole file once, to check its checksum and that every transition is valid.
+     * Without it, only the header and states are checked, and a damaged table may cause
+     * machines to fail while running.
+     *
+     * @param path The path of the file.
+     * @param codec The codec used to read the values of the states.
+     * @param verify Whether to check the checksum and the table.
+     * @return The loaded machine.
+     * @throws CorruptMachineFileException If the file is not a valid machine file.
+     * @throws IOException If the file cannot be read.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> CompiledFSM<E> map(@NotNull Path path, @NotNull ResultCodec<E> codec, boolean verify)
+    throws IOException{
+        MappedByteBuffer mapping;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)){
+            long size = channel.size();
+            if(size < HEADER_BYTES){
+                throw corrupt("too short for a header.");
+            }
+            if(size > Integer.MAX_VALUE){
+                throw corrupt("too big to be mapped.");
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        ByteBuffer buffer = mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+        // header
+        if(buffer.getInt(0) != MAGIC){
+            throw corrupt("not a machine file.");
+        }
+        int version = buffer.getInt(4);
+        if(version != VERSION){
+            throw corrupt("unsupported version " + version + ".");
+        }
+        int width = buffer.getInt(8);
+        int stateCount = buffer.getInt(12);
+        int columnCount = buffer.getInt(16);
+        int initId = buffer.getInt(20);
+        long tableOffset = buffer.getLong(24);
+        long tableBytes = buffer.getLong(32);
+        long expectedChecksum = buffer.getLong(40);
+
+        if(width != TransitionTable.denseWidth(stateCount)){
+            throw corrupt("table entry size " + width + " does not match the state count.");
+        }
+        if(stateCount < 1 || columnCount < 0 || initId < 0 || initId >= stateCount){
+            throw corrupt("inconsistent state counts.");
+        }
+        if(tableBytes != (long) stateCount * columnCount * width
+                || tableOffset < HEADER_BYTES || tableOffset % TABLE_ALIGNMENT != 0
+                || tableOffset + tableBytes != buffer.capacity()){
+            throw corrupt("inconsistent table size.");
+        }
+
+        if(verify){
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate().position(HEADER_BYTES));
+            if(checksum.getValue() != expectedChecksum){
+                throw corrupt("checksum mismatch.");
+            }
+        }
+
+        // alphabet and states
+        Alphabet alphabet;
+        int[] classes;
+        State<E>[] states = (State<E>[]) new State<?>[stateCount];
+        boolean[] absorbing = new boolean[stateCount];
+        ByteBuffer body = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                .position(HEADER_BYTES).limit((int) tableOffset);
+        try {
+            int alphabetFlags = body.getInt();
+            int symbolCount = body.getInt();
+            if(symbolCount > Character.MAX_VALUE + 1 || symbolCount < columnCount){
+                throw corrupt("inconsistent alphabet size.");
+            }
+            char[] symbols = new char[symbolCount];
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                symbols[symbol] = body.getChar();
+                if(symbol > 0 && symbols[symbol] <= symbols[symbol - 1]){
+                    throw corrupt("alphabet is not sorted.");
+                }
+            }
+            alphabet = Alphabet.of(symbols, (alphabetFlags & ALPHABET_FOLDS_CASE) != 0);
+            if(alphabet.size() != symbolCount){
+                throw corrupt("alphabet has symbols of the same case.");
+            }
+            classes = new int[symbolCount];
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                classes[symbol] = body.getChar();
+                if(classes[symbol] >= columnCount){
+                    throw corrupt("character class out of range.");
+                }
+            }
+            for (int id = 0; id < stateCount; id++) {
+                int flags = body.get();
+                String name = null;
+                E value = null;
+                if ((flags & FLAG_NAME) != 0) {
+                    byte[] nameBytes = new byte[getLength(body)];
+                    body.get(nameBytes);
+                    name = new String(nameBytes, StandardCharsets.UTF_8);
+                }
+                if ((flags & FLAG_VALUE) != 0) {
+                    int length = getLength(body);
+                    int end = body.position() + length;
+                    value = codec.decode(body, length);
+                    body.position(end);
+                }
+                if ((name == null) != (id == CompiledFSM.NULL_ID)) {
+                    throw corrupt("only the null state may be unnamed.");
+                }
+                states[id] = new State<>(name, (flags & FLAG_FINAL) != 0, value);
+                absorbing[id] = (flags & FLAG_ABSORBING) != 0;
+            }
+        }
+        catch(BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e){
+            throw corrupt("state records overrun the table.");
+        }
+
+        // the table is a view of the mapping, never copied
+        ByteBuffer tableView = buffer.duplicate().position((int) tableOffset).slice()
+                .order(ByteOrder.LITTLE_ENDIAN);
+        TransitionTable table;
+        switch(width){
+            case Byte.BYTES:
+                table = new ByteBufferTable(tableView, stateCount, columnCount);
+                break;
+            case Short.BYTES:
+                table = new ShortBufferTable(tableView.asShortBuffer(), stateCount, columnCount);
+                break;
+            default:
+                table = new IntBufferTable(tableView.asIntBuffer(), stateCount, columnCount);
+        }
+        if(verify){
+            for(int id = 0; id < stateCount; id++){
+                boolean selfOnly = true;
+                for(int col = 0; col < columnCount; col++){
+                    int next = table.next(id, col);
+                    if(next < 0 || next >= stateCount){
+                        throw corrupt("transition out of range.");
+                    }
+                    selfOnly &= next == id;
+                }
+                if(selfOnly != absorbing[id] || (id == CompiledFSM.NULL_ID && !selfOnly)){
+                    throw corrupt("absorbing states do not match the table.");
+                }
+            }
+        }
+        return new CompiledFSM<>(alphabet, classes, table, states, initId, absorbing);
+    }
+}
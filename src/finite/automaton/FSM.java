@@ -5,6 +5,7 @@ import finite.automaton.exceptions.*;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.function.IntFunction;
 
 /**
  * A finite state machine representation, with a custom state class representing its states.
@@ -14,9 +15,9 @@ import java.util.*;
  * the same name was incorporated into it, including if this is the FSM that created it.
  * Note that <code>null</code> cannot be used as a state in any FSM.
  *
- * The alphabet is a constant array of characters. While it is possible to alter the alphabet
- * by retaining a reference to it, it is not recommended for that to be done, as the FSM requires
- * it to be externally unaltered for smooth working.
+ * The alphabet is an immutable <code>Alphabet</code>, which may be shared with other machines.
+ * If it folds case, transitions can be set and taken with any case of a character, and all
+ * of them are the same transition.
  *
  * Each FSM has a null state, also known as a dead state. By default, it is a non-final state with no
  * pre-set value.It starts as the FSM's only state. One is allowed to modify its finality and value
@@ -27,6 +28,13 @@ import java.util.*;
  * although manually setting that is not recommended. In fact, that is the default behavious
  * for all newly-incorporated states and their transitions.
  *
+ * Machines with very many states, such as generated ones, can use anonymous states instead, which have
+ * no objects of their own: they are identified by a dense index, their transitions are kept in a flat
+ * array and their finality in a bitmap, and their values are computed from their index. They are named
+ * after a prefix and their index, as in <code>S42</code>, but the name is only made when asked for.
+ * When an anonymous state is asked for as a <code>State</code>, a view of it is made, at most once per
+ * state. Anonymous states are otherwise used like any other state.
+ *
  * @param <E> The return type for states of this FSM.
  */
 public class FSM<E> {
@@ -41,7 +49,7 @@ public class FSM<E> {
     /**
      * The alphabet of this FSM.
      */
-    private final char[] alphabet;
+    private final Alphabet alphabet;
 
     /**
      * The initial state for this FSM when it runs. The user currently must set it manually.
@@ -64,18 +72,130 @@ public class FSM<E> {
     private final Map<State<E>, Map<Character, State<E>>> transitionTable;
 
 
+    // anonymous states
+
+    /**
+     * The entry of a transition of an anonymous state to the null state. Other negative entries
+     * <code>-2 - k</code> are transitions to <code>namedTargets.get(k)</code>, and non-negative
+     * entries are transitions to the anonymous state with that index.
+     */
+    private static final int NULL_TARGET = -1;
+
+    /**
+     * The prefix of the names of anonymous states, or <code>null</code> if there are none.
+     */
+    private String anonymousPrefix = null;
+
+    private int anonymousCount = 0;
+
+    /**
+     * The transitions of anonymous states, one row of one entry per symbol of the alphabet per state.
+     */
+    private int[] anonymousTable = new int[0];
+
+    private final BitSet anonymousFinality = new BitSet();
+
+    /**
+     * The functions computing the values of anonymous states, by the index of the first state they apply to.
+     */
+    private final TreeMap<Integer, IntFunction<? extends E>> anonymousValueFunctions = new TreeMap<>();
+
+    /**
+     * The values of anonymous states that were set after their creation.
+     */
+    private final Map<Integer, E> anonymousValues = new HashMap<>();
+
+    /**
+     * The views of anonymous states handed out so far, by index, so that there is only ever one per state.
+     * It only grows as far as the highest index asked for, and is guarded by <code>anonymousViewLock</code>.
+     */
+    @SuppressWarnings("unchecked")
+    private AnonymousState<E>[] anonymousViews = (AnonymousState<E>[]) new AnonymousState<?>[0];
+    private final Object anonymousViewLock = new Object();
+
+    /**
+     * The states that are not anonymous that anonymous states transition to, and their positions in the list.
+     */
+    private final List<State<E>> namedTargets = new ArrayList<>();
+    private final Map<State<E>, Integer> namedTargetPositions = new IdentityHashMap<>();
+
+
     ////////////////////////
     // private helpers
 
     /**
-     * Sets the alphabet for the map. Currently, changing the alphabet is unsafe,
-     * so it is a final field with its setter only used in constructors.
+     * Returns the symbol of the alphabet the provided character stands for, which is the key of
+     * its transitions, already boxed so that looking it up does not allocate.
+     * @throws InvalidCharacterException If the character is not in the alphabet.
      */
-    private char[] setAlphabet(char[] alphabet){
-        Arrays.sort(alphabet);
-        //// alt version for non-final alphabet:
-        // this.alphabet = alphabet;
-        return alphabet;
+    private Character symbolOf(char c, String msg) throws InvalidCharacterException{
+        int index = alphabet.indexOf(c);
+        if(index < 0){
+            throw new InvalidCharacterException(msg);
+        }
+        return alphabet.keyAt(index);
+    }
+
+    /**
+     * Returns the index of the anonymous state with the provided name, or -1 if there is none.
+     * Names are the prefix followed by the index in decimal, without leading zeros.
+     */
+    private int anonymousIndexOf(String name){
+        if(anonymousPrefix == null || name == null || !name.startsWith(anonymousPrefix)){
+            return -1;
+        }
+        int start = anonymousPrefix.length();
+        int length = name.length() - start;
+        if(length < 1 || length > 10 || (name.charAt(start) == '0' && length > 1)){
+            return -1;
+        }
+        long index = 0;
+        for(int i = start; i < name.length(); i++){
+            char c = name.charAt(i);
+            if(c < '0' || c > '9'){
+                return -1;
+            }
+            index = index * 10 + (c - '0');
+        }
+        return index < anonymousCount ? (int) index : -1;
+    }
+
+    /**
+     * Returns the index of the provided state if it is an anonymous state of this FSM, or -1 otherwise.
+     */
+    private int anonymousIndexOf(State<E> state){
+        return state instanceof AnonymousState && ((AnonymousState<E>) state).getMachine() == this
+                ? ((AnonymousState<E>) state).getIndex() : -1;
+    }
+
+    /**
+     * Returns the state the provided entry of the anonymous table is a transition to.
+     */
+    private State<E> anonymousTarget(int entry){
+        if(entry >= 0){
+            return getAnonymousState(entry);
+        }
+        return entry == NULL_TARGET ? nullState : namedTargets.get(-2 - entry);
+    }
+
+    /**
+     * Returns the entry of the anonymous table for a transition to the provided state of this FSM.
+     */
+    private int anonymousEntry(State<E> state){
+        int index = anonymousIndexOf(state);
+        if(index >= 0){
+            return index;
+        }
+        if(state == nullState){
+            return NULL_TARGET;
+        }
+        Integer position = namedTargetPositions.get(state);
+        if(position == null){
+            position = namedTargets.size();
+            namedTargets.add(state);
+            namedTargetPositions.put(state, position);
+        }
+        return -2 - position;
     }
 
     /**
@@ -113,10 +233,19 @@ public class FSM<E> {
      * @param alphabet The alphabet of this FSM.
      */
     public FSM(char[] alphabet){
-        // this is a way to set final values while doing a helper function
-        // final values cannot be set outside a
-        // credit: https://stackoverflow.com/questions/11758440/initialize-final-variable-within-constructor-in-another-method
-        this.alphabet = setAlphabet(alphabet);
+        this(Alphabet.of(alphabet));
+    }
+
+    /**
+     * Constructs an FSM with the given alphabet, no initial state, and only the null state.
+     * @param alphabet The alphabet of this FSM, which must only have single-character symbols.
+     * @throws IllegalArgumentException If the alphabet has supplementary code points.
+     */
+    public FSM(@NotNull Alphabet alphabet){
+        if(!alphabet.isBmp()){
+            throw new IllegalArgumentException("FSM alphabets must be made up of single characters.");
+        }
+        this.alphabet = alphabet;
         nullState = new State<>(null);
 
         states = new HashMap<>();
@@ -131,17 +260,126 @@ public class FSM<E> {
 
     /**
      * Returns a list of all internal states of this FSM, including the null state.
+     * This makes a view of every anonymous state.
      * @return A list of all internal states of this FSM.
      */
     public List<State<E>> getStates() {
-        return new ArrayList<>(states.values());
+        List<State<E>> list = new ArrayList<>(states.size() + anonymousCount);
+        list.addAll(states.values());
+        for(int index = 0; index < anonymousCount; index++){
+            list.add(getAnonymousState(index));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the number of anonymous states of this FSM.
+     * @return The number of anonymous states of this FSM.
+     */
+    public int getAnonymousStateCount(){
+        return anonymousCount;
+    }
+
+    /**
+     * Returns the anonymous state with the provided index, or <code>null</code> if there is none.
+     * @param index The index of the anonymous state.
+     * @return The anonymous state with the provided index, or <code>null</code> if there is none.
+     */
+    public State<E> getAnonymousState(int index){
+        if(index < 0 || index >= anonymousCount){
+            return null;
+        }
+        // views may be asked for by compiled machines on several threads
+        synchronized(anonymousViewLock){
+            if(index >= anonymousViews.length){
+                int length = (int) Math.min(anonymousCount, Math.max(index + 1, 2L * anonymousViews.length));
+                anonymousViews = Arrays.copyOf(anonymousViews, length);
+            }
+            if(anonymousViews[index] == null){
+                anonymousViews[index] = new AnonymousState<>(this, index);
+            }
+            return anonymousViews[index];
+        }
+    }
+
+    /**
+     * Makes the view of every anonymous state that has none yet, so that running this FSM no longer
+     * adds to its footprint, as long as no states are added to it.
+     */
+    public void makeAnonymousViews(){
+        synchronized(anonymousViewLock){
+            if(anonymousViews.length < anonymousCount){
+                anonymousViews = Arrays.copyOf(anonymousViews, anonymousCount);
+            }
+            for(int index = 0; index < anonymousCount; index++){
+                if(anonymousViews[index] == null){
+                    anonymousViews[index] = new AnonymousState<>(this, index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an estimate of the memory taken by this FSM, by what it is spent on. Anonymous states
+     * only count for their transitions, finality and the values set after their creation, as well as
+     * for the views of them that were asked for. The alphabet is counted in full, even if it is shared.
+     *
+     * @return The estimated footprint of this FSM.
+     */
+    public Footprint getFootprint(){
+        Set<Object> values = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // named states, in their map by name: name, finality and value
+        long stateBytes = Footprint.hashMapBytes(states.size())
+                + states.size() * Footprint.objectBytes(2 * Footprint.REFERENCE + 1);
+        long nameBytes = 0;
+        long resultBytes = 0;
+        for(State<E> state : states.values()){
+            nameBytes += state.getName() != null ? Footprint.stringBytes(state.getName()) : 0;
+            resultBytes += values.add(state.getValue()) ? Footprint.valueBytes(state.getValue()) : 0;
+        }
+        // a map by character per named state, whose keys are only cached below 128
+        long transitionBytes = Footprint.hashMapBytes(transitionTable.size());
+        for(Map<Character, State<E>> row : transitionTable.values()){
+            transitionBytes += Footprint.hashMapBytes(row.size());
+            for(char c : row.keySet()){
+                transitionBytes += c < 128 ? 0 : Footprint.SMALL_BOX;
+            }
+        }
+
+        // anonymous states: their bitmap of finality, and the views of them asked for so far
+        stateBytes += Footprint.objectBytes(Footprint.REFERENCE + Integer.BYTES + 1)
+                + Footprint.arrayBytes(anonymousFinality.size() / Long.SIZE, Long.BYTES);
+        synchronized(anonymousViewLock){
+            stateBytes += Footprint.arrayBytes(anonymousViews.length, Footprint.REFERENCE);
+            for(AnonymousState<E> view : anonymousViews){
+                stateBytes += view != null ? AnonymousState.BYTES : 0;
+            }
+        }
+        resultBytes += Footprint.hashMapBytes(anonymousValues.size()) + anonymousValues.size() * Footprint.SMALL_BOX;
+        for(E value : anonymousValues.values()){
+            resultBytes += values.add(value) ? Footprint.valueBytes(value) : 0;
+        }
+        transitionBytes += Footprint.arrayBytes(anonymousTable.length, Integer.BYTES)
+                + Footprint.arrayBytes(namedTargets.size(), Footprint.REFERENCE)
+                + Footprint.hashMapBytes(namedTargetPositions.size()) + namedTargets.size() * Footprint.SMALL_BOX;
+
+        return new Footprint(stateBytes, nameBytes, resultBytes, transitionBytes, alphabet.getBytes(), 0);
     }
 
     /**
-     * Returns the alphabet of this FSM.
+     * Returns a copy of the sorted symbols of the alphabet of this FSM.
      * @return The alphabet of this FSM.
      */
     public char[] getAlphabet() {
+        return alphabet.toCharArray();
+    }
+
+    /**
+     * Returns the alphabet of this FSM, along with its index.
+     * @return The alphabet of this FSM.
+     */
+    public Alphabet getAlphabetIndex(){
         return alphabet;
     }
 
@@ -171,7 +409,8 @@ public class FSM<E> {
      * @return The state with the given name, or <code>null</code> if there is none.
      */
     public State<E> getStateByName(String name){
-        return states.get(name);
+        State<E> state = states.get(name);
+        return state != null ? state : getAnonymousState(anonymousIndexOf(name));
     }
 
     /**
@@ -192,14 +431,16 @@ public class FSM<E> {
         if(!containsState(state)) {
             throw new InvalidStateException("Attempting to transition from state not in FSM.");
         }
-        if(Arrays.binarySearch(alphabet, c) < 0){
-            throw new InvalidCharacterException("Attempting to transition using character not in alphabet.");
-        }
+        Character symbol = symbolOf(c, "Attempting to transition using character not in alphabet.");
         // if null state, return null state
         if(state.equals(nullState)){
             return nullState;
         }
-        State<E> output = transitionTable.get(state).get(c);
+        int index = anonymousIndexOf(state);
+        if(index >= 0){
+            return anonymousTarget(anonymousTable[index * alphabet.size() + alphabet.indexOf(symbol)]);
+        }
+        State<E> output = transitionTable.get(state).get(symbol);
         // if no explicit mapping, output nullState
         return output != null ? output : nullState;
     }
@@ -214,8 +455,7 @@ public class FSM<E> {
      * @return <code>true</code> if the provided character is in the alphabet.
      */
     public boolean isInAlphabet(char c){
-        // iff search returns valid (non-negative) index, char is in alphabet
-        return Arrays.binarySearch(alphabet, c) >= 0;
+        return alphabet.indexOf(c) >= 0;
     }
 
     /**
@@ -224,7 +464,11 @@ public class FSM<E> {
      * @return <code>true</code> if the provided state is a part of this FSM.
      */
     public boolean containsState(State<E> state){
-        return states.containsValue(state);
+        if(state instanceof AnonymousState){
+            return anonymousIndexOf(state) >= 0;
+        }
+        // names are unique within this FSM, so only the state under its name needs checking
+        return state != null && states.get(state.getName()) == state;
     }
 
     /**
@@ -243,15 +487,7 @@ public class FSM<E> {
      * @return <code>true</code> if the provided string is made up of characters only in the alphabet.
      */
     public boolean isStringOfAlphabet(String string){
-        if(string == null){
-            return false;
-        }
-        for(int i = 0; i < string.length(); i++){
-            if(!isInAlphabet(string.charAt(i))){
-                return false;
-            }
-        }
-        return true;
+        return string != null && alphabet.getValidator().isValid(string);
     }
 
 
@@ -285,14 +521,38 @@ public class FSM<E> {
         if(!containsState(next)) {
             throw new InvalidStateException("Attempting to set transition to state not in FSM.");
         }
-        if(Arrays.binarySearch(alphabet, c) < 0){
-            throw new InvalidCharacterException("Attempting to set transition using character not in alphabet.");
-        }
+        Character symbol = symbolOf(c, "Attempting to set transition using character not in alphabet.");
         // if from null state, do not change
         if(current.equals(nullState)){
             throw new NullStateMutationException("Attempting to set transition from null state");
         }
-        transitionTable.get(current).put(c, next);
+        int index = anonymousIndexOf(current);
+        if(index >= 0){
+            anonymousTable[index * alphabet.size() + alphabet.indexOf(symbol)] = anonymousEntry(next);
+            return;
+        }
+        transitionTable.get(current).put(symbol, next);
+    }
+
+    /**
+     * Sets the transition from the anonymous state with index <code>current</code> and the provided
+     * character to the anonymous state with index <code>next</code>, without making views of them.
+     *
+     * @param current The index of the anonymous state being made the beginning of the transition.
+     * @param c The character instigating the transition.
+     * @param next The index of the anonymous state being made the end of the transition.
+     * @throws InvalidStateException If either index is not that of an anonymous state of this FSM.
+     * @throws InvalidCharacterException If the character is not in the alphabet of this FSM.
+     */
+    public void setTransition(int current, char c, int next) throws InvalidStateException, InvalidCharacterException{
+        if(current < 0 || current >= anonymousCount || next < 0 || next >= anonymousCount){
+            throw new InvalidStateException("Attempting to set transition of anonymous state not in FSM.");
+        }
+        int symbol = alphabet.indexOf(c);
+        if(symbol < 0){
+            throw new InvalidCharacterException("Attempting to set transition using character not in alphabet.");
+        }
+        anonymousTable[current * alphabet.size() + symbol] = next;
     }
 
 
@@ -308,6 +568,8 @@ public class FSM<E> {
      * @throws NullPointerException If the provided state is <code>null</code>.
      * @throws NullStateMutationException If the provided state is attempting to replace the null state.
      *      This is possible if its name is <code>null</code>.
+     * @throws IllegalArgumentException If the provided state is anonymous,
+     *      or if its name is that of an anonymous state.
      */
     public void incorporateNewState(@NotNull State<E> state)
     throws NullPointerException, NullStateMutationException{
@@ -316,9 +578,15 @@ public class FSM<E> {
         if(state == null){
             throw new NullPointerException("State cannot be null pointer");
         }
+        if(state instanceof AnonymousState){
+            throw new IllegalArgumentException("Cannot incorporate anonymous state.");
+        }
         if(state.getName() == null){
             throw new NullStateMutationException("Cannot incorporate new null state");
         }
+        if(anonymousIndexOf(state.getName()) >= 0){
+            throw new IllegalArgumentException("Name is taken by an anonymous state.");
+        }
 
         // remove all traces of old state with same name
         State<E> sameNameState = getStateByName(state.getName());
@@ -361,6 +629,81 @@ public class FSM<E> {
     }
 
 
+    //////////////
+    // anonymous states
+
+    /**
+     * Creates the provided number of new anonymous states, whose transitions all go to the null state,
+     * and returns the index of the first one. The others have the following indices. Every anonymous
+     * state of an FSM has the same name prefix, so later calls must provide the prefix of the first.
+     *
+     * The values of the new states are computed from their index by the provided function every time
+     * they are read, unless they are set afterwards, so they take no memory of their own.
+     *
+     * @param prefix The prefix of the names of anonymous states.
+     * @param count The number of states being created.
+     * @param finality Whether the new states are final.
+     * @param values The function computing the value of each new state from its index,
+     *               or <code>null</code> if they have no value.
+     * @return The index of the first new state.
+     * @throws IllegalArgumentException If the count is negative or too big, if the prefix is not that
+     *      of the anonymous states already in this FSM, or if a state of this FSM already has the
+     *      name of one of the new states.
+     */
+    public int setNewAnonymousStates(@NotNull String prefix, int count, boolean finality,
+                                     IntFunction<? extends E> values) throws IllegalArgumentException{
+        if(anonymousPrefix != null && !anonymousPrefix.equals(prefix)){
+            throw new IllegalArgumentException("Anonymous states must all have the same prefix.");
+        }
+        long rows = (long) anonymousCount + count;
+        if(count < 0 || rows * alphabet.size() > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("Invalid number of anonymous states " + count + ".");
+        }
+
+        int first = anonymousCount;
+        String previousPrefix = anonymousPrefix;
+        anonymousPrefix = prefix;
+        anonymousCount = (int) rows;
+        for(String name : states.keySet()){
+            if(anonymousIndexOf(name) >= first){
+                anonymousPrefix = previousPrefix;
+                anonymousCount = first;
+                throw new IllegalArgumentException("Name " + name + " is taken by a state.");
+            }
+        }
+
+        anonymousTable = Arrays.copyOf(anonymousTable, anonymousCount * alphabet.size());
+        Arrays.fill(anonymousTable, first * alphabet.size(), anonymousTable.length, NULL_TARGET);
+        anonymousFinality.set(first, anonymousCount, finality);
+        anonymousValueFunctions.put(first, values);
+        return first;
+    }
+
+    String anonymousName(int index){
+        return anonymousPrefix + index;
+    }
+
+    boolean isAnonymousFinal(int index){
+        return anonymousFinality.get(index);
+    }
+
+    void setAnonymousFinality(int index, boolean finality){
+        anonymousFinality.set(index, finality);
+    }
+
+    E anonymousValue(int index){
+        if(anonymousValues.containsKey(index)){
+            return anonymousValues.get(index);
+        }
+        IntFunction<? extends E> values = anonymousValueFunctions.floorEntry(index).getValue();
+        return values == null ? null : values.apply(index);
+    }
+
+    void setAnonymousValue(int index, E value){
+        anonymousValues.put(index, value);
+    }
+
+
     ////////////////////////
     // functionality
 
@@ -387,16 +730,29 @@ public class FSM<E> {
         // since transitions aren't too bad (O(1) amortized time and space)
         // it's fine if wew check characters in the alphabet as we move along
         State<E> current = initState;
+        // while in anonymous states, only their index is followed, and no views are made
+        int index = anonymousIndexOf(current);
 
         // this could be checked by name == null, but oh well
         for(int i = 0; i < data.length(); i++){
+            char c = data.charAt(i);
+            if(index >= 0){
+                int entry = anonymousTable[index * alphabet.size() + alphabet.indexOf(c)];
+                if(entry >= 0){
+                    index = entry;
+                    continue;
+                }
+                current = anonymousTarget(entry);
+                index = -1;
+                continue;
+            }
+
             // if current is null state then return it quickly
             if(current.equals(nullState)){
                 return current;
             }
 
             // transition
-            char c = data.charAt(i);
             try {
                 current = getTransition(current, c);
             }
@@ -406,9 +762,109 @@ public class FSM<E> {
                 // that means that we have a bug on our hands
                 return null;
             }
+            index = anonymousIndexOf(current);
         }
 
-        return current;
+        return index >= 0 ? getAnonymousState(index) : current;
+    }
+
+    /**
+     * Compiles this machine into a table-based <code>CompiledFSM</code>. The compiled machine
+     * is a snapshot of the current states and transitions, with the null state as state 0,
+     * and with one column per class of characters that all states treat the same way.
+     *
+     * @return A compiled snapshot of this machine.
+     * @throws IncompleteMachineException If the machine is not ready. For example,
+     *      if there is no initial state set.
+     * @throws IllegalStateException If the table has too many entries for an array, in which case
+     *      the machine can still be compiled into a <code>TableArena</code>.
+     */
+    public CompiledFSM<E> compile() throws IncompleteMachineException{
+        return compile(true, null);
+    }
+
+    /**
+     * Compiles this machine like <code>compile()</code>, but with its transition table stored off
+     * the heap, in the provided arena. The table is written there row by row, so it is never whole on
+     * the heap, and the compiled machine can only run while the arena is open. It has at most as many
+     * entries as an array, like the transitions of the anonymous states it is compiled from.
+     *
+     * @param arena The arena holding the table of the compiled machine.
+     * @return A compiled snapshot of this machine.
+     * @throws IncompleteMachineException If the machine is not ready. For example,
+     *      if there is no initial state set.
+     * @throws IllegalStateException If the arena is closed.
+     */
+    public CompiledFSM<E> compile(@NotNull TableArena arena) throws IncompleteMachineException{
+        return compile(true, arena);
+    }
+
+    /**
+     * Compiles this machine, with every symbol in its own character class
+     * if <code>mergeClasses</code> is false.
+     */
+    CompiledFSM<E> compile(boolean mergeClasses) throws IncompleteMachineException{
+        return compile(mergeClasses, null);
+    }
+
+    /**
+     * Compiles this machine, with its table in the provided arena, or on the heap if it is <code>null</code>.
+     */
+    private CompiledFSM<E> compile(boolean mergeClasses, TableArena arena) throws IncompleteMachineException{
+        if(!isReady()){
+            throw new IncompleteMachineException("Make sure all required FSM fields are filled in.");
+        }
+
+        // the null state is 0, then the other named states, then the anonymous states in order
+        int namedCount = states.size();
+        @SuppressWarnings("unchecked")
+        State<E>[] compiledStates = (State<E>[]) new State<?>[namedCount + anonymousCount];
+        Map<State<E>, Integer> ids = new IdentityHashMap<>(namedCount);
+        compiledStates[CompiledFSM.NULL_ID] = nullState;
+        ids.put(nullState, CompiledFSM.NULL_ID);
+        for(State<E> state : states.values()){
+            if(state != nullState){
+                ids.put(state, ids.size());
+                compiledStates[ids.size() - 1] = state;
+            }
+        }
+
+        // views of anonymous states are only made if the compiled machine asks for them
+        int columns = alphabet.size();
+        CompiledFSM.RowSource rows = (id, row) -> {
+            if(id < namedCount){
+                Map<Character, State<E>> transitions = transitionTable.get(compiledStates[id]);
+                for(int symbol = 0; symbol < columns; symbol++){
+                    State<E> next = transitions.get(alphabet.keyAt(symbol));
+                    int index = anonymousIndexOf(next);
+                    row[symbol] = next == null ? CompiledFSM.NULL_ID
+                            : index >= 0 ? namedCount + index : idOf(ids, next);
+                }
+            }
+            else{
+                int offset = (id - namedCount) * columns;
+                for(int symbol = 0; symbol < columns; symbol++){
+                    int entry = anonymousTable[offset + symbol];
+                    row[symbol] = entry >= 0 ? namedCount + entry
+                            : entry == NULL_TARGET ? CompiledFSM.NULL_ID : idOf(ids, namedTargets.get(-2 - entry));
+                }
+            }
+        };
+        int initIndex = anonymousIndexOf(initState);
+        int initId = initIndex >= 0 ? namedCount + initIndex : idOf(ids, initState);
+        IntFunction<State<E>> anonymousStates = anonymousCount == 0 ? null : id -> getAnonymousState(id - namedCount);
+        return new CompiledFSM<>(alphabet, compiledStates, anonymousStates, rows, initId, mergeClasses, arena);
+    }
+
+    // the id of a named state, which is missing if the state was replaced by incorporateNewState
+    // while other states still went to it
+    private static <E> int idOf(Map<State<E>, Integer> ids, State<E> state) throws IncompleteMachineException{
+        Integer id = ids.get(state);
+        if(id == null){
+            throw new IncompleteMachineException("State " + state.getName()
+                    + " was replaced, but is still the target of a transition or the initial state.");
+        }
+        return id;
     }
 
 }
@@ -0,0 +1,204 @@
+package finite.automaton;
+
+/**
+ * An estimate of the memory taken by a machine, in bytes, split by what it is spent on: the state
+ * objects and the structures holding them, the names of the states, their results, the transition
+ * structure, and the index of the alphabet. Memory outside of the heap, such as tables kept in a
+ * <code>TableArena</code>, is counted apart.
+ *
+ * Estimates assume a 64-bit virtual machine with compressed references and 8-byte alignment, the
+ * default for heaps under 32 GB. Objects shared between machines, such as alphabets, are counted in
+ * full for each machine, while objects shared within a machine, such as equal results, are counted once.
+ */
+public final class Footprint {
+
+    static final int OBJECT_HEADER = 12;
+    static final int ARRAY_HEADER = 16;
+    static final int REFERENCE = 4;
+    static final int ALIGNMENT = 8;
+
+    /**
+     * The size of an entry of a <code>HashMap</code>: its hash, key, value and next entry.
+     */
+    static final long MAP_ENTRY = objectBytes(Integer.BYTES + 3 * REFERENCE);
+
+    /**
+     * The size of a <code>HashMap</code> without its table: its table, three views, three counters
+     * and its load factor.
+     */
+    static final long EMPTY_MAP = objectBytes(4 * REFERENCE + 3 * Integer.BYTES + Float.BYTES);
+
+    /**
+     * The size of a box of a small primitive, such as an <code>Integer</code> or a <code>Character</code>.
+     */
+    static final long SMALL_BOX = objectBytes(Integer.BYTES);
+
+    private final long states;
+    private final long names;
+    private final long results;
+    private final long transitions;
+    private final long alphabet;
+    private final long offHeap;
+
+    Footprint(long states, long names, long results, long transitions, long alphabet, long offHeap){
+        this.states = states;
+        this.names = names;
+        this.results = results;
+        this.transitions = transitions;
+        this.alphabet = alphabet;
+        this.offHeap = offHeap;
+    }
+
+
+    //////////////
+    // getters
+
+    /**
+     * Returns the bytes taken by the state objects, and the structures holding them.
+     * @return The size of the states, in bytes.
+     */
+    public long getStateBytes(){
+        return states;
+    }
+
+    /**
+     * Returns the bytes taken by the names of the states that keep their names.
+     * @return The size of the names, in bytes.
+     */
+    public long getNameBytes(){
+        return names;
+    }
+
+    /**
+     * Returns the bytes taken by the values of the states, each distinct value counted once.
+     * @return The size of the results, in bytes.
+     */
+    public long getResultBytes(){
+        return results;
+    }
+
+    /**
+     * Returns the bytes taken on the heap by the transitions, including character classes.
+     * @return The size of the transition structure on the heap, in bytes.
+     */
+    public long getTransitionBytes(){
+        return transitions;
+    }
+
+    /**
+     * Returns the bytes taken by the index of the alphabet.
+     * @return The size of the alphabet, in bytes.
+     */
+    public long getAlphabetBytes(){
+        return alphabet;
+    }
+
+    /**
+     * Returns the bytes taken outside of the heap, such as by tables in a <code>TableArena</code>
+     * or read from a memory-mapped file.
+     * @return The size of the machine outside of the heap, in bytes.
+     */
+    public long getOffHeapBytes(){
+        return offHeap;
+    }
+
+    /**
+     * Returns the bytes taken on the heap, which is the sum of every part but the off-heap one.
+     * @return The size of the machine on the heap, in bytes.
+     */
+    public long getHeapBytes(){
+        return states + names + results + transitions + alphabet;
+    }
+
+    /**
+     * Returns the bytes taken both on and off the heap.
+     * @return The size of the machine, in bytes.
+     */
+    public long getTotalBytes(){
+        return getHeapBytes() + offHeap;
+    }
+
+    /**
+     * Returns the sum of this footprint and the provided one, part by part.
+     * @param other The footprint being added.
+     * @return The footprint of both.
+     */
+    public Footprint plus(Footprint other){
+        return new Footprint(states + other.states, names + other.names, results + other.results,
+                transitions + other.transitions, alphabet + other.alphabet, offHeap + other.offHeap);
+    }
+
+    @Override
+    public String toString(){
+        return String.format("%d bytes on heap (states %d, names %d, results %d, transitions %d, alphabet %d), "
+                + "%d bytes off heap", getHeapBytes(), states, names, results, transitions, alphabet, offHeap);
+    }
+
+
+    ////////////////////////
+    // estimation helpers
+
+    static long align(long bytes){
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Returns the size of an object with fields of the provided total size.
+     */
+    static long objectBytes(int fieldBytes){
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    /**
+     * Returns the size of an array of the provided length, with elements of the provided size.
+     */
+    static long arrayBytes(long length, int elementBytes){
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    /**
+     * Returns the size of a <code>HashMap</code> of the provided number of entries, without its keys
+     * and values, grown from the default capacity.
+     */
+    static long hashMapBytes(int size){
+        if(size == 0){
+            return EMPTY_MAP;
+        }
+        int capacity = 16;
+        while(size > capacity * 3L / 4){
+            capacity *= 2;
+        }
+        return EMPTY_MAP + arrayBytes(capacity, REFERENCE) + size * MAP_ENTRY;
+    }
+
+    /**
+     * Returns the size of the provided string, with compact strings: its object and its bytes.
+     */
+    static long stringBytes(String string){
+        boolean latin1 = string.chars().allMatch(c -> c < 256);
+        // value, hash, coder and whether the hash is zero
+        return objectBytes(REFERENCE + Integer.BYTES + 2)
+                + arrayBytes(string.length(), latin1 ? Byte.BYTES : Character.BYTES);
+    }
+
+    /**
+     * Returns the size of the provided value, which is exact for boxed primitives and strings,
+     * and that of an object without fields otherwise.
+     */
+    static long valueBytes(Object value){
+        if(value == null){
+            return 0;
+        }
+        if(value instanceof String){
+            return stringBytes((String) value);
+        }
+        if(value instanceof Long || value instanceof Double){
+            return objectBytes(Long.BYTES);
+        }
+        if(value instanceof Integer || value instanceof Float || value instanceof Short || value instanceof Byte
+                || value instanceof Character || value instanceof Boolean){
+            return SMALL_BOX;
+        }
+        return objectBytes(0);
+    }
+}
@@ -0,0 +1,405 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.IncompleteMachineException;
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the final state of a machine over a string that is edited one character at a time, without
+ * running the machine over the whole string after each edit.
+ *
+ * The string is kept as a balanced tree of its characters, in order, where each node holds where the
+ * machine goes from every state over the characters of its subtree: a map from state to state. The map
+ * of a node is made from the maps of its children and its own character, so an edit only remakes the
+ * maps of the nodes above the edited one, each in time proportional to the number of states. The final
+ * state is where the map of the root takes the initial state.
+ *
+ * The tree is kept balanced by merging subtrees at random, weighted by their sizes, so that it has the
+ * shape of a random binary search tree whatever the edits, and a depth logarithmic in the length of the
+ * string, in expectation. Each character takes one int per state of the machine, so this is meant for
+ * machines of few states.
+ *
+ * @param <E> The return type for states of the machine.
+ */
+public class IncrementalRunner<E> {
+
+    /**
+     * The largest number of states of the machines that can be run incrementally.
+     */
+    public static final int MAX_STATES = 1 << 10;
+
+    /**
+     * Stands for the absence of a node. The maps of the nodes start after its own, unused one.
+     */
+    private static final int NIL = 0;
+
+    /**
+     * The compiled machine being run.
+     */
+    private final CompiledFSM<E> machine;
+
+    private final int stateCount;
+
+    // the nodes of the tree, by index, where freed nodes are chained through their left child
+    private int[] left;
+    private int[] right;
+    private int[] sizes;
+    private int[] columns;
+    private char[] chars;
+
+    /**
+     * The state each node takes each state to, <code>stateCount</code> entries per node.
+     */
+    private int[] maps;
+
+    private int root = NIL;
+
+    private int freed = NIL;
+
+    private int used = 1;
+
+    // the two halves of the last split, in place of a returned pair
+    private int splitLeft;
+    private int splitRight;
+
+    /**
+     * The state of the generator choosing how subtrees are merged.
+     */
+    private long seed = 0x9E3779B97F4A7C15L;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs an incremental runner of the provided machine over the provided string, compiling it.
+     * @param machine The machine being run.
+     * @param data The string the machine is first run over.
+     * @throws IncompleteMachineException If the machine is not ready.
+     * @throws InvalidCharacterException If the string is not made up of the machine's alphabet.
+     * @throws IllegalArgumentException If the machine has more than <code>MAX_STATES</code> states.
+     */
+    public IncrementalRunner(@NotNull FSM<E> machine, @NotNull CharSequence data)
+            throws IncompleteMachineException, InvalidCharacterException{
+        this(machine.compile(), data);
+    }
+
+    /**
+     * Constructs an incremental runner of the provided compiled machine over the provided string.
+     * @param machine The machine being run.
+     * @param data The string the machine is first run over.
+     * @throws InvalidCharacterException If the string is not made up of the machine's alphabet.
+     * @throws IllegalArgumentException If the machine has more than <code>MAX_STATES</code> states.
+     */
+    public IncrementalRunner(@NotNull CompiledFSM<E> machine, @NotNull CharSequence data)
+            throws InvalidCharacterException{
+        if(machine.getStateCount() > MAX_STATES){
+            throw new IllegalArgumentException("Machine of " + machine.getStateCount()
+                    + " states is too big to be run incrementally.");
+        }
+        this.machine = machine;
+        this.stateCount = machine.getStateCount();
+
+        int length = data.length();
+        int[] dataColumns = new int[length];
+        for(int i = 0; i < length; i++){
+            dataColumns[i] = columnOf(data.charAt(i));
+        }
+        allocate(length + 1);
+        root = build(data, dataColumns, 0, length);
+    }
+
+
+    //////////////
+    // getters
+
+    public CompiledFSM<E> getMachine(){
+        return machine;
+    }
+
+    /**
+     * Returns the length of the string.
+     * @return The number of characters in the string.
+     */
+    public int length(){
+        return sizes[root];
+    }
+
+    /**
+     * Returns the character at the provided index of the string.
+     * @param index The index of the character.
+     * @return The character at that index.
+     * @throws IndexOutOfBoundsException If there is no character at that index.
+     */
+    public char charAt(int index){
+        checkIndex(index, length());
+        int node = root;
+        while(true){
+            int leftSize = sizes[left[node]];
+            if(index < leftSize){
+                node = left[node];
+            }
+            else if(index == leftSize){
+                return chars[node];
+            }
+            else{
+                index -= leftSize + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the state the machine ends in over the current string, in constant time.
+     * @return The id of the final state.
+     */
+    public int getFinalId(){
+        int init = machine.getInitId();
+        return root == NIL ? init : maps[root * stateCount + init];
+    }
+
+    /**
+     * Returns the state the machine ends in over the current string, in constant time.
+     * Behaves the same as running the machine over the whole string.
+     *
+     * @return The final state.
+     */
+    public State<E> getFinalState(){
+        return machine.getState(getFinalId());
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder builder = new StringBuilder(length());
+        appendTo(builder, root);
+        return builder.toString();
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Replaces the character at the provided index of the string.
+     *
+     * @param index The index of the character being replaced.
+     * @param c The new character.
+     * @throws InvalidCharacterException If the character is not in the machine's alphabet, in which
+     *      case the string is left unchanged.
+     * @throws IndexOutOfBoundsException If there is no character at that index.
+     */
+    public void setChar(int index, char c) throws InvalidCharacterException{
+        checkIndex(index, length());
+        int column = columnOf(c);
+        set(root, index, c, column);
+    }
+
+    /**
+     * Inserts the provided character at the provided index of the string, moving the characters from
+     * that index one further.
+     *
+     * @param index The index the character is inserted at, from 0 to the length of the string.
+     * @param c The character being inserted.
+     * @throws InvalidCharacterException If the character is not in the machine's alphabet, in which
+     *      case the string is left unchanged.
+     * @throws IndexOutOfBoundsException If the index is past the end of the string.
+     */
+    public void insert(int index, char c) throws InvalidCharacterException{
+        checkIndex(index, length() + 1);
+        int column = columnOf(c);
+        int node = newNode(c, column);
+        split(root, index);
+        int after = splitRight;
+        root = merge(merge(splitLeft, node), after);
+    }
+
+    /**
+     * Deletes the character at the provided index of the string, moving the characters after it one
+     * back.
+     *
+     * @param index The index of the character being deleted.
+     * @throws IndexOutOfBoundsException If there is no character at that index.
+     */
+    public void delete(int index){
+        checkIndex(index, length());
+        split(root, index);
+        int before = splitLeft;
+        split(splitRight, 1);
+        free(splitLeft);
+        root = merge(before, splitRight);
+    }
+
+
+    //////////////
+    // private helpers
+
+    private int columnOf(char c) throws InvalidCharacterException{
+        int column = machine.columnOf(c);
+        if(column < 0){
+            throw new InvalidCharacterException("Character in data is not in alphabet.");
+        }
+        return column;
+    }
+
+    private static void checkIndex(int index, int bound){
+        if(index < 0 || index >= bound){
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + bound + ".");
+        }
+    }
+
+    // makes room for the provided number of nodes, the unused one included
+    private void allocate(int capacity){
+        if((long) capacity * stateCount > Integer.MAX_VALUE - 8){
+            throw new IllegalStateException("String is too long to be run incrementally by a machine of "
+                    + stateCount + " states.");
+        }
+        int oldCapacity = left == null ? 0 : left.length;
+        if(capacity <= oldCapacity){
+            return;
+        }
+        left = left == null ? new int[capacity] : Arrays.copyOf(left, capacity);
+        right = right == null ? new int[capacity] : Arrays.copyOf(right, capacity);
+        sizes = sizes == null ? new int[capacity] : Arrays.copyOf(sizes, capacity);
+        columns = columns == null ? new int[capacity] : Arrays.copyOf(columns, capacity);
+        chars = chars == null ? new char[capacity] : Arrays.copyOf(chars, capacity);
+        maps = maps == null ? new int[capacity * stateCount] : Arrays.copyOf(maps, capacity * stateCount);
+    }
+
+    private int newNode(char c, int column){
+        int node;
+        if(freed != NIL){
+            node = freed;
+            freed = left[node];
+        }
+        else{
+            if(used == left.length){
+                // once the arrays are as long as they can be, asking for one more node throws
+                int limit = (Integer.MAX_VALUE - 8) / stateCount;
+                allocate(used < limit ? (int) Math.min((long) used * 2, limit) : used + 1);
+            }
+            node = used++;
+        }
+        left[node] = NIL;
+        right[node] = NIL;
+        chars[node] = c;
+        columns[node] = column;
+        update(node);
+        return node;
+    }
+
+    private void free(int node){
+        left[node] = freed;
+        freed = node;
+    }
+
+    // builds a balanced tree of the provided range of the string
+    private int build(CharSequence data, int[] dataColumns, int from, int to){
+        if(from == to){
+            return NIL;
+        }
+        int mid = (from + to) >>> 1;
+        int node = used++;
+        chars[node] = data.charAt(mid);
+        columns[node] = dataColumns[mid];
+        left[node] = build(data, dataColumns, from, mid);
+        right[node] = build(data, dataColumns, mid + 1, to);
+        update(node);
+        return node;
+    }
+
+    // remakes the size and map of the provided node from its children
+    private void update(int node){
+        int l = left[node];
+        int r = right[node];
+        sizes[node] = sizes[l] + sizes[r] + 1;
+        int column = columns[node];
+        int base = node * stateCount;
+        int leftBase = l * stateCount;
+        int rightBase = r * stateCount;
+        machine.acquire();
+        try {
+            for(int state = 0; state < stateCount; state++){
+                int next = l == NIL ? state : maps[leftBase + state];
+                next = machine.next(next, column);
+                maps[base + state] = r == NIL ? next : maps[rightBase + next];
+            }
+        }
+        finally{
+            machine.release();
+        }
+    }
+
+    private void set(int node, int index, char c, int column){
+        int leftSize = sizes[left[node]];
+        if(index < leftSize){
+            set(left[node], index, c, column);
+        }
+        else if(index > leftSize){
+            set(right[node], index - leftSize - 1, c, column);
+        }
+        else{
+            chars[node] = c;
+            columns[node] = column;
+        }
+        update(node);
+    }
+
+    // splits the provided tree into its first count characters and the rest
+    private void split(int node, int count){
+        if(node == NIL){
+            splitLeft = NIL;
+            splitRight = NIL;
+            return;
+        }
+        if(sizes[left[node]] >= count){
+            split(left[node], count);
+            left[node] = splitRight;
+            update(node);
+            splitRight = node;
+        }
+        else{
+            split(right[node], count - sizes[left[node]] - 1);
+            right[node] = splitLeft;
+            update(node);
+            splitLeft = node;
+        }
+    }
+
+    // joins the provided trees, the characters of the first one first, picking the root of the larger one
+    // more often, in proportion to its size
+    private int merge(int first, int second){
+        if(first == NIL){
+            return second;
+        }
+        if(second == NIL){
+            return first;
+        }
+        if(nextBelow(sizes[first] + sizes[second]) < sizes[first]){
+            right[first] = merge(right[first], second);
+            update(first);
+            return first;
+        }
+        left[second] = merge(first, left[second]);
+        update(second);
+        return second;
+    }
+
+    // a xorshift generator, so that merges allocate nothing
+    private int nextBelow(int bound){
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) ((seed >>> 1) % bound);
+    }
+
+    private void appendTo(StringBuilder builder, int node){
+        if(node != NIL){
+            appendTo(builder, left[node]);
+            builder.append(chars[node]);
+            appendTo(builder, right[node]);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+
+/**
+ * A transition table stored in an <code>int</code> array on the heap.
+ */
+class IntArrayTable extends TransitionTable {
+
+    private final int[] table;
+
+    IntArrayTable(int[] table, int stateCount, int columnCount){
+        super(stateCount, columnCount);
+        this.table = table;
+    }
+
+    @Override
+    int next(int state, int column){
+        return table[state * columnCount + column];
+    }
+
+    @Override
+    long getBytes(){
+        return (long) table.length * Integer.BYTES;
+    }
+
+    @Override
+    int run(CompiledFSM<?> machine, CharSequence data, int state) throws InvalidCharacterException{
+        for(int i = 0; i < data.length(); i++){
+            int col = machine.columnOf(data.charAt(i));
+            if(col < 0){
+                throw new InvalidCharacterException("Character in data is not in alphabet.");
+            }
+            state = table[state * columnCount + col];
+            if(machine.isAbsorbing(state)){
+                machine.checkAlphabet(data, i + 1);
+                break;
+            }
+        }
+        return state;
+    }
+}
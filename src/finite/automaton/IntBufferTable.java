@@ -0,0 +1,32 @@
+package finite.automaton;
+
+import java.nio.IntBuffer;
+
+/**
+ * A transition table read directly from an <code>IntBuffer</code>, such as a view of a
+ * memory-mapped file, without being copied onto the heap.
+ */
+class IntBufferTable extends TransitionTable {
+
+    private final IntBuffer table;
+
+    IntBufferTable(IntBuffer table, int stateCount, int columnCount){
+        super(stateCount, columnCount);
+        this.table = table;
+    }
+
+    @Override
+    int next(int state, int column){
+        return table.get(state * columnCount + column);
+    }
+
+    @Override
+    long getBytes(){
+        return (long) table.capacity() * Integer.BYTES;
+    }
+
+    @Override
+    boolean isOnHeap(){
+        return false;
+    }
+}
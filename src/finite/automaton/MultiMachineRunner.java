@@ -0,0 +1,158 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.IncompleteMachineException;
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several machines over the same data in a single pass. Each machine is compiled when
+ * the runner is made, and all of them are then advanced in lock-step, one character at a time.
+ * Once every machine is in an absorbing state (such as its null state), the remaining data
+ * is only checked against the alphabets.
+ *
+ * The machines' alphabets are compatible if the data is made up of characters in all of them,
+ * which is checked as the data is read, as with running each machine separately.
+ *
+ * Machines of different return types can be run together by a runner of a common supertype of
+ * them, such as <code>MultiMachineRunner&lt;Object&gt;</code>.
+ *
+ * @param <E> A supertype of the return types for states of the machines.
+ */
+public class MultiMachineRunner<E> {
+
+    /**
+     * The compiled machines, in the order they were provided.
+     */
+    private final List<CompiledFSM<? extends E>> machines;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs a runner for the provided machines, compiling each of them.
+     * @param machines The machines being run together.
+     * @throws IncompleteMachineException If any of the machines is not ready.
+     */
+    public MultiMachineRunner(@NotNull List<? extends FSM<? extends E>> machines) throws IncompleteMachineException{
+        this.machines = new ArrayList<>(machines.size());
+        for(FSM<? extends E> machine : machines){
+            this.machines.add(machine.compile());
+        }
+    }
+
+    /**
+     * Returns a runner for the provided machines, compiling each of them.
+     * @param machines The machines being run together.
+     * @throws IncompleteMachineException If any of the machines is not ready.
+     */
+    @SafeVarargs
+    public static <E> MultiMachineRunner<E> of(@NotNull FSM<? extends E>... machines)
+            throws IncompleteMachineException{
+        // copied rather than wrapped, so the array itself never leaves this method
+        List<FSM<? extends E>> list = new ArrayList<>(machines.length);
+        for(FSM<? extends E> machine : machines){
+            list.add(machine);
+        }
+        return new MultiMachineRunner<>(list);
+    }
+
+
+    //////////////
+    // getters
+
+    /**
+     * Returns the number of machines run by this runner.
+     * @return The number of machines.
+     */
+    public int getMachineCount(){
+        return machines.size();
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Runs every machine on the provided data in a single pass and returns the final state ids,
+     * in the order the machines were provided.
+     *
+     * @param data The string for the machines to process.
+     * @return The ids of the final states of the compiled machines.
+     * @throws InvalidCharacterException If the string is not made up of every machine's alphabet.
+     */
+    public int[] runToIds(@NotNull CharSequence data) throws InvalidCharacterException{
+        int acquired = 0;
+        try {
+            for(; acquired < machines.size(); acquired++){
+                machines.get(acquired).acquire();
+            }
+            return runAcquired(data);
+        }
+        finally{
+            for(int m = 0; m < acquired; m++){
+                machines.get(m).release();
+            }
+        }
+    }
+
+    // runs the machines in lock-step, with every one of them acquired
+    private int[] runAcquired(CharSequence data) throws InvalidCharacterException{
+        int count = machines.size();
+        int[] current = new int[count];
+        int live = 0;
+        for(int m = 0; m < count; m++){
+            current[m] = machines.get(m).getInitId();
+            if(!machines.get(m).isAbsorbing(current[m])){
+                live++;
+            }
+        }
+
+        int i = 0;
+        for(; i < data.length() && live > 0; i++){
+            char c = data.charAt(i);
+            for(int m = 0; m < count; m++){
+                CompiledFSM<? extends E> machine = machines.get(m);
+                int col = machine.columnOf(c);
+                if(col < 0){
+                    throw new InvalidCharacterException("Character in data is not in alphabet.");
+                }
+                // absorbed machines keep their state, but still check the character
+                if(!machine.isAbsorbing(current[m])){
+                    current[m] = machine.next(current[m], col);
+                    if(machine.isAbsorbing(current[m])){
+                        live--;
+                    }
+                }
+            }
+        }
+
+        // everything is absorbed, so only check the rest of the data
+        for(CompiledFSM<? extends E> machine : machines){
+            machine.checkAlphabet(data, i);
+        }
+        return current;
+    }
+
+    /**
+     * Runs every machine on the provided data in a single pass and returns the final states,
+     * in the order the machines were provided. Each state is the same as what running
+     * the corresponding machine on its own would return.
+     *
+     * @param data The string for the machines to process.
+     * @return The final states of the machines.
+     * @throws InvalidCharacterException If the string is not made up of every machine's alphabet.
+     */
+    public List<State<? extends E>> runMachines(@NotNull CharSequence data) throws InvalidCharacterException{
+        int[] ids = runToIds(data);
+        List<State<? extends E>> output = new ArrayList<>(ids.length);
+        for(int m = 0; m < ids.length; m++){
+            output.add(machines.get(m).getState(ids[m]));
+        }
+        return output;
+    }
+}
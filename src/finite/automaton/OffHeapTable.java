@@ -0,0 +1,132 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+
+import java.nio.IntBuffer;
+
+/**
+ * A transition table stored off the heap, in direct buffers of a <code>TableArena</code>. Since a
+ * buffer holds at most <code>Integer.MAX_VALUE</code> bytes, which is fewer than the 4-byte entries of
+ * the biggest tables a machine can have, the entries are split over chunks of the same power of two
+ * size. Tables that fit in one chunk, as most do, are read from it without splitting the index.
+ *
+ * Runs are counted by the arena while they last, so that closing the arena never frees the memory
+ * under them. Entries read or written one at a time are not: <code>next</code> and <code>set</code>
+ * must be called between <code>acquire</code> and <code>release</code>, once around the whole loop.
+ */
+class OffHeapTable extends TransitionTable {
+
+    /**
+     * The default log 2 of the number of entries of a chunk, which is then 1 GiB.
+     */
+    static final int CHUNK_SHIFT = 28;
+
+    private final TableArena arena;
+
+    private final IntBuffer[] chunks;
+
+    private final int chunkShift;
+
+    private final long chunkMask;
+
+    OffHeapTable(TableArena arena, int stateCount, int columnCount){
+        this(arena, stateCount, columnCount, CHUNK_SHIFT);
+    }
+
+    /**
+     * Constructs a table of null transitions, with chunks of 2 to the <code>chunkShift</code> entries.
+     */
+    OffHeapTable(TableArena arena, int stateCount, int columnCount, int chunkShift){
+        super(stateCount, columnCount);
+        this.arena = arena;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+        long entries = (long) stateCount * columnCount;
+        this.chunks = new IntBuffer[(int) Math.max(1, (entries + chunkMask) >>> chunkShift)];
+        for(int i = 0; i < chunks.length; i++){
+            long size = Math.min(entries - ((long) i << chunkShift), 1L << chunkShift);
+            chunks[i] = arena.allocate((int) size * Integer.BYTES).asIntBuffer();
+        }
+    }
+
+    /**
+     * Sets the entry of the provided state and column. The table must be acquired.
+     */
+    void set(int state, int column, int next){
+        long index = (long) state * columnCount + column;
+        chunks[(int) (index >>> chunkShift)].put((int) (index & chunkMask), next);
+    }
+
+    TableArena getArena(){
+        return arena;
+    }
+
+    @Override
+    void acquire(){
+        arena.acquire();
+    }
+
+    @Override
+    void release(){
+        arena.release();
+    }
+
+    @Override
+    int next(int state, int column){
+        long index = (long) state * columnCount + column;
+        return chunks[(int) (index >>> chunkShift)].get((int) (index & chunkMask));
+    }
+
+    @Override
+    long getBytes(){
+        return (long) stateCount * columnCount * Integer.BYTES;
+    }
+
+    @Override
+    boolean isOnHeap(){
+        return false;
+    }
+
+    @Override
+    int run(CompiledFSM<?> machine, CharSequence data, int state) throws InvalidCharacterException{
+        arena.acquire();
+        try {
+            return runChunks(machine, data, state);
+        }
+        finally{
+            arena.release();
+        }
+    }
+
+    private int runChunks(CompiledFSM<?> machine, CharSequence data, int state) throws InvalidCharacterException{
+        if(chunks.length == 1){
+            IntBuffer table = chunks[0];
+            for(int i = 0; i < data.length(); i++){
+                int col = machine.columnOf(data.charAt(i));
+                if(col < 0){
+                    throw new InvalidCharacterException("Character in data is not in alphabet.");
+                }
+                state = table.get(state * columnCount + col);
+                if(machine.isAbsorbing(state)){
+                    machine.checkAlphabet(data, i + 1);
+                    break;
+                }
+            }
+            return state;
+        }
+
+        for(int i = 0; i < data.length(); i++){
+            int col = machine.columnOf(data.charAt(i));
+            if(col < 0){
+                throw new InvalidCharacterException("Character in data is not in alphabet.");
+            }
+            long index = (long) state * columnCount + col;
+            state = chunks[(int) (index >>> chunkShift)].get((int) (index & chunkMask));
+            if(machine.isAbsorbing(state)){
+                machine.checkAlphabet(data, i + 1);
+                break;
+            }
+        }
+        return state;
+    }
+}
@@ -0,0 +1,250 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.IncompleteMachineException;
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Runs a machine over strings given as repetitions, such as a character repeated some number of times
+ * or a block of characters repeated some number of times, without writing them out.
+ *
+ * Where the machine goes from every state over one repetition is a map from state to state, and
+ * repeating a block is applying its map again and again. The map of a block repeated a power of two
+ * times is that of the block repeated half as many times, applied twice, so squaring the map of the
+ * block once per bit of the number of repetitions, and applying the squares of the set bits, reaches
+ * the final state in time proportional to the number of states and the logarithm of the number of
+ * repetitions, however many repetitions there are.
+ *
+ * Each run allocates a few arrays of one int per state, so this is meant for machines of few states.
+ *
+ * @param <E> The return type for states of the machine.
+ */
+public class RepetitionRunner<E> {
+
+    /**
+     * The compiled machine being run.
+     */
+    private final CompiledFSM<E> machine;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs a repetition runner for the provided machine, compiling it.
+     * @param machine The machine being run.
+     * @throws IncompleteMachineException If the machine is not ready.
+     */
+    public RepetitionRunner(@NotNull FSM<E> machine) throws IncompleteMachineException{
+        this(machine.compile());
+    }
+
+    /**
+     * Constructs a repetition runner for the provided compiled machine.
+     * @param machine The machine being run.
+     */
+    public RepetitionRunner(@NotNull CompiledFSM<E> machine){
+        this.machine = machine;
+    }
+
+
+    //////////////
+    // getters
+
+    public CompiledFSM<E> getMachine(){
+        return machine;
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Returns the id of the state reached from the provided state over the provided character repeated
+     * the provided number of times.
+     *
+     * @param id The id of the state the repetitions start from.
+     * @param c The character being repeated.
+     * @param count The number of times the character is repeated.
+     * @return The id of the state reached.
+     * @throws InvalidCharacterException If the character is not in the machine's alphabet.
+     * @throws IllegalArgumentException If the count is negative.
+     */
+    public int stepRepeated(int id, char c, long count) throws InvalidCharacterException{
+        checkCount(count);
+        int column = columnOf(c);
+        if(count == 0){
+            return id;
+        }
+        int[] map = new int[machine.getStateCount()];
+        machine.acquire();
+        try {
+            for(int state = 0; state < map.length; state++){
+                map[state] = machine.next(state, column);
+            }
+        }
+        finally{
+            machine.release();
+        }
+        return applyPower(map, id, count);
+    }
+
+    /**
+     * Returns the id of the state reached from the provided state over the provided block repeated the
+     * provided number of times.
+     *
+     * @param id The id of the state the repetitions start from.
+     * @param block The characters being repeated.
+     * @param repetitions The number of times the block is repeated.
+     * @return The id of the state reached.
+     * @throws InvalidCharacterException If the block is not made up of the machine's alphabet.
+     * @throws IllegalArgumentException If the number of repetitions is negative.
+     */
+    public int stepRepeated(int id, @NotNull CharSequence block, long repetitions) throws InvalidCharacterException{
+        checkCount(repetitions);
+        int length = block.length();
+        int[] columns = new int[length];
+        for(int i = 0; i < length; i++){
+            columns[i] = columnOf(block.charAt(i));
+        }
+        if(repetitions == 0 || length == 0){
+            return id;
+        }
+        machine.acquire();
+        try {
+            if(repetitions == 1){
+                return stepBlock(id, columns);
+            }
+            int[] map = new int[machine.getStateCount()];
+            for(int state = 0; state < map.length; state++){
+                map[state] = stepBlock(state, columns);
+            }
+            return applyPower(map, id, repetitions);
+        }
+        finally{
+            machine.release();
+        }
+    }
+
+    /**
+     * Runs the machine over the provided character repeated the provided number of times, and returns
+     * the id of the final state.
+     *
+     * @param c The character being repeated.
+     * @param count The number of times the character is repeated.
+     * @return The id of the final state, the same as running the machine over the written out string.
+     * @throws InvalidCharacterException If the character is not in the machine's alphabet.
+     * @throws IllegalArgumentException If the count is negative.
+     */
+    public int runToId(char c, long count) throws InvalidCharacterException{
+        return stepRepeated(machine.getInitId(), c, count);
+    }
+
+    /**
+     * Runs the machine over the provided block repeated the provided number of times, and returns the
+     * id of the final state.
+     *
+     * @param block The characters being repeated.
+     * @param repetitions The number of times the block is repeated.
+     * @return The id of the final state, the same as running the machine over the written out string.
+     * @throws InvalidCharacterException If the block is not made up of the machine's alphabet.
+     * @throws IllegalArgumentException If the number of repetitions is negative.
+     */
+    public int runToId(@NotNull CharSequence block, long repetitions) throws InvalidCharacterException{
+        return stepRepeated(machine.getInitId(), block, repetitions);
+    }
+
+    /**
+     * Runs the machine over a run-length encoded string, where each character is repeated the number
+     * of times at the same index, and returns the id of the final state.
+     *
+     * @param chars The character of each run.
+     * @param counts The length of each run.
+     * @return The id of the final state, the same as running the machine over the written out string.
+     * @throws InvalidCharacterException If the characters are not made up of the machine's alphabet.
+     * @throws IllegalArgumentException If the arrays differ in length, or a count is negative.
+     */
+    public int runToId(@NotNull char[] chars, @NotNull long[] counts) throws InvalidCharacterException{
+        if(chars.length != counts.length){
+            throw new IllegalArgumentException("Runs have " + chars.length + " characters but "
+                    + counts.length + " counts.");
+        }
+        int id = machine.getInitId();
+        for(int run = 0; run < chars.length; run++){
+            id = stepRepeated(id, chars[run], counts[run]);
+        }
+        return id;
+    }
+
+    /**
+     * Runs the machine over the provided character repeated the provided number of times.
+     * @see #runToId(char, long)
+     */
+    public State<E> runMachine(char c, long count) throws InvalidCharacterException{
+        return machine.getState(runToId(c, count));
+    }
+
+    /**
+     * Runs the machine over the provided block repeated the provided number of times.
+     * @see #runToId(CharSequence, long)
+     */
+    public State<E> runMachine(@NotNull CharSequence block, long repetitions) throws InvalidCharacterException{
+        return machine.getState(runToId(block, repetitions));
+    }
+
+    /**
+     * Runs the machine over a run-length encoded string.
+     * @see #runToId(char[], long[])
+     */
+    public State<E> runMachine(@NotNull char[] chars, @NotNull long[] counts) throws InvalidCharacterException{
+        return machine.getState(runToId(chars, counts));
+    }
+
+
+    //////////////
+    // private helpers
+
+    private int columnOf(char c) throws InvalidCharacterException{
+        int column = machine.columnOf(c);
+        if(column < 0){
+            throw new InvalidCharacterException("Character in data is not in alphabet.");
+        }
+        return column;
+    }
+
+    private static void checkCount(long count){
+        if(count < 0){
+            throw new IllegalArgumentException("Invalid number of repetitions " + count + ".");
+        }
+    }
+
+    // the machine must be acquired
+    private int stepBlock(int id, int[] columns){
+        for(int column : columns){
+            id = machine.next(id, column);
+        }
+        return id;
+    }
+
+    // applies the provided map the provided number of times to the provided state, squaring the map in
+    // place once per bit, and stopping early once the state can no longer change
+    private int applyPower(int[] map, int id, long count){
+        int[] square = new int[map.length];
+        while(true){
+            if((count & 1) != 0){
+                id = map[id];
+            }
+            count >>>= 1;
+            if(count == 0 || machine.isAbsorbing(id)){
+                return id;
+            }
+            for(int state = 0; state < map.length; state++){
+                square[state] = map[map[state]];
+            }
+            int[] swap = map;
+            map = square;
+            square = swap;
+        }
+    }
+}
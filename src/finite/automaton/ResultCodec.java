@@ -0,0 +1,61 @@
+package finite.automaton;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the values of states to and from bytes, for storing compiled machines in files.
+ *
+ * @param <E> The type of the values being converted.
+ */
+public interface ResultCodec<E> {
+
+    /**
+     * Returns the bytes representing the provided value, which is never <code>null</code>.
+     * @param value The value being encoded.
+     * @return The encoded value.
+     */
+    byte[] encode(E value);
+
+    /**
+     * Reads a value from the provided buffer, starting at its position.
+     * @param buffer The buffer holding the value, in little-endian order.
+     * @param length The number of bytes of the encoded value.
+     * @return The decoded value.
+     */
+    E decode(ByteBuffer buffer, int length);
+
+
+    /**
+     * Codec for <code>Integer</code> values, as 4 little-endian bytes.
+     */
+    ResultCodec<Integer> INTEGER = new ResultCodec<>() {
+        @Override
+        public byte[] encode(Integer value){
+            int v = value;
+            return new byte[]{(byte) v, (byte) (v >> 8), (byte) (v >> 16), (byte) (v >> 24)};
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer, int length){
+            return buffer.getInt();
+        }
+    };
+
+    /**
+     * Codec for <code>String</code> values, as UTF-8.
+     */
+    ResultCodec<String> STRING = new ResultCodec<>() {
+        @Override
+        public byte[] encode(String value){
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer, int length){
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+}
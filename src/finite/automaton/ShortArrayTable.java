@@ -0,0 +1,46 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+
+/**
+ * A transition table stored in a <code>short</code> array on the heap, for machines of at most
+ * 65536 states, whose ids are stored unsigned.
+ */
+class ShortArrayTable extends TransitionTable {
+
+    private final short[] table;
+
+    ShortArrayTable(int[] table, int stateCount, int columnCount){
+        super(stateCount, columnCount);
+        this.table = new short[table.length];
+        for(int i = 0; i < table.length; i++){
+            this.table[i] = (short) table[i];
+        }
+    }
+
+    @Override
+    int next(int state, int column){
+        return table[state * columnCount + column] & 0xFFFF;
+    }
+
+    @Override
+    long getBytes(){
+        return (long) table.length * Short.BYTES;
+    }
+
+    @Override
+    int run(CompiledFSM<?> machine, CharSequence data, int state) throws InvalidCharacterException{
+        for(int i = 0; i < data.length(); i++){
+            int col = machine.columnOf(data.charAt(i));
+            if(col < 0){
+                throw new InvalidCharacterException("Character in data is not in alphabet.");
+            }
+            state = table[state * columnCount + col] & 0xFFFF;
+            if(machine.isAbsorbing(state)){
+                machine.checkAlphabet(data, i + 1);
+                break;
+            }
+        }
+        return state;
+    }
+}
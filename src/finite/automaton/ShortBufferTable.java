@@ -0,0 +1,33 @@
+package finite.automaton;
+
+import java.nio.ShortBuffer;
+
+/**
+ * A transition table read directly from a <code>ShortBuffer</code>, such as a view of a
+ * memory-mapped file, without being copied onto the heap, for machines of at most
+ * 65536 states, whose ids are stored unsigned.
+ */
+class ShortBufferTable extends TransitionTable {
+
+    private final ShortBuffer table;
+
+    ShortBufferTable(ShortBuffer table, int stateCount, int columnCount){
+        super(stateCount, columnCount);
+        this.table = table;
+    }
+
+    @Override
+    int next(int state, int column){
+        return table.get(state * columnCount + column) & 0xFFFF;
+    }
+
+    @Override
+    long getBytes(){
+        return (long) table.capacity() * Short.BYTES;
+    }
+
+    @Override
+    boolean isOnHeap(){
+        return false;
+    }
+}
@@ -0,0 +1,15 @@
+package finite.automaton;
+
+/**
+ * The run loop of a compiled machine, specialized into code for that one machine.
+ * Implementations are generated at runtime by <code>BytecodeSpecializer</code>.
+ */
+interface SpecializedRunner {
+
+    /**
+     * Runs the machine on the provided data.
+     * @param data The string for the machine to process.
+     * @return The id of the final state, or -1 if the data is not made up of the machine's alphabet.
+     */
+    int run(CharSequence data);
+}
@@ -0,0 +1,207 @@
+package finite.automaton;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Off-heap memory for the transition tables of compiled machines, for machines big enough that a
+ * table on the heap would weigh on the garbage collector. Tables compiled into an arena are stored in
+ * direct buffers, outside of the heap, which the collector never scans or moves, and the machine keeps
+ * only its states on the heap.
+ *
+ * This does not lift the limits of arrays on the machines themselves: an <code>FSM</code> keeps the
+ * transitions of its anonymous states in an array on the heap, so its compiled table never has more
+ * than <code>Integer.MAX_VALUE</code> entries, wherever it is stored.
+ *
+ * An arena has one of two lifetimes. A shared arena can hold the tables of several machines, used
+ * from any number of threads, and frees all of them at once when closed, after which running those
+ * machines throws an <code>IllegalStateException</code>. Reads of its tables are counted while they
+ * last, so runs already under way on other threads when it is closed still finish, and the memory is
+ * only freed once the last of them ends. An automatic arena cannot be closed, and the memory of each
+ * of its tables is freed by the garbage collector once the table is no longer reachable.
+ *
+ * Direct memory is limited by <code>-XX:MaxDirectMemorySize</code>, which defaults to the maximum
+ * size of the heap.
+ */
+public final class TableArena implements AutoCloseable {
+
+    /**
+     * Frees a direct buffer right away, or <code>null</code> if this runtime does not allow it,
+     * in which case closed buffers are freed by the garbage collector.
+     */
+    private static final Method INVOKE_CLEANER;
+
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        }
+        catch(ReflectiveOperationException | RuntimeException e){
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = unsafe;
+    }
+
+    /**
+     * Whether this arena frees its memory when closed, rather than when its tables are collected.
+     */
+    private final boolean closeable;
+
+    /**
+     * The buffers allocated by this arena, if it is closeable.
+     */
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+
+    private volatile boolean open = true;
+
+    /**
+     * The number of reads of the tables of this arena under way, if it is closeable.
+     */
+    private final AtomicInteger readers = new AtomicInteger();
+
+    private boolean freed = false;
+
+    private long bytes;
+
+    private TableArena(boolean closeable){
+        this.closeable = closeable;
+    }
+
+    /**
+     * Returns a new arena, whose tables can be shared by any machines and threads,
+     * and are all freed when it is closed.
+     * @return A new closeable arena.
+     */
+    public static TableArena ofShared(){
+        return new TableArena(true);
+    }
+
+    /**
+     * Returns a new arena that cannot be closed, whose tables are freed by the garbage collector
+     * once they are no longer reachable.
+     * @return A new automatic arena.
+     */
+    public static TableArena ofAuto(){
+        return new TableArena(false);
+    }
+
+    /**
+     * Returns true until this arena is closed.
+     * @return <code>true</code> if the tables of this arena can be read.
+     */
+    public boolean isOpen(){
+        return open;
+    }
+
+    /**
+     * Returns the number of bytes allocated by this arena so far.
+     * @return The size of the tables of this arena, in bytes.
+     */
+    public synchronized long getBytes(){
+        return bytes;
+    }
+
+    /**
+     * Returns a new zeroed direct buffer of the provided size, in native byte order.
+     *
+     * @throws IllegalStateException If this arena is closed.
+     */
+    synchronized ByteBuffer allocate(int size){
+        if(!open){
+            throw new IllegalStateException("Attempting to allocate in closed arena.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        if(closeable){
+            buffers.add(buffer);
+        }
+        bytes += size;
+        return buffer;
+    }
+
+    /**
+     * Starts a read of the tables of this arena, which must be ended by <code>release</code>.
+     * Until then, the tables are not freed, even if the arena is closed.
+     *
+     * @throws IllegalStateException If this arena is closed.
+     */
+    void acquire(){
+        if(!closeable){
+            return;
+        }
+        // counted before checking, so that close either sees this read or is seen by it
+        readers.incrementAndGet();
+        if(!open){
+            release();
+            throw new IllegalStateException("Attempting to read table of closed arena.");
+        }
+    }
+
+    /**
+     * Ends a read started by <code>acquire</code>, freeing the tables if it was the last read
+     * of a closed arena.
+     */
+    void release(){
+        if(closeable && readers.decrementAndGet() == 0 && !open){
+            free();
+        }
+    }
+
+    /**
+     * Frees the tables of this arena, after which the machines using them can no longer run.
+     * Runs already under way keep their tables until they end, and the memory is freed by the last.
+     * Closing an arena that is already closed does nothing.
+     *
+     * @throws UnsupportedOperationException If this is an automatic arena.
+     */
+    @Override
+    public synchronized void close(){
+        if(!closeable){
+            throw new UnsupportedOperationException("Automatic arenas cannot be closed.");
+        }
+        if(!open){
+            return;
+        }
+        open = false;
+        if(readers.get() == 0){
+            free();
+        }
+    }
+
+    // frees the buffers once, by whichever of close and the last read gets here first
+    private synchronized void free(){
+        if(freed){
+            return;
+        }
+        freed = true;
+        for(ByteBuffer buffer : buffers){
+            free(buffer);
+        }
+        buffers.clear();
+    }
+
+    private static void free(ByteBuffer buffer){
+        if(INVOKE_CLEANER == null){
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        }
+        catch(ReflectiveOperationException e){
+            // left to the garbage collector, like on runtimes that do not allow it at all
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.IncompleteMachineException;
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A machine that writes a character on each transition it takes, as well as ending in a state: a
+ * Mealy machine, made of a machine and a function choosing the output of each of its transitions.
+ *
+ * Characters of the same class go to the same states, but may be written as different outputs, so
+ * outputs are kept by symbol of the alphabet rather than by column of the table, in a table of one
+ * character per state and symbol, computed once from the output function. Running writes each output
+ * to a sink as soon as its transition is taken, so nothing is kept of the outputs already written.
+ *
+ * @param <E> The return type for states of the machine.
+ */
+public class Transducer<E> {
+
+    /**
+     * Stands for a transition that writes nothing.
+     */
+    public static final char NO_OUTPUT = '\uFFFF';
+
+    /**
+     * Chooses the output of each transition.
+     * @param <E> The return type for states of the machine.
+     */
+    public interface OutputFunction<E> {
+
+        /**
+         * Returns the character written when the provided character is read in the provided state,
+         * or <code>NO_OUTPUT</code> if nothing is written.
+         */
+        char output(State<E> from, char c);
+    }
+
+    /**
+     * Receives the outputs of a run, in order.
+     */
+    public interface OutputSink {
+        void emit(char c);
+    }
+
+    /**
+     * The compiled machine being run.
+     */
+    private final CompiledFSM<E> machine;
+
+    /**
+     * The alphabet of the machine, whose indices are the columns of the output table.
+     */
+    private final Alphabet alphabet;
+
+    /**
+     * The output of each transition, at <code>id * alphabet.size() + symbol</code>.
+     */
+    private final char[] outputs;
+
+
+    ////////////////////////
+    // constructors
+
+    /**
+     * Constructs a transducer of the provided machine, compiling it.
+     * @see #Transducer(CompiledFSM, OutputFunction)
+     */
+    public Transducer(@NotNull FSM<E> machine, @NotNull OutputFunction<E> outputs)
+            throws IncompleteMachineException{
+        this(machine.compile(), outputs);
+    }
+
+    /**
+     * Constructs a transducer of the provided compiled machine, with the outputs chosen by the provided
+     * function, which is asked once for every state and character of the alphabet, the null state
+     * excepted, which writes nothing.
+     *
+     * @param machine The machine being run.
+     * @param outputs The function choosing the output of each transition.
+     * @throws IllegalArgumentException If the machine is too big for its outputs to fit in an array.
+     */
+    public Transducer(@NotNull CompiledFSM<E> machine, @NotNull OutputFunction<E> outputs){
+        this.machine = machine;
+        this.alphabet = machine.getAlphabetIndex();
+        int symbols = alphabet.size();
+        if((long) machine.getStateCount() * symbols > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("Machine of " + machine.getStateCount()
+                    + " states is too big to have outputs.");
+        }
+
+        this.outputs = new char[machine.getStateCount() * symbols];
+        for(int id = 0; id < machine.getStateCount(); id++){
+            State<E> state = id == CompiledFSM.NULL_ID ? null : machine.getState(id);
+            for(int symbol = 0; symbol < symbols; symbol++){
+                this.outputs[id * symbols + symbol] = state == null ? NO_OUTPUT
+                        : outputs.output(state, (char) alphabet.symbolAt(symbol));
+            }
+        }
+    }
+
+
+    //////////////
+    // getters
+
+    public CompiledFSM<E> getMachine(){
+        return machine;
+    }
+
+    /**
+     * Returns the character written when the provided character is read in the state with the
+     * provided id.
+     *
+     * @param id The id of the state the character is read in.
+     * @param c The character read.
+     * @return The output of the transition, or <code>NO_OUTPUT</code> if it writes nothing.
+     * @throws InvalidCharacterException If the character is not in the machine's alphabet.
+     */
+    public char getOutput(int id, char c) throws InvalidCharacterException{
+        int symbol = alphabet.indexOf(c);
+        if(symbol < 0){
+            throw new InvalidCharacterException("Character is not in alphabet.");
+        }
+        return outputs[id * alphabet.size() + symbol];
+    }
+
+
+    ////////////////////////
+    // functionality
+
+    /**
+     * Runs the machine on the provided data from the state with the provided id, writing the output of
+     * each transition to the provided sink, and returns the id of the state reached. Long inputs can be
+     * run a chunk at a time, each chunk from the state the last one reached.
+     *
+     * If a character is not in the alphabet, the outputs of the characters before it are still written.
+     *
+     * @param id The id of the state the run starts from.
+     * @param data The string for the machine to process.
+     * @param sink The sink the outputs are written to.
+     * @return The id of the state reached.
+     * @throws InvalidCharacterException If the string is not made up of this machine's alphabet.
+     */
+    public int run(int id, @NotNull CharSequence data, @NotNull OutputSink sink) throws InvalidCharacterException{
+        int symbols = alphabet.size();
+        int length = data.length();
+        machine.acquire();
+        try {
+            for(int i = 0; i < length; i++){
+                int symbol = alphabet.indexOf(data.charAt(i));
+                if(symbol < 0){
+                    throw new InvalidCharacterException("Character in data is not in alphabet.");
+                }
+                char output = outputs[id * symbols + symbol];
+                if(output != NO_OUTPUT){
+                    sink.emit(output);
+                }
+                id = machine.next(id, machine.classOf(symbol));
+            }
+        }
+        finally{
+            machine.release();
+        }
+        return id;
+    }
+
+    /**
+     * Runs the machine on the provided data, writing the output of each transition to the provided
+     * sink, and returns the id of the final state.
+     * @see #run(int, CharSequence, OutputSink)
+     */
+    public int runToId(@NotNull CharSequence data, @NotNull OutputSink sink) throws InvalidCharacterException{
+        return run(machine.getInitId(), data, sink);
+    }
+
+    /**
+     * Runs the machine on the provided data, writing the output of each transition to the provided
+     * sink, and returns the final state. Ends in the same state as <code>FSM.runMachine</code> on the
+     * machine this was made from.
+     * @see #run(int, CharSequence, OutputSink)
+     */
+    public State<E> runMachine(@NotNull CharSequence data, @NotNull OutputSink sink) throws InvalidCharacterException{
+        return machine.getState(runToId(data, sink));
+    }
+}
@@ -0,0 +1,108 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+
+/**
+ * The storage of the transitions of a compiled machine: a table with one row per state
+ * and one column per character class, holding the id of the next state.
+ *
+ * Tables that store their entries in an array have their own run loop, reading the array
+ * directly, so that the loop over each character does not go through <code>next</code>.
+ */
+abstract class TransitionTable {
+
+    protected final int stateCount;
+
+    protected final int columnCount;
+
+    TransitionTable(int stateCount, int columnCount){
+        this.stateCount = stateCount;
+        this.columnCount = columnCount;
+    }
+
+    /**
+     * Returns the size of an entry of a dense table of the provided number of states, in bytes:
+     * the narrowest of 1, 2 or 4 that fits every state id.
+     */
+    static int denseWidth(int stateCount){
+        return stateCount <= 1 << Byte.SIZE ? Byte.BYTES : stateCount <= 1 << Short.SIZE ? Short.BYTES : Integer.BYTES;
+    }
+
+    /**
+     * Returns the provided dense table in the narrowest array its state ids fit in.
+     */
+    static TransitionTable ofDense(int[] table, int stateCount, int columnCount){
+        switch(denseWidth(stateCount)){
+            case Byte.BYTES:
+                return new ByteArrayTable(table, stateCount, columnCount);
+            case Short.BYTES:
+                return new ShortArrayTable(table, stateCount, columnCount);
+            default:
+                return new IntArrayTable(table, stateCount, columnCount);
+        }
+    }
+
+    int getStateCount(){
+        return stateCount;
+    }
+
+    int getColumnCount(){
+        return columnCount;
+    }
+
+    /**
+     * Starts a stretch of reads of this table, ended by <code>release</code>, within which the memory
+     * of the table is not freed. Only tables whose memory can be freed while they are still reachable
+     * need it, and for the others it does nothing.
+     *
+     * @throws IllegalStateException If the memory of this table was freed.
+     */
+    void acquire(){
+    }
+
+    /**
+     * Ends a stretch of reads started by <code>acquire</code>.
+     */
+    void release(){
+    }
+
+    /**
+     * Returns the id of the state reached from the provided state through the provided column.
+     * The table must be acquired, for as long as the loop calling this lasts rather than per call.
+     */
+    abstract int next(int state, int column);
+
+    /**
+     * Returns the number of bytes taken by the entries of this table.
+     */
+    abstract long getBytes();
+
+    /**
+     * Returns true if the entries of this table are on the heap.
+     */
+    boolean isOnHeap(){
+        return true;
+    }
+
+    /**
+     * Runs the provided machine, whose table this is, over the provided data from the provided state,
+     * and returns the id of the final state. Once an absorbing state is reached, the rest of the data
+     * is only checked against the alphabet.
+     *
+     * @throws InvalidCharacterException If the string is not made up of the machine's alphabet.
+     */
+    int run(CompiledFSM<?> machine, CharSequence data, int state) throws InvalidCharacterException{
+        for(int i = 0; i < data.length(); i++){
+            int col = machine.columnOf(data.charAt(i));
+            if(col < 0){
+                throw new InvalidCharacterException("Character in data is not in alphabet.");
+            }
+            state = next(state, col);
+            if(machine.isAbsorbing(state)){
+                machine.checkAlphabet(data, i + 1);
+                break;
+            }
+        }
+        return state;
+    }
+}
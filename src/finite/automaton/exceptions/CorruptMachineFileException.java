@@ -0,0 +1,14 @@
+package finite.automaton.exceptions;
+
+
+import java.io.IOException;
+
+/**
+ * Exception class used for whenever a compiled machine file was about to be loaded,
+ * but is not a valid machine file, was written by an unsupported version, or is damaged.
+ */
+public class CorruptMachineFileException extends IOException {
+    public CorruptMachineFileException(String msg){
+        super(msg);
+    }
+}
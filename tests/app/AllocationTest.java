@@ -0,0 +1,85 @@
+package app;
+
+import finite.automaton.CompiledFSM;
+import finite.automaton.FSM;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static finite.automaton.AllocationMeter.assertAllocatesNothing;
+
+/**
+ * Checks that the modulo engines allocate nothing per number, past what their callers provide.
+ */
+public class AllocationTest extends TestCase {
+
+    private static volatile long sink;
+
+    // lengths on both sides of the block size of the alphabet validator, and past its last full block
+    private static final int[] LENGTHS = {60, 64, 4096, 5000};
+
+
+    //////////////
+    // private helpers
+
+    private static String randomNumber(int base, int length, long seed){
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(length);
+        for(int i = 0; i < length; i++){
+            builder.append(Character.forDigit(random.nextInt(base), base));
+        }
+        return builder.toString();
+    }
+
+
+    //////////////
+    // engine tests
+
+    @Test
+    public void testEngines(){
+        ModuloEngine table = new TableModuloEngine(10, 997, 2);
+        ModuloEngine crt = ModuloFSMFactory.makeCRTModuloMachine(10, 720_720);
+        ChunkedModuloEvaluator chunked = ModuloFSMFactory.makeChunkedModuloEvaluator(10, 1_000_000_007L);
+        MultiResidueEngine multi = ModuloFSMFactory.makeMultiResidueEngine(10, 2, 40);
+        int[] residues = new int[multi.getModuli().length];
+        SlidingWindowResidues windows = ModuloFSMFactory.makeSlidingWindowResidues(10, 1_000_000_007, 12);
+
+        for(int length : LENGTHS){
+            String number = randomNumber(10, length, 43);
+            byte[] bytes = number.getBytes();
+            assertAllocatesNothing("table engine of " + length, () -> sink += table.residue(number));
+            assertAllocatesNothing("CRT engine of " + length, () -> sink += crt.residue(number));
+            assertAllocatesNothing("chunked evaluator of " + length, () -> sink += chunked.residue(number));
+            assertAllocatesNothing("chunked evaluator over bytes of " + length,
+                    () -> sink += chunked.residue(bytes));
+            assertAllocatesNothing("multi-residue engine of " + length, () -> {
+                multi.residues(number, residues);
+                sink += residues[0];
+            });
+            int[] windowResidues = new int[number.length()];
+            assertAllocatesNothing("sliding window residues of " + length, () -> {
+                windows.feed(number, windowResidues, 0);
+                sink += windowResidues[0];
+            });
+        }
+    }
+
+    @Test
+    public void testModuloFSM(){
+        try {
+            FSM<Integer> machine = ModuloFSMFactory.makeModuloFSM(36, 1_000_003);
+            CompiledFSM<Integer> compiled = machine.compile();
+            for(int length : LENGTHS){
+                String number = randomNumber(36, length, 43);
+                assertAllocatesNothing("modulo machine of " + length,
+                        () -> sink += machine.runMachine(number).getValue());
+                assertAllocatesNothing("compiled modulo machine of " + length,
+                        () -> sink += compiled.runMachine(number).getValue());
+            }
+        }
+        catch(Exception e){
+            fail("Could not compile machine: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package app;
+
+import finite.automaton.FSM;
+import finite.automaton.exceptions.InvalidCharacterException;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThrows;
+
+public class CRTModuloMachineTest extends TestCase {
+    private final static int MAX_MODULO = 130;
+    private final static int MAX_BASE = Character.MAX_RADIX;
+    private final static int UPPER_BOUND = 2 * MAX_BASE * MAX_BASE;
+    private final static int[] LARGE_MODULI = {1_000_000, 999_999, 1_000_001, 720_720, 65_536,
+            2_147_483_647, 1 << 30, 2 * 3 * 5 * 7 * 11 * 13 * 17 * 19 * 23};
+
+
+    //////////////
+    // private helpers
+
+    private static String randomNumber(Random random, int base, int length){
+        StringBuilder builder = new StringBuilder(length);
+        for(int i = 0; i < length; i++){
+            builder.append(Character.forDigit(random.nextInt(base), base));
+        }
+        return builder.toString();
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testMatchesModuloFSM(){
+        try {
+            for (int modulo = 2; modulo < MAX_MODULO; modulo += 3) {
+                for (int base = 2; base <= MAX_BASE; base++) {
+                    FSM<Integer> machine = ModuloFSMFactory.makeModuloFSM(base, modulo);
+                    CRTModuloMachine crt = ModuloFSMFactory.makeCRTModuloMachine(base, modulo);
+                    assertNotNull(machine);
+                    assertNotNull(crt);
+
+                    for (int num = 0; num <= UPPER_BOUND; num += 7) {
+                        String numString = Integer.toUnsignedString(num, base);
+                        assertEquals(machine.runMachine(numString).getStateResult().intValue(),
+                                crt.residue(numString));
+                    }
+                    assertEquals(0, crt.residue(""));
+                }
+            }
+        }
+        catch(Exception e){
+            fail("Failed to process all test cases: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLargeModuliMatchBigInteger(){
+        Random random = new Random(27);
+        try {
+            for (int modulo : LARGE_MODULI) {
+                for (int base : new int[]{2, 10, 16, 36}) {
+                    CRTModuloMachine crt = ModuloFSMFactory.makeCRTModuloMachine(base, modulo);
+                    assertNotNull(crt);
+                    for (int length : new int[]{1, 5, 40, 300}) {
+                        String numString = randomNumber(random, base, length);
+                        int expected = new BigInteger(numString, base)
+                                .mod(BigInteger.valueOf(modulo)).intValue();
+                        assertEquals(expected, crt.residue(numString));
+                    }
+                }
+            }
+        }
+        catch(Exception e){
+            fail("Failed to process all test cases: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDecomposition(){
+        // 10^6 = 2^6 * 5^6, both of which divide powers of 10, so only 6 digits are needed
+        CRTModuloMachine powerOfBase = ModuloFSMFactory.makeCRTModuloMachine(10, 1_000_000);
+        assertNotNull(powerOfBase);
+        assertEquals(1_000_000, powerOfBase.getTailModulus());
+        assertEquals(6, powerOfBase.getTailLength());
+        assertEquals(0, powerOfBase.getGroupModuli().length);
+
+        // 720720 = 2^4 * 3^2 * 5 * 7 * 11 * 13: the 2^4 * 5 part needs the last 4 digits
+        CRTModuloMachine mixed = ModuloFSMFactory.makeCRTModuloMachine(10, 720_720);
+        assertNotNull(mixed);
+        assertEquals(80, mixed.getTailModulus());
+        assertEquals(4, mixed.getTailLength());
+        int product = 1;
+        for(int modulus : mixed.getGroupModuli()){
+            product *= modulus;
+        }
+        assertEquals(9 * 7 * 11 * 13, product);
+
+        // a prime coprime with the base is a single group
+        CRTModuloMachine prime = ModuloFSMFactory.makeCRTModuloMachine(10, 7);
+        assertNotNull(prime);
+        assertEquals(1, prime.getTailModulus());
+        assertArrayEquals(new int[]{7}, prime.getGroupModuli());
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalidMachines(){
+        assertNull(ModuloFSMFactory.makeCRTModuloMachine(1, 7));
+        assertNull(ModuloFSMFactory.makeCRTModuloMachine(MAX_BASE + 1, 7));
+        assertNull(ModuloFSMFactory.makeCRTModuloMachine(10, 1));
+    }
+
+    @Test
+    public void testInvalidCharacters(){
+        CRTModuloMachine crt = ModuloFSMFactory.makeCRTModuloMachine(10, 1_000_000);
+        assertNotNull(crt);
+        // invalid characters are caught even outside the trailing digits
+        for(String s : new String[]{"a", "12a4567890", "1234567890A", "-1", "\u0663"}){
+            assertThrows(InvalidCharacterException.class, () -> crt.residue(s));
+        }
+    }
+}
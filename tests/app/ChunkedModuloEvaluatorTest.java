@@ -0,0 +1,129 @@
+package app;
+
+import finite.automaton.FSM;
+import finite.automaton.exceptions.InvalidCharacterException;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class ChunkedModuloEvaluatorTest extends TestCase {
+    private final static int MAX_MODULO = 60;
+    private final static int MAX_BASE = Character.MAX_RADIX;
+    private final static int UPPER_BOUND = 2 * MAX_BASE * MAX_BASE;
+    private final static long[] LARGE_MODULI = {3, 1_000_000_007L, (1L << 31) - 1, 1L << 31,
+            (1L << 31) + 1, 999_999_999_989L, (1L << 61) - 1, (1L << 62) - 57, (1L << 62) - 1, 1L << 62};
+
+
+    //////////////
+    // private helpers
+
+    private static String randomNumber(Random random, int base, int length){
+        StringBuilder builder = new StringBuilder(length);
+        for(int i = 0; i < length; i++){
+            builder.append(Character.forDigit(random.nextInt(base), base));
+        }
+        return builder.toString();
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testMatchesModuloFSM(){
+        try {
+            for (int modulo = 2; modulo < MAX_MODULO; modulo++) {
+                for (int base = 2; base <= MAX_BASE; base++) {
+                    FSM<Integer> machine = ModuloFSMFactory.makeModuloFSM(base, modulo);
+                    ChunkedModuloEvaluator evaluator =
+                            ModuloFSMFactory.makeChunkedModuloEvaluator(base, modulo);
+                    assertNotNull(machine);
+                    assertNotNull(evaluator);
+
+                    for (int num = 0; num <= UPPER_BOUND; num += 11) {
+                        String numString = Integer.toUnsignedString(num, base);
+                        long expected = machine.runMachine(numString).getStateResult();
+                        assertEquals(expected, evaluator.residue(numString));
+                        assertEquals(expected, evaluator.residue(numString.getBytes(StandardCharsets.US_ASCII)));
+                    }
+                }
+            }
+        }
+        catch(Exception e){
+            fail("Failed to process all test cases: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLargeModuliMatchBigInteger(){
+        Random random = new Random(29);
+        try {
+            for (long modulo : LARGE_MODULI) {
+                for (int base = 2; base <= MAX_BASE; base++) {
+                    ChunkedModuloEvaluator evaluator =
+                            ModuloFSMFactory.makeChunkedModuloEvaluator(base, modulo);
+                    assertNotNull(evaluator);
+                    for (int length : new int[]{1, 8, 15, 16, 17, 33, 200}) {
+                        String numString = randomNumber(random, base, length);
+                        long expected = new BigInteger(numString, base)
+                                .mod(BigInteger.valueOf(modulo)).longValueExact();
+                        assertEquals(expected, evaluator.residue(numString));
+                        assertEquals(expected, evaluator.residue(numString.getBytes(StandardCharsets.US_ASCII)));
+                    }
+                }
+            }
+        }
+        catch(Exception e){
+            fail("Failed to process all test cases: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testByteRange(){
+        byte[] data = "xx12345678901234567890xx".getBytes(StandardCharsets.US_ASCII);
+        ChunkedModuloEvaluator evaluator = ModuloFSMFactory.makeChunkedModuloEvaluator(10, 97);
+        assertNotNull(evaluator);
+        try {
+            assertEquals(new BigInteger("12345678901234567890").mod(BigInteger.valueOf(97)).longValue(),
+                    evaluator.residue(data, 2, data.length - 2));
+            assertEquals(0, evaluator.residue(data, 5, 5));
+        }
+        catch(Exception e){
+            fail("Could not evaluate range: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalidEvaluators(){
+        assertNull(ModuloFSMFactory.makeChunkedModuloEvaluator(1, 7));
+        assertNull(ModuloFSMFactory.makeChunkedModuloEvaluator(MAX_BASE + 1, 7));
+        assertNull(ModuloFSMFactory.makeChunkedModuloEvaluator(10, 1));
+        assertNull(ModuloFSMFactory.makeChunkedModuloEvaluator(10, (1L << 62) + 1));
+    }
+
+    @Test
+    public void testInvalidCharacters(){
+        // each invalid character is placed both inside and outside a SWAR word
+        String[] invalid = {"/", ":", "8", "A", "a", " ", "\u00b9", "\u0663"};
+        for(long modulo : new long[]{7, 1L << 40, (1L << 40) + 1}) {
+            ChunkedModuloEvaluator evaluator = ModuloFSMFactory.makeChunkedModuloEvaluator(8, modulo);
+            assertNotNull(evaluator);
+            for (String c : invalid) {
+                for (String s : new String[]{c, "1234567" + c + "01234567", "0123456701234567" + c}) {
+                    assertThrows(InvalidCharacterException.class, () -> evaluator.residue(s));
+                    assertThrows(InvalidCharacterException.class,
+                            () -> evaluator.residue(s.getBytes(StandardCharsets.UTF_8)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package app;
+
+import finite.automaton.Transducer;
+import finite.automaton.exceptions.InvalidCharacterException;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class DivisionTransducerTest extends TestCase {
+    private final static int[] BASES = {2, 3, 10, 16, 36};
+    private final static int[] MODULI = {2, 3, 7, 12, 40, 97, 1000, 65_536};
+
+
+    //////////////
+    // private helpers
+
+    private static String randomNumber(Random random, int base, int length){
+        StringBuilder builder = new StringBuilder(length);
+        for(int i = 0; i < length; i++){
+            builder.append(Character.forDigit(random.nextInt(base), base));
+        }
+        return builder.toString();
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testDivision(){
+        Random random = new Random(50);
+        for(int base : BASES){
+            for(int modulo : MODULI){
+                Transducer<Integer> transducer = ModuloFSMFactory.makeDivisionTransducer(base, modulo);
+                assertNotNull(transducer);
+                for(int i = 0; i < 20; i++){
+                    String number = randomNumber(random, base, random.nextInt(80));
+                    BigInteger[] expected = (number.isEmpty() ? BigInteger.ZERO : new BigInteger(number, base))
+                            .divideAndRemainder(BigInteger.valueOf(modulo));
+                    StringBuilder quotient = new StringBuilder();
+                    try {
+                        int remainder = transducer.runMachine(number, quotient::append).getValue();
+                        assertEquals(expected[1].intValue(), remainder);
+                    }
+                    catch(InvalidCharacterException e){
+                        fail("Could not divide number: " + e.getMessage());
+                    }
+                    // one digit per digit, leading zeros included
+                    assertEquals(number.length(), quotient.length());
+                    if(!number.isEmpty()){
+                        assertEquals(expected[0], new BigInteger(quotient.toString(), base));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUpperCaseDigits(){
+        Transducer<Integer> transducer = ModuloFSMFactory.makeDivisionTransducer(16, 7);
+        StringBuilder quotient = new StringBuilder();
+        try {
+            assertEquals(0xFACE % 7, (int) transducer.runMachine("FaCe", quotient::append).getValue());
+        }
+        catch(InvalidCharacterException e){
+            fail("Could not divide number: " + e.getMessage());
+        }
+        assertEquals(0xFACE / 7, Integer.parseInt(quotient.toString(), 16));
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalid(){
+        assertNull(ModuloFSMFactory.makeDivisionTransducer(1, 7));
+        assertNull(ModuloFSMFactory.makeDivisionTransducer(10, 1));
+        Transducer<Integer> transducer = ModuloFSMFactory.makeDivisionTransducer(10, 7);
+        assertThrows(InvalidCharacterException.class, () -> transducer.runToId("12a", c -> {}));
+    }
+}
@@ -0,0 +1,97 @@
+package app;
+
+import finite.automaton.FSM;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+public class ModuloFSMCacheTest extends TestCase {
+
+    @Test
+    public void testFactoryCache(){
+        ModuloFSMCache cache = ModuloFSMFactory.getCache();
+        cache.clear();
+        FSM<Integer> machine = ModuloFSMFactory.getCachedModuloFSM(10, 7);
+        assertNotNull(machine);
+        assertSame(machine, ModuloFSMFactory.getCachedModuloFSM(10, 7));
+        assertEquals(1, cache.size());
+        assertEquals(machine.getFootprint().getHeapBytes(), cache.getWeight());
+        assertEquals(cache.getWeight(), cache.getFootprint(10, 7).getHeapBytes());
+
+        assertNull(ModuloFSMFactory.getCachedModuloFSM(1, 7));
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testWeightBound(){
+        FSM<Integer> small = ModuloFSMFactory.makeModuloFSM(10, 10);
+        FSM<Integer> medium = ModuloFSMFactory.makeModuloFSM(10, 1000);
+        FSM<Integer> large = ModuloFSMFactory.makeModuloFSM(10, 100_000);
+        // cached machines are weighed with all of their views
+        small.makeAnonymousViews();
+        medium.makeAnonymousViews();
+        large.makeAnonymousViews();
+        long smallWeight = small.getFootprint().getHeapBytes();
+        long mediumWeight = medium.getFootprint().getHeapBytes();
+        long largeWeight = large.getFootprint().getHeapBytes();
+
+        ModuloFSMCache cache = new ModuloFSMCache(2 * mediumWeight);
+        assertTrue(cache.put(10, 10, small));
+        assertTrue(cache.put(10, 1000, medium));
+        assertEquals(smallWeight + mediumWeight, cache.getWeight());
+        // too heavy to ever be cached
+        assertFalse(cache.put(10, 100_000, large));
+        assertNull(cache.get(10, 100_000));
+
+        // the least recently used machine goes first
+        assertSame(small, cache.get(10, 10));
+        assertTrue(cache.put(10, 1001, ModuloFSMFactory.makeModuloFSM(10, 1001)));
+        assertNull(cache.get(10, 1000));
+        assertSame(small, cache.get(10, 10));
+        assertTrue(cache.getWeight() <= cache.getMaxWeight());
+
+        cache.setMaxWeight(smallWeight);
+        assertEquals(1, cache.size());
+        assertSame(small, cache.get(10, 10));
+        assertEquals(smallWeight, cache.getWeight());
+        assertTrue(largeWeight > mediumWeight);
+    }
+
+    @Test
+    public void testWeightAfterRuns(){
+        ModuloFSMCache cache = new ModuloFSMCache(Long.MAX_VALUE);
+        FSM<Integer> machine = ModuloFSMFactory.makeModuloFSM(10, 10_007);
+        assertTrue(cache.put(10, 10_007, machine));
+        long weight = cache.getWeight();
+        try {
+            // every residue is reached, so every state is handed out
+            for(int i = 0; i < 10_007; i++){
+                assertEquals(i, (int) cache.get(10, 10_007).runMachine(Integer.toString(i)).getValue());
+            }
+        }
+        catch(Exception e){
+            fail("Could not run cached machine: " + e.getMessage());
+        }
+        assertEquals(weight, cache.getWeight());
+        assertEquals(machine.getFootprint().getHeapBytes(), cache.getWeight());
+        assertEquals(cache.getWeight(), cache.getFootprint(10, 10_007).getHeapBytes());
+    }
+
+    @Test
+    public void testFootprintLookup(){
+        ModuloFSMCache cache = new ModuloFSMCache(Long.MAX_VALUE);
+        FSM<Integer> first = ModuloFSMFactory.makeModuloFSM(10, 7);
+        FSM<Integer> second = ModuloFSMFactory.makeModuloFSM(10, 11);
+        cache.put(10, 7, first);
+        cache.put(10, 11, second);
+        assertNull(cache.getFootprint(7, 10));
+        assertEquals(first.getFootprint().getHeapBytes(), cache.getFootprint(10, 7).getHeapBytes());
+
+        // looking up the footprint does not count as using the machine
+        cache.setMaxWeight(cache.getWeight() - 1);
+        assertNull(cache.get(10, 7));
+        assertNull(cache.getFootprint(10, 7));
+        assertSame(second, cache.get(10, 11));
+    }
+}
@@ -1,10 +1,15 @@
 package app;
 
+import finite.automaton.BitPackedRunner;
+import finite.automaton.CompiledFSM;
 import finite.automaton.FSM;
 import finite.automaton.state.State;
 import junit.framework.TestCase;
 import org.junit.Test;
 
+import java.math.BigInteger;
+import java.util.Random;
+
 import static finite.automaton.state.StateValueChecker.checkWholeStateFinal;
 
 public class ModuloFSMTest extends TestCase {
@@ -75,6 +80,81 @@ public class ModuloFSMTest extends TestCase {
     }
 
 
+    @Test
+    public void testUpperCaseDigits(){
+        for(int base = 11; base <= MAX_BASE; base += 5){
+            FSM<Integer> machine = ModuloFSMFactory.makeModuloFSM(base, 7);
+            ChunkedModuloEvaluator evaluator = ModuloFSMFactory.makeChunkedModuloEvaluator(base, 7);
+            assertNotNull(machine);
+            assertNotNull(evaluator);
+            // machines of the same base share a single alphabet
+            assertSame(machine.getAlphabetIndex(), ModuloFSMFactory.makeModuloFSM(base, 11).getAlphabetIndex());
+            try {
+                for(int num = 0; num <= UPPER_BOUND; num++){
+                    String numString = Integer.toUnsignedString(num, base).toUpperCase();
+                    assertIntegerValueEquals(num % 7, machine.runMachine(numString).getStateResult());
+                    assertEquals(num % 7, evaluator.residue(numString));
+                }
+            }
+            catch(Exception e){
+                fail("Failed to process upper case digits: " + e.getMessage());
+            }
+        }
+    }
+
+
+    @Test
+    public void testLeastSignificantFirstMachines(){
+        Random random = new Random(49);
+        for(int base : new int[]{2, 3, 10, 16, 36}){
+            for(int modulo : new int[]{2, 7, 12, 40, 97, 1000}){
+                FSM<Integer> forward = ModuloFSMFactory.makeModuloFSM(base, modulo);
+                FSM<Integer> backward = ModuloFSMFactory.makeModuloFSM(base, modulo, true);
+                assertNotNull(backward);
+                try {
+                    CompiledFSM<Integer> compiled = backward.compile();
+                    for(int i = 0; i < 50; i++){
+                        StringBuilder number = new StringBuilder();
+                        for(int j = random.nextInt(60); j > 0; j--){
+                            number.append(Character.forDigit(random.nextInt(base), base));
+                        }
+                        int expected = forward.runMachine(number.toString()).getValue();
+                        String reversed = number.reverse().toString();
+                        assertIntegerValueEquals(expected, backward.runMachine(reversed).getValue());
+                        assertIntegerValueEquals(expected, compiled.runMachine(reversed).getValue());
+                    }
+                }
+                catch(Exception e){
+                    fail("Failed to run least significant digit first: " + e.getMessage());
+                }
+            }
+        }
+        // powers of 10 modulo 1000 are 1, 10, 100, then 0 for good
+        assertEquals(4 * 1000, ModuloFSMFactory.makeModuloFSM(10, 1000, true).getAnonymousStateCount());
+        assertSame(ModuloFSMFactory.makeModuloFSM(10, 7, false).getAlphabetIndex(),
+                ModuloFSMFactory.makeModuloFSM(10, 7).getAlphabetIndex());
+        assertNull(ModuloFSMFactory.makeModuloFSM(10, 1, true));
+    }
+
+    @Test
+    public void testBitPackedMachines(){
+        Random random = new Random(48);
+        for(int base = 2; base <= MAX_BASE; base *= 2){
+            for(int modulo : new int[]{3, 64, 1000}){
+                BitPackedRunner<Integer> runner = ModuloFSMFactory.makeBitPackedRunner(base, modulo);
+                assertNotNull(runner);
+                for(int i = 0; i < 20; i++){
+                    BigInteger number = new BigInteger(random.nextInt(200), random);
+                    assertIntegerValueEquals(number.mod(BigInteger.valueOf(modulo)).intValue(),
+                            runner.runMachine(number).getValue());
+                }
+            }
+        }
+        assertNull(ModuloFSMFactory.makeBitPackedRunner(10, 7));
+        assertNull(ModuloFSMFactory.makeBitPackedRunner(2, 1));
+    }
+
+
     //////////////
     // invalid tests
 
@@ -0,0 +1,131 @@
+package app;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static finite.automaton.AllocationMeter.assertAllocatesAtMost;
+
+public class ModuloPlannerTest extends TestCase {
+    private final static int[] BASES = {2, 3, 10, 16, 36};
+    private final static int[] MODULI = {2, 7, 97, 256, 257, 1000, 65_536, 65_537, 720_720, 1_000_000};
+    private final static long[] LENGTHS = {0, 1_000, 1_000_000_000L};
+    private final static long[] BUDGETS = {0, 64 * 1024, 1L << 30};
+
+
+    //////////////
+    // private helpers
+
+    private static void checkEngine(ModuloEngine engine, int base, int modulo, Random random){
+        try {
+            assertEquals(0, engine.residue(""));
+            for (int length : new int[]{1, 5, 20, 101}) {
+                StringBuilder builder = new StringBuilder(length);
+                for (int i = 0; i < length; i++) {
+                    builder.append(Character.forDigit(random.nextInt(base), base));
+                }
+                int expected = new BigInteger(builder.toString(), base)
+                        .mod(BigInteger.valueOf(modulo)).intValue();
+                assertEquals(expected, engine.residue(builder));
+            }
+        }
+        catch(Exception e){
+            fail("Engine failed to process all test cases: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testAllPlansAreCorrect(){
+        Random random = new Random(30);
+        for(int base : BASES){
+            for(int modulo : MODULI){
+                for(long length : LENGTHS){
+                    for(long budget : BUDGETS){
+                        ModuloPlanner.Plan plan = ModuloFSMFactory.planModuloEngine(base, modulo, length, budget);
+                        assertNotNull(plan);
+                        assertNotNull(plan.getKind());
+                        assertFalse(plan.getReason().isEmpty());
+                        checkEngine(plan.getEngine(), base, modulo, random);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTableEngines(){
+        Random random = new Random(30);
+        for(int base : BASES){
+            for(int modulo : new int[]{2, 255, 256, 257, 65_536, 65_537}){
+                for(int stride = 1; TableModuloEngine.tableBytes(base, modulo, stride) >= 0
+                        && TableModuloEngine.tableBytes(base, modulo, stride) <= 1 << 24; stride++){
+                    TableModuloEngine engine = new TableModuloEngine(base, modulo, stride);
+                    assertEquals(stride, engine.getStride());
+                    assertEquals(TableModuloEngine.tableBytes(base, modulo, stride), engine.getTableBytes());
+                    checkEngine(engine, base, modulo, random);
+                }
+            }
+        }
+        assertEquals(Byte.BYTES, new TableModuloEngine(10, 256, 1).getWidth());
+        assertEquals(Short.BYTES, new TableModuloEngine(10, 257, 1).getWidth());
+        assertEquals(Integer.BYTES, new TableModuloEngine(10, 65_537, 1).getWidth());
+    }
+
+    @Test
+    public void testChoices(){
+        // no memory means no tables
+        assertEquals(ModuloPlanner.EngineKind.ARITHMETIC,
+                ModuloFSMFactory.planModuloEngine(10, 7, 1_000_000_000L, 0).getKind());
+        // nothing to read means nothing is worth building
+        assertEquals(ModuloPlanner.EngineKind.ARITHMETIC,
+                ModuloFSMFactory.planModuloEngine(10, 7, 0, 1L << 30).getKind());
+        // a power of the base only needs its last few digits
+        assertEquals(ModuloPlanner.EngineKind.CRT,
+                ModuloFSMFactory.planModuloEngine(10, 1_000_000, 1_000_000_000L, 1L << 30).getKind());
+        // small tables read several digits per lookup on long inputs
+        assertEquals(ModuloPlanner.EngineKind.STRIDE_TABLE,
+                ModuloFSMFactory.planModuloEngine(10, 7, 1_000_000_000L, 1L << 30).getKind());
+        // a table that fits nowhere in cache loses to arithmetic
+        assertEquals(ModuloPlanner.EngineKind.ARITHMETIC,
+                ModuloFSMFactory.planModuloEngine(36, 2_147_483_629, 1_000_000_000L, 1L << 30).getKind());
+    }
+
+    @Test
+    public void testBudgetBoundsPlanning(){
+        // a large prime splits into a single group, whose 40 MB table is never worth making, let alone
+        // under a budget of a kilobyte
+        ModuloPlanner planner = new ModuloPlanner();
+        assertEquals(ModuloPlanner.EngineKind.ARITHMETIC, planner.plan(10, 1_000_003, 10, 1024).getKind());
+        assertAllocatesAtMost("planning a large prime", 16 * 1024,
+                () -> planner.plan(10, 1_000_003, 10, 1024).getEngine());
+        // tables are sized without being made, to the same size as when made
+        assertEquals(40_000_120L, CRTModuloMachine.tableBytes(10, 1_000_003));
+        assertEquals(new CRTModuloMachine(10, 720_720).getTableBytes(), CRTModuloMachine.tableBytes(10, 720_720));
+    }
+
+    @Test
+    public void testAdjustedThresholds(){
+        ModuloPlanner planner = new ModuloPlanner();
+        assertEquals(ModuloPlanner.EngineKind.STRIDE_TABLE,
+                planner.plan(10, 7, 1_000_000_000L, 1L << 30).getKind());
+        planner.setLookupNanos(100, 100, 100, 100);
+        assertEquals(ModuloPlanner.EngineKind.ARITHMETIC,
+                planner.plan(10, 7, 1_000_000_000L, 1L << 30).getKind());
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalidPlans(){
+        assertNull(ModuloFSMFactory.planModuloEngine(1, 7, 100, 100));
+        assertNull(ModuloFSMFactory.planModuloEngine(10, 1, 100, 100));
+    }
+}
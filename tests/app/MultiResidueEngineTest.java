@@ -0,0 +1,101 @@
+package app;
+
+import finite.automaton.FSM;
+import finite.automaton.exceptions.InvalidCharacterException;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThrows;
+
+public class MultiResidueEngineTest extends TestCase {
+    private final static int MAX_BASE = Character.MAX_RADIX;
+    private final static int UPPER_BOUND = 2 * MAX_BASE * MAX_BASE;
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testMatchesModuloFSMs(){
+        try {
+            for (int base = 2; base <= MAX_BASE; base++) {
+                MultiResidueEngine engine = ModuloFSMFactory.makeMultiResidueEngine(base, 2, 64);
+                assertNotNull(engine);
+                int[] moduli = engine.getModuli();
+                assertEquals(63, moduli.length);
+
+                FSM<?>[] machines = new FSM<?>[moduli.length];
+                for (int i = 0; i < moduli.length; i++) {
+                    machines[i] = ModuloFSMFactory.makeModuloFSM(base, moduli[i]);
+                }
+
+                for (int num = 0; num <= UPPER_BOUND; num += 5) {
+                    String numString = Integer.toUnsignedString(num, base);
+                    int[] residues = engine.residues(numString);
+                    for (int i = 0; i < moduli.length; i++) {
+                        assertEquals(machines[i].runMachine(numString).getStateResult(), residues[i]);
+                    }
+                }
+            }
+        }
+        catch(Exception e){
+            fail("Failed to process all test cases: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLongNumbersMatchBigInteger(){
+        Random random = new Random(28);
+        // the last two moduli force long arithmetic
+        int[] moduli = {2, 3, 7, 64, 1000, 32768, 32769, 2_147_483_647};
+        try {
+            for (int base : new int[]{2, 3, 10, 16, 36}) {
+                MultiResidueEngine engine = ModuloFSMFactory.makeMultiResidueEngine(base, moduli);
+                assertNotNull(engine);
+                for (int length : new int[]{1, 17, 100, 1000}) {
+                    StringBuilder builder = new StringBuilder(length);
+                    for (int i = 0; i < length; i++) {
+                        builder.append(Character.forDigit(random.nextInt(base), base));
+                    }
+                    BigInteger number = new BigInteger(builder.toString(), base);
+
+                    int[] expected = new int[moduli.length];
+                    for (int i = 0; i < moduli.length; i++) {
+                        expected[i] = number.mod(BigInteger.valueOf(moduli[i])).intValue();
+                    }
+                    int[] output = new int[moduli.length];
+                    engine.residues(builder, output);
+                    assertArrayEquals(expected, output);
+                }
+            }
+        }
+        catch(Exception e){
+            fail("Failed to process all test cases: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalidEngines(){
+        assertNull(ModuloFSMFactory.makeMultiResidueEngine(10, new int[0]));
+        assertNull(ModuloFSMFactory.makeMultiResidueEngine(10, new int[]{5, 1}));
+        assertNull(ModuloFSMFactory.makeMultiResidueEngine(1, 2, 64));
+        assertNull(ModuloFSMFactory.makeMultiResidueEngine(10, 64, 2));
+    }
+
+    @Test
+    public void testInvalidCharacters(){
+        MultiResidueEngine engine = ModuloFSMFactory.makeMultiResidueEngine(10, 2, 64);
+        assertNotNull(engine);
+        for(String s : new String[]{"a", "1234567890123a", "-1", "1.5"}){
+            assertThrows(InvalidCharacterException.class, () -> engine.residues(s));
+        }
+    }
+}
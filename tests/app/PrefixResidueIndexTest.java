@@ -0,0 +1,128 @@
+package app;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class PrefixResidueIndexTest extends TestCase {
+    private final static int[] BASES = {2, 3, 10, 16, 36};
+    private final static int[] MODULI = {2, 3, 7, 12, 40, 97, 1000, 65_536, 720_720, 1_000_003, 2_147_483_647};
+
+
+    //////////////
+    // private helpers
+
+    private static String randomNumber(Random random, int base, int length){
+        StringBuilder builder = new StringBuilder(length);
+        for(int i = 0; i < length; i++){
+            builder.append(Character.forDigit(random.nextInt(base), base));
+        }
+        return builder.toString();
+    }
+
+    private static int expectedMod(String number, int from, int to, int base, int modulo){
+        if(from == to){
+            return 0;
+        }
+        return new BigInteger(number.substring(from, to), base).mod(BigInteger.valueOf(modulo)).intValue();
+    }
+
+    private static PrefixResidueIndex makeIndex(int base, int modulo, String number){
+        try {
+            return ModuloFSMFactory.makePrefixResidueIndex(base, modulo, number);
+        }
+        catch(InvalidCharacterException e){
+            fail("Could not index number: " + e.getMessage());
+            return null;
+        }
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testSubstringMod(){
+        Random random = new Random(44);
+        for(int base : BASES){
+            for(int modulo : MODULI){
+                String number = randomNumber(random, base, 300);
+                PrefixResidueIndex index = makeIndex(base, modulo, number);
+                assertEquals(300, index.length());
+                assertEquals(expectedMod(number, 0, 300, base, modulo), index.substringMod(0, 300));
+                for(int i = 0; i < 200; i++){
+                    int from = random.nextInt(301);
+                    int to = from + random.nextInt(301 - from);
+                    assertEquals(expectedMod(number, from, to, base, modulo), index.substringMod(from, to));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLongSubstrings(){
+        // long enough for powers to need both power tables
+        Random random = new Random(65_536);
+        String number = randomNumber(random, 10, 200_000);
+        for(int modulo : new int[]{7, 1_000_000, 999_999_937}){
+            PrefixResidueIndex index = makeIndex(10, modulo, number);
+            for(int i = 0; i < 20; i++){
+                int from = random.nextInt(1000);
+                int to = number.length() - random.nextInt(1000);
+                assertEquals(expectedMod(number, from, to, 10, modulo), index.substringMod(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void testCountDivisibleSubstrings(){
+        Random random = new Random(45);
+        for(int base : BASES){
+            for(int modulo : MODULI){
+                // few digits, so that large moduli have some multiples among the substrings
+                String number = randomNumber(random, Math.min(base, 3), 150);
+                PrefixResidueIndex index = makeIndex(base, modulo, number);
+                long expected = 0;
+                for(int from = 0; from < number.length(); from++){
+                    for(int to = from + 1; to <= number.length(); to++){
+                        expected += expectedMod(number, from, to, base, modulo) == 0 ? 1 : 0;
+                    }
+                }
+                assertEquals("base " + base + " modulo " + modulo, expected, index.countDivisibleSubstrings());
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyNumber(){
+        PrefixResidueIndex index = makeIndex(10, 7, "");
+        assertEquals(0, index.length());
+        assertEquals(0, index.substringMod(0, 0));
+        assertEquals(0, index.countDivisibleSubstrings());
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalid(){
+        try {
+            assertNull(ModuloFSMFactory.makePrefixResidueIndex(1, 7, "0"));
+            assertNull(ModuloFSMFactory.makePrefixResidueIndex(10, 1, "0"));
+        }
+        catch(InvalidCharacterException e){
+            fail("Invalid parameters should not be read: " + e.getMessage());
+        }
+        assertThrows(InvalidCharacterException.class, () -> ModuloFSMFactory.makePrefixResidueIndex(10, 7, "12a"));
+        PrefixResidueIndex index = makeIndex(10, 7, "1234");
+        assertThrows(IndexOutOfBoundsException.class, () -> index.substringMod(-1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.substringMod(3, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.substringMod(0, 5));
+    }
+}
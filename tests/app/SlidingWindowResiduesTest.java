@@ -0,0 +1,128 @@
+package app;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class SlidingWindowResiduesTest extends TestCase {
+    private final static int[] BASES = {2, 3, 10, 16, 36};
+    private final static int[] MODULI = {2, 3, 7, 12, 40, 97, 1000, 65_536, 720_720, 1_000_003, 2_147_483_647};
+    private final static int[] WINDOWS = {1, 2, 5, 17, 64};
+
+
+    //////////////
+    // private helpers
+
+    private static String randomNumber(Random random, int base, int length){
+        StringBuilder builder = new StringBuilder(length);
+        for(int i = 0; i < length; i++){
+            builder.append(Character.forDigit(random.nextInt(base), base));
+        }
+        return builder.toString();
+    }
+
+    private static int expectedMod(String number, int from, int to, int base, int modulo){
+        return new BigInteger(number.substring(from, to), base).mod(BigInteger.valueOf(modulo)).intValue();
+    }
+
+    // feeds the number in chunks of random lengths, and returns every residue written
+    private static int[] feedInChunks(SlidingWindowResidues windows, String number, Random random){
+        int[] output = new int[Math.max(0, number.length() - windows.getWindow() + 1)];
+        int written = 0;
+        try {
+            for(int from = 0; from < number.length();){
+                int to = Math.min(number.length(), from + random.nextInt(2 * windows.getWindow() + 2));
+                written += windows.feed(number.subSequence(from, to), output, written);
+                from = to;
+            }
+        }
+        catch(InvalidCharacterException e){
+            fail("Could not feed number: " + e.getMessage());
+        }
+        assertEquals(output.length, written);
+        return output;
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testWindows(){
+        Random random = new Random(45);
+        for(int base : BASES){
+            for(int modulo : MODULI){
+                for(int window : WINDOWS){
+                    String number = randomNumber(random, base, 200);
+                    SlidingWindowResidues windows = ModuloFSMFactory.makeSlidingWindowResidues(base, modulo, window);
+                    int[] residues = feedInChunks(windows, number, random);
+                    for(int i = 0; i < residues.length; i++){
+                        assertEquals("base " + base + " modulo " + modulo + " window " + window,
+                                expectedMod(number, i, i + window, base, modulo), residues[i]);
+                    }
+                    assertEquals(200, windows.getPosition());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWindowLongerThanStream(){
+        SlidingWindowResidues windows = ModuloFSMFactory.makeSlidingWindowResidues(10, 7, 10);
+        int[] output = new int[1];
+        try {
+            assertEquals(0, windows.feed("12345", output, 0));
+            assertEquals(0, windows.feed("", output, 0));
+            assertEquals(0, windows.feed("6789", output, 0));
+            assertEquals(1, windows.feed("0", output, 0));
+            assertEquals(1234567890 % 7, output[0]);
+        }
+        catch(InvalidCharacterException e){
+            fail("Could not feed number: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReset(){
+        Random random = new Random(46);
+        String first = randomNumber(random, 10, 100);
+        String second = randomNumber(random, 10, 100);
+        SlidingWindowResidues windows = ModuloFSMFactory.makeSlidingWindowResidues(10, 999_999_937, 20);
+        feedInChunks(windows, first, random);
+        windows.reset();
+        assertEquals(0, windows.getPosition());
+        int[] residues = feedInChunks(windows, second, random);
+        for(int i = 0; i < residues.length; i++){
+            assertEquals(expectedMod(second, i, i + 20, 10, 999_999_937), residues[i]);
+        }
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalid(){
+        assertNull(ModuloFSMFactory.makeSlidingWindowResidues(1, 7, 3));
+        assertNull(ModuloFSMFactory.makeSlidingWindowResidues(10, 1, 3));
+        assertNull(ModuloFSMFactory.makeSlidingWindowResidues(10, 7, 0));
+
+        SlidingWindowResidues windows = ModuloFSMFactory.makeSlidingWindowResidues(10, 7, 3);
+        int[] output = new int[4];
+        // no room, so nothing is read
+        assertThrows(IndexOutOfBoundsException.class, () -> windows.feed("1234567", output, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> windows.feed("123", output, -1));
+        assertEquals(0, windows.getPosition());
+
+        // the digits before the invalid character are read
+        assertThrows(InvalidCharacterException.class, () -> windows.feed("1234a", output, 0));
+        assertEquals(4, windows.getPosition());
+        assertEquals(123 % 7, output[0]);
+        assertEquals(234 % 7, output[1]);
+    }
+}
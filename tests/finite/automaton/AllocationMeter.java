@@ -0,0 +1,69 @@
+package finite.automaton;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Measures the bytes allocated by the current thread per call of some code, after warming it up so
+ * that the compiler has had the chance to remove allocations that never escape, as it would on any
+ * path run often enough to matter.
+ */
+public class AllocationMeter {
+
+    /**
+     * A call being measured.
+     */
+    public interface Call{
+        void run() throws Exception;
+    }
+
+    private static final int WARMUP_CALLS = 20_000;
+    private static final int MEASURED_CALLS = 20_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Returns the bytes allocated per call of the provided code, once warmed up.
+     */
+    public static long bytesPerCall(Call call){
+        long thread = Thread.currentThread().getId();
+        try {
+            for(int i = 0; i < WARMUP_CALLS; i++){
+                call.run();
+            }
+            // the least of a few rounds, in case the compiler was still busy with the first
+            long best = Long.MAX_VALUE;
+            for(int round = 0; round < 3; round++){
+                long before = THREADS.getThreadAllocatedBytes(thread);
+                for(int i = 0; i < MEASURED_CALLS; i++){
+                    call.run();
+                }
+                best = Math.min(best, (THREADS.getThreadAllocatedBytes(thread) - before) / MEASURED_CALLS);
+            }
+            return best;
+        }
+        catch(Exception e){
+            fail("Call failed: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Asserts that the provided code allocates at most the provided number of bytes per call.
+     */
+    public static void assertAllocatesAtMost(String label, long budget, Call call){
+        long bytes = bytesPerCall(call);
+        assertTrue(label + " allocates " + bytes + " bytes per call, over its budget of " + budget,
+                bytes <= budget);
+    }
+
+    /**
+     * Asserts that the provided code does not allocate at all.
+     */
+    public static void assertAllocatesNothing(String label, Call call){
+        assertAllocatesAtMost(label, 0, call);
+    }
+}
@@ -0,0 +1,163 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static finite.automaton.AllocationMeter.assertAllocatesAtMost;
+import static finite.automaton.AllocationMeter.assertAllocatesNothing;
+
+/**
+ * Checks that running machines allocates nothing, or only what the result of the call needs,
+ * so that boxing or iterators do not creep back into the run paths.
+ */
+public class AllocationTests extends TestCase {
+
+    char[] DIGITS = "0123456789".toCharArray();
+
+    // letters past the range of cached Character boxes
+    char[] GREEK = "\u03b1\u03b2\u03b3\u03b4\u03b5\u03b6\u03b7\u03b8\u03b9\u03ba".toCharArray();
+
+    final static int MODULO = 997;
+
+    // lengths on both sides of the block size of the alphabet validator, and past its last full block
+    final static int[] LENGTHS = {50, 64, 4096, 5000};
+
+    private static volatile long sink;
+
+
+    //////////////
+    // private helpers
+
+    // residue modulo MODULO of a base 10 number written with the provided digits, with named or anonymous states
+    @SuppressWarnings("unchecked")
+    private FSM<Integer> makeModuloMachine(char[] digits, boolean anonymous){
+        FSM<Integer> machine = new FSM<>(digits.clone());
+        try {
+            if(anonymous){
+                machine.setNewAnonymousStates("S", MODULO, true, index -> index);
+                for(int i = 0; i < MODULO; i++){
+                    for(int digit = 0; digit < digits.length; digit++){
+                        machine.setTransition(i, digits[digit], (i * digits.length + digit) % MODULO);
+                    }
+                }
+                machine.setInitState(machine.getAnonymousState(0));
+            }
+            else{
+                State<Integer>[] states = (State<Integer>[]) new State<?>[MODULO];
+                for(int i = 0; i < MODULO; i++){
+                    states[i] = machine.setNewFinalState("S" + i, i);
+                }
+                for(int i = 0; i < MODULO; i++){
+                    for(int digit = 0; digit < digits.length; digit++){
+                        machine.setTransition(states[i], digits[digit], states[(i * digits.length + digit) % MODULO]);
+                    }
+                }
+                machine.setInitState(states[0]);
+            }
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    private static String randomString(char[] symbols, int length, long seed){
+        Random random = new Random(seed);
+        char[] data = new char[length];
+        for(int i = 0; i < length; i++){
+            data[i] = symbols[random.nextInt(symbols.length)];
+        }
+        return String.valueOf(data);
+    }
+
+
+    //////////////
+    // machine tests
+
+    @Test
+    public void testRunMachine(){
+        FSM<Integer> named = makeModuloMachine(DIGITS, false);
+        FSM<Integer> namedGreek = makeModuloMachine(GREEK, false);
+        FSM<Integer> anonymous = makeModuloMachine(DIGITS, true);
+        for(int length : LENGTHS){
+            String digits = randomString(DIGITS, length, 43);
+            String greek = randomString(GREEK, length, 43);
+            assertAllocatesNothing("named runMachine of " + length,
+                    () -> sink += named.runMachine(digits).getValue());
+            assertAllocatesNothing("named runMachine past cached characters of " + length,
+                    () -> sink += namedGreek.runMachine(greek).getValue());
+            assertAllocatesNothing("anonymous runMachine of " + length,
+                    () -> sink += anonymous.runMachine(digits).getValue());
+        }
+    }
+
+    @Test
+    public void testCompiledRuns(){
+        try(TableArena arena = TableArena.ofShared()) {
+            FSM<Integer> anonymous = makeModuloMachine(DIGITS, true);
+            CompiledFSM<Integer> compiled = anonymous.compile();
+            CompiledFSM<Integer> compiledGreek = makeModuloMachine(GREEK, false).compile();
+            CompiledFSM<Integer> offHeap = anonymous.compile(arena);
+            CompiledFSM<Integer> specialized = makeModuloMachine(DIGITS, false).compile().specialize();
+            for(int length : LENGTHS){
+                String digits = randomString(DIGITS, length, 43);
+                String greek = randomString(GREEK, length, 43);
+                assertAllocatesNothing("compiled runToId of " + length, () -> sink += compiled.runToId(digits));
+                assertAllocatesNothing("compiled runMachine of " + length,
+                        () -> sink += compiled.runMachine(digits).getValue());
+                assertAllocatesNothing("compiled runToId past cached characters of " + length,
+                        () -> sink += compiledGreek.runToId(greek));
+                assertAllocatesNothing("off-heap runToId of " + length, () -> sink += offHeap.runToId(digits));
+                assertAllocatesNothing("specialized runToId of " + length,
+                        () -> sink += specialized.runToId(digits));
+            }
+        }
+        catch(Exception e){
+            fail("Could not compile machines: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Batches allocate their output, and the state of their lanes: four arrays of ints and one of
+     * references, of <code>LANES</code> entries each.
+     */
+    @Test
+    public void testBatchRunner(){
+        try {
+            BatchRunner<Integer> runner = new BatchRunner<>(makeModuloMachine(DIGITS, true));
+            List<String> inputs = new ArrayList<>();
+            for(int i = 0; i < 100; i++){
+                inputs.add(randomString(DIGITS, 1 + i % 20, i));
+            }
+            long budget = Footprint.arrayBytes(inputs.size(), Integer.BYTES)
+                    + 4 * Footprint.arrayBytes(BatchRunner.LANES, Integer.BYTES)
+                    + Footprint.arrayBytes(BatchRunner.LANES, Footprint.REFERENCE);
+            assertAllocatesAtMost("batch runToIds", budget, () -> sink += runner.runToIds(inputs)[0]);
+        }
+        catch(Exception e){
+            fail("Could not make batch runner: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs of several machines allocate only their output.
+     */
+    @Test
+    public void testMultiMachineRunner(){
+        String digits = randomString(DIGITS, 50, 43);
+        try {
+            MultiMachineRunner<Integer> runner = MultiMachineRunner.of(
+                    makeModuloMachine(DIGITS, true), makeModuloMachine(DIGITS, false));
+            long budget = Footprint.arrayBytes(runner.getMachineCount(), Integer.BYTES);
+            assertAllocatesAtMost("multi-machine runToIds", budget, () -> sink += runner.runToIds(digits)[0]);
+        }
+        catch(Exception e){
+            fail("Could not make multi-machine runner: " + e.getMessage());
+        }
+    }
+}
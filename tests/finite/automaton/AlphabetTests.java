@@ -0,0 +1,131 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThrows;
+
+public class AlphabetTests extends TestCase {
+
+    char[] HEX = "fedcba9876543210".toCharArray();
+
+
+    //////////////
+    // index tests
+
+    @Test
+    public void testDenseIndex(){
+        Alphabet alphabet = Alphabet.of(HEX);
+        assertEquals(16, alphabet.size());
+        assertArrayEquals("0123456789abcdef".toCharArray(), alphabet.toCharArray());
+        for(int index = 0; index < alphabet.size(); index++){
+            assertEquals(index, alphabet.indexOf((char) alphabet.symbolAt(index)));
+        }
+        assertEquals(-1, alphabet.indexOf('A'));
+        assertEquals(-1, alphabet.indexOf('g'));
+        assertEquals(-1, alphabet.indexOf('/'));
+        assertEquals(-1, alphabet.indexOf(-1));
+        assertFalse(alphabet.isFoldingCase());
+    }
+
+    @Test
+    public void testSparseIndex(){
+        // far enough apart to use pages, including a supplementary code point
+        int[] codePoints = {'a', '\u0663', '\u4e00', 0x1F600, '0'};
+        Alphabet alphabet = Alphabet.ofCodePoints(codePoints, false);
+        assertEquals(5, alphabet.size());
+        assertFalse(alphabet.isBmp());
+        int[] sorted = {'0', 'a', '\u0663', '\u4e00', 0x1F600};
+        for(int index = 0; index < sorted.length; index++){
+            assertEquals(sorted[index], alphabet.symbolAt(index));
+            assertEquals(index, alphabet.indexOf(sorted[index]));
+        }
+        assertEquals(-1, alphabet.indexOf('b'));
+        assertEquals(-1, alphabet.indexOf(0x1F601));
+        assertEquals(-1, alphabet.indexOf(Character.MAX_CODE_POINT));
+        assertThrows(IllegalStateException.class, alphabet::toCharArray);
+        assertThrows(IllegalArgumentException.class, () -> Alphabet.ofCodePoints(new int[]{-5}, false));
+    }
+
+    @Test
+    public void testRange(){
+        Alphabet alphabet = Alphabet.ofRange('a', 'z', false);
+        assertEquals(26, alphabet.size());
+        assertEquals(0, alphabet.indexOf('a'));
+        assertEquals(25, alphabet.indexOf('z'));
+        assertEquals(-1, alphabet.indexOf('{'));
+        assertEquals(0, Alphabet.ofRange('z', 'a', false).size());
+
+        Alphabet wide = Alphabet.ofRange(0, 0x2FFFF, false);
+        assertEquals(0x30000, wide.size());
+        assertEquals(0x1F600, wide.indexOf(0x1F600));
+        assertEquals(-1, wide.indexOf(0x30000));
+    }
+
+
+    //////////////
+    // case folding tests
+
+    @Test
+    public void testCaseFolding(){
+        Alphabet alphabet = Alphabet.of(HEX, true);
+        assertTrue(alphabet.isFoldingCase());
+        assertEquals(16, alphabet.size());
+        assertArrayEquals("0123456789abcdef".toCharArray(), alphabet.toCharArray());
+        for(char c = 'a'; c <= 'f'; c++){
+            assertEquals(alphabet.indexOf(c), alphabet.indexOf(Character.toUpperCase(c)));
+        }
+        assertEquals(-1, alphabet.indexOf('G'));
+
+        // both cases given are a single symbol
+        Alphabet both = Alphabet.of(new char[]{'a', 'A', 'b'}, true);
+        assertEquals(2, both.size());
+        assertEquals(both.indexOf('a'), both.indexOf('A'));
+    }
+
+    @Test
+    public void testFoldingMachine(){
+        FSM<Integer> machine = new FSM<>(Alphabet.of(new char[]{'a', 'b'}, true));
+        try {
+            State<Integer> a = machine.setNewFinalState("a", 1);
+            State<Integer> b = machine.setNewFinalState("b", 2);
+            machine.setTransition(a, 'B', b);
+            machine.setTransition(b, 'a', a);
+            machine.setTransition(a, 'A', a);
+            machine.setTransition(b, 'b', b);
+            machine.setInitState(a);
+
+            assertSame(b, machine.getTransition(a, 'b'));
+            assertSame(b, machine.runMachine("AaBbAb"));
+            assertArrayEquals(new char[]{'a', 'b'}, machine.getAlphabet());
+            assertThrows(InvalidCharacterException.class, () -> machine.runMachine("abc"));
+
+            CompiledFSM<Integer> compiled = machine.compile();
+            assertSame(machine.getAlphabetIndex(), compiled.getAlphabetIndex());
+            assertSame(b, compiled.runMachine("AaBbAb"));
+            assertSame(b, compiled.specialize().runMachine("AaBbAb"));
+
+            Path path = Files.createTempFile("machine", ".fsm");
+            path.toFile().deleteOnExit();
+            CompiledFSMFile.write(compiled, path, ResultCodec.INTEGER);
+            CompiledFSM<Integer> loaded = CompiledFSMFile.map(path, ResultCodec.INTEGER);
+            assertTrue(loaded.getAlphabetIndex().isFoldingCase());
+            assertEquals(compiled.runToId("AaBbAb"), loaded.runToId("AaBbAb"));
+        }
+        catch(Exception e){
+            fail("Could not run folding machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSupplementaryMachine(){
+        Alphabet alphabet = Alphabet.ofCodePoints(new int[]{'a', 0x1F600}, false);
+        assertThrows(IllegalArgumentException.class, () -> new FSM<Integer>(alphabet));
+    }
+}
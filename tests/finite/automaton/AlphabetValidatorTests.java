@@ -0,0 +1,120 @@
+package finite.automaton;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class AlphabetValidatorTests extends TestCase {
+
+    char[] DIGITS = "0123456789".toCharArray();
+    char[] HEX = "fedcba9876543210".toCharArray();
+    char[] HEX_CASES = "0123456789ABCDEFabcdef".toCharArray();
+    char[] SPARSE = {'0', '2', '4', 'x', 'z', '\u0663', '\uffff'};
+
+
+    //////////////
+    // private helpers
+
+    // the position of the first character not in the alphabet, the slow way
+    private int expectedFirstInvalid(char[] alphabet, CharSequence data, int from){
+        char[] sorted = alphabet.clone();
+        Arrays.sort(sorted);
+        for(int i = from; i < data.length(); i++){
+            if(Arrays.binarySearch(sorted, data.charAt(i)) < 0){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // a long string of characters of the alphabet, with an invalid character at the provided position
+    private String makeData(char[] alphabet, int length, int invalidAt, char invalid){
+        Random random = new Random(length);
+        char[] data = new char[length];
+        for(int i = 0; i < length; i++){
+            data[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        if(invalidAt >= 0){
+            data[invalidAt] = invalid;
+        }
+        return String.valueOf(data);
+    }
+
+
+    //////////////
+    // membership tests
+
+    @Test
+    public void testContains(){
+        for(char[] alphabet : new char[][]{DIGITS, HEX, HEX_CASES, SPARSE}){
+            AlphabetValidator validator = new AlphabetValidator(alphabet);
+            for(int c = 0; c <= Character.MAX_VALUE; c++){
+                assertEquals(expectedFirstInvalid(alphabet, String.valueOf((char) c), 0) < 0,
+                        validator.contains((char) c));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyAlphabet(){
+        AlphabetValidator validator = new AlphabetValidator(new char[0]);
+        assertTrue(validator.isValid(""));
+        assertEquals(0, validator.firstInvalid("0"));
+        assertEquals(0, validator.firstInvalid(makeData(DIGITS, 1000, -1, ' ')));
+        assertFalse(validator.contains('\0'));
+    }
+
+
+    //////////////
+    // position tests
+
+    @Test
+    public void testFirstInvalidPositions(){
+        int length = 3 * AlphabetValidator.BLOCK_SIZE + 17;
+        int[] positions = {-1, 0, 1, AlphabetValidator.BLOCK_THRESHOLD, AlphabetValidator.BLOCK_SIZE - 1,
+                AlphabetValidator.BLOCK_SIZE, 2 * AlphabetValidator.BLOCK_SIZE + 5, length - 1};
+        for(char[] alphabet : new char[][]{DIGITS, HEX, HEX_CASES, SPARSE}){
+            AlphabetValidator validator = new AlphabetValidator(alphabet);
+            for(char invalid : new char[]{'/', ':', 'g', 'G', '`', '1', '\u0662', '\uffff'}){
+                for(int position : positions){
+                    String data = makeData(alphabet, length, position, invalid);
+                    assertEquals(expectedFirstInvalid(alphabet, data, 0), validator.firstInvalid(data));
+                    assertEquals(expectedFirstInvalid(alphabet, data, 0) < 0, validator.isValid(data));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFromAndNonStrings(){
+        AlphabetValidator validator = new AlphabetValidator(HEX);
+        String data = makeData(HEX, 2000, 100, 'x');
+        assertEquals(100, validator.firstInvalid(data, 50));
+        assertEquals(-1, validator.firstInvalid(data, 101));
+        assertEquals(-1, validator.firstInvalid(data, data.length()));
+
+        StringBuilder builder = new StringBuilder(data);
+        assertEquals(100, validator.firstInvalid(builder));
+        builder.setCharAt(100, 'a');
+        builder.setCharAt(1500, 'X');
+        assertEquals(1500, validator.firstInvalid(builder));
+        assertEquals(1500, validator.firstInvalid(builder.subSequence(0, 1600)));
+    }
+
+    @Test
+    public void testLongInputsAllocateNothing(){
+        for(char[] alphabet : new char[][]{DIGITS, HEX, HEX_CASES, SPARSE}){
+            AlphabetValidator validator = new AlphabetValidator(alphabet);
+            for(int length : new int[]{AlphabetValidator.BLOCK_THRESHOLD, AlphabetValidator.BLOCK_SIZE, 5000}){
+                String data = makeData(alphabet, length, -1, '0');
+                StringBuilder builder = new StringBuilder(data);
+                AllocationMeter.assertAllocatesNothing("validating " + length + " characters",
+                        () -> assertEquals(-1, validator.firstInvalid(data)));
+                AllocationMeter.assertAllocatesNothing("validating " + length + " builder characters",
+                        () -> assertEquals(-1, validator.firstInvalid(builder)));
+            }
+        }
+    }
+}
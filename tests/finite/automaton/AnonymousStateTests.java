@@ -0,0 +1,190 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidStateException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+
+import static finite.automaton.state.StateValueChecker.checkWholeStateFinal;
+import static finite.automaton.state.StateValueChecker.checkWholeStateNotFinal;
+import static org.junit.Assert.assertThrows;
+
+public class AnonymousStateTests extends TestCase {
+
+    char[] DIGITS = "0123456789".toCharArray();
+
+    /**
+     * The most heap a generated machine may take per anonymous state: its row of 10 transitions,
+     * at 4 bytes each, and some slack for measuring.
+     */
+    final static int MAX_BYTES_PER_STATE = 48;
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 10 number modulo the provided modulo, with anonymous states
+    private FSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(DIGITS.clone());
+        try {
+            machine.setNewAnonymousStates("S", modulo, true, index -> index);
+            for(int i = 0; i < modulo; i++){
+                for(int digit = 0; digit < DIGITS.length; digit++){
+                    machine.setTransition(i, DIGITS[digit], (i * DIGITS.length + digit) % modulo);
+                }
+            }
+            machine.setInitState(machine.getAnonymousState(0));
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    private static long usedHeap(){
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+
+    //////////////
+    // naming tests
+
+    @Test
+    public void testNames(){
+        FSM<Integer> machine = makeModuloMachine(20);
+        assertEquals(20, machine.getAnonymousStateCount());
+        assertEquals(21, machine.getStates().size());
+        for(int i = 0; i < 20; i++){
+            State<Integer> state = machine.getAnonymousState(i);
+            assertSame(state, machine.getStateByName("S" + i));
+            assertTrue(machine.containsState(state));
+            checkWholeStateFinal(state, "S" + i, i);
+        }
+        for(String name : new String[]{"S", "S20", "S05", "S-1", "S1x", "T1", "S99999999999"}){
+            assertNull(machine.getStateByName(name));
+        }
+        assertNull(machine.getAnonymousState(20));
+        assertNull(machine.getAnonymousState(-1));
+        assertFalse(makeModuloMachine(20).containsState(machine.getAnonymousState(0)));
+    }
+
+    @Test
+    public void testNameConflicts(){
+        FSM<Integer> machine = makeModuloMachine(5);
+        assertThrows(IllegalArgumentException.class, () -> machine.setNewState("S3"));
+        assertThrows(IllegalArgumentException.class, () -> machine.setNewAnonymousStates("T", 2, false, null));
+        assertThrows(IllegalArgumentException.class, () -> machine.incorporateNewState(machine.getAnonymousState(0)));
+        assertNotNull(machine.setNewState("S03"));
+
+        FSM<Integer> named = new FSM<>(DIGITS.clone());
+        named.setNewState("S7");
+        assertEquals(0, named.setNewAnonymousStates("S", 5, false, null));
+        assertThrows(IllegalArgumentException.class, () -> named.setNewAnonymousStates("S", 5, false, null));
+        assertEquals(5, named.getAnonymousStateCount());
+        assertThrows(IllegalArgumentException.class, () -> named.setNewAnonymousStates("S", -1, false, null));
+    }
+
+    @Test
+    public void testStateData(){
+        FSM<Integer> machine = makeModuloMachine(5);
+        int first = machine.setNewAnonymousStates("S", 3, false, null);
+        assertEquals(5, first);
+        State<Integer> state = machine.getAnonymousState(first + 1);
+        assertNull(state.getValue());
+        assertFalse(state.isFinal());
+
+        state.setValue(60);
+        checkWholeStateNotFinal(state, "S6", 60);
+        state.setResult(61);
+        checkWholeStateFinal(state, "S6", 61);
+        state.setFinality(false);
+        checkWholeStateNotFinal(state, "S6", 61);
+        // the others are untouched
+        checkWholeStateFinal(machine.getAnonymousState(4), "S4", 4);
+        assertNull(machine.getAnonymousState(first + 2).getValue());
+    }
+
+
+    //////////////
+    // transition tests
+
+    @Test
+    public void testMixedTransitions(){
+        FSM<Integer> machine = new FSM<>(DIGITS.clone());
+        try {
+            machine.setNewAnonymousStates("A", 3, false, index -> index);
+            State<Integer> named = machine.setNewFinalState("named", 100);
+            State<Integer> a0 = machine.getAnonymousState(0);
+            State<Integer> a2 = machine.getAnonymousState(2);
+            machine.setTransition(0, '1', 1);
+            machine.setTransition(1, '2', 2);
+            machine.setTransition(a2, '3', named);
+            machine.setTransition(named, '4', a0);
+            machine.setInitState(a0);
+            assertThrows(InvalidStateException.class, () -> machine.setTransition(0, '1', 3));
+
+            assertSame(machine.getAnonymousState(1), machine.getTransition(a0, '1'));
+            assertSame(named, machine.getTransition(a2, '3'));
+            assertSame(machine.getNullState(), machine.getTransition(a0, '0'));
+
+            CompiledFSM<Integer> compiled = machine.compile();
+            String[] inputs = {"", "1", "12", "123", "1234", "12341", "123412", "1234123", "2", "13", "12340"};
+            for(String input : inputs){
+                assertSame(machine.runMachine(input), compiled.runMachine(input));
+                assertSame(machine.runMachine(input), compiled.renumberBreadthFirst().runMachine(input));
+            }
+            assertSame(named, machine.runMachine("1234123"));
+            assertSame(a2, machine.runMachine("123412"));
+        }
+        catch(Exception e){
+            fail("Could not run mixed machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCompiledModuloMachine(){
+        Random random = new Random(40);
+        FSM<Integer> machine = makeModuloMachine(1000);
+        try {
+            CompiledFSM<Integer> compiled = machine.compile();
+            assertEquals(1001, compiled.getStateCount());
+            for(int i = 0; i < 200; i++){
+                String data = Long.toString(Math.abs(random.nextLong()));
+                assertSame(machine.runMachine(data), compiled.runMachine(data));
+                assertEquals(Integer.valueOf((int) (Long.parseLong(data) % 1000)),
+                        compiled.runMachine(data).getStateResult());
+            }
+        }
+        catch(Exception e){
+            fail("Could not run compiled machine: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // footprint tests
+
+    @Test
+    public void testHeapFootprint(){
+        int modulo = 1_000_000;
+        long before = usedHeap();
+        FSM<Integer> machine = makeModuloMachine(modulo);
+        long after = usedHeap();
+        long bytesPerState = (after - before) / modulo;
+        assertTrue("machine takes " + bytesPerState + " bytes per state", bytesPerState <= MAX_BYTES_PER_STATE);
+        try {
+            assertEquals(Integer.valueOf(123456), machine.runMachine("123456").getStateResult());
+        }
+        catch(Exception e){
+            fail("Could not run machine: " + e.getMessage());
+        }
+    }
+}
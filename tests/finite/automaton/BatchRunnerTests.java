@@ -0,0 +1,110 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class BatchRunnerTests extends TestCase {
+
+    char[] ALPHABET = {'0', '1', '2'};
+    String[] VALID_STRINGS = {"", "0", "1", "2", "12", "10", "22", "2101", "1111111", "2102110012"};
+    String[] INVALID_STRINGS = {"3", "a", "13", "1111113", "2$"};
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 3 number modulo the provided modulo
+    private FSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < ALPHABET.length; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), ALPHABET[digit],
+                            machine.getStateByName("S" + ((i * ALPHABET.length + digit) % modulo)));
+                }
+            }
+            machine.setInitState(machine.getStateByName("S0"));
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    // random base 3 strings of lengths up to the provided length
+    private List<String> randomInputs(int count, int maxLength){
+        Random random = new Random(count);
+        List<String> inputs = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            char[] input = new char[random.nextInt(maxLength + 1)];
+            for(int j = 0; j < input.length; j++){
+                input[j] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            inputs.add(String.valueOf(input));
+        }
+        return inputs;
+    }
+
+
+    //////////////
+    // run tests
+
+    @Test
+    public void testBatchMatchesSeparateRuns(){
+        FSM<Integer> machine = makeModuloMachine(13);
+        for(int count : new int[]{0, 1, BatchRunner.LANES - 1, BatchRunner.LANES, 1000}){
+            List<String> inputs = randomInputs(count, 40);
+            try {
+                BatchRunner<Integer> runner = new BatchRunner<>(machine);
+                int[] ids = runner.runToIds(inputs);
+                assertEquals(count, ids.length);
+                List<State<Integer>> states = runner.runMachines(inputs);
+                CompiledFSM<Integer> compiled = machine.compile();
+                for(int i = 0; i < count; i++){
+                    assertEquals(compiled.runToId(inputs.get(i)), ids[i]);
+                    assertSame(machine.runMachine(inputs.get(i)), states.get(i));
+                }
+            }
+            catch(Exception e){
+                fail("Could not run batch: " + e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidInputs(){
+        List<String> inputs = new ArrayList<>();
+        for(int i = 0; i < 3; i++){
+            inputs.addAll(List.of(VALID_STRINGS));
+            inputs.addAll(List.of(INVALID_STRINGS));
+        }
+        try {
+            FSM<Integer> machine = makeModuloMachine(5);
+            BatchRunner<Integer> runner = new BatchRunner<>(machine);
+            int[] ids = runner.runToIds(inputs);
+            for(int i = 0; i < inputs.size(); i++){
+                if(List.of(INVALID_STRINGS).contains(inputs.get(i))){
+                    assertEquals(BatchRunner.INVALID, ids[i]);
+                }
+                else{
+                    assertEquals(machine.compile().runToId(inputs.get(i)), ids[i]);
+                }
+            }
+            assertThrows(InvalidCharacterException.class, () -> runner.runMachines(inputs));
+        }
+        catch(Exception e){
+            fail("Could not run batch: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class BitPackedRunnerTests extends TestCase {
+
+    char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+
+    //////////////
+    // private helpers
+
+    // residue modulo the provided modulo of a number written in a base of up to 16
+    private CompiledFSM<Integer> makeModuloMachine(int base, int modulo){
+        FSM<Integer> machine = new FSM<>(Arrays.copyOf(HEX_DIGITS, base));
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < base; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), HEX_DIGITS[digit],
+                            machine.getStateByName("S" + ((i * base + digit) % modulo)));
+                }
+            }
+            machine.setInitState(machine.getStateByName("S0"));
+            return machine.compile();
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private BitPackedRunner<Integer> makeRunner(int base, int modulo){
+        try {
+            return new BitPackedRunner<>(makeModuloMachine(base, modulo), Arrays.copyOf(HEX_DIGITS, base));
+        }
+        catch(InvalidCharacterException e){
+            fail("Could not set up runner: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static int expectedMod(byte[] bytes, int modulo){
+        return new BigInteger(1, bytes).mod(BigInteger.valueOf(modulo)).intValue();
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testBytes(){
+        Random random = new Random(48);
+        for(int base : new int[]{2, 4, 16}){
+            for(int modulo : new int[]{2, 3, 7, 256, 1000}){
+                BitPackedRunner<Integer> runner = makeRunner(base, modulo);
+                CompiledFSM<Integer> machine = runner.getMachine();
+                for(int i = 0; i < 50; i++){
+                    byte[] bytes = new byte[random.nextInt(40)];
+                    random.nextBytes(bytes);
+                    assertEquals(expectedMod(bytes, modulo), (int) runner.runMachine(bytes).getValue());
+                    // the same as running over the digits, with the leading zeros filling the first byte
+                    StringBuilder digits = new StringBuilder();
+                    for(byte b : bytes){
+                        String byteDigits = Integer.toString(b & 0xFF, base);
+                        int width = base == 2 ? 8 : base == 4 ? 4 : 2;
+                        digits.append("0".repeat(width - byteDigits.length())).append(byteDigits);
+                    }
+                    try {
+                        assertEquals(machine.runToId(digits), runner.runToId(bytes));
+                    }
+                    catch(InvalidCharacterException e){
+                        fail("Could not run digits: " + e.getMessage());
+                    }
+
+                    int from = random.nextInt(bytes.length + 1);
+                    int to = from + random.nextInt(bytes.length - from + 1);
+                    assertEquals(expectedMod(Arrays.copyOfRange(bytes, from, to), modulo),
+                            (int) machine.getState(runner.runToId(bytes, from, to)).getValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBuffers(){
+        Random random = new Random(49);
+        BitPackedRunner<Integer> runner = makeRunner(2, 997);
+        for(int i = 0; i < 50; i++){
+            byte[] bytes = new byte[random.nextInt(100)];
+            random.nextBytes(bytes);
+            int expected = expectedMod(bytes, 997);
+
+            // with bytes around the remaining ones that must not be read
+            for(ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(bytes.length + 6),
+                    ByteBuffer.allocateDirect(bytes.length + 6)}){
+                for(ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}){
+                    buffer.clear();
+                    buffer.order(order);
+                    buffer.put((byte) 0x5A).put((byte) 0x3C).put(bytes).put((byte) 0x7F);
+                    buffer.position(2).limit(2 + bytes.length);
+                    assertEquals(expected, (int) runner.runMachine(buffer).getValue());
+                    assertEquals(2, buffer.position());
+                    assertEquals(expected, (int) runner.runMachine(buffer.slice()).getValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWordsAndNumbers(){
+        Random random = new Random(50);
+        BitPackedRunner<Integer> runner = makeRunner(16, 1_009);
+        for(int i = 0; i < 50; i++){
+            BigInteger number = new BigInteger(random.nextInt(1000), random);
+            int expected = number.mod(BigInteger.valueOf(1_009)).intValue();
+            assertEquals(expected, (int) runner.runMachine(number).getValue());
+
+            // bit sets keep their least significant word first
+            BitSet bits = BitSet.valueOf(reverse(number.toByteArray()));
+            long[] little = bits.toLongArray();
+            assertEquals(expected, (int) runner.runMachine(little, ByteOrder.LITTLE_ENDIAN).getValue());
+            long[] big = little.clone();
+            for(int j = 0; j < big.length; j++){
+                big[j] = little[little.length - 1 - j];
+            }
+            assertEquals(expected, (int) runner.runMachine(big, ByteOrder.BIG_ENDIAN).getValue());
+        }
+        assertEquals(0, (int) runner.runMachine(BigInteger.ZERO).getValue());
+        assertEquals(0, (int) runner.runMachine(new long[0], ByteOrder.BIG_ENDIAN).getValue());
+    }
+
+    private static byte[] reverse(byte[] bytes){
+        byte[] reversed = new byte[bytes.length];
+        for(int i = 0; i < bytes.length; i++){
+            reversed[i] = bytes[bytes.length - 1 - i];
+        }
+        return reversed;
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalid(){
+        CompiledFSM<Integer> machine = makeModuloMachine(10, 7);
+        assertThrows(IllegalArgumentException.class, () -> new BitPackedRunner<>(machine, new char[]{'0'}));
+        assertThrows(IllegalArgumentException.class, () -> new BitPackedRunner<>(machine, Arrays.copyOf(HEX_DIGITS, 8)));
+        assertThrows(IllegalArgumentException.class, () -> new BitPackedRunner<>(machine, new char[0]));
+        assertThrows(InvalidCharacterException.class, () -> new BitPackedRunner<>(machine, Arrays.copyOf(HEX_DIGITS, 16)));
+
+        BitPackedRunner<Integer> runner = makeRunner(2, 7);
+        assertThrows(IndexOutOfBoundsException.class, () -> runner.runToId(new byte[4], 3, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> runner.runToId(new byte[4], 3, 2));
+        assertThrows(IllegalArgumentException.class, () -> runner.runToId(BigInteger.valueOf(-3)));
+    }
+}
@@ -0,0 +1,129 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.assertThrows;
+
+public class BytecodeSpecializerTests extends TestCase {
+
+    String[] VALID_STRINGS = {"", "0", "1", "9", "12", "10", "99", "2101", "1111111", "9876543210123456789"};
+    String[] INVALID_STRINGS = {"x", "1x", "123456789x", "1 ", "-1"};
+
+
+    //////////////
+    // private helpers
+
+    // residue of a number in the provided base modulo the provided modulo, compiled
+    private CompiledFSM<Integer> makeModuloMachine(char[] alphabet, int modulo){
+        FSM<Integer> machine = new FSM<>(alphabet.clone());
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < alphabet.length; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), alphabet[digit],
+                            machine.getStateByName("S" + ((i * alphabet.length + digit) % modulo)));
+                }
+            }
+            machine.setInitState(machine.getStateByName("S0"));
+            return machine.compile();
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private char[] digits(int base){
+        char[] alphabet = new char[base];
+        for(int digit = 0; digit < base; digit++){
+            alphabet[digit] = Character.forDigit(digit, base);
+        }
+        return alphabet;
+    }
+
+    private void assertSameResults(CompiledFSM<Integer> machine, CompiledFSM<Integer> specialized){
+        try {
+            for(String s : VALID_STRINGS){
+                boolean valid = true;
+                for(char c : s.toCharArray()){
+                    valid &= machine.columnOf(c) >= 0;
+                }
+                if(valid){
+                    assertEquals(machine.runToId(s), specialized.runToId(s));
+                    assertSame(machine.runMachine(s), specialized.runMachine(s));
+                }
+                else{
+                    assertThrows(InvalidCharacterException.class, () -> specialized.runToId(s));
+                }
+            }
+            for(String s : INVALID_STRINGS){
+                assertThrows(InvalidCharacterException.class, () -> specialized.runToId(s));
+            }
+        }
+        catch(Exception e){
+            fail("Could not run specialized machine: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // specialization tests
+
+    @Test
+    public void testSpecializedMatchesTable(){
+        for(int modulo : new int[]{1, 2, 3, 7, 10, 64}){
+            CompiledFSM<Integer> machine = makeModuloMachine(digits(10), modulo);
+            CompiledFSM<Integer> specialized = machine.specialize();
+            assertTrue(specialized.isSpecialized());
+            assertFalse(machine.isSpecialized());
+            assertSameResults(machine, specialized);
+        }
+    }
+
+    @Test
+    public void testSparseAlphabet(){
+        // far apart characters make a lookupswitch instead of a tableswitch
+        char[] alphabet = {'1', '9', 'a', '\u0663'};
+        CompiledFSM<Integer> machine = makeModuloMachine(alphabet, 5);
+        CompiledFSM<Integer> specialized = machine.specialize();
+        assertTrue(specialized.isSpecialized());
+        assertSameResults(machine, specialized);
+        try {
+            assertEquals(machine.runToId("\u06631a9"), specialized.runToId("\u06631a9"));
+        }
+        catch(Exception e){
+            fail("Could not run specialized machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNullStateReached(){
+        FSM<Integer> machine = new FSM<>(digits(2));
+        try {
+            State<Integer> state = machine.setNewFinalState("ones", 1);
+            machine.setTransition(state, '1', state);
+            machine.setInitState(state);
+
+            CompiledFSM<Integer> specialized = machine.compile().specialize();
+            assertTrue(specialized.isSpecialized());
+            assertSame(state, specialized.runMachine("111"));
+            assertSame(machine.getNullState(), specialized.runMachine("1101"));
+            assertThrows(InvalidCharacterException.class, () -> specialized.runMachine("1102"));
+        }
+        catch(Exception e){
+            fail("Could not run specialized machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLargeMachineNotSpecialized(){
+        CompiledFSM<Integer> machine = makeModuloMachine(digits(10), 5000);
+        assertSame(machine, machine.specialize());
+        assertFalse(machine.isSpecialized());
+    }
+}
@@ -0,0 +1,160 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class CharacterClassTests extends TestCase {
+
+    char[] DIGITS = "0123456789".toCharArray();
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 10 number modulo the provided modulo
+    private FSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(DIGITS.clone());
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < DIGITS.length; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), DIGITS[digit],
+                            machine.getStateByName("S" + ((i * DIGITS.length + digit) % modulo)));
+                }
+            }
+            machine.setInitState(machine.getStateByName("S0"));
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    // over every character, counts words of letters modulo 3, where any other character separates words
+    private FSM<Integer> makeWordMachine(){
+        FSM<Integer> machine = new FSM<>(Alphabet.ofRange(0, Character.MAX_VALUE, false));
+        try {
+            for(int count = 0; count < 3; count++){
+                machine.setNewFinalState("space" + count, count);
+                machine.setNewFinalState("word" + count, count);
+            }
+            for(int c = 0; c <= Character.MAX_VALUE; c++){
+                for(int count = 0; count < 3; count++){
+                    State<Integer> space = machine.getStateByName("space" + count);
+                    State<Integer> word = machine.getStateByName("word" + count);
+                    if(Character.isLetter(c)){
+                        machine.setTransition(space, (char) c, machine.getStateByName("word" + (count + 1) % 3));
+                        machine.setTransition(word, (char) c, word);
+                    }
+                    else{
+                        machine.setTransition(space, (char) c, space);
+                        machine.setTransition(word, (char) c, machine.getStateByName("space" + count));
+                    }
+                }
+            }
+            machine.setInitState(machine.getStateByName("space0"));
+        }
+        catch(Exception e){
+            fail("Could not set up word machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    private static String randomString(Random random, char[] alphabet, int length){
+        char[] chars = new char[length];
+        for(int i = 0; i < length; i++){
+            chars[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return String.valueOf(chars);
+    }
+
+
+    //////////////
+    // class tests
+
+    @Test
+    public void testModuloClasses(){
+        try {
+            FSM<Integer> machine = makeModuloMachine(3);
+            CompiledFSM<Integer> compiled = machine.compile();
+            CompiledFSM<Integer> separate = machine.compile(false);
+            assertEquals(3, compiled.getClassCount());
+            assertEquals(DIGITS.length, separate.getClassCount());
+            for(char digit : DIGITS){
+                assertEquals(compiled.columnOf(DIGITS[(digit - '0') % 3]), compiled.columnOf(digit));
+                assertEquals(digit - '0', separate.columnOf(digit));
+            }
+            assertEquals(-1, compiled.columnOf('a'));
+
+            Random random = new Random(3);
+            for(int i = 0; i < 200; i++){
+                String data = randomString(random, DIGITS, random.nextInt(30));
+                assertEquals(separate.runToId(data), compiled.runToId(data));
+                assertSame(machine.runMachine(data), compiled.runMachine(data));
+            }
+
+            // a modulo bigger than the base keeps every digit apart
+            assertEquals(DIGITS.length, makeModuloMachine(13).compile().getClassCount());
+        }
+        catch(Exception e){
+            fail("Could not compile with classes: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNullTransitionClasses(){
+        FSM<Integer> machine = new FSM<>(DIGITS.clone());
+        try {
+            State<Integer> ones = machine.setNewFinalState("ones", 1);
+            machine.setTransition(ones, '1', ones);
+            machine.setInitState(ones);
+            CompiledFSM<Integer> compiled = machine.compile();
+            assertEquals(2, compiled.getClassCount());
+            assertEquals(compiled.columnOf('0'), compiled.columnOf('9'));
+            assertSame(ones, compiled.runMachine("111"));
+            assertSame(machine.getNullState(), compiled.runMachine("1121"));
+        }
+        catch(Exception e){
+            fail("Could not compile with classes: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLargeAlphabetClasses(){
+        FSM<Integer> machine = makeWordMachine();
+        char[] text = "ab 9\u00e9\u4e00-\n\u0663z".toCharArray();
+        try {
+            CompiledFSM<Integer> compiled = machine.compile();
+            assertEquals(2, compiled.getClassCount());
+            assertEquals(compiled.columnOf('a'), compiled.columnOf('\u4e00'));
+            assertEquals(compiled.columnOf(' '), compiled.columnOf('\u0663'));
+
+            Random random = new Random(5);
+            for(int i = 0; i < 200; i++){
+                String data = randomString(random, text, random.nextInt(40));
+                assertSame(machine.runMachine(data), compiled.runMachine(data));
+                assertSame(machine.runMachine(data), compiled.specialize().runMachine(data));
+            }
+
+            Path path = Files.createTempFile("machine", ".fsm");
+            path.toFile().deleteOnExit();
+            CompiledFSMFile.write(compiled, path, ResultCodec.INTEGER);
+            CompiledFSM<Integer> loaded = CompiledFSMFile.map(path, ResultCodec.INTEGER);
+            assertEquals(2, loaded.getClassCount());
+            for(int i = 0; i < 200; i++){
+                String data = randomString(random, text, random.nextInt(40));
+                assertEquals(compiled.runToId(data), loaded.runToId(data));
+            }
+        }
+        catch(Exception e){
+            fail("Could not compile with classes: " + e.getMessage());
+        }
+    }
+}
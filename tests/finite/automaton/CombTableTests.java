@@ -0,0 +1,135 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class CombTableTests extends TestCase {
+
+    char[] LETTERS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+
+
+    //////////////
+    // private helpers
+
+    // accepts the provided words, with each word's state valued by its position
+    private FSM<Integer> makeTrieMachine(String[] words){
+        FSM<Integer> machine = new FSM<>(LETTERS.clone());
+        try {
+            State<Integer> root = machine.setNewState("");
+            machine.setInitState(root);
+            for(int i = 0; i < words.length; i++){
+                State<Integer> current = root;
+                for(int j = 0; j < words[i].length(); j++){
+                    State<Integer> next = machine.getTransition(current, words[i].charAt(j));
+                    if(next == machine.getNullState()){
+                        next = machine.setNewState(words[i].substring(0, j + 1));
+                        machine.setTransition(current, words[i].charAt(j), next);
+                    }
+                    current = next;
+                }
+                current.setFinality(true);
+                current.setValue(i);
+            }
+        }
+        catch(Exception e){
+            fail("Could not set up trie machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    private String[] randomWords(Random random, int count){
+        String[] words = new String[count];
+        for(int i = 0; i < count; i++){
+            char[] word = new char[1 + random.nextInt(8)];
+            for(int j = 0; j < word.length; j++){
+                word[j] = LETTERS[random.nextInt(LETTERS.length)];
+            }
+            words[i] = String.valueOf(word);
+        }
+        return words;
+    }
+
+
+    //////////////
+    // packing tests
+
+    @Test
+    public void testPackMatchesDense(){
+        Random random = new Random(37);
+        for(int density : new int[]{2, 5, 20}){
+            int stateCount = 300;
+            int columnCount = 40;
+            int[] dense = new int[stateCount * columnCount];
+            for(int i = columnCount; i < dense.length; i++){
+                dense[i] = random.nextInt(100) < density ? random.nextInt(stateCount) : CompiledFSM.NULL_ID;
+            }
+            CombTable table = CombTable.pack(dense, stateCount, columnCount, (long) dense.length * Integer.BYTES / 2);
+            if(density == 20){
+                // too dense to take at most half the memory
+                assertNull(table);
+                continue;
+            }
+            assertNotNull(table);
+            assertTrue(table.getBytes() <= (long) dense.length * Integer.BYTES / 2);
+            for(int id = 0; id < stateCount; id++){
+                for(int col = 0; col < columnCount; col++){
+                    assertEquals(dense[id * columnCount + col], table.next(id, col));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSparseMachine(){
+        Random random = new Random(11);
+        String[] words = randomWords(random, 500);
+        FSM<Integer> machine = makeTrieMachine(words);
+        try {
+            CompiledFSM<Integer> compiled = machine.compile();
+            assertTrue(compiled.getTable() instanceof CombTable);
+            assertTrue(compiled.getTableBytes() <= (long) compiled.getStateCount() * compiled.getClassCount()
+                    * TransitionTable.denseWidth(compiled.getStateCount()) / 2);
+
+            String[] others = randomWords(random, 500);
+            for(int i = 0; i < words.length; i++){
+                assertSame(machine.runMachine(words[i]), compiled.runMachine(words[i]));
+                assertSame(machine.runMachine(others[i]), compiled.runMachine(others[i]));
+            }
+
+            Path path = Files.createTempFile("machine", ".fsm");
+            path.toFile().deleteOnExit();
+            CompiledFSMFile.write(compiled, path, ResultCodec.INTEGER);
+            CompiledFSM<Integer> loaded = CompiledFSMFile.map(path, ResultCodec.INTEGER);
+            for(int i = 0; i < words.length; i++){
+                assertEquals(compiled.runToId(words[i]), loaded.runToId(words[i]));
+                assertEquals(compiled.runToId(others[i]), loaded.runToId(others[i]));
+            }
+        }
+        catch(Exception e){
+            fail("Could not run sparse machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDenseMachine(){
+        FSM<Integer> machine = new FSM<>(LETTERS.clone());
+        try {
+            State<Integer> state = machine.setNewFinalState("any", 0);
+            for(char c : LETTERS){
+                machine.setTransition(state, c, state);
+            }
+            machine.setInitState(state);
+            CompiledFSM<Integer> compiled = machine.compile();
+            assertFalse(compiled.getTable() instanceof CombTable);
+            assertSame(state, compiled.runMachine("word"));
+        }
+        catch(Exception e){
+            fail("Could not run dense machine: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.CorruptMachineFileException;
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertThrows;
+
+public class CompiledFSMFileTests extends TestCase {
+
+    char[] ALPHABET = {'0', '1', '2'};
+    String[] VALID_STRINGS = {"", "0", "1", "2", "12", "10", "22", "2101", "1111111", "2102110012"};
+    String[] INVALID_STRINGS = {"3", "a", "13", "1111113", "2$"};
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 3 number modulo the provided modulo, compiled
+    private CompiledFSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < ALPHABET.length; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), ALPHABET[digit],
+                            machine.getStateByName("S" + ((i * ALPHABET.length + digit) % modulo)));
+                }
+            }
+            machine.setInitState(machine.getStateByName("S0"));
+            return machine.compile();
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Path writeTemp(CompiledFSM<Integer> machine) throws IOException{
+        Path path = Files.createTempFile("machine", ".fsm");
+        path.toFile().deleteOnExit();
+        CompiledFSMFile.write(machine, path, ResultCodec.INTEGER);
+        return path;
+    }
+
+    private void flipByte(Path path, long position) throws IOException{
+        try(RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")){
+            file.seek(position);
+            int b = file.read();
+            file.seek(position);
+            file.write(b ^ 0x5A);
+        }
+    }
+
+    // rewrites the checksum in the header so that the file only fails the deeper checks
+    private void fixChecksum(Path path) throws IOException{
+        byte[] bytes = Files.readAllBytes(path);
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, CompiledFSMFile.HEADER_BYTES, bytes.length - CompiledFSMFile.HEADER_BYTES);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putLong(40, checksum.getValue());
+        Files.write(path, bytes);
+    }
+
+
+    //////////////
+    // round trip tests
+
+    @Test
+    public void testRoundTrip(){
+        CompiledFSM<Integer> machine = makeModuloMachine(7);
+        try {
+            CompiledFSM<Integer> loaded = CompiledFSMFile.map(writeTemp(machine), ResultCodec.INTEGER);
+            assertEquals(machine.getStateCount(), loaded.getStateCount());
+            assertEquals(machine.getInitId(), loaded.getInitId());
+            assertEquals(String.valueOf(machine.getAlphabet()), String.valueOf(loaded.getAlphabet()));
+            assertNull(loaded.getState(CompiledFSM.NULL_ID).getName());
+
+            for(int id = 0; id < machine.getStateCount(); id++){
+                State<Integer> expected = machine.getState(id);
+                State<Integer> actual = loaded.getState(id);
+                assertEquals(expected.getName(), actual.getName());
+                assertEquals(expected.isFinal(), actual.isFinal());
+                assertEquals(expected.getValue(), actual.getValue());
+                assertEquals(machine.isAbsorbing(id), loaded.isAbsorbing(id));
+            }
+        }
+        catch(Exception e){
+            fail("Could not round trip machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLoadedMatchesMachine(){
+        CompiledFSM<Integer> machine = makeModuloMachine(11);
+        try {
+            CompiledFSM<Integer> loaded = CompiledFSMFile.map(writeTemp(machine), ResultCodec.INTEGER, false);
+            for(String s : VALID_STRINGS){
+                assertEquals(machine.runToId(s), loaded.runToId(s));
+                assertEquals(machine.runMachine(s).getStateResult(), loaded.runMachine(s).getStateResult());
+            }
+            for(String s : INVALID_STRINGS){
+                assertThrows(InvalidCharacterException.class, () -> loaded.runMachine(s));
+            }
+        }
+        catch(Exception e){
+            fail("Could not run loaded machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTableWidths(){
+        // 255 and 65535 states, with the null state, are the last to fit in bytes and shorts
+        for(int modulo : new int[]{7, 255, 256, 65535, 65536}){
+            CompiledFSM<Integer> machine = makeModuloMachine(modulo);
+            try {
+                Path path = writeTemp(machine);
+                CompiledFSM<Integer> loaded = CompiledFSMFile.map(path, ResultCodec.INTEGER);
+                long entries = (long) loaded.getStateCount() * loaded.getClassCount();
+                long width = modulo < 256 ? Byte.BYTES : modulo < 65536 ? Short.BYTES : Integer.BYTES;
+                assertEquals(entries * width, loaded.getTableBytes());
+                for(String s : VALID_STRINGS){
+                    assertEquals(machine.runToId(s), loaded.runToId(s));
+                }
+            }
+            catch(Exception e){
+                fail("Could not round trip machine: " + e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testStringValues(){
+        FSM<String> machine = new FSM<>(ALPHABET.clone());
+        try {
+            State<String> state = machine.setNewFinalState("ones", "all ones \u00b9");
+            machine.setTransition(state, '1', state);
+            machine.setInitState(state);
+
+            Path path = Files.createTempFile("machine", ".fsm");
+            path.toFile().deleteOnExit();
+            CompiledFSMFile.write(machine.compile(), path, ResultCodec.STRING);
+            CompiledFSM<String> loaded = CompiledFSMFile.map(path, ResultCodec.STRING);
+
+            assertEquals("all ones \u00b9", loaded.runMachine("111").getStateResult());
+            assertNull(loaded.runMachine("101").getStateResult());
+        }
+        catch(Exception e){
+            fail("Could not round trip string machine: " + e.getMessage());
+        }
+    }
+
+
+    @Test
+    public void testReplaceExisting(){
+        try {
+            Path directory = Files.createTempDirectory("machines");
+            Path path = directory.resolve("machine.fsm");
+            CompiledFSM<Integer> five = makeModuloMachine(5);
+            CompiledFSM<Integer> seven = makeModuloMachine(7);
+            CompiledFSMFile.write(five, path, ResultCodec.INTEGER);
+            CompiledFSM<Integer> before = CompiledFSMFile.map(path, ResultCodec.INTEGER);
+
+            // the new file is moved over the old one, whose mapping is left as it was
+            CompiledFSMFile.write(seven, path, ResultCodec.INTEGER);
+            CompiledFSM<Integer> after = CompiledFSMFile.map(path, ResultCodec.INTEGER);
+            for(String s : VALID_STRINGS){
+                assertEquals(five.runMachine(s).getValue(), before.runMachine(s).getValue());
+                assertEquals(seven.runMachine(s).getValue(), after.runMachine(s).getValue());
+            }
+            try(Stream<Path> files = Files.list(directory)){
+                assertEquals(List.of(path), files.collect(Collectors.toList()));
+            }
+            Files.delete(path);
+            Files.delete(directory);
+        }
+        catch(Exception e){
+            fail("Could not replace file: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // corrupt file tests
+
+    @Test
+    public void testBadMagic(){
+        try {
+            Path path = writeTemp(makeModuloMachine(5));
+            flipByte(path, 0);
+            assertThrows(CorruptMachineFileException.class, () -> CompiledFSMFile.map(path, ResultCodec.INTEGER));
+        }
+        catch(Exception e){
+            fail("Could not set up file: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testUnsupportedVersion(){
+        try {
+            Path path = writeTemp(makeModuloMachine(5));
+            flipByte(path, 4);
+            assertThrows(CorruptMachineFileException.class, () -> CompiledFSMFile.map(path, ResultCodec.INTEGER));
+        }
+        catch(Exception e){
+            fail("Could not set up file: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testWidthMismatch(){
+        try {
+            Path path = writeTemp(makeModuloMachine(5));
+            flipByte(path, 8);
+            assertThrows(CorruptMachineFileException.class, () -> CompiledFSMFile.map(path, ResultCodec.INTEGER));
+        }
+        catch(Exception e){
+            fail("Could not set up file: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testChecksumMismatch(){
+        try {
+            Path path = writeTemp(makeModuloMachine(5));
+            flipByte(path, Files.size(path) - 1);
+            assertThrows(CorruptMachineFileException.class, () -> CompiledFSMFile.map(path, ResultCodec.INTEGER));
+        }
+        catch(Exception e){
+            fail("Could not set up file: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTruncated(){
+        try {
+            Path path = writeTemp(makeModuloMachine(5));
+            try(RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")){
+                file.setLength(file.length() - Integer.BYTES);
+            }
+            assertThrows(CorruptMachineFileException.class, () -> CompiledFSMFile.map(path, ResultCodec.INTEGER));
+
+            Path empty = Files.createTempFile("machine", ".fsm");
+            empty.toFile().deleteOnExit();
+            assertThrows(CorruptMachineFileException.class, () -> CompiledFSMFile.map(empty, ResultCodec.INTEGER));
+        }
+        catch(Exception e){
+            fail("Could not set up file: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTransitionOutOfRange(){
+        try {
+            Path path = writeTemp(makeModuloMachine(5));
+            // the last table entry, far past the state count
+            flipByte(path, Files.size(path) - 1);
+            fixChecksum(path);
+            assertThrows(CorruptMachineFileException.class,
+                    () -> CompiledFSMFile.map(path, ResultCodec.INTEGER, true));
+        }
+        catch(Exception e){
+            fail("Could not set up file: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLengthOutOfRange(){
+        try {
+            for(int length : new int[]{-1, Integer.MAX_VALUE, 1 << 20}){
+                Path path = writeTemp(makeModuloMachine(5));
+                byte[] bytes = Files.readAllBytes(path);
+                // the length of the name of the first state after the null state, which has no name
+                int position = CompiledFSMFile.HEADER_BYTES + 2 * Integer.BYTES + 2 * 2 * ALPHABET.length + 2;
+                ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                assertEquals(2, buffer.getInt(position));
+                buffer.putInt(position, length);
+                Files.write(path, bytes);
+                fixChecksum(path);
+                assertThrows(CorruptMachineFileException.class, () -> CompiledFSMFile.map(path, ResultCodec.INTEGER));
+            }
+        }
+        catch(Exception e){
+            fail("Could not set up file: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+public class FootprintTests extends TestCase {
+
+    char[] DIGITS = "0123456789".toCharArray();
+
+    /**
+     * How far estimates may be from the measured heap usage, as a fraction of the measure.
+     */
+    final static double TOLERANCE = 0.1;
+
+
+    //////////////
+    // private helpers
+
+    private static long usedHeap(){
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void assertClose(long measured, long estimated){
+        assertTrue("estimated " + estimated + " bytes, measured " + measured,
+                Math.abs(estimated - measured) <= TOLERANCE * measured);
+    }
+
+    // residue of a base 10 number modulo the provided modulo, with named or anonymous states
+    @SuppressWarnings("unchecked")
+    private FSM<Integer> makeModuloMachine(int modulo, boolean anonymous){
+        FSM<Integer> machine = new FSM<>(DIGITS.clone());
+        try {
+            if(anonymous){
+                machine.setNewAnonymousStates("S", modulo, true, index -> index);
+                for(int i = 0; i < modulo; i++){
+                    for(int digit = 0; digit < DIGITS.length; digit++){
+                        machine.setTransition(i, DIGITS[digit], (i * DIGITS.length + digit) % modulo);
+                    }
+                }
+                machine.setInitState(machine.getAnonymousState(0));
+            }
+            else{
+                State<Integer>[] states = (State<Integer>[]) new State<?>[modulo];
+                for(int i = 0; i < modulo; i++){
+                    states[i] = machine.setNewFinalState("S" + i, i);
+                }
+                for(int i = 0; i < modulo; i++){
+                    for(int digit = 0; digit < DIGITS.length; digit++){
+                        machine.setTransition(states[i], DIGITS[digit], states[(i * DIGITS.length + digit) % modulo]);
+                    }
+                }
+                machine.setInitState(states[0]);
+            }
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+
+    //////////////
+    // estimate tests
+
+    @Test
+    public void testNamedMachineEstimate(){
+        long before = usedHeap();
+        FSM<Integer> machine = makeModuloMachine(100_000, false);
+        long measured = usedHeap() - before;
+        Footprint footprint = machine.getFootprint();
+        assertClose(measured, footprint.getHeapBytes());
+        assertEquals(0, footprint.getOffHeapBytes());
+        assertTrue(footprint.getNameBytes() > 0);
+        assertTrue(footprint.getResultBytes() > 0);
+    }
+
+    @Test
+    public void testAnonymousMachineEstimate(){
+        long before = usedHeap();
+        FSM<Integer> machine = makeModuloMachine(1_000_000, true);
+        long measured = usedHeap() - before;
+        Footprint footprint = machine.getFootprint();
+        assertClose(measured, footprint.getHeapBytes());
+        // names are made when asked for, and values computed
+        assertEquals(0, footprint.getNameBytes());
+        assertTrue(footprint.getResultBytes() < 1000);
+    }
+
+    @Test
+    public void testCompiledMachineEstimate(){
+        FSM<Integer> machine = makeModuloMachine(1_000_000, true);
+        try {
+            long before = usedHeap();
+            CompiledFSM<Integer> compiled = machine.compile();
+            long measured = usedHeap() - before;
+            assertClose(measured, compiled.getFootprint().getHeapBytes());
+            assertEquals(compiled.getTableBytes() + Footprint.arrayBytes(DIGITS.length, Integer.BYTES),
+                    compiled.getFootprint().getTransitionBytes());
+        }
+        catch(Exception e){
+            fail("Could not compile machine: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // part tests
+
+    @Test
+    public void testParts(){
+        FSM<Integer> machine = new FSM<>(DIGITS.clone());
+        Footprint empty = machine.getFootprint();
+        long results = empty.getResultBytes();
+        assertEquals(machine.getAlphabetIndex().getBytes(), empty.getAlphabetBytes());
+
+        State<Integer> state = machine.setNewFinalState("name", 1000);
+        Footprint one = machine.getFootprint();
+        assertEquals(Footprint.stringBytes("name"), one.getNameBytes());
+        assertEquals(results + Footprint.SMALL_BOX, one.getResultBytes());
+
+        // equal results are counted once
+        State<Integer> other = machine.setNewFinalState("other", state.getValue());
+        assertEquals(results + Footprint.SMALL_BOX, machine.getFootprint().getResultBytes());
+        other.setValue(1001);
+        assertEquals(results + 2 * Footprint.SMALL_BOX, machine.getFootprint().getResultBytes());
+
+        Footprint sum = one.plus(empty);
+        assertEquals(one.getHeapBytes() + empty.getHeapBytes(), sum.getHeapBytes());
+        assertEquals(one.getTotalBytes(), one.getHeapBytes());
+    }
+
+    @Test
+    public void testOffHeap(){
+        FSM<Integer> machine = makeModuloMachine(1000, true);
+        try(TableArena arena = TableArena.ofShared()) {
+            CompiledFSM<Integer> compiled = machine.compile(arena);
+            Footprint footprint = compiled.getFootprint();
+            assertEquals(compiled.getTableBytes(), footprint.getOffHeapBytes());
+            assertEquals(footprint.getHeapBytes() + compiled.getTableBytes(), footprint.getTotalBytes());
+            assertTrue(footprint.getTransitionBytes() < 1000);
+        }
+        catch(Exception e){
+            fail("Could not compile machine: " + e.getMessage());
+        }
+    }
+}
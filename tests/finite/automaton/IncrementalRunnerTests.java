@@ -0,0 +1,175 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class IncrementalRunnerTests extends TestCase {
+
+    char[] ALPHABET = {'0', '1', '2'};
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 3 number modulo the provided modulo
+    private FSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < ALPHABET.length; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), ALPHABET[digit],
+                            machine.getStateByName("S" + ((i * ALPHABET.length + digit) % modulo)));
+                }
+            }
+            machine.setInitState(machine.getStateByName("S0"));
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    // accepts strings without "22", going to the null state otherwise
+    private FSM<Integer> makePartialMachine(){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            State<Integer> clear = machine.setNewFinalState("clear", 0);
+            State<Integer> two = machine.setNewFinalState("two", 1);
+            machine.setTransition(clear, '0', clear);
+            machine.setTransition(clear, '1', clear);
+            machine.setTransition(clear, '2', two);
+            machine.setTransition(two, '0', clear);
+            machine.setTransition(two, '1', clear);
+            machine.setInitState(clear);
+        }
+        catch(Exception e){
+            fail("Could not set up partial machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    private String randomString(Random random, int length){
+        char[] chars = new char[length];
+        for(int i = 0; i < length; i++){
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return String.valueOf(chars);
+    }
+
+    // applies random edits to both the runner and a copy of its string, checking them against each other
+    private void checkRandomEdits(FSM<Integer> machine, Random random, int startLength, int edits){
+        try {
+            CompiledFSM<Integer> compiled = machine.compile();
+            StringBuilder expected = new StringBuilder(randomString(random, startLength));
+            IncrementalRunner<Integer> runner = new IncrementalRunner<>(compiled, expected);
+            assertSame(machine.runMachine(expected.toString()), runner.getFinalState());
+            for(int i = 0; i < edits; i++){
+                int choice = random.nextInt(3);
+                char c = ALPHABET[random.nextInt(ALPHABET.length)];
+                if(choice == 0 && expected.length() > 0){
+                    int index = random.nextInt(expected.length());
+                    runner.setChar(index, c);
+                    expected.setCharAt(index, c);
+                }
+                else if(choice == 1 && expected.length() > 0){
+                    int index = random.nextInt(expected.length());
+                    runner.delete(index);
+                    expected.deleteCharAt(index);
+                }
+                else{
+                    int index = random.nextInt(expected.length() + 1);
+                    runner.insert(index, c);
+                    expected.insert(index, c);
+                }
+                assertEquals(expected.length(), runner.length());
+                assertEquals(compiled.runToId(expected), runner.getFinalId());
+            }
+            assertEquals(expected.toString(), runner.toString());
+            for(int i = 0; i < expected.length(); i++){
+                assertEquals(expected.charAt(i), runner.charAt(i));
+            }
+        }
+        catch(Exception e){
+            fail("Could not edit string: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testRandomEdits(){
+        Random random = new Random(46);
+        for(int modulo : new int[]{1, 2, 7, 40}){
+            checkRandomEdits(makeModuloMachine(modulo), random, 300, 2000);
+        }
+    }
+
+    @Test
+    public void testNullState(){
+        checkRandomEdits(makePartialMachine(), new Random(47), 100, 2000);
+    }
+
+    @Test
+    public void testGrowFromEmpty(){
+        // every node is inserted, so the shape of the tree is all down to merges
+        checkRandomEdits(makeModuloMachine(7), new Random(48), 0, 5000);
+    }
+
+    @Test
+    public void testLongString(){
+        Random random = new Random(49);
+        FSM<Integer> machine = makeModuloMachine(97);
+        String data = randomString(random, 200_000);
+        try {
+            IncrementalRunner<Integer> runner = new IncrementalRunner<>(machine, data);
+            char[] chars = data.toCharArray();
+            for(int i = 0; i < 100; i++){
+                int index = random.nextInt(chars.length);
+                chars[index] = ALPHABET[random.nextInt(ALPHABET.length)];
+                runner.setChar(index, chars[index]);
+            }
+            assertSame(machine.runMachine(String.valueOf(chars)), runner.getFinalState());
+        }
+        catch(Exception e){
+            fail("Could not edit long string: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalid(){
+        FSM<Integer> machine = makeModuloMachine(7);
+        assertThrows(InvalidCharacterException.class, () -> new IncrementalRunner<>(machine, "0123"));
+        try {
+            IncrementalRunner<Integer> runner = new IncrementalRunner<>(machine, "1021");
+            int id = runner.getFinalId();
+            assertThrows(InvalidCharacterException.class, () -> runner.setChar(0, '3'));
+            assertThrows(InvalidCharacterException.class, () -> runner.insert(0, 'a'));
+            assertThrows(IndexOutOfBoundsException.class, () -> runner.setChar(4, '1'));
+            assertThrows(IndexOutOfBoundsException.class, () -> runner.insert(5, '1'));
+            assertThrows(IndexOutOfBoundsException.class, () -> runner.delete(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> runner.charAt(4));
+            assertEquals("1021", runner.toString());
+            assertEquals(id, runner.getFinalId());
+        }
+        catch(Exception e){
+            fail("Could not set up runner: " + e.getMessage());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new IncrementalRunner<>(makeModuloMachine(IncrementalRunner.MAX_STATES + 1), ""));
+    }
+}
@@ -0,0 +1,188 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.IncompleteMachineException;
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertThrows;
+
+public class MultiMachineRunnerTests extends TestCase {
+
+    char[] ALPHABET = {'0', '1', '2'};
+    String[] VALID_STRINGS = {"", "0", "1", "2", "12", "10", "22", "2101", "1111111", "2102110012"};
+    String[] INVALID_STRINGS = {"3", "a", "13", "1111113", "2$"};
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 3 number modulo the provided modulo
+    private FSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < ALPHABET.length; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), ALPHABET[digit],
+                            machine.getStateByName("S" + ((i * ALPHABET.length + digit) % modulo)));
+                }
+            }
+            machine.setInitState(machine.getStateByName("S0"));
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    // accepts strings with no two '2' in a row, as true, going to the null state otherwise
+    private FSM<Boolean> makeValidatorMachine(){
+        FSM<Boolean> machine = new FSM<>(ALPHABET.clone());
+        try {
+            State<Boolean> clear = machine.setNewFinalState("clear", true);
+            State<Boolean> two = machine.setNewFinalState("two", true);
+            for(char c : ALPHABET){
+                machine.setTransition(clear, c, c == '2' ? two : clear);
+                if(c != '2'){
+                    machine.setTransition(two, c, clear);
+                }
+            }
+            machine.setInitState(clear);
+        }
+        catch(Exception e){
+            fail("Could not set up validator machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    // accepts strings of only '1'
+    private FSM<Integer> makeOnesMachine(){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            State<Integer> state = machine.setNewFinalState("ones", 1);
+            machine.setTransition(state, '1', state);
+            machine.setInitState(state);
+        }
+        catch(Exception e){
+            fail("Could not set up ones machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+
+    //////////////
+    // compile tests
+
+    @Test
+    public void testCompiledMatchesMachine(){
+        FSM<Integer> machine = makeModuloMachine(5);
+        try {
+            CompiledFSM<Integer> compiled = machine.compile();
+            assertEquals(machine.getStates().size(), compiled.getStateCount());
+            assertSame(machine.getNullState(), compiled.getState(CompiledFSM.NULL_ID));
+            assertSame(machine.getInitState(), compiled.getState(compiled.getInitId()));
+
+            for(String s : VALID_STRINGS){
+                assertSame(machine.runMachine(s), compiled.runMachine(s));
+            }
+        }
+        catch(Exception e){
+            fail("Could not run compiled machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCompileNotReady(){
+        FSM<Integer> machine = new FSM<>(ALPHABET);
+        assertThrows(IncompleteMachineException.class, machine::compile);
+    }
+
+
+    //////////////
+    // run tests
+
+    @Test
+    public void testRunnerMatchesSeparateRuns(){
+        List<FSM<Integer>> machines = List.of(makeModuloMachine(2), makeModuloMachine(7),
+                makeModuloMachine(11), makeOnesMachine());
+        try {
+            MultiMachineRunner<Integer> runner = new MultiMachineRunner<>(machines);
+            assertEquals(machines.size(), runner.getMachineCount());
+
+            for(String s : VALID_STRINGS){
+                List<State<? extends Integer>> outputs = runner.runMachines(s);
+                assertEquals(machines.size(), outputs.size());
+                for(int m = 0; m < machines.size(); m++){
+                    assertSame(machines.get(m).runMachine(s), outputs.get(m));
+                }
+            }
+        }
+        catch(Exception e){
+            fail("Could not run machines together: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRunnerMixedTypes(){
+        FSM<Integer> seven = makeModuloMachine(7);
+        FSM<Integer> eleven = makeModuloMachine(11);
+        FSM<Boolean> validator = makeValidatorMachine();
+        try {
+            MultiMachineRunner<Object> runner = MultiMachineRunner.of(seven, validator, eleven);
+            for(String s : VALID_STRINGS){
+                List<State<?>> outputs = runner.runMachines(s);
+                assertSame(seven.runMachine(s), outputs.get(0));
+                assertSame(validator.runMachine(s), outputs.get(1));
+                assertSame(eleven.runMachine(s), outputs.get(2));
+            }
+            List<State<?>> outputs = runner.runMachines("1220");
+            assertEquals((1 * 27 + 2 * 9 + 2 * 3) % 7, outputs.get(0).getStateResult());
+            assertNull(outputs.get(1).getStateResult());
+            assertEquals(Boolean.TRUE, runner.runMachines("1202").get(1).getStateResult());
+        }
+        catch(Exception e){
+            fail("Could not run machines of different types together: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRunnerAllAbsorbed(){
+        FSM<Integer> ones = makeOnesMachine();
+        try {
+            MultiMachineRunner<Integer> runner = MultiMachineRunner.of(ones, makeOnesMachine());
+            for(State<? extends Integer> output : runner.runMachines("1102")){
+                assertNull(output.getStateResult());
+            }
+            assertSame(ones.getNullState(), runner.runMachines("0").get(0));
+        }
+        catch(Exception e){
+            fail("Could not run absorbed machines: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRunnerInvalidCharacters(){
+        try {
+            MultiMachineRunner<Integer> runner = MultiMachineRunner.of(makeModuloMachine(3),
+                    makeOnesMachine());
+            for(String s : INVALID_STRINGS){
+                assertThrows(InvalidCharacterException.class, () -> runner.runMachines(s));
+            }
+        }
+        catch(Exception e){
+            fail("Could not set up runner: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRunnerNotReady(){
+        assertThrows(IncompleteMachineException.class,
+                () -> MultiMachineRunner.of(makeOnesMachine(), new FSM<Integer>(ALPHABET)));
+    }
+}
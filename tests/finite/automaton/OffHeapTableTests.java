@@ -0,0 +1,231 @@
+package finite.automaton;
+
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class OffHeapTableTests extends TestCase {
+
+    char[] DIGITS = "0123456789".toCharArray();
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 10 number modulo the provided modulo
+    private FSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(DIGITS.clone());
+        try {
+            machine.setNewAnonymousStates("S", modulo, true, index -> index);
+            for(int i = 0; i < modulo; i++){
+                for(int digit = 0; digit < DIGITS.length; digit++){
+                    machine.setTransition(i, DIGITS[digit], (i * DIGITS.length + digit) % modulo);
+                }
+            }
+            machine.setInitState(machine.getAnonymousState(0));
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    // the same machine, with its table copied off the heap in chunks of 2 to the provided power entries
+    @SuppressWarnings("unchecked")
+    private CompiledFSM<Integer> copyOffHeap(CompiledFSM<Integer> machine, TableArena arena, int chunkShift){
+        int stateCount = machine.getStateCount();
+        int columnCount = machine.getClassCount();
+        OffHeapTable table = new OffHeapTable(arena, stateCount, columnCount, chunkShift);
+        State<Integer>[] states = (State<Integer>[]) new State<?>[stateCount];
+        table.acquire();
+        for(int id = 0; id < stateCount; id++){
+            states[id] = machine.getState(id);
+            for(int col = 0; col < columnCount; col++){
+                table.set(id, col, machine.step(id, col));
+            }
+        }
+        table.release();
+        int[] classes = new int[machine.getAlphabetIndex().size()];
+        for(int symbol = 0; symbol < classes.length; symbol++){
+            classes[symbol] = machine.classOf(symbol);
+        }
+        return new CompiledFSM<>(machine.getAlphabetIndex(), classes, table, states, machine.getInitId(), null);
+    }
+
+    private void assertSameRuns(CompiledFSM<Integer> expected, CompiledFSM<Integer> actual, long seed)
+            throws Exception{
+        Random random = new Random(seed);
+        for(int i = 0; i < 200; i++){
+            String data = Long.toString(Math.abs(random.nextLong()));
+            assertSame(expected.runMachine(data), actual.runMachine(data));
+        }
+    }
+
+
+    //////////////
+    // table tests
+
+    @Test
+    public void testMatchesHeapTable(){
+        FSM<Integer> machine = makeModuloMachine(997);
+        try(TableArena arena = TableArena.ofShared()) {
+            CompiledFSM<Integer> heap = machine.compile();
+            CompiledFSM<Integer> offHeap = machine.compile(arena);
+            assertTrue(offHeap.getTable() instanceof OffHeapTable);
+            assertEquals(998L * 10 * Integer.BYTES, offHeap.getTableBytes());
+            assertEquals(offHeap.getTableBytes(), arena.getBytes());
+            assertSameRuns(heap, offHeap, 41);
+            assertEquals(Integer.valueOf((int) (123456789L % 997)), offHeap.runMachine("123456789").getStateResult());
+        }
+        catch(Exception e){
+            fail("Could not run off-heap machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testChunks(){
+        FSM<Integer> machine = makeModuloMachine(50);
+        try(TableArena arena = TableArena.ofShared()) {
+            CompiledFSM<Integer> heap = machine.compile();
+            // 16 entries per chunk, so rows straddle chunks
+            CompiledFSM<Integer> chunked = copyOffHeap(heap, arena, 4);
+            for(int id = 0; id < heap.getStateCount(); id++){
+                for(int col = 0; col < heap.getClassCount(); col++){
+                    assertEquals(heap.step(id, col), chunked.step(id, col));
+                }
+            }
+            assertSameRuns(heap, chunked, 16);
+            assertEquals(51L * 10 * Integer.BYTES, arena.getBytes());
+        }
+        catch(Exception e){
+            fail("Could not run chunked machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRenumberingStaysOffHeap(){
+        FSM<Integer> machine = makeModuloMachine(101);
+        try(TableArena arena = TableArena.ofShared()) {
+            CompiledFSM<Integer> offHeap = machine.compile(arena);
+            CompiledFSM<Integer> renumbered = offHeap.renumberBreadthFirst();
+            assertTrue(renumbered.getTable() instanceof OffHeapTable);
+            assertEquals(2 * offHeap.getTableBytes(), arena.getBytes());
+            assertSameRuns(offHeap, renumbered, 101);
+        }
+        catch(Exception e){
+            fail("Could not renumber off-heap machine: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // lifetime tests
+
+    @Test
+    public void testClose(){
+        FSM<Integer> machine = makeModuloMachine(7);
+        TableArena arena = TableArena.ofShared();
+        try {
+            CompiledFSM<Integer> first = machine.compile(arena);
+            CompiledFSM<Integer> second = machine.compile(arena);
+            assertEquals(Integer.valueOf(3), first.runMachine("10").getStateResult());
+            assertTrue(arena.isOpen());
+            arena.close();
+            assertFalse(arena.isOpen());
+            // closing twice does nothing
+            arena.close();
+
+            assertThrows(IllegalStateException.class, () -> first.runToId("10"));
+            assertThrows(IllegalStateException.class, () -> second.step(1, 0));
+            // as do runners stepping through the table, once before they start
+            BatchRunner<Integer> batch = new BatchRunner<>(first);
+            RepetitionRunner<Integer> repetitions = new RepetitionRunner<>(first);
+            assertThrows(IllegalStateException.class, () -> batch.runToIds(List.of("10", "2")));
+            assertThrows(IllegalStateException.class, () -> repetitions.runToId('1', 10));
+            assertThrows(IllegalStateException.class, () -> machine.compile(arena));
+            // the machine itself still runs
+            assertEquals(Integer.valueOf(3), machine.runMachine("10").getStateResult());
+        }
+        catch(Exception e){
+            fail("Could not close arena: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseDuringRun(){
+        FSM<Integer> machine = makeModuloMachine(997);
+        TableArena arena = TableArena.ofShared();
+        try {
+            CompiledFSM<Integer> offHeap = machine.compile(arena);
+            String digits = "123456789123456789";
+            // closes the arena halfway through the run reading it
+            CharSequence closing = new CharSequence(){
+                public int length(){
+                    return digits.length();
+                }
+
+                public char charAt(int index){
+                    if(index == length() / 2){
+                        arena.close();
+                    }
+                    return digits.charAt(index);
+                }
+
+                public CharSequence subSequence(int start, int end){
+                    return digits.subSequence(start, end);
+                }
+            };
+            // the run under way keeps its table, and reads it to the end
+            assertEquals(machine.runMachine(digits).getStateResult(), offHeap.runMachine(closing).getStateResult());
+            assertFalse(arena.isOpen());
+            assertThrows(IllegalStateException.class, () -> offHeap.runToId(digits));
+        }
+        catch(Exception e){
+            fail("Could not close arena during run: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCloseWhileAcquired(){
+        FSM<Integer> machine = makeModuloMachine(997);
+        TableArena arena = TableArena.ofShared();
+        try {
+            CompiledFSM<Integer> heap = machine.compile();
+            CompiledFSM<Integer> offHeap = machine.compile(arena);
+            // entries read one at a time are only counted once, around the whole loop
+            offHeap.acquire();
+            arena.close();
+            for(int id = 0; id < heap.getStateCount(); id++){
+                for(int col = 0; col < heap.getClassCount(); col++){
+                    assertEquals(heap.step(id, col), offHeap.next(id, col));
+                }
+            }
+            offHeap.release();
+            assertThrows(IllegalStateException.class, offHeap::acquire);
+            assertThrows(IllegalStateException.class, () -> offHeap.step(1, 0));
+        }
+        catch(Exception e){
+            fail("Could not close arena of acquired machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testAutomaticArena(){
+        FSM<Integer> machine = makeModuloMachine(7);
+        TableArena arena = TableArena.ofAuto();
+        try {
+            CompiledFSM<Integer> offHeap = machine.compile(arena);
+            assertThrows(UnsupportedOperationException.class, arena::close);
+            assertTrue(arena.isOpen());
+            assertSameRuns(machine.compile(), offHeap, 7);
+        }
+        catch(Exception e){
+            fail("Could not run machine of automatic arena: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class RepetitionRunnerTests extends TestCase {
+
+    char[] ALPHABET = {'0', '1', '2'};
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 3 number modulo the provided modulo
+    private FSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < ALPHABET.length; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), ALPHABET[digit],
+                            machine.getStateByName("S" + ((i * ALPHABET.length + digit) % modulo)));
+                }
+            }
+            machine.setInitState(machine.getStateByName("S0"));
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    // accepts strings without "22", going to the null state otherwise
+    private FSM<Integer> makePartialMachine(){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            State<Integer> clear = machine.setNewFinalState("clear", 0);
+            State<Integer> two = machine.setNewFinalState("two", 1);
+            machine.setTransition(clear, '0', clear);
+            machine.setTransition(clear, '1', clear);
+            machine.setTransition(clear, '2', two);
+            machine.setTransition(two, '0', clear);
+            machine.setTransition(two, '1', clear);
+            machine.setInitState(clear);
+        }
+        catch(Exception e){
+            fail("Could not set up partial machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    private String randomString(Random random, int length){
+        char[] chars = new char[length];
+        for(int i = 0; i < length; i++){
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return String.valueOf(chars);
+    }
+
+    private static String repeat(CharSequence block, int repetitions){
+        StringBuilder builder = new StringBuilder(block.length() * repetitions);
+        for(int i = 0; i < repetitions; i++){
+            builder.append(block);
+        }
+        return builder.toString();
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testMatchesWrittenOut(){
+        Random random = new Random(47);
+        for(FSM<Integer> machine : List.of(makeModuloMachine(1), makeModuloMachine(7),
+                makeModuloMachine(40), makePartialMachine())){
+            try {
+                RepetitionRunner<Integer> runner = new RepetitionRunner<>(machine);
+                for(int i = 0; i < 200; i++){
+                    String block = randomString(random, random.nextInt(6));
+                    int repetitions = random.nextInt(300);
+                    String written = repeat(block, repetitions);
+                    assertSame(machine.runMachine(written), runner.runMachine(block, repetitions));
+
+                    char c = ALPHABET[random.nextInt(ALPHABET.length)];
+                    assertSame(machine.runMachine(repeat(String.valueOf(c), repetitions)),
+                            runner.runMachine(c, repetitions));
+                }
+            }
+            catch(Exception e){
+                fail("Could not run repetitions: " + e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testRunLengthEncoded(){
+        Random random = new Random(48);
+        FSM<Integer> machine = makeModuloMachine(97);
+        try {
+            RepetitionRunner<Integer> runner = new RepetitionRunner<>(machine);
+            for(int i = 0; i < 100; i++){
+                int runs = random.nextInt(10);
+                char[] chars = new char[runs];
+                long[] counts = new long[runs];
+                StringBuilder written = new StringBuilder();
+                for(int run = 0; run < runs; run++){
+                    chars[run] = ALPHABET[random.nextInt(ALPHABET.length)];
+                    counts[run] = random.nextInt(50);
+                    written.append(repeat(String.valueOf(chars[run]), (int) counts[run]));
+                }
+                assertSame(machine.runMachine(written.toString()), runner.runMachine(chars, counts));
+            }
+        }
+        catch(Exception e){
+            fail("Could not run runs: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testHugeCounts(){
+        // 1 repeated n times in base 3 is (3^n - 1) / 2
+        int modulo = 1000;
+        FSM<Integer> machine = makeModuloMachine(modulo);
+        try {
+            RepetitionRunner<Integer> runner = new RepetitionRunner<>(machine);
+            BigInteger scaled = BigInteger.valueOf(2L * modulo);
+            for(long count : new long[]{1_000_000_000_000L, Long.MAX_VALUE - 1}){
+                int expected = BigInteger.valueOf(3).modPow(BigInteger.valueOf(count), scaled)
+                        .subtract(BigInteger.ONE).mod(scaled).intValue() / 2;
+                assertEquals(expected, (int) runner.runMachine('1', count).getValue());
+                // "11" repeated count / 2 times is the same string when count is even
+                assertEquals(expected, (int) runner.runMachine("11", count / 2).getValue());
+            }
+            // the null state is reached early and kept, here where one repetition meets the next
+            RepetitionRunner<Integer> partial = new RepetitionRunner<>(makePartialMachine());
+            assertEquals(CompiledFSM.NULL_ID, partial.runToId('2', Long.MAX_VALUE));
+            assertEquals(CompiledFSM.NULL_ID, partial.runToId("2012", 1_000_000_000_000L));
+        }
+        catch(Exception e){
+            fail("Could not run huge counts: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalid(){
+        try {
+            RepetitionRunner<Integer> runner = new RepetitionRunner<>(makeModuloMachine(7));
+            assertThrows(InvalidCharacterException.class, () -> runner.runToId('3', 5));
+            // checked even when nothing is repeated
+            assertThrows(InvalidCharacterException.class, () -> runner.runToId("12a", 0));
+            assertThrows(IllegalArgumentException.class, () -> runner.runToId('1', -1));
+            assertThrows(IllegalArgumentException.class, () -> runner.runToId("1", -1));
+            assertThrows(IllegalArgumentException.class, () -> runner.runToId(new char[]{'1'}, new long[0]));
+        }
+        catch(Exception e){
+            fail("Could not set up runner: " + e.getMessage());
+        }
+    }
+}
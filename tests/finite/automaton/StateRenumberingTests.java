@@ -0,0 +1,111 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class StateRenumberingTests extends TestCase {
+
+    char[] ALPHABET = {'0', '1', '2'};
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 3 number modulo the provided modulo, with an extra state that cannot be reached
+    private FSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < ALPHABET.length; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), ALPHABET[digit],
+                            machine.getStateByName("S" + ((i * ALPHABET.length + digit) % modulo)));
+                }
+            }
+            State<Integer> unreachable = machine.setNewState("unreachable");
+            machine.setTransition(unreachable, '0', machine.getStateByName("S0"));
+            machine.setInitState(machine.getStateByName("S0"));
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    private List<String> randomInputs(Random random, int count, int maxLength){
+        List<String> inputs = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            char[] input = new char[random.nextInt(maxLength + 1)];
+            for(int j = 0; j < input.length; j++){
+                input[j] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            inputs.add(String.valueOf(input));
+        }
+        return inputs;
+    }
+
+    private void assertEquivalent(CompiledFSM<Integer> expected, CompiledFSM<Integer> actual, List<String> inputs)
+    throws InvalidCharacterException{
+        assertEquals(expected.getStateCount(), actual.getStateCount());
+        assertSame(expected.getState(CompiledFSM.NULL_ID), actual.getState(CompiledFSM.NULL_ID));
+        assertSame(expected.getState(expected.getInitId()), actual.getState(actual.getInitId()));
+        for(String input : inputs){
+            assertSame(expected.runMachine(input), actual.runMachine(input));
+        }
+    }
+
+
+    //////////////
+    // renumbering tests
+
+    @Test
+    public void testBreadthFirst(){
+        Random random = new Random(39);
+        try {
+            CompiledFSM<Integer> compiled = makeModuloMachine(20).compile();
+            CompiledFSM<Integer> renumbered = compiled.renumberBreadthFirst();
+            assertEquivalent(compiled, renumbered, randomInputs(random, 300, 20));
+            assertEquals(1, renumbered.getInitId());
+            // the states reached by one character come right after the initial state
+            assertEquals(2, renumbered.step(1, renumbered.columnOf('1')));
+            assertEquals(3, renumbered.step(1, renumbered.columnOf('2')));
+            assertEquals("unreachable", renumbered.getState(renumbered.getStateCount() - 1).getName());
+        }
+        catch(Exception e){
+            fail("Could not renumber machine: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testByFrequency(){
+        Random random = new Random(40);
+        try {
+            CompiledFSM<Integer> compiled = makeModuloMachine(20).compile();
+            // only ever ones, which visits residues 0, 1, 4, 13, 0, ...
+            List<String> sample = List.of("1111", "11", "111111111");
+            CompiledFSM<Integer> renumbered = compiled.renumberByFrequency(sample);
+            assertEquivalent(compiled, renumbered, randomInputs(random, 300, 20));
+            assertEquals(Integer.valueOf(0), renumbered.getState(1).getValue());
+            for(int id = 2; id <= 4; id++){
+                assertTrue(List.of(1, 4, 13).contains(renumbered.getState(id).getValue()));
+            }
+            assertEquals("unreachable", renumbered.getState(renumbered.getStateCount() - 1).getName());
+
+            assertEquivalent(compiled, compiled.renumberByFrequency(List.of()), randomInputs(random, 100, 20));
+            assertThrows(InvalidCharacterException.class, () -> compiled.renumberByFrequency(List.of("13")));
+        }
+        catch(Exception e){
+            fail("Could not renumber machine: " + e.getMessage());
+        }
+    }
+}
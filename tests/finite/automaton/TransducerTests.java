@@ -0,0 +1,117 @@
+package finite.automaton;
+
+import finite.automaton.exceptions.InvalidCharacterException;
+import finite.automaton.state.State;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import static org.junit.Assert.assertThrows;
+
+public class TransducerTests extends TestCase {
+
+    char[] ALPHABET = {'a', 'b', 'c', ' '};
+
+
+    //////////////
+    // private helpers
+
+    // tracks whether the last character was a space, and so whether the next letter starts a word
+    private FSM<Integer> makeWordMachine(){
+        FSM<Integer> machine = new FSM<>(ALPHABET.clone());
+        try {
+            State<Integer> start = machine.setNewFinalState("start", 0);
+            State<Integer> inside = machine.setNewFinalState("inside", 1);
+            for(char c : ALPHABET){
+                machine.setTransition(start, c, c == ' ' ? start : inside);
+                machine.setTransition(inside, c, c == ' ' ? start : inside);
+            }
+            machine.setInitState(start);
+        }
+        catch(Exception e){
+            fail("Could not set up word machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    // capitalises the first letter of every word and drops repeated spaces
+    private Transducer<Integer> makeCapitaliser(FSM<Integer> machine){
+        try {
+            return new Transducer<>(machine, (from, c) -> {
+                if(c == ' '){
+                    return from.getValue() == 0 ? Transducer.NO_OUTPUT : ' ';
+                }
+                return from.getValue() == 0 ? Character.toUpperCase(c) : c;
+            });
+        }
+        catch(Exception e){
+            fail("Could not set up transducer: " + e.getMessage());
+            return null;
+        }
+    }
+
+
+    //////////////
+    // valid tests
+
+    @Test
+    public void testOutputs(){
+        FSM<Integer> machine = makeWordMachine();
+        Transducer<Integer> transducer = makeCapitaliser(machine);
+        // letters share a class, yet are written differently
+        assertTrue(transducer.getMachine().getClassCount() < ALPHABET.length);
+        try {
+            for(String input : new String[]{"", "a", "abc cab", "  ab   ba c ", "cccc"}){
+                StringBuilder output = new StringBuilder();
+                State<Integer> state = transducer.runMachine(input, output::append);
+                assertSame(machine.runMachine(input), state);
+                String expected = input.replaceAll(" +", " ").replaceFirst("^ ", "");
+                StringBuilder capitalised = new StringBuilder(expected);
+                for(int i = 0; i < capitalised.length(); i++){
+                    if(i == 0 || capitalised.charAt(i - 1) == ' '){
+                        capitalised.setCharAt(i, Character.toUpperCase(capitalised.charAt(i)));
+                    }
+                }
+                assertEquals(capitalised.toString(), output.toString());
+            }
+            assertEquals('B', transducer.getOutput(transducer.getMachine().getInitId(), 'b'));
+            assertEquals(Transducer.NO_OUTPUT, transducer.getOutput(transducer.getMachine().getInitId(), ' '));
+        }
+        catch(Exception e){
+            fail("Could not run transducer: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testChunks(){
+        Transducer<Integer> transducer = makeCapitaliser(makeWordMachine());
+        String input = "ab  ca b  bac";
+        try {
+            StringBuilder whole = new StringBuilder();
+            int wholeId = transducer.runToId(input, whole::append);
+            for(int split = 0; split <= input.length(); split++){
+                StringBuilder output = new StringBuilder();
+                int id = transducer.runToId(input.substring(0, split), output::append);
+                id = transducer.run(id, input.substring(split), output::append);
+                assertEquals(wholeId, id);
+                assertEquals(whole.toString(), output.toString());
+            }
+        }
+        catch(InvalidCharacterException e){
+            fail("Could not run transducer: " + e.getMessage());
+        }
+    }
+
+
+    //////////////
+    // invalid tests
+
+    @Test
+    public void testInvalid(){
+        Transducer<Integer> transducer = makeCapitaliser(makeWordMachine());
+        StringBuilder output = new StringBuilder();
+        // the outputs before the invalid character are written
+        assertThrows(InvalidCharacterException.class, () -> transducer.runToId("ab cd", output::append));
+        assertEquals("Ab C", output.toString());
+        assertThrows(InvalidCharacterException.class, () -> transducer.getOutput(0, 'z'));
+    }
+}
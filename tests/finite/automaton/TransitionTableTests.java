@@ -0,0 +1,107 @@
+package finite.automaton;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertThrows;
+
+public class TransitionTableTests extends TestCase {
+
+    char[] DIGITS = "0123456789".toCharArray();
+
+
+    //////////////
+    // private helpers
+
+    // residue of a base 10 number modulo the provided modulo
+    private FSM<Integer> makeModuloMachine(int modulo){
+        FSM<Integer> machine = new FSM<>(DIGITS.clone());
+        try {
+            for (int i = 0; i < modulo; i++) {
+                machine.setNewFinalState("S" + i, i);
+            }
+            for (int i = 0; i < modulo; i++) {
+                for (int digit = 0; digit < DIGITS.length; digit++) {
+                    machine.setTransition(machine.getStateByName("S" + i), DIGITS[digit],
+                            machine.getStateByName("S" + ((i * DIGITS.length + digit) % modulo)));
+                }
+            }
+            machine.setInitState(machine.getStateByName("S0"));
+        }
+        catch(Exception e){
+            fail("Could not set up modulo machine: " + e.getMessage());
+        }
+        return machine;
+    }
+
+    // a table of random ids, with the largest id in the last entry
+    private int[] randomTable(int stateCount, int columnCount){
+        Random random = new Random(stateCount);
+        int[] table = new int[stateCount * columnCount];
+        for(int i = 0; i < table.length; i++){
+            table[i] = random.nextInt(stateCount);
+        }
+        table[table.length - 1] = stateCount - 1;
+        return table;
+    }
+
+
+    //////////////
+    // width tests
+
+    @Test
+    public void testWidths(){
+        int[] stateCounts = {1, 256, 257, 65536, 65537};
+        Class<?>[] expected = {ByteArrayTable.class, ByteArrayTable.class, ShortArrayTable.class,
+                ShortArrayTable.class, IntArrayTable.class};
+        long[] widths = {Byte.BYTES, Byte.BYTES, Short.BYTES, Short.BYTES, Integer.BYTES};
+        for(int i = 0; i < stateCounts.length; i++){
+            int[] dense = randomTable(stateCounts[i], 3);
+            TransitionTable table = TransitionTable.ofDense(dense, stateCounts[i], 3);
+            assertEquals(expected[i], table.getClass());
+            assertEquals(dense.length * widths[i], table.getBytes());
+            for(int id = 0; id < stateCounts[i]; id++){
+                for(int col = 0; col < 3; col++){
+                    assertEquals(dense[id * 3 + col], table.next(id, col));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMachinesOfEveryWidth(){
+        Random random = new Random(38);
+        // 255 and 256 states are the last to fit in bytes, with the null state
+        for(int modulo : new int[]{7, 255, 256, 1000, 65535, 65536}){
+            FSM<Integer> machine = makeModuloMachine(modulo);
+            try {
+                CompiledFSM<Integer> compiled = machine.compile();
+                long width = compiled.getTableBytes() / ((long) compiled.getStateCount() * compiled.getClassCount());
+                assertEquals(modulo < 256 ? Byte.BYTES : modulo < 65536 ? Short.BYTES : Integer.BYTES, width);
+                for(int i = 0; i < 50; i++){
+                    char[] digits = new char[random.nextInt(40)];
+                    for(int j = 0; j < digits.length; j++){
+                        digits[j] = DIGITS[random.nextInt(DIGITS.length)];
+                    }
+                    String data = String.valueOf(digits);
+                    assertSame(machine.runMachine(data), compiled.runMachine(data));
+                }
+            }
+            catch(Exception e){
+                fail("Could not run machine: " + e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testHeapTableSize(){
+        assertEquals(998 * 10, CompiledFSM.heapTableSize(998, 10));
+        assertEquals(Integer.MAX_VALUE - 8, CompiledFSM.heapTableSize(1, Integer.MAX_VALUE - 8));
+        // products past the range of int, which would otherwise wrap around
+        assertThrows(IllegalStateException.class, () -> CompiledFSM.heapTableSize(1 << 16, 1 << 15));
+        assertThrows(IllegalStateException.class, () -> CompiledFSM.heapTableSize(100_000_000, 50));
+        assertThrows(IllegalStateException.class, () -> CompiledFSM.heapTableSize(Integer.MAX_VALUE, 1));
+    }
+}
@@ -88,6 +88,26 @@ public class MachineRunFailureTests extends TestCase {
                 () -> machine.runMachine(INVALID_STRINGS[0]));
     }
 
+    @Test
+    public void testReplacedStateNotCompiled(){
+        FSM<Integer> machine = new FSM<>(ALPHABET);
+        FSM<Integer> replacedInit = new FSM<>(ALPHABET);
+        fillInMachine(machine, true);
+        fillInMachine(replacedInit, true);
+        try {
+            // S1 is replaced while S0 and S2 still go to the old one
+            machine.incorporateNewState(new State<>(NAMES[1], false, null));
+            // the new states go nowhere, but the initial state is the old S0
+            for(String name : NAMES){
+                replacedInit.incorporateNewState(new State<>(name, false, null));
+            }
+        }
+        catch(Exception e){
+            fail("Could not replace states: " + e.getMessage());
+        }
+        assertThrows(IncompleteMachineException.class, machine::compile);
+        assertThrows(IncompleteMachineException.class, replacedInit::compile);
+    }
 
     //////////////
     // strings tests